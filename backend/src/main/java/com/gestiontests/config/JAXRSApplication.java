@@ -18,9 +18,11 @@ public class JAXRSApplication extends Application {
         resources.add(com.gestiontests.rest.TestResource.class);
         resources.add(com.gestiontests.rest.ResultatResource.class);
         resources.add(com.gestiontests.rest.AdministrationResource.class);
+        resources.add(com.gestiontests.rest.MetriquesResource.class);
         
         // Filtres et providers
         resources.add(com.gestiontests.config.CORSFilter.class);
+        resources.add(com.gestiontests.config.MetriquesFiltre.class);
         resources.add(com.gestiontests.config.JacksonConfiguration.class);
         
         return resources;
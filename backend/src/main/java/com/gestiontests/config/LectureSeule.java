@@ -0,0 +1,28 @@
+package com.gestiontests.config;
+
+import jakarta.enterprise.util.Nonbinding;
+import jakarta.interceptor.InterceptorBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Méthode de consultation pure : appelée hors transaction, elle s'exécute dans une transaction
+ * en lecture seule (entités sans instantané de dirty checking, pas de flush, connexion JDBC
+ * marquée en lecture seule). Appelée dans une transaction existante, elle s'y joint sans rien
+ * changer, ce qui laisse intactes les écritures de l'appelant.
+ * Avec replique = true, la transaction est servie par la réplique de lecture tant que son retard
+ * reste sous le seuil toléré (voir RoutageLecturesService).
+ */
+@Inherited
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface LectureSeule {
+
+    @Nonbinding
+    boolean replique() default false;
+}
@@ -0,0 +1,96 @@
+package com.gestiontests.config;
+
+import com.gestiontests.service.RoutageLecturesService;
+import jakarta.annotation.Priority;
+import jakarta.annotation.Resource;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.transaction.UserTransaction;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+
+/**
+ * Ouvre la transaction des méthodes @LectureSeule. La priorité le place avant l'intercepteur
+ * @Transactional (PLATFORM_BEFORE + 200) : une méthode à la fois @Transactional et @LectureSeule
+ * rejoint ainsi la transaction en lecture seule au lieu d'en ouvrir une ordinaire.
+ * Les méthodes @LectureSeule(replique = true) sont aiguillées vers la réplique si elle est à jour.
+ */
+@LectureSeule
+@Interceptor
+@Priority(Interceptor.Priority.PLATFORM_BEFORE + 150)
+public class LectureSeuleInterceptor {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Resource
+    private TransactionSynchronizationRegistry registreTransactions;
+
+    @Resource
+    private UserTransaction transaction;
+
+    @Inject
+    private RoutageLecturesService routageLectures;
+
+    @AroundInvoke
+    public Object executer(InvocationContext contexte) throws Exception {
+        if (registreTransactions.getTransactionStatus() != Status.STATUS_NO_TRANSACTION) {
+            return contexte.proceed();
+        }
+
+        transaction.begin();
+        Session session = null;
+        try {
+            if (demandeReplique(contexte)) {
+                boolean replique = routageLectures.repliqueUtilisable();
+                if (replique) {
+                    // Avant toute requête : la première connexion de la session est prise sur la réplique
+                    RoutageSourceDonnees.designer(registreTransactions.getTransactionKey());
+                }
+                routageLectures.compterLecture(replique);
+            }
+            session = entityManager.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            session.doWork(connexion -> connexion.setReadOnly(true));
+
+            Object resultat = contexte.proceed();
+            retablirConnexion(session);
+            transaction.commit();
+            return resultat;
+        } catch (Exception e) {
+            if (session != null) {
+                retablirConnexion(session);
+            }
+            if (transaction.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            RoutageSourceDonnees.liberer();
+        }
+    }
+
+    private static boolean demandeReplique(InvocationContext contexte) {
+        LectureSeule annotation = contexte.getMethod().getAnnotation(LectureSeule.class);
+        if (annotation == null) {
+            annotation = contexte.getMethod().getDeclaringClass().getAnnotation(LectureSeule.class);
+        }
+        return annotation != null && annotation.replique();
+    }
+
+    // La connexion retourne au pool avec la transaction : elle doit en repartir en lecture-écriture
+    private static void retablirConnexion(Session session) {
+        try {
+            session.doWork(connexion -> connexion.setReadOnly(false));
+        } catch (Exception e) {
+            System.err.println("Rétablissement de la connexion en lecture-écriture impossible: " + e.getMessage());
+        }
+    }
+}
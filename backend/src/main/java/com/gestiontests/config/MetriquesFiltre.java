@@ -0,0 +1,71 @@
+package com.gestiontests.config;
+
+import com.gestiontests.service.MetriquesHttpService;
+import com.gestiontests.service.MetriquesHttpService.MesureRoute;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Mesure la durée de chaque requête REST pour sa route (voir MetriquesHttpService). La priorité
+ * basse fait passer ce filtre avant les autres à l'aller et après eux au retour.
+ *
+ * Une requête synchrone commence et finit sur le même thread : son chronomètre est celui du
+ * thread et rien n'est alloué. Une requête suspendue (@Suspended) peut reprendre sur un autre
+ * thread ; elle reçoit son propre chronomètre, porté par les propriétés de la requête.
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION - 500)
+public class MetriquesFiltre implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String PROPRIETE_CHRONOMETRE = MetriquesFiltre.class.getName() + ".chronometre";
+
+    private static final ThreadLocal<Chronometre> chronometreThread = ThreadLocal.withInitial(Chronometre::new);
+
+    @Inject
+    private MetriquesHttpService metriquesHttpService;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        MesureRoute route = metriquesHttpService.route(resourceInfo.getResourceMethod());
+        Chronometre chronometre;
+        if (route.isAsynchrone()) {
+            chronometre = new Chronometre();
+            requestContext.setProperty(PROPRIETE_CHRONOMETRE, chronometre);
+        } else {
+            chronometre = chronometreThread.get();
+        }
+        chronometre.route = route;
+        chronometre.debut = System.nanoTime();
+        route.debut();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Object propriete = requestContext.getProperty(PROPRIETE_CHRONOMETRE);
+        Chronometre chronometre = propriete != null ? (Chronometre) propriete : chronometreThread.get();
+        MesureRoute route = chronometre.route;
+        if (route == null) {
+            // Filtre de requête non exécuté : requête non résolue ou interrompue avant la ressource
+            metriquesHttpService.route(resourceInfo.getResourceMethod()).compter(responseContext.getStatus());
+            return;
+        }
+        chronometre.route = null;
+        route.fin(System.nanoTime() - chronometre.debut, responseContext.getStatus());
+    }
+
+    private static final class Chronometre {
+        private MesureRoute route;
+        private long debut;
+    }
+}
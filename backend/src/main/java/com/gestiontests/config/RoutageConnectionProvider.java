@@ -0,0 +1,101 @@
+package com.gestiontests.config;
+
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.spi.Configurable;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Fournisseur de connexions Hibernate : la primaire (jta-data-source de l'unité de persistance)
+ * par défaut, la réplique pour les transactions désignées par RoutageSourceDonnees. La réplique
+ * est une source non JTA : ses connexions ne sont pas enrôlées dans la transaction primaire.
+ * Le relâchement agressif (après chaque requête) reste permis : sur la primaire, le serveur rend
+ * la connexion enrôlée dans la transaction JTA ; sur la réplique, la connexion est épinglée à la
+ * transaction par RoutageSourceDonnees et n'est fermée qu'à sa fin.
+ */
+public class RoutageConnectionProvider implements ConnectionProvider, Configurable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] CLES_SOURCE_PRIMAIRE = {
+        "hibernate.connection.datasource",
+        "jakarta.persistence.jtaDataSource",
+        "javax.persistence.jtaDataSource"
+    };
+
+    private static final String NOM_JNDI_PRIMAIRE_PAR_DEFAUT = "java:/MySqlDS";
+
+    private DataSource primaire;
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void configure(Map configuration) {
+        Object source = null;
+        for (String cle : CLES_SOURCE_PRIMAIRE) {
+            if (configuration.get(cle) != null) {
+                source = configuration.get(cle);
+                break;
+            }
+        }
+        try {
+            if (source instanceof DataSource) {
+                primaire = (DataSource) source;
+            } else {
+                String nom = source != null ? source.toString() : NOM_JNDI_PRIMAIRE_PAR_DEFAUT;
+                primaire = (DataSource) new InitialContext().lookup(nom);
+            }
+        } catch (NamingException e) {
+            throw new IllegalStateException("Source de données primaire introuvable: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (RoutageSourceDonnees.versReplique()) {
+            Connection replique = RoutageSourceDonnees.connexionReplique();
+            if (replique != null) {
+                return replique;
+            }
+        }
+        return primaire.getConnection();
+    }
+
+    @Override
+    public void closeConnection(Connection connexion) throws SQLException {
+        if (RoutageSourceDonnees.estEpinglee(connexion)) {
+            // Rendue au pool à la fin de la transaction
+            return;
+        }
+        connexion.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public boolean isUnwrappableAs(Class type) {
+        return ConnectionProvider.class.equals(type)
+            || RoutageConnectionProvider.class.isAssignableFrom(type)
+            || DataSource.class.isAssignableFrom(type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> type) {
+        if (ConnectionProvider.class.equals(type) || RoutageConnectionProvider.class.isAssignableFrom(type)) {
+            return (T) this;
+        }
+        if (DataSource.class.isAssignableFrom(type)) {
+            return (T) primaire;
+        }
+        throw new IllegalArgumentException("Type non pris en charge: " + type);
+    }
+}
@@ -0,0 +1,151 @@
+package com.gestiontests.config;
+
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aiguillage des connexions entre la base primaire et la réplique de lecture. L'intercepteur
+ * @LectureSeule désigne la transaction à servir par la réplique ; le fournisseur de connexions
+ * ne l'honore que pour cette transaction-là, de sorte qu'une transaction REQUIRES_NEW ouverte
+ * pendant la lecture écrit toujours sur la primaire. Une transaction servie par la réplique garde
+ * la même connexion du début à la fin (même instantané de lecture, état read-only appliqué et
+ * rétabli sur cette connexion-là) ; elle est rendue au pool à la fin de la transaction.
+ */
+public final class RoutageSourceDonnees {
+
+    public static final String NOM_JNDI_REPLIQUE =
+        System.getProperty("gestiontests.replique.jndi", "java:/MySqlReplicaDS");
+
+    private static final String NOM_JNDI_REGISTRE = "java:comp/TransactionSynchronizationRegistry";
+
+    private static final String CLE_CONNEXION_REPLIQUE = RoutageSourceDonnees.class.getName() + ".connexion";
+
+    private static final ThreadLocal<Object> transactionReplique = new ThreadLocal<>();
+
+    // Connexions de réplique attachées à une transaction en cours
+    private static final Set<Connection> connexionsEpinglees = ConcurrentHashMap.newKeySet();
+
+    private static volatile TransactionSynchronizationRegistry registre;
+    private static volatile DataSource replique;
+    private static volatile boolean repliqueRecherchee = false;
+
+    private RoutageSourceDonnees() {
+    }
+
+    /**
+     * Source de la réplique, ou null si elle n'est pas déclarée dans le serveur
+     */
+    public static DataSource getReplique() {
+        if (!repliqueRecherchee) {
+            try {
+                replique = (DataSource) new InitialContext().lookup(NOM_JNDI_REPLIQUE);
+                System.out.println("Réplique de lecture: " + NOM_JNDI_REPLIQUE);
+            } catch (NamingException e) {
+                System.out.println("Réplique de lecture absente (" + NOM_JNDI_REPLIQUE + "), lectures sur la primaire");
+            }
+            repliqueRecherchee = true;
+        }
+        return replique;
+    }
+
+    /**
+     * Les lectures restantes de la transaction courante iront sur la primaire. À appeler avant
+     * la première requête dont le résultat doit refléter les dernières écritures.
+     */
+    public static void forcerPrimaire() {
+        transactionReplique.remove();
+    }
+
+    static void designer(Object cleTransaction) {
+        transactionReplique.set(cleTransaction);
+    }
+
+    static void liberer() {
+        transactionReplique.remove();
+    }
+
+    static boolean versReplique() {
+        Object cle = transactionReplique.get();
+        if (cle == null) {
+            return false;
+        }
+        try {
+            return cle.equals(getRegistre().getTransactionKey());
+        } catch (NamingException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Connexion de réplique de la transaction courante, ouverte à la première demande et fermée à
+     * la fin de la transaction ; null si la réplique n'est pas déclarée
+     */
+    static Connection connexionReplique() throws SQLException {
+        DataSource source = getReplique();
+        if (source == null) {
+            return null;
+        }
+        TransactionSynchronizationRegistry registreCourant;
+        try {
+            registreCourant = getRegistre();
+        } catch (NamingException e) {
+            return null;
+        }
+        Connection connexion = (Connection) registreCourant.getResource(CLE_CONNEXION_REPLIQUE);
+        if (connexion != null) {
+            return connexion;
+        }
+        Connection ouverte = source.getConnection();
+        registreCourant.putResource(CLE_CONNEXION_REPLIQUE, ouverte);
+        connexionsEpinglees.add(ouverte);
+        registreCourant.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int statut) {
+                rendre(ouverte);
+            }
+        });
+        return ouverte;
+    }
+
+    /**
+     * Vrai pour une connexion de réplique encore attachée à sa transaction : Hibernate peut la
+     * relâcher après chaque requête, elle n'est pourtant rendue au pool qu'en fin de transaction
+     */
+    static boolean estEpinglee(Connection connexion) {
+        return connexionsEpinglees.contains(connexion);
+    }
+
+    private static void rendre(Connection connexion) {
+        connexionsEpinglees.remove(connexion);
+        try {
+            // La connexion repart dans le pool en lecture-écriture, quel que soit l'état laissé par la lecture
+            connexion.setReadOnly(false);
+        } catch (SQLException e) {
+            System.err.println("Rétablissement de la connexion de réplique impossible: " + e.getMessage());
+        }
+        try {
+            connexion.close();
+        } catch (SQLException e) {
+            System.err.println("Fermeture de la connexion de réplique impossible: " + e.getMessage());
+        }
+    }
+
+    private static TransactionSynchronizationRegistry getRegistre() throws NamingException {
+        if (registre == null) {
+            registre = (TransactionSynchronizationRegistry) new InitialContext().lookup(NOM_JNDI_REGISTRE);
+        }
+        return registre;
+    }
+}
@@ -0,0 +1,96 @@
+package com.gestiontests.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Réponse mémorisée d'une requête porteuse d'une clé d'idempotence (en-tête Idempotency-Key),
+ * renvoyée telle quelle aux requêtes répétées avec la même clé.
+ */
+@Entity
+@Table(name = "cles_idempotence",
+       uniqueConstraints = @UniqueConstraint(name = "unique_cle_idempotence", columnNames = {"cle"}))
+public class CleIdempotence {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    // Portée (opération et session) suivie de la clé fournie par le client
+    @Column(name = "cle", nullable = false, length = 200)
+    private String cle;
+    
+    @Column(name = "statut_http", nullable = false)
+    private Integer statutHttp;
+    
+    @Lob
+    @Column(name = "reponse", nullable = false, columnDefinition = "LONGTEXT")
+    private String reponse;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    // SHA-256 (hexadécimal) du corps de la requête d'origine ; une répétition au corps différent est refusée
+    @Column(name = "empreinte", length = 64)
+    private String empreinte;
+    
+    // Constructeurs
+    public CleIdempotence() {}
+    
+    public CleIdempotence(String cle, String empreinte, Integer statutHttp, String reponse) {
+        this.cle = cle;
+        this.empreinte = empreinte;
+        this.statutHttp = statutHttp;
+        this.reponse = reponse;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    // Getters et Setters
+    public Integer getId() {
+        return id;
+    }
+    
+    public void setId(Integer id) {
+        this.id = id;
+    }
+    
+    public String getCle() {
+        return cle;
+    }
+    
+    public void setCle(String cle) {
+        this.cle = cle;
+    }
+    
+    public String getEmpreinte() {
+        return empreinte;
+    }
+    
+    public void setEmpreinte(String empreinte) {
+        this.empreinte = empreinte;
+    }
+    
+    public Integer getStatutHttp() {
+        return statutHttp;
+    }
+    
+    public void setStatutHttp(Integer statutHttp) {
+        this.statutHttp = statutHttp;
+    }
+    
+    public String getReponse() {
+        return reponse;
+    }
+    
+    public void setReponse(String reponse) {
+        this.reponse = reponse;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
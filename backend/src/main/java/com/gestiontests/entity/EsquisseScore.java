@@ -0,0 +1,104 @@
+package com.gestiontests.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Distribution des scores sauvegardée (esquisse de quantiles et histogramme sérialisés)
+ * pour une dimension : global, créneau, école ou jour.
+ */
+@Entity
+@Table(name = "esquisses_scores",
+       uniqueConstraints = @UniqueConstraint(name = "unique_esquisse", columnNames = {"dimension", "cle"}))
+public class EsquisseScore {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    
+    @Column(name = "dimension", nullable = false, length = 20)
+    private String dimension;
+    
+    @Column(name = "cle", nullable = false, length = 150)
+    private String cle;
+    
+    @Lob
+    @Column(name = "donnees", nullable = false, columnDefinition = "LONGTEXT")
+    private String donnees;
+    
+    // Date de fin de la dernière session intégrée (reprise au redémarrage)
+    @Column(name = "derniere_fin")
+    private LocalDateTime derniereFin;
+    
+    // Identifiant de cette dernière session, pour départager les dates de fin égales
+    @Column(name = "derniere_session")
+    private Integer derniereSession;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Constructeurs
+    public EsquisseScore() {}
+    
+    public EsquisseScore(String dimension, String cle) {
+        this.dimension = dimension;
+        this.cle = cle;
+    }
+    
+    // Getters et Setters
+    public Integer getId() {
+        return id;
+    }
+    
+    public void setId(Integer id) {
+        this.id = id;
+    }
+    
+    public String getDimension() {
+        return dimension;
+    }
+    
+    public void setDimension(String dimension) {
+        this.dimension = dimension;
+    }
+    
+    public String getCle() {
+        return cle;
+    }
+    
+    public void setCle(String cle) {
+        this.cle = cle;
+    }
+    
+    public String getDonnees() {
+        return donnees;
+    }
+    
+    public void setDonnees(String donnees) {
+        this.donnees = donnees;
+    }
+    
+    public LocalDateTime getDerniereFin() {
+        return derniereFin;
+    }
+    
+    public void setDerniereFin(LocalDateTime derniereFin) {
+        this.derniereFin = derniereFin;
+    }
+    
+    public Integer getDerniereSession() {
+        return derniereSession;
+    }
+    
+    public void setDerniereSession(Integer derniereSession) {
+        this.derniereSession = derniereSession;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -5,7 +5,9 @@ import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reponses_candidat")
+@Table(name = "reponses_candidat", uniqueConstraints = {
+    @UniqueConstraint(name = "unique_reponse_session_question", columnNames = "id_session_question")
+})
 public class ReponseCandidat {
     
     @Id
@@ -33,6 +35,15 @@ public class ReponseCandidat {
     @Column(name = "est_correct", nullable = false)
     private Boolean estCorrect = false;
     
+    // Arrivée sur le serveur de la requête qui a fixé la réponse courante (fusion des écritures concurrentes)
+    @Column(name = "date_modification")
+    private LocalDateTime dateModification;
+    
+    // Verrouillage optimiste : incrémenté à chaque mise à jour
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version = 0;
+    
     // Constructeurs
     public ReponseCandidat() {}
     
@@ -116,6 +127,22 @@ public class ReponseCandidat {
         this.estCorrect = estCorrect;
     }
     
+    public LocalDateTime getDateModification() {
+        return dateModification;
+    }
+    
+    public void setDateModification(LocalDateTime dateModification) {
+        this.dateModification = dateModification;
+    }
+    
+    public Integer getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+    
     @PrePersist
     protected void onCreate() {
         dateReponse = LocalDateTime.now();
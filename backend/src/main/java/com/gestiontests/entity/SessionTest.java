@@ -52,6 +52,11 @@ public class SessionTest {
     @JsonIgnore
     private List<SessionQuestion> sessionQuestions;
     
+    // Verrouillage optimiste : incrémenté à chaque mise à jour
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version = 0;
+    
     // Constructeurs
     public SessionTest() {}
     
@@ -150,6 +155,14 @@ public class SessionTest {
         this.pourcentage = pourcentage;
     }
     
+    public Integer getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+    
     public List<SessionQuestion> getSessionQuestions() {
         return sessionQuestions;
     }
@@ -1,5 +1,6 @@
 package com.gestiontests.repository;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.Administrateur;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
@@ -15,6 +16,7 @@ public class AdministrateurRepository extends GenericRepository<Administrateur,
         super(Administrateur.class);
     }
     
+    @LectureSeule
     public Optional<Administrateur> findByUsername(String username) {
         TypedQuery<Administrateur> query = entityManager.createQuery(
             "SELECT a FROM Administrateur a WHERE a.username = :username", Administrateur.class);
@@ -23,6 +25,7 @@ public class AdministrateurRepository extends GenericRepository<Administrateur,
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public Optional<Administrateur> findByEmail(String email) {
         TypedQuery<Administrateur> query = entityManager.createQuery(
             "SELECT a FROM Administrateur a WHERE a.email = :email", Administrateur.class);
@@ -31,6 +34,7 @@ public class AdministrateurRepository extends GenericRepository<Administrateur,
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public List<Administrateur> findByEstActif(Boolean estActif) {
         TypedQuery<Administrateur> query = entityManager.createQuery(
             "SELECT a FROM Administrateur a WHERE a.estActif = :estActif ORDER BY a.createdAt DESC", 
@@ -39,18 +43,21 @@ public class AdministrateurRepository extends GenericRepository<Administrateur,
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Administrateur> findAllOrderByUsername() {
         TypedQuery<Administrateur> query = entityManager.createQuery(
             "SELECT a FROM Administrateur a ORDER BY a.username", Administrateur.class);
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Administrateur> findAllOrderByCreatedAt() {
         TypedQuery<Administrateur> query = entityManager.createQuery(
             "SELECT a FROM Administrateur a ORDER BY a.createdAt DESC", Administrateur.class);
         return query.getResultList();
     }
     
+    @LectureSeule
     public boolean existsByUsername(String username) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(a) FROM Administrateur a WHERE a.username = :username", Long.class);
@@ -58,6 +65,7 @@ public class AdministrateurRepository extends GenericRepository<Administrateur,
         return query.getSingleResult() > 0;
     }
     
+    @LectureSeule
     public boolean existsByEmail(String email) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(a) FROM Administrateur a WHERE a.email = :email", Long.class);
@@ -76,6 +84,7 @@ public class AdministrateurRepository extends GenericRepository<Administrateur,
         return super.create(administrateur);
     }
     
+    @LectureSeule
     public long countByEstActif(Boolean estActif) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(a) FROM Administrateur a WHERE a.estActif = :estActif", Long.class);
@@ -83,6 +92,7 @@ public class AdministrateurRepository extends GenericRepository<Administrateur,
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public List<Administrateur> findRecentAdministrateurs(int limit) {
         TypedQuery<Administrateur> query = entityManager.createQuery(
             "SELECT a FROM Administrateur a ORDER BY a.createdAt DESC", Administrateur.class);
@@ -1,5 +1,6 @@
 package com.gestiontests.repository;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.Candidat;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
@@ -15,6 +16,7 @@ public class CandidatRepository extends GenericRepository<Candidat, Integer> {
         super(Candidat.class);
     }
     
+    @LectureSeule
     public Optional<Candidat> findByEmail(String email) {
         TypedQuery<Candidat> query = entityManager.createQuery(
             "SELECT c FROM Candidat c WHERE c.email = :email", Candidat.class);
@@ -23,6 +25,7 @@ public class CandidatRepository extends GenericRepository<Candidat, Integer> {
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public Optional<Candidat> findByCodeSession(String codeSession) {
         TypedQuery<Candidat> query = entityManager.createQuery(
             "SELECT c FROM Candidat c WHERE c.codeSession = :codeSession", Candidat.class);
@@ -31,6 +34,7 @@ public class CandidatRepository extends GenericRepository<Candidat, Integer> {
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public List<Candidat> findByNomOrPrenomOrEcole(String searchTerm) {
         TypedQuery<Candidat> query = entityManager.createQuery(
             "SELECT c FROM Candidat c WHERE " +
@@ -41,6 +45,28 @@ public class CandidatRepository extends GenericRepository<Candidat, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
+    public List<Candidat> findByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        TypedQuery<Candidat> query = entityManager.createQuery(
+            "SELECT c FROM Candidat c WHERE c.id IN :ids", Candidat.class);
+        query.setParameter("ids", ids);
+        return query.getResultList();
+    }
+    
+    /**
+     * Projection des seuls champs indexés par la recherche (id, nom, prénom, école, email)
+     */
+    @LectureSeule
+    public List<Object[]> findChampsRecherche() {
+        TypedQuery<Object[]> query = entityManager.createQuery(
+            "SELECT c.id, c.nom, c.prenom, c.ecole, c.email FROM Candidat c", Object[].class);
+        return query.getResultList();
+    }
+    
+    @LectureSeule
     public List<Candidat> findByEstValide(Boolean estValide) {
         TypedQuery<Candidat> query = entityManager.createQuery(
             "SELECT c FROM Candidat c WHERE c.estValide = :estValide", Candidat.class);
@@ -48,6 +74,7 @@ public class CandidatRepository extends GenericRepository<Candidat, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Candidat> findByEcole(String ecole) {
         TypedQuery<Candidat> query = entityManager.createQuery(
             "SELECT c FROM Candidat c WHERE LOWER(c.ecole) = LOWER(:ecole)", Candidat.class);
@@ -55,6 +82,7 @@ public class CandidatRepository extends GenericRepository<Candidat, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Candidat> findByFiliere(String filiere) {
         TypedQuery<Candidat> query = entityManager.createQuery(
             "SELECT c FROM Candidat c WHERE LOWER(c.filiere) = LOWER(:filiere)", Candidat.class);
@@ -62,6 +90,7 @@ public class CandidatRepository extends GenericRepository<Candidat, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public boolean existsByEmail(String email) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(c) FROM Candidat c WHERE c.email = :email", Long.class);
@@ -69,6 +98,7 @@ public class CandidatRepository extends GenericRepository<Candidat, Integer> {
         return query.getSingleResult() > 0;
     }
     
+    @LectureSeule
     public boolean existsByCodeSession(String codeSession) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(c) FROM Candidat c WHERE c.codeSession = :codeSession", Long.class);
@@ -76,6 +106,7 @@ public class CandidatRepository extends GenericRepository<Candidat, Integer> {
         return query.getSingleResult() > 0;
     }
     
+    @LectureSeule
     public List<Candidat> findRecentCandidates(int limit) {
         TypedQuery<Candidat> query = entityManager.createQuery(
             "SELECT c FROM Candidat c ORDER BY c.createdAt DESC", Candidat.class);
@@ -0,0 +1,50 @@
+package com.gestiontests.repository;
+
+import com.gestiontests.config.LectureSeule;
+import com.gestiontests.entity.CleIdempotence;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Named;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Named
+@ApplicationScoped
+public class CleIdempotenceRepository extends GenericRepository<CleIdempotence, Integer> {
+    
+    public CleIdempotenceRepository() {
+        super(CleIdempotence.class);
+    }
+    
+    @LectureSeule
+    public Optional<CleIdempotence> findByCleCreeeApres(String cle, LocalDateTime apres) {
+        TypedQuery<CleIdempotence> query = entityManager.createQuery(
+            "SELECT c FROM CleIdempotence c WHERE c.cle = :cle AND c.createdAt > :apres", CleIdempotence.class);
+        query.setParameter("cle", cle);
+        query.setParameter("apres", apres);
+        List<CleIdempotence> results = query.getResultList();
+        return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
+    }
+    
+    /**
+     * Mémorise la réponse d'une clé dans sa propre transaction ; une clé déjà présente est conservée
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void sauvegarder(String cle, String empreinte, int statutHttp, String reponse) {
+        TypedQuery<Long> query = entityManager.createQuery(
+            "SELECT COUNT(c) FROM CleIdempotence c WHERE c.cle = :cle", Long.class);
+        query.setParameter("cle", cle);
+        if (query.getSingleResult() == 0) {
+            entityManager.persist(new CleIdempotence(cle, empreinte, statutHttp, reponse));
+        }
+    }
+    
+    @Transactional
+    public int supprimerCreeesAvant(LocalDateTime avant) {
+        return entityManager.createQuery("DELETE FROM CleIdempotence c WHERE c.createdAt < :avant")
+            .setParameter("avant", avant)
+            .executeUpdate();
+    }
+}
@@ -1,5 +1,6 @@
 package com.gestiontests.repository;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.CreneauHoraire;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
@@ -17,6 +18,7 @@ public class CreneauHoraireRepository extends GenericRepository<CreneauHoraire,
         super(CreneauHoraire.class);
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findByDateExam(LocalDate dateExam) {
         TypedQuery<CreneauHoraire> query = entityManager.createQuery(
             "SELECT c FROM CreneauHoraire c WHERE c.dateExam = :dateExam ORDER BY c.heureDebut", 
@@ -25,6 +27,7 @@ public class CreneauHoraireRepository extends GenericRepository<CreneauHoraire,
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findByDateBetween(LocalDate startDate, LocalDate endDate) {
         TypedQuery<CreneauHoraire> query = entityManager.createQuery(
             "SELECT c FROM CreneauHoraire c WHERE c.dateExam BETWEEN :startDate AND :endDate ORDER BY c.dateExam, c.heureDebut", 
@@ -34,6 +37,7 @@ public class CreneauHoraireRepository extends GenericRepository<CreneauHoraire,
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findAvailableCreneaux() {
         TypedQuery<CreneauHoraire> query = entityManager.createQuery(
             "SELECT c FROM CreneauHoraire c WHERE c.estComplet = false AND c.dateExam >= :today ORDER BY c.dateExam, c.heureDebut", 
@@ -42,6 +46,7 @@ public class CreneauHoraireRepository extends GenericRepository<CreneauHoraire,
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findFutureCreneaux() {
         TypedQuery<CreneauHoraire> query = entityManager.createQuery(
             "SELECT c FROM CreneauHoraire c WHERE c.dateExam >= :today ORDER BY c.dateExam, c.heureDebut", 
@@ -50,6 +55,7 @@ public class CreneauHoraireRepository extends GenericRepository<CreneauHoraire,
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findPastCreneaux() {
         TypedQuery<CreneauHoraire> query = entityManager.createQuery(
             "SELECT c FROM CreneauHoraire c WHERE c.dateExam < :today ORDER BY c.dateExam DESC, c.heureDebut DESC", 
@@ -58,6 +64,7 @@ public class CreneauHoraireRepository extends GenericRepository<CreneauHoraire,
         return query.getResultList();
     }
     
+    @LectureSeule
     public Optional<CreneauHoraire> findNextAvailable() {
         TypedQuery<CreneauHoraire> query = entityManager.createQuery(
             "SELECT c FROM CreneauHoraire c WHERE c.estComplet = false AND c.dateExam >= :today ORDER BY c.dateExam, c.heureDebut", 
@@ -68,6 +75,7 @@ public class CreneauHoraireRepository extends GenericRepository<CreneauHoraire,
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findByEstComplet(Boolean estComplet) {
         TypedQuery<CreneauHoraire> query = entityManager.createQuery(
             "SELECT c FROM CreneauHoraire c WHERE c.estComplet = :estComplet ORDER BY c.dateExam, c.heureDebut", 
@@ -76,6 +84,7 @@ public class CreneauHoraireRepository extends GenericRepository<CreneauHoraire,
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findCreneauxInNextDays(int days) {
         LocalDate endDate = LocalDate.now().plusDays(days);
         TypedQuery<CreneauHoraire> query = entityManager.createQuery(
@@ -86,6 +95,7 @@ public class CreneauHoraireRepository extends GenericRepository<CreneauHoraire,
         return query.getResultList();
     }
     
+    @LectureSeule
     public boolean isCreneauAvailable(Integer creneauId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(c) FROM CreneauHoraire c WHERE c.id = :id AND c.estComplet = false", Long.class);
@@ -93,6 +103,7 @@ public class CreneauHoraireRepository extends GenericRepository<CreneauHoraire,
         return query.getSingleResult() > 0;
     }
     
+    @LectureSeule
     public long countAvailableCreneaux() {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(c) FROM CreneauHoraire c WHERE c.estComplet = false AND c.dateExam >= :today", Long.class);
@@ -100,6 +111,7 @@ public class CreneauHoraireRepository extends GenericRepository<CreneauHoraire,
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findCreneauxByHeure(LocalDate date, String heure) {
         TypedQuery<CreneauHoraire> query = entityManager.createQuery(
             "SELECT c FROM CreneauHoraire c WHERE c.dateExam = :date AND c.heureDebut = :heure ORDER BY c.heureDebut", 
@@ -0,0 +1,131 @@
+package com.gestiontests.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Critères de recherche des sessions de test (jointure SessionTest / Candidat).
+ * Les filtres renseignés sont combinés par ET ; la pagination se fait par curseur
+ * (dateDebut, id) afin de borner la taille des résultats.
+ */
+public class CriteresRechercheSession {
+
+    public static final int LIMITE_PAR_DEFAUT = 50;
+    public static final int LIMITE_MAX = 200;
+
+    // Terme libre recherché dans le nom, le prénom, l'école ou l'email du candidat (résolu par l'index)
+    private String terme;
+    private String nom;
+    private String prenom;
+    private String ecole;
+    private String codeSession;
+
+    // Candidats déjà résolus (par exemple via l'index de recherche)
+    private List<Integer> candidatIds;
+
+    // Curseur : dernière ligne de la page précédente
+    private LocalDateTime apresDateDebut;
+    private Integer apresId;
+
+    private int limite = LIMITE_PAR_DEFAUT;
+
+    public CriteresRechercheSession() {}
+
+    public static CriteresRechercheSession parTerme(String terme) {
+        CriteresRechercheSession criteres = new CriteresRechercheSession();
+        criteres.setTerme(terme);
+        return criteres;
+    }
+
+    /**
+     * Indique si au moins un filtre est renseigné
+     */
+    public boolean aDesFiltres() {
+        return estRenseigne(terme) || estRenseigne(nom) || estRenseigne(prenom)
+            || estRenseigne(ecole) || estRenseigne(codeSession) || candidatIds != null;
+    }
+
+    public static boolean estRenseigne(String valeur) {
+        return valeur != null && !valeur.trim().isEmpty();
+    }
+
+    // Getters et Setters
+    public String getTerme() {
+        return terme;
+    }
+
+    public void setTerme(String terme) {
+        this.terme = terme;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public void setNom(String nom) {
+        this.nom = nom;
+    }
+
+    public String getPrenom() {
+        return prenom;
+    }
+
+    public void setPrenom(String prenom) {
+        this.prenom = prenom;
+    }
+
+    public String getEcole() {
+        return ecole;
+    }
+
+    public void setEcole(String ecole) {
+        this.ecole = ecole;
+    }
+
+    public String getCodeSession() {
+        return codeSession;
+    }
+
+    public void setCodeSession(String codeSession) {
+        this.codeSession = codeSession;
+    }
+
+    public List<Integer> getCandidatIds() {
+        return candidatIds;
+    }
+
+    public void setCandidatIds(List<Integer> candidatIds) {
+        this.candidatIds = candidatIds;
+    }
+
+    public LocalDateTime getApresDateDebut() {
+        return apresDateDebut;
+    }
+
+    public void setApresDateDebut(LocalDateTime apresDateDebut) {
+        this.apresDateDebut = apresDateDebut;
+    }
+
+    public Integer getApresId() {
+        return apresId;
+    }
+
+    public void setApresId(Integer apresId) {
+        this.apresId = apresId;
+    }
+
+    public int getLimite() {
+        return limite;
+    }
+
+    /**
+     * Fixe la taille de page, bornée à LIMITE_MAX
+     */
+    public void setLimite(Integer limite) {
+        if (limite == null || limite <= 0) {
+            this.limite = LIMITE_PAR_DEFAUT;
+        } else {
+            this.limite = Math.min(limite, LIMITE_MAX);
+        }
+    }
+}
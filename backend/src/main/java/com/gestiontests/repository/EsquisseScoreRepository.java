@@ -0,0 +1,41 @@
+package com.gestiontests.repository;
+
+import com.gestiontests.entity.EsquisseScore;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Named;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Named
+@ApplicationScoped
+public class EsquisseScoreRepository extends GenericRepository<EsquisseScore, Integer> {
+    
+    public EsquisseScoreRepository() {
+        super(EsquisseScore.class);
+    }
+    
+    /**
+     * Enregistre ou remplace l'esquisse d'une dimension, dans sa propre transaction
+     * afin de ne pas allonger celle du test en cours
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void sauvegarder(String dimension, String cle, String donnees, LocalDateTime derniereFin,
+                            Integer derniereSession) {
+        TypedQuery<EsquisseScore> query = entityManager.createQuery(
+            "SELECT e FROM EsquisseScore e WHERE e.dimension = :dimension AND e.cle = :cle", EsquisseScore.class);
+        query.setParameter("dimension", dimension);
+        query.setParameter("cle", cle);
+        List<EsquisseScore> results = query.getResultList();
+        
+        EsquisseScore esquisse = results.isEmpty() ? new EsquisseScore(dimension, cle) : results.get(0);
+        esquisse.setDonnees(donnees);
+        esquisse.setDerniereFin(derniereFin);
+        esquisse.setDerniereSession(derniereSession);
+        esquisse.setUpdatedAt(LocalDateTime.now());
+        if (esquisse.getId() == null) {
+            entityManager.persist(esquisse);
+        }
+    }
+}
@@ -1,17 +1,24 @@
 package com.gestiontests.repository;
 
+import com.gestiontests.config.LectureSeule;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.EntityType;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public abstract class GenericRepository<T, ID extends Serializable> {
     
+    // Nombre d'entités persistées entre deux flush dans createAll
+    protected static final int TAILLE_LOT = 50;
+    
     @PersistenceContext
     protected EntityManager entityManager;
     
@@ -38,6 +45,39 @@ public abstract class GenericRepository<T, ID extends Serializable> {
         return entity;
     }
     
+    /**
+     * Persiste une collection d'entités par lots : les insertions sont envoyées (flush)
+     * toutes les TAILLE_LOT entités. Les entités de l'appelant restent gérées.
+     */
+    public List<T> createAll(Collection<T> entities) {
+        return createAll(entities, false);
+    }
+    
+    /**
+     * Comme createAll(entities) ; avec viderContexte, le contexte de persistance est aussi vidé
+     * (clear) après chaque lot pour borner la mémoire des gros imports. Ce clear détache TOUTES
+     * les entités gérées, y compris celles chargées par l'appelant avant l'appel : à réserver
+     * aux transactions qui ne s'en servent plus ensuite.
+     */
+    public List<T> createAll(Collection<T> entities, boolean viderContexte) {
+        List<T> crees = new ArrayList<>(entities.size());
+        int compteur = 0;
+        for (T entity : entities) {
+            entityManager.persist(entity);
+            crees.add(entity);
+            if (++compteur % TAILLE_LOT == 0) {
+                entityManager.flush();
+                if (viderContexte) {
+                    entityManager.clear();
+                }
+            }
+        }
+        if (compteur % TAILLE_LOT != 0) {
+            entityManager.flush();
+        }
+        return crees;
+    }
+    
     public T update(T entity) {
         return entityManager.merge(entity);
     }
@@ -56,11 +96,13 @@ public abstract class GenericRepository<T, ID extends Serializable> {
         }
     }
     
+    @LectureSeule
     public Optional<T> findById(ID id) {
         T entity = entityManager.find(entityClass, id);
         return Optional.ofNullable(entity);
     }
     
+    @LectureSeule
     public List<T> findAll() {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<T> cq = cb.createQuery(entityClass);
@@ -70,6 +112,7 @@ public abstract class GenericRepository<T, ID extends Serializable> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<T> findWithPagination(int firstResult, int maxResults) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<T> cq = cb.createQuery(entityClass);
@@ -81,6 +124,7 @@ public abstract class GenericRepository<T, ID extends Serializable> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public long count() {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Long> cq = cb.createQuery(Long.class);
@@ -90,8 +134,28 @@ public abstract class GenericRepository<T, ID extends Serializable> {
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public boolean existsById(ID id) {
-        return findById(id).isPresent();
+        if (id == null) {
+            return false;
+        }
+        // Projection sur l'identifiant : ni chargement de l'entité ni entrée dans le contexte
+        String jpql = "SELECT e." + getNomIdentifiant() + " FROM " + getNomEntite()
+                + " e WHERE e." + getNomIdentifiant() + " = :id";
+        return !entityManager.createQuery(jpql)
+                .setParameter("id", id)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+    
+    protected String getNomEntite() {
+        return entityManager.getMetamodel().entity(entityClass).getName();
+    }
+    
+    protected String getNomIdentifiant() {
+        EntityType<T> type = entityManager.getMetamodel().entity(entityClass);
+        return type.getId(type.getIdType().getJavaType()).getName();
     }
     
     public void flush() {
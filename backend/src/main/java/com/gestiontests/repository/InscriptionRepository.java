@@ -1,5 +1,6 @@
 package com.gestiontests.repository;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.Inscription;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
@@ -15,6 +16,7 @@ public class InscriptionRepository extends GenericRepository<Inscription, Intege
         super(Inscription.class);
     }
     
+    @LectureSeule
     public List<Inscription> findByCandidat(Integer candidatId) {
         TypedQuery<Inscription> query = entityManager.createQuery(
             "SELECT i FROM Inscription i WHERE i.candidat.id = :candidatId ORDER BY i.dateInscription DESC", 
@@ -23,6 +25,18 @@ public class InscriptionRepository extends GenericRepository<Inscription, Intege
         return query.getResultList();
     }
     
+    /**
+     * Paires (candidat, créneau) par date d'inscription croissante : la dernière inscription l'emporte
+     */
+    @LectureSeule
+    public List<Object[]> findCreneauParCandidat() {
+        TypedQuery<Object[]> query = entityManager.createQuery(
+            "SELECT i.candidat.id, i.creneau.id FROM Inscription i ORDER BY i.dateInscription, i.id",
+            Object[].class);
+        return query.getResultList();
+    }
+    
+    @LectureSeule
     public List<Inscription> findByCreneau(Integer creneauId) {
         TypedQuery<Inscription> query = entityManager.createQuery(
             "SELECT i FROM Inscription i WHERE i.creneau.id = :creneauId ORDER BY i.dateInscription", 
@@ -31,6 +45,20 @@ public class InscriptionRepository extends GenericRepository<Inscription, Intege
         return query.getResultList();
     }
     
+    /**
+     * Candidats validés inscrits au créneau qui n'ont pas encore de session de test
+     */
+    @LectureSeule
+    public List<Integer> findCandidatsSansSession(Integer creneauId) {
+        TypedQuery<Integer> query = entityManager.createQuery(
+            "SELECT c.id FROM Inscription i JOIN i.candidat c WHERE i.creneau.id = :creneauId AND c.estValide = true " +
+            "AND NOT EXISTS (SELECT s.id FROM SessionTest s WHERE s.codeSession = c.codeSession) ORDER BY c.id",
+            Integer.class);
+        query.setParameter("creneauId", creneauId);
+        return query.getResultList();
+    }
+    
+    @LectureSeule
     public Optional<Inscription> findByCandidatAndCreneau(Integer candidatId, Integer creneauId) {
         TypedQuery<Inscription> query = entityManager.createQuery(
             "SELECT i FROM Inscription i WHERE i.candidat.id = :candidatId AND i.creneau.id = :creneauId", 
@@ -41,6 +69,7 @@ public class InscriptionRepository extends GenericRepository<Inscription, Intege
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public List<Inscription> findByEstConfirme(Boolean estConfirme) {
         TypedQuery<Inscription> query = entityManager.createQuery(
             "SELECT i FROM Inscription i WHERE i.estConfirme = :estConfirme ORDER BY i.dateInscription DESC", 
@@ -49,6 +78,7 @@ public class InscriptionRepository extends GenericRepository<Inscription, Intege
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Inscription> findRecentInscriptions(int limit) {
         TypedQuery<Inscription> query = entityManager.createQuery(
             "SELECT i FROM Inscription i ORDER BY i.dateInscription DESC", Inscription.class);
@@ -56,6 +86,7 @@ public class InscriptionRepository extends GenericRepository<Inscription, Intege
         return query.getResultList();
     }
     
+    @LectureSeule
     public long countByCreneau(Integer creneauId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(i) FROM Inscription i WHERE i.creneau.id = :creneauId", Long.class);
@@ -63,6 +94,7 @@ public class InscriptionRepository extends GenericRepository<Inscription, Intege
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public long countByCandidat(Integer candidatId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(i) FROM Inscription i WHERE i.candidat.id = :candidatId", Long.class);
@@ -70,6 +102,7 @@ public class InscriptionRepository extends GenericRepository<Inscription, Intege
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public boolean existsByCandidatAndCreneau(Integer candidatId, Integer creneauId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(i) FROM Inscription i WHERE i.candidat.id = :candidatId AND i.creneau.id = :creneauId", Long.class);
@@ -78,6 +111,7 @@ public class InscriptionRepository extends GenericRepository<Inscription, Intege
         return query.getSingleResult() > 0;
     }
     
+    @LectureSeule
     public List<Inscription> findInscriptionsByDateRange(java.time.LocalDateTime startDate, java.time.LocalDateTime endDate) {
         TypedQuery<Inscription> query = entityManager.createQuery(
             "SELECT i FROM Inscription i WHERE i.dateInscription BETWEEN :startDate AND :endDate ORDER BY i.dateInscription DESC", 
@@ -87,6 +121,7 @@ public class InscriptionRepository extends GenericRepository<Inscription, Intege
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Inscription> findByEcole(String ecole) {
         TypedQuery<Inscription> query = entityManager.createQuery(
             "SELECT i FROM Inscription i WHERE i.candidat.ecole = :ecole ORDER BY i.dateInscription DESC", 
@@ -1,5 +1,6 @@
 package com.gestiontests.repository;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.Parametre;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
@@ -15,6 +16,7 @@ public class ParametreRepository extends GenericRepository<Parametre, Integer> {
         super(Parametre.class);
     }
     
+    @LectureSeule
     public Optional<Parametre> findByNomParam(String nomParam) {
         TypedQuery<Parametre> query = entityManager.createQuery(
             "SELECT p FROM Parametre p WHERE p.nomParam = :nomParam", Parametre.class);
@@ -23,12 +25,14 @@ public class ParametreRepository extends GenericRepository<Parametre, Integer> {
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public List<Parametre> findAllOrderByNomParam() {
         TypedQuery<Parametre> query = entityManager.createQuery(
             "SELECT p FROM Parametre p ORDER BY p.nomParam", Parametre.class);
         return query.getResultList();
     }
     
+    @LectureSeule
     public boolean existsByNomParam(String nomParam) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(p) FROM Parametre p WHERE p.nomParam = :nomParam", Long.class);
@@ -55,26 +59,31 @@ public class ParametreRepository extends GenericRepository<Parametre, Integer> {
         return update(parametre);
     }
     
+    @LectureSeule
     public String getValeurParametre(String nomParam, String valeurDefaut) {
         Optional<Parametre> paramOpt = findByNomParam(nomParam);
         return paramOpt.map(Parametre::getValeur).orElse(valeurDefaut);
     }
     
+    @LectureSeule
     public Integer getValeurParametreAsInteger(String nomParam, Integer valeurDefaut) {
         Optional<Parametre> paramOpt = findByNomParam(nomParam);
         return paramOpt.map(Parametre::getValeurAsInteger).orElse(valeurDefaut);
     }
     
+    @LectureSeule
     public Boolean getValeurParametreAsBoolean(String nomParam, Boolean valeurDefaut) {
         Optional<Parametre> paramOpt = findByNomParam(nomParam);
         return paramOpt.map(Parametre::getValeurAsBoolean).orElse(valeurDefaut);
     }
     
+    @LectureSeule
     public Long getValeurParametreAsLong(String nomParam, Long valeurDefaut) {
         Optional<Parametre> paramOpt = findByNomParam(nomParam);
         return paramOpt.map(Parametre::getValeurAsLong).orElse(valeurDefaut);
     }
     
+    @LectureSeule
     public Double getValeurParametreAsDouble(String nomParam, Double valeurDefaut) {
         Optional<Parametre> paramOpt = findByNomParam(nomParam);
         return paramOpt.map(Parametre::getValeurAsDouble).orElse(valeurDefaut);
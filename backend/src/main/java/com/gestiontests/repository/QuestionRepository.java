@@ -1,5 +1,6 @@
 package com.gestiontests.repository;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.Question;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
@@ -15,6 +16,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         super(Question.class);
     }
     
+    @LectureSeule
     public List<Question> findByTheme(Integer themeId) {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q WHERE q.theme.id = :themeId ORDER BY q.createdAt DESC", 
@@ -23,6 +25,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Question> findByTypeQuestion(Integer typeQuestionId) {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q WHERE q.typeQuestion.id = :typeQuestionId ORDER BY q.createdAt DESC", 
@@ -31,6 +34,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Question> findByThemeAndType(Integer themeId, Integer typeQuestionId) {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q WHERE q.theme.id = :themeId AND q.typeQuestion.id = :typeQuestionId ORDER BY q.createdAt DESC", 
@@ -40,6 +44,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Question> findByLibelleContaining(String searchTerm) {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q WHERE LOWER(q.libelle) LIKE LOWER(:searchTerm) ORDER BY q.createdAt DESC", 
@@ -48,6 +53,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Question> findRandomQuestionsByTheme(Integer themeId, int limit) {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q WHERE q.theme.id = :themeId ORDER BY RAND()", 
@@ -57,6 +63,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Question> findRandomQuestions(int limit) {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q ORDER BY RAND()", 
@@ -65,6 +72,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Question> findRecentQuestions(int limit) {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q ORDER BY q.createdAt DESC", Question.class);
@@ -72,6 +80,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public long countByTheme(Integer themeId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(q) FROM Question q WHERE q.theme.id = :themeId", Long.class);
@@ -79,6 +88,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public long countByTypeQuestion(Integer typeQuestionId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(q) FROM Question q WHERE q.typeQuestion.id = :typeQuestionId", Long.class);
@@ -86,6 +96,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public long countByThemeAndType(Integer themeId, Integer typeQuestionId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(q) FROM Question q WHERE q.theme.id = :themeId AND q.typeQuestion.id = :typeQuestionId", Long.class);
@@ -94,6 +105,19 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getSingleResult();
     }
     
+    /**
+     * Une ligne par question : (id, thème, type, nombre de réponses possibles, nombre de réponses correctes)
+     */
+    @LectureSeule
+    public List<Object[]> findResumeParQuestion() {
+        TypedQuery<Object[]> query = entityManager.createQuery(
+            "SELECT q.id, t.id, tq.id, COUNT(rp.id), SUM(CASE WHEN rp.estCorrect = true THEN 1 ELSE 0 END) " +
+            "FROM Question q LEFT JOIN q.theme t LEFT JOIN q.typeQuestion tq LEFT JOIN q.reponsesPossibles rp " +
+            "GROUP BY q.id, t.id, tq.id", Object[].class);
+        return query.getResultList();
+    }
+    
+    @LectureSeule
     public List<Question> findQuestionsWithoutReponses() {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q WHERE NOT EXISTS (SELECT rp FROM ReponsePossible rp WHERE rp.question.id = q.id)", 
@@ -101,6 +125,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Question> findQuestionsWithReponses() {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q WHERE EXISTS (SELECT rp FROM ReponsePossible rp WHERE rp.question.id = q.id)", 
@@ -108,6 +133,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Question> findQuestionsWithCorrectReponses() {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q WHERE EXISTS (SELECT rp FROM ReponsePossible rp WHERE rp.question.id = q.id AND rp.estCorrect = true)", 
@@ -115,6 +141,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Question> findQuestionsWithoutCorrectReponses() {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q WHERE NOT EXISTS (SELECT rp FROM ReponsePossible rp WHERE rp.question.id = q.id AND rp.estCorrect = true)", 
@@ -122,6 +149,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Question> findQuestionsByExplicationContaining(String searchTerm) {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q WHERE LOWER(q.explication) LIKE LOWER(:searchTerm) ORDER BY q.createdAt DESC", 
@@ -130,6 +158,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Question> findQuestionsWithMinReponses(int minReponses) {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q WHERE (SELECT COUNT(rp) FROM ReponsePossible rp WHERE rp.question.id = q.id) >= :minReponses", 
@@ -138,6 +167,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Question> findQuestionsByDateRange(java.time.LocalDateTime startDate, java.time.LocalDateTime endDate) {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q WHERE q.createdAt BETWEEN :startDate AND :endDate ORDER BY q.createdAt DESC", 
@@ -147,6 +177,7 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public Optional<Question> findRandomQuestionByTheme(Integer themeId) {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT q FROM Question q WHERE q.theme.id = :themeId ORDER BY RAND()", 
@@ -157,10 +188,33 @@ public class QuestionRepository extends GenericRepository<Question, Integer> {
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public List<Question> findAllWithReponses() {
         TypedQuery<Question> query = entityManager.createQuery(
             "SELECT DISTINCT q FROM Question q LEFT JOIN FETCH q.reponsesPossibles LEFT JOIN FETCH q.theme LEFT JOIN FETCH q.typeQuestion ORDER BY q.id", 
             Question.class);
         return query.getResultList();
     }
+    
+    @LectureSeule
+    public List<Question> findByIdsWithTheme(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        TypedQuery<Question> query = entityManager.createQuery(
+            "SELECT q FROM Question q LEFT JOIN FETCH q.theme LEFT JOIN FETCH q.typeQuestion WHERE q.id IN :ids", 
+            Question.class);
+        query.setParameter("ids", ids);
+        return query.getResultList();
+    }
+    
+    /**
+     * Projection des champs indexés par la recherche plein texte (id, libellé, explication)
+     */
+    @LectureSeule
+    public List<Object[]> findChampsRecherche() {
+        TypedQuery<Object[]> query = entityManager.createQuery(
+            "SELECT q.id, q.libelle, q.explication FROM Question q", Object[].class);
+        return query.getResultList();
+    }
 }
@@ -1,9 +1,11 @@
 package com.gestiontests.repository;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.ReponseCandidat;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
 import jakarta.persistence.TypedQuery;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +17,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         super(ReponseCandidat.class);
     }
     
+    @LectureSeule
     public Optional<ReponseCandidat> findBySessionQuestion(Integer sessionQuestionId) {
         TypedQuery<ReponseCandidat> query = entityManager.createQuery(
             "SELECT rc FROM ReponseCandidat rc WHERE rc.sessionQuestion.id = :sessionQuestionId", 
@@ -24,6 +27,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public List<ReponseCandidat> findBySession(Integer sessionId) {
         TypedQuery<ReponseCandidat> query = entityManager.createQuery(
             "SELECT rc FROM ReponseCandidat rc WHERE rc.sessionQuestion.sessionTest.id = :sessionId ORDER BY rc.dateReponse", 
@@ -32,6 +36,18 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getResultList();
     }
     
+    /**
+     * Supprime en une requête toutes les réponses des sessions données
+     */
+    public int deleteBySessions(Collection<Integer> sessionIds) {
+        return entityManager.createQuery(
+            "DELETE FROM ReponseCandidat rc WHERE rc.sessionQuestion.id IN " +
+            "(SELECT sq.id FROM SessionQuestion sq WHERE sq.sessionTest.id IN :sessionIds)")
+            .setParameter("sessionIds", sessionIds)
+            .executeUpdate();
+    }
+    
+    @LectureSeule
     public List<ReponseCandidat> findByCandidat(Integer candidatId) {
         TypedQuery<ReponseCandidat> query = entityManager.createQuery(
             "SELECT rc FROM ReponseCandidat rc WHERE rc.sessionQuestion.sessionTest.candidat.id = :candidatId ORDER BY rc.dateReponse DESC", 
@@ -40,6 +56,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponseCandidat> findByEstCorrect(Boolean estCorrect) {
         TypedQuery<ReponseCandidat> query = entityManager.createQuery(
             "SELECT rc FROM ReponseCandidat rc WHERE rc.estCorrect = :estCorrect ORDER BY rc.dateReponse DESC", 
@@ -48,6 +65,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponseCandidat> findByQuestion(Integer questionId) {
         TypedQuery<ReponseCandidat> query = entityManager.createQuery(
             "SELECT rc FROM ReponseCandidat rc WHERE rc.sessionQuestion.question.id = :questionId ORDER BY rc.dateReponse DESC", 
@@ -56,6 +74,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponseCandidat> findByReponsePossible(Integer reponsePossibleId) {
         TypedQuery<ReponseCandidat> query = entityManager.createQuery(
             "SELECT rc FROM ReponseCandidat rc WHERE rc.reponsePossible.id = :reponsePossibleId ORDER BY rc.dateReponse DESC", 
@@ -64,6 +83,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponseCandidat> findRecentReponses(int limit) {
         TypedQuery<ReponseCandidat> query = entityManager.createQuery(
             "SELECT rc FROM ReponseCandidat rc ORDER BY rc.dateReponse DESC", ReponseCandidat.class);
@@ -71,6 +91,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getResultList();
     }
     
+    @LectureSeule
     public long countBySession(Integer sessionId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(rc) FROM ReponseCandidat rc WHERE rc.sessionQuestion.sessionTest.id = :sessionId", Long.class);
@@ -78,6 +99,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public long countByCandidat(Integer candidatId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(rc) FROM ReponseCandidat rc WHERE rc.sessionQuestion.sessionTest.candidat.id = :candidatId", Long.class);
@@ -85,6 +107,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public long countByEstCorrect(Boolean estCorrect) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(rc) FROM ReponseCandidat rc WHERE rc.estCorrect = :estCorrect", Long.class);
@@ -92,6 +115,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public long countCorrectBySession(Integer sessionId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(rc) FROM ReponseCandidat rc WHERE rc.sessionQuestion.sessionTest.id = :sessionId AND rc.estCorrect = true", Long.class);
@@ -99,6 +123,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public long countIncorrectBySession(Integer sessionId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(rc) FROM ReponseCandidat rc WHERE rc.sessionQuestion.sessionTest.id = :sessionId AND rc.estCorrect = false", Long.class);
@@ -106,6 +131,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public long countByQuestion(Integer questionId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(rc) FROM ReponseCandidat rc WHERE rc.sessionQuestion.question.id = :questionId", Long.class);
@@ -113,6 +139,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public long countCorrectByQuestion(Integer questionId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(rc) FROM ReponseCandidat rc WHERE rc.sessionQuestion.question.id = :questionId AND rc.estCorrect = true", Long.class);
@@ -120,6 +147,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public Double getAverageTempsReponse(Integer sessionId) {
         TypedQuery<Double> query = entityManager.createQuery(
             "SELECT AVG(rc.tempsReponse) FROM ReponseCandidat rc WHERE rc.sessionQuestion.sessionTest.id = :sessionId AND rc.tempsReponse IS NOT NULL", 
@@ -128,6 +156,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public Double getAverageTempsReponseByQuestion(Integer questionId) {
         TypedQuery<Double> query = entityManager.createQuery(
             "SELECT AVG(rc.tempsReponse) FROM ReponseCandidat rc WHERE rc.sessionQuestion.question.id = :questionId AND rc.tempsReponse IS NOT NULL", 
@@ -136,6 +165,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public List<ReponseCandidat> findByTempsReponseRange(Integer minTemps, Integer maxTemps) {
         TypedQuery<ReponseCandidat> query = entityManager.createQuery(
             "SELECT rc FROM ReponseCandidat rc WHERE rc.tempsReponse BETWEEN :minTemps AND :maxTemps ORDER BY rc.tempsReponse", 
@@ -145,6 +175,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponseCandidat> findTextResponses() {
         TypedQuery<ReponseCandidat> query = entityManager.createQuery(
             "SELECT rc FROM ReponseCandidat rc WHERE rc.reponseText IS NOT NULL ORDER BY rc.dateReponse DESC", 
@@ -152,6 +183,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponseCandidat> findChoiceResponses() {
         TypedQuery<ReponseCandidat> query = entityManager.createQuery(
             "SELECT rc FROM ReponseCandidat rc WHERE rc.reponsePossible IS NOT NULL ORDER BY rc.dateReponse DESC", 
@@ -159,6 +191,7 @@ public class ReponseCandidatRepository extends GenericRepository<ReponseCandidat
         return query.getResultList();
     }
     
+    @LectureSeule
     public boolean existsBySessionQuestion(Integer sessionQuestionId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(rc) FROM ReponseCandidat rc WHERE rc.sessionQuestion.id = :sessionQuestionId", Long.class);
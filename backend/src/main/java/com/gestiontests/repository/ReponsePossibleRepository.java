@@ -1,5 +1,6 @@
 package com.gestiontests.repository;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.ReponsePossible;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
@@ -15,6 +16,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         super(ReponsePossible.class);
     }
     
+    @LectureSeule
     public List<ReponsePossible> findByQuestion(Integer questionId) {
         TypedQuery<ReponsePossible> query = entityManager.createQuery(
             "SELECT rp FROM ReponsePossible rp WHERE rp.question.id = :questionId ORDER BY rp.id", 
@@ -23,6 +25,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponsePossible> findCorrectByQuestion(Integer questionId) {
         TypedQuery<ReponsePossible> query = entityManager.createQuery(
             "SELECT rp FROM ReponsePossible rp WHERE rp.question.id = :questionId AND rp.estCorrect = true ORDER BY rp.id", 
@@ -31,6 +34,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponsePossible> findIncorrectByQuestion(Integer questionId) {
         TypedQuery<ReponsePossible> query = entityManager.createQuery(
             "SELECT rp FROM ReponsePossible rp WHERE rp.question.id = :questionId AND rp.estCorrect = false ORDER BY rp.id", 
@@ -39,10 +43,12 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getResultList();
     }
     
+    @LectureSeule
     public Optional<ReponsePossible> findById(Integer id) {
         return super.findById(id);
     }
     
+    @LectureSeule
     public long countByQuestion(Integer questionId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(rp) FROM ReponsePossible rp WHERE rp.question.id = :questionId", Long.class);
@@ -50,6 +56,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public long countCorrectByQuestion(Integer questionId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(rp) FROM ReponsePossible rp WHERE rp.question.id = :questionId AND rp.estCorrect = true", Long.class);
@@ -57,6 +64,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public long countIncorrectByQuestion(Integer questionId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(rp) FROM ReponsePossible rp WHERE rp.question.id = :questionId AND rp.estCorrect = false", Long.class);
@@ -64,6 +72,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public List<ReponsePossible> findByLibelleContaining(String searchTerm) {
         TypedQuery<ReponsePossible> query = entityManager.createQuery(
             "SELECT rp FROM ReponsePossible rp WHERE LOWER(rp.libelle) LIKE LOWER(:searchTerm) ORDER BY rp.libelle", 
@@ -72,6 +81,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponsePossible> findCorrectResponses() {
         TypedQuery<ReponsePossible> query = entityManager.createQuery(
             "SELECT rp FROM ReponsePossible rp WHERE rp.estCorrect = true ORDER BY rp.question.id", 
@@ -79,6 +89,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponsePossible> findIncorrectResponses() {
         TypedQuery<ReponsePossible> query = entityManager.createQuery(
             "SELECT rp FROM ReponsePossible rp WHERE rp.estCorrect = false ORDER BY rp.question.id", 
@@ -86,6 +97,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getResultList();
     }
     
+    @LectureSeule
     public boolean hasCorrectResponse(Integer questionId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(rp) FROM ReponsePossible rp WHERE rp.question.id = :questionId AND rp.estCorrect = true", Long.class);
@@ -93,6 +105,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getSingleResult() > 0;
     }
     
+    @LectureSeule
     public List<ReponsePossible> findRandomResponses(int limit) {
         TypedQuery<ReponsePossible> query = entityManager.createQuery(
             "SELECT rp FROM ReponsePossible rp ORDER BY RAND()", 
@@ -101,6 +114,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponsePossible> findMostUsedResponses(int limit) {
         TypedQuery<ReponsePossible> query = entityManager.createQuery(
             "SELECT rp FROM ReponsePossible rp JOIN rp.reponsesCandidat rc GROUP BY rp.id ORDER BY COUNT(rc) DESC", 
@@ -109,6 +123,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponsePossible> findLeastUsedResponses(int limit) {
         TypedQuery<ReponsePossible> query = entityManager.createQuery(
             "SELECT rp FROM ReponsePossible rp LEFT JOIN rp.reponsesCandidat rc GROUP BY rp.id ORDER BY COUNT(rc) ASC", 
@@ -117,6 +132,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponsePossible> findUnusedResponses() {
         TypedQuery<ReponsePossible> query = entityManager.createQuery(
             "SELECT rp FROM ReponsePossible rp WHERE NOT EXISTS (SELECT rc FROM ReponseCandidat rc WHERE rc.reponsePossible.id = rp.id)", 
@@ -124,6 +140,7 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<ReponsePossible> findResponsesByTheme(Integer themeId) {
         TypedQuery<ReponsePossible> query = entityManager.createQuery(
             "SELECT rp FROM ReponsePossible rp WHERE rp.question.theme.id = :themeId ORDER BY rp.question.id, rp.id", 
@@ -131,4 +148,25 @@ public class ReponsePossibleRepository extends GenericRepository<ReponsePossible
         query.setParameter("themeId", themeId);
         return query.getResultList();
     }
+    
+    /**
+     * Projection (id de la question, libellé) de toutes les réponses possibles
+     */
+    @LectureSeule
+    public List<Object[]> findLibellesParQuestion() {
+        TypedQuery<Object[]> query = entityManager.createQuery(
+            "SELECT rp.question.id, rp.libelle FROM ReponsePossible rp", Object[].class);
+        return query.getResultList();
+    }
+    
+    /**
+     * Projection (id, question, libellé, estCorrect) de toutes les réponses possibles
+     */
+    @LectureSeule
+    public List<Object[]> findResumeOptions() {
+        TypedQuery<Object[]> query = entityManager.createQuery(
+            "SELECT rp.id, rp.question.id, rp.libelle, rp.estCorrect FROM ReponsePossible rp ORDER BY rp.id",
+            Object[].class);
+        return query.getResultList();
+    }
 }
@@ -1,9 +1,11 @@
 package com.gestiontests.repository;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.SessionQuestion;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
 import jakarta.persistence.TypedQuery;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +17,7 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         super(SessionQuestion.class);
     }
     
+    @LectureSeule
     public List<SessionQuestion> findBySession(Integer sessionId) {
         TypedQuery<SessionQuestion> query = entityManager.createQuery(
             "SELECT sq FROM SessionQuestion sq WHERE sq.sessionTest.id = :sessionId ORDER BY sq.ordreAffichage", 
@@ -23,6 +26,7 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         return query.getResultList();
     }
     
+    @LectureSeule
     public Optional<SessionQuestion> findBySessionAndQuestion(Integer sessionId, Integer questionId) {
         TypedQuery<SessionQuestion> query = entityManager.createQuery(
             "SELECT sq FROM SessionQuestion sq WHERE sq.sessionTest.id = :sessionId AND sq.question.id = :questionId", 
@@ -33,6 +37,7 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public Optional<SessionQuestion> findBySessionAndOrdre(Integer sessionId, Integer ordre) {
         TypedQuery<SessionQuestion> query = entityManager.createQuery(
             "SELECT sq FROM SessionQuestion sq WHERE sq.sessionTest.id = :sessionId AND sq.ordreAffichage = :ordre", 
@@ -43,6 +48,7 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public Optional<SessionQuestion> findNextQuestion(Integer sessionId, Integer currentQuestionId) {
         TypedQuery<SessionQuestion> query = entityManager.createQuery(
             "SELECT sq FROM SessionQuestion sq WHERE sq.sessionTest.id = :sessionId AND sq.question.id = :currentQuestionId", 
@@ -67,6 +73,7 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         return nextResults.isEmpty() ? Optional.empty() : Optional.of(nextResults.get(0));
     }
     
+    @LectureSeule
     public Optional<SessionQuestion> findPreviousQuestion(Integer sessionId, Integer currentQuestionId) {
         TypedQuery<SessionQuestion> query = entityManager.createQuery(
             "SELECT sq FROM SessionQuestion sq WHERE sq.sessionTest.id = :sessionId AND sq.question.id = :currentQuestionId", 
@@ -91,6 +98,7 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         return prevResults.isEmpty() ? Optional.empty() : Optional.of(prevResults.get(0));
     }
     
+    @LectureSeule
     public SessionQuestion getFirstQuestion(Integer sessionId) {
         TypedQuery<SessionQuestion> query = entityManager.createQuery(
             "SELECT sq FROM SessionQuestion sq WHERE sq.sessionTest.id = :sessionId ORDER BY sq.ordreAffichage", 
@@ -101,6 +109,7 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         return results.isEmpty() ? null : results.get(0);
     }
     
+    @LectureSeule
     public SessionQuestion getLastQuestion(Integer sessionId) {
         TypedQuery<SessionQuestion> query = entityManager.createQuery(
             "SELECT sq FROM SessionQuestion sq WHERE sq.sessionTest.id = :sessionId ORDER BY sq.ordreAffichage DESC", 
@@ -111,6 +120,7 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         return results.isEmpty() ? null : results.get(0);
     }
     
+    @LectureSeule
     public long countBySession(Integer sessionId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(sq) FROM SessionQuestion sq WHERE sq.sessionTest.id = :sessionId", Long.class);
@@ -118,6 +128,7 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public List<SessionQuestion> findByQuestion(Integer questionId) {
         TypedQuery<SessionQuestion> query = entityManager.createQuery(
             "SELECT sq FROM SessionQuestion sq WHERE sq.question.id = :questionId ORDER BY sq.sessionTest.dateDebut DESC", 
@@ -126,6 +137,7 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<SessionQuestion> findByTempsAlloue(Integer tempsMin, Integer tempsMax) {
         TypedQuery<SessionQuestion> query = entityManager.createQuery(
             "SELECT sq FROM SessionQuestion sq WHERE sq.tempsAlloue BETWEEN :tempsMin AND :tempsMax ORDER BY sq.tempsAlloue", 
@@ -135,6 +147,7 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         return query.getResultList();
     }
     
+    @LectureSeule
     public Integer getMaxOrdreBySession(Integer sessionId) {
         TypedQuery<Integer> query = entityManager.createQuery(
             "SELECT MAX(sq.ordreAffichage) FROM SessionQuestion sq WHERE sq.sessionTest.id = :sessionId", 
@@ -144,6 +157,7 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         return result != null ? result : 0;
     }
     
+    @LectureSeule
     public List<SessionQuestion> findUnansweredQuestions(Integer sessionId) {
         TypedQuery<SessionQuestion> query = entityManager.createQuery(
             "SELECT sq FROM SessionQuestion sq WHERE sq.sessionTest.id = :sessionId AND NOT EXISTS (" +
@@ -153,6 +167,7 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<SessionQuestion> findAnsweredQuestions(Integer sessionId) {
         TypedQuery<SessionQuestion> query = entityManager.createQuery(
             "SELECT sq FROM SessionQuestion sq WHERE sq.sessionTest.id = :sessionId AND EXISTS (" +
@@ -161,4 +176,55 @@ public class SessionQuestionRepository extends GenericRepository<SessionQuestion
         query.setParameter("sessionId", sessionId);
         return query.getResultList();
     }
+    
+    /**
+     * Questions d'une session démarrée et non terminée dans l'ordre d'affichage : (session_question,
+     * question, nombre de réponses) ; vide si la session n'existe pas, est préparée ou est terminée
+     */
+    @LectureSeule
+    public List<Object[]> findNavigationSessionEnCours(Integer sessionId) {
+        TypedQuery<Object[]> query = entityManager.createQuery(
+            "SELECT sq.id, sq.question.id, (SELECT COUNT(rc) FROM ReponseCandidat rc WHERE rc.sessionQuestion = sq), " +
+            "sq.sessionTest.dateDebut " +
+            "FROM SessionQuestion sq WHERE sq.sessionTest.id = :sessionId AND sq.sessionTest.estTermine = false " +
+            "AND sq.sessionTest.dateDebut IS NOT NULL " +
+            "ORDER BY sq.ordreAffichage", Object[].class);
+        query.setParameter("sessionId", sessionId);
+        return query.getResultList();
+    }
+    
+    /**
+     * Corrections des sessions données, dans l'ordre d'affichage : (session, session_question, question,
+     * réponse, option choisie, correcte, temps de réponse) ; les colonnes de réponse sont nulles sans réponse
+     */
+    @LectureSeule
+    public List<Object[]> findLignesCorrection(Collection<Integer> sessionIds) {
+        TypedQuery<Object[]> query = entityManager.createQuery(
+            "SELECT s.id, sq.id, q.id, rc.id, rp.id, rc.estCorrect, rc.tempsReponse " +
+            "FROM SessionQuestion sq JOIN sq.sessionTest s JOIN sq.question q " +
+            "LEFT JOIN sq.reponsesCandidat rc LEFT JOIN rc.reponsePossible rp " +
+            "WHERE s.id IN :sessionIds ORDER BY s.id, sq.ordreAffichage, rc.id", Object[].class);
+        query.setParameter("sessionIds", sessionIds);
+        return query.getResultList();
+    }
+    
+    public int deleteBySessions(Collection<Integer> sessionIds) {
+        return entityManager.createQuery("DELETE FROM SessionQuestion sq WHERE sq.sessionTest.id IN :sessionIds")
+            .setParameter("sessionIds", sessionIds)
+            .executeUpdate();
+    }
+    
+    /**
+     * Une ligne par question des sessions terminées : (session, question, correcte, option choisie,
+     * temps de réponse, score, score max) ; les colonnes de réponse sont nulles sans réponse
+     */
+    @LectureSeule
+    public List<Object[]> findLignesAnalyseItems() {
+        TypedQuery<Object[]> query = entityManager.createQuery(
+            "SELECT s.id, q.id, rc.estCorrect, rp.id, rc.tempsReponse, s.scoreTotal, s.scoreMax " +
+            "FROM SessionQuestion sq JOIN sq.sessionTest s JOIN sq.question q " +
+            "LEFT JOIN sq.reponsesCandidat rc LEFT JOIN rc.reponsePossible rp " +
+            "WHERE s.estTermine = true", Object[].class);
+        return query.getResultList();
+    }
 }
@@ -1,11 +1,22 @@
 package com.gestiontests.repository;
 
+import com.gestiontests.config.LectureSeule;
+import com.gestiontests.entity.Candidat;
 import com.gestiontests.entity.SessionTest;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +28,7 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         super(SessionTest.class);
     }
     
+    @LectureSeule
     public Optional<SessionTest> findByCodeSession(String codeSession) {
         TypedQuery<SessionTest> query = entityManager.createQuery(
             "SELECT s FROM SessionTest s WHERE s.codeSession = :codeSession", SessionTest.class);
@@ -25,6 +37,7 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public Optional<SessionTest> findByCandidatAndToday(Integer candidatId) {
         TypedQuery<SessionTest> query = entityManager.createQuery(
             "SELECT s FROM SessionTest s WHERE s.candidat.id = :candidatId AND FUNCTION('DATE', s.dateDebut) = CURRENT_DATE", 
@@ -34,6 +47,15 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
+    public List<SessionTest> findByIds(Collection<Integer> ids) {
+        TypedQuery<SessionTest> query = entityManager.createQuery(
+            "SELECT s FROM SessionTest s WHERE s.id IN :ids ORDER BY s.id", SessionTest.class);
+        query.setParameter("ids", ids);
+        return query.getResultList();
+    }
+    
+    @LectureSeule
     public List<SessionTest> findByCandidat(Integer candidatId) {
         TypedQuery<SessionTest> query = entityManager.createQuery(
             "SELECT s FROM SessionTest s WHERE s.candidat.id = :candidatId ORDER BY s.dateDebut DESC", 
@@ -42,6 +64,7 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<SessionTest> findByEstTermine(Boolean estTermine) {
         TypedQuery<SessionTest> query = entityManager.createQuery(
             "SELECT s FROM SessionTest s WHERE s.estTermine = :estTermine ORDER BY s.dateDebut DESC", 
@@ -50,6 +73,7 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<SessionTest> findByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         TypedQuery<SessionTest> query = entityManager.createQuery(
             "SELECT s FROM SessionTest s WHERE s.dateDebut BETWEEN :startDate AND :endDate ORDER BY s.dateDebut DESC", 
@@ -59,13 +83,15 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<SessionTest> findRecentSessions(int limit) {
         TypedQuery<SessionTest> query = entityManager.createQuery(
-            "SELECT s FROM SessionTest s ORDER BY s.dateDebut DESC", SessionTest.class);
+            "SELECT s FROM SessionTest s WHERE s.dateDebut IS NOT NULL ORDER BY s.dateDebut DESC", SessionTest.class);
         query.setMaxResults(limit);
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<SessionTest> findSessionsByDate(LocalDate date) {
         TypedQuery<SessionTest> query = entityManager.createQuery(
             "SELECT s FROM SessionTest s WHERE FUNCTION('DATE', s.dateDebut) = :date ORDER BY s.dateDebut DESC", 
@@ -74,6 +100,7 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<SessionTest> findSessionsByScoreRange(Double minScore, Double maxScore) {
         TypedQuery<SessionTest> query = entityManager.createQuery(
             "SELECT s FROM SessionTest s WHERE s.pourcentage BETWEEN :minScore AND :maxScore ORDER BY s.pourcentage DESC", 
@@ -83,6 +110,7 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         return query.getResultList();
     }
     
+    @LectureSeule
     public long countByCandidat(Integer candidatId) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(s) FROM SessionTest s WHERE s.candidat.id = :candidatId", Long.class);
@@ -90,6 +118,7 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public long countByEstTermine(Boolean estTermine) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(s) FROM SessionTest s WHERE s.estTermine = :estTermine", Long.class);
@@ -97,6 +126,7 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public boolean existsByCodeSession(String codeSession) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(s) FROM SessionTest s WHERE s.codeSession = :codeSession", Long.class);
@@ -104,12 +134,14 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         return query.getSingleResult() > 0;
     }
     
+    @LectureSeule
     public Double getAverageScore() {
         TypedQuery<Double> query = entityManager.createQuery(
             "SELECT AVG(s.pourcentage) FROM SessionTest s WHERE s.estTermine = true", Double.class);
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public Double getAverageScoreByDate(LocalDate date) {
         TypedQuery<Double> query = entityManager.createQuery(
             "SELECT AVG(s.pourcentage) FROM SessionTest s WHERE s.estTermine = true AND FUNCTION('DATE', s.dateDebut) = :date", 
@@ -118,6 +150,7 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public List<SessionTest> findTopScorers(int limit) {
         TypedQuery<SessionTest> query = entityManager.createQuery(
             "SELECT s FROM SessionTest s WHERE s.estTermine = true ORDER BY s.pourcentage DESC", 
@@ -126,6 +159,59 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         return query.getResultList();
     }
     
+    /**
+     * Lecture avec verrou exclusif de la ligne (SELECT ... FOR UPDATE) jusqu'à la fin de la transaction
+     */
+    public Optional<SessionTest> findByIdPourMiseAJour(Integer id) {
+        return Optional.ofNullable(entityManager.find(SessionTest.class, id, LockModeType.PESSIMISTIC_WRITE));
+    }
+    
+    /**
+     * Projection (id, dateDebut) des sessions démarrées et non terminées
+     */
+    @LectureSeule
+    public List<Object[]> findDebutsSessionsEnCours() {
+        TypedQuery<Object[]> query = entityManager.createQuery(
+            "SELECT s.id, s.dateDebut FROM SessionTest s WHERE s.estTermine = false AND s.dateDebut IS NOT NULL",
+            Object[].class);
+        return query.getResultList();
+    }
+    
+    /**
+     * Projection des sessions terminées (classement, distributions), éventuellement à partir d'une date de fin (incluse)
+     */
+    @LectureSeule
+    public List<Object[]> findLignesClassement(LocalDateTime finDepuis) {
+        return findLignesClassement(finDepuis, null);
+    }
+    
+    /**
+     * Lignes de classement des sessions terminées, terminées à partir de la date donnée (incluse)
+     * et/ou parmi les sessions données
+     */
+    @LectureSeule
+    public List<Object[]> findLignesClassement(LocalDateTime finDepuis, List<Integer> sessionIds) {
+        if (sessionIds != null && sessionIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        TypedQuery<Object[]> query = entityManager.createQuery(
+            "SELECT s.id, s.codeSession, s.pourcentage, s.scoreTotal, s.scoreMax, s.dateFin, " +
+            "c.id, c.nom, c.prenom, c.ecole, cr.id " +
+            "FROM SessionTest s JOIN s.candidat c LEFT JOIN s.creneau cr WHERE s.estTermine = true" +
+            (finDepuis != null ? " AND s.dateFin >= :finDepuis" : "") +
+            (sessionIds != null ? " AND s.id IN :sessionIds" : "") +
+            " ORDER BY s.dateFin, s.id",
+            Object[].class);
+        if (finDepuis != null) {
+            query.setParameter("finDepuis", finDepuis);
+        }
+        if (sessionIds != null) {
+            query.setParameter("sessionIds", sessionIds);
+        }
+        return query.getResultList();
+    }
+    
+    @LectureSeule
     public List<SessionTest> findByEcole(String ecole) {
         TypedQuery<SessionTest> query = entityManager.createQuery(
             "SELECT s FROM SessionTest s WHERE s.candidat.ecole = :ecole ORDER BY s.dateDebut DESC", 
@@ -134,6 +220,7 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<SessionTest> findByFiliere(String filiere) {
         TypedQuery<SessionTest> query = entityManager.createQuery(
             "SELECT s FROM SessionTest s WHERE s.candidat.filiere = :filiere ORDER BY s.dateDebut DESC", 
@@ -141,4 +228,71 @@ public class SessionTestRepository extends GenericRepository<SessionTest, Intege
         query.setParameter("filiere", filiere);
         return query.getResultList();
     }
+    
+    /**
+     * Recherche des sessions en une seule requête SessionTest JOIN Candidat. Le terme libre n'est
+     * pas lu ici : ResultatService le résout en candidatIds par l'index de recherche.
+     * Tri par dateDebut puis id décroissants, pagination par curseur (keyset).
+     */
+    @SuppressWarnings("unchecked")
+    @LectureSeule
+    public List<SessionTest> rechercher(CriteresRechercheSession criteres) {
+        if (criteres.getCandidatIds() != null && criteres.getCandidatIds().isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<SessionTest> cq = cb.createQuery(SessionTest.class);
+        Root<SessionTest> session = cq.from(SessionTest.class);
+        // Le fetch sert aussi de jointure pour les filtres sur le candidat
+        Join<SessionTest, Candidat> candidat = (Join<SessionTest, Candidat>) session.<SessionTest, Candidat>fetch("candidat");
+        
+        List<Predicate> predicats = new ArrayList<>();
+        predicats.add(cb.isNotNull(session.get("dateDebut")));
+        
+        if (CriteresRechercheSession.estRenseigne(criteres.getCodeSession())) {
+            predicats.add(cb.equal(session.get("codeSession"), criteres.getCodeSession().trim()));
+        }
+        if (criteres.getCandidatIds() != null) {
+            predicats.add(candidat.get("id").in(criteres.getCandidatIds()));
+        }
+        if (CriteresRechercheSession.estRenseigne(criteres.getNom())) {
+            predicats.add(cb.like(cb.lower(candidat.get("nom")), motifLike(criteres.getNom()), '\\'));
+        }
+        if (CriteresRechercheSession.estRenseigne(criteres.getPrenom())) {
+            predicats.add(cb.like(cb.lower(candidat.get("prenom")), motifLike(criteres.getPrenom()), '\\'));
+        }
+        if (CriteresRechercheSession.estRenseigne(criteres.getEcole())) {
+            predicats.add(cb.equal(cb.lower(candidat.get("ecole")), criteres.getEcole().trim().toLowerCase()));
+        }
+        
+        // Curseur : (dateDebut, id) strictement inférieur à la dernière ligne déjà servie
+        if (criteres.getApresDateDebut() != null && criteres.getApresId() != null) {
+            Expression<LocalDateTime> dateDebut = session.get("dateDebut");
+            Expression<Integer> id = session.get("id");
+            predicats.add(cb.or(
+                cb.lessThan(dateDebut, criteres.getApresDateDebut()),
+                cb.and(
+                    cb.equal(dateDebut, criteres.getApresDateDebut()),
+                    cb.lessThan(id, criteres.getApresId())
+                )
+            ));
+        }
+        
+        cq.select(session)
+            .where(predicats.toArray(new Predicate[0]))
+            .orderBy(cb.desc(session.get("dateDebut")), cb.desc(session.get("id")));
+        
+        TypedQuery<SessionTest> query = entityManager.createQuery(cq);
+        query.setMaxResults(criteres.getLimite());
+        return query.getResultList();
+    }
+    
+    private String motifLike(String terme) {
+        String echappe = terme.trim().toLowerCase()
+            .replace("\\", "\\\\")
+            .replace("%", "\\%")
+            .replace("_", "\\_");
+        return "%" + echappe + "%";
+    }
 }
@@ -0,0 +1,67 @@
+package com.gestiontests.repository;
+
+import com.gestiontests.config.LectureSeule;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Named;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compteurs transverses du tableau de bord, calculés en une seule requête. Les sessions préparées
+ * à l'avance (date de début nulle) ne comptent pas parmi les sessions : elles ont leur propre compteur.
+ */
+@Named
+@ApplicationScoped
+public class StatistiquesRepository {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    /**
+     * Tous les compteurs du tableau de bord en un aller-retour (sous-requêtes COUNT/AVG)
+     */
+    @LectureSeule(replique = true)
+    public Map<String, Number> compterTableauBord() {
+        String sql = "SELECT " +
+            "(SELECT COUNT(*) FROM candidats), " +
+            "(SELECT COUNT(*) FROM candidats WHERE est_valide = TRUE), " +
+            "(SELECT COUNT(*) FROM creneaux_horaires), " +
+            "(SELECT COUNT(*) FROM creneaux_horaires WHERE est_complet = FALSE AND date_exam >= :aujourdhui), " +
+            "(SELECT COUNT(*) FROM questions), " +
+            "(SELECT COUNT(*) FROM sessions_test WHERE date_debut IS NOT NULL), " +
+            "(SELECT COUNT(*) FROM sessions_test WHERE est_termine = TRUE), " +
+            "(SELECT COUNT(*) FROM sessions_test WHERE est_termine = FALSE AND date_debut IS NOT NULL), " +
+            "(SELECT AVG(pourcentage) FROM sessions_test WHERE est_termine = TRUE), " +
+            "(SELECT COUNT(*) FROM sessions_test WHERE date_debut >= :aujourdhui AND date_debut < :demain), " +
+            "(SELECT COUNT(*) FROM inscriptions), " +
+            "(SELECT COUNT(*) FROM sessions_test WHERE date_debut IS NULL)";
+        
+        Object[] ligne = (Object[]) entityManager.createNativeQuery(sql)
+            .setParameter("aujourdhui", LocalDate.now())
+            .setParameter("demain", LocalDate.now().plusDays(1))
+            .getSingleResult();
+        
+        Map<String, Number> compteurs = new LinkedHashMap<>();
+        compteurs.put("totalCandidats", entier(ligne[0]));
+        compteurs.put("candidatsValides", entier(ligne[1]));
+        compteurs.put("candidatsEnAttente", entier(ligne[0]) - entier(ligne[1]));
+        compteurs.put("totalCreneaux", entier(ligne[2]));
+        compteurs.put("creneauxDisponibles", entier(ligne[3]));
+        compteurs.put("totalQuestions", entier(ligne[4]));
+        compteurs.put("totalSessions", entier(ligne[5]));
+        compteurs.put("sessionsTerminees", entier(ligne[6]));
+        compteurs.put("sessionsEnCours", entier(ligne[7]));
+        compteurs.put("scoreMoyen", ligne[8] != null ? Math.round(((Number) ligne[8]).doubleValue() * 100.0) / 100.0 : 0.0);
+        compteurs.put("sessionsAujourdhui", entier(ligne[9]));
+        compteurs.put("totalInscriptions", entier(ligne[10]));
+        compteurs.put("sessionsPreparees", entier(ligne[11]));
+        return compteurs;
+    }
+    
+    private long entier(Object valeur) {
+        return valeur != null ? ((Number) valeur).longValue() : 0L;
+    }
+}
@@ -1,5 +1,6 @@
 package com.gestiontests.repository;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.Theme;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
@@ -15,6 +16,7 @@ public class ThemeRepository extends GenericRepository<Theme, Integer> {
         super(Theme.class);
     }
     
+    @LectureSeule
     public Optional<Theme> findByNom(String nom) {
         TypedQuery<Theme> query = entityManager.createQuery(
             "SELECT t FROM Theme t WHERE t.nom = :nom", Theme.class);
@@ -23,6 +25,7 @@ public class ThemeRepository extends GenericRepository<Theme, Integer> {
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public List<Theme> findByNomContaining(String searchTerm) {
         TypedQuery<Theme> query = entityManager.createQuery(
             "SELECT t FROM Theme t WHERE LOWER(t.nom) LIKE LOWER(:searchTerm) ORDER BY t.nom", 
@@ -31,6 +34,7 @@ public class ThemeRepository extends GenericRepository<Theme, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Theme> findByDescriptionContaining(String searchTerm) {
         TypedQuery<Theme> query = entityManager.createQuery(
             "SELECT t FROM Theme t WHERE LOWER(t.description) LIKE LOWER(:searchTerm) ORDER BY t.nom", 
@@ -39,12 +43,14 @@ public class ThemeRepository extends GenericRepository<Theme, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Theme> findAllOrderByNom() {
         TypedQuery<Theme> query = entityManager.createQuery(
             "SELECT t FROM Theme t ORDER BY t.nom", Theme.class);
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Theme> findAllOrderByQuestionCount() {
         TypedQuery<Theme> query = entityManager.createQuery(
             "SELECT t FROM Theme t LEFT JOIN FETCH t.questions ORDER BY SIZE(t.questions) DESC", 
@@ -52,12 +58,14 @@ public class ThemeRepository extends GenericRepository<Theme, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Theme> findThemesWithQuestions() {
         TypedQuery<Theme> query = entityManager.createQuery(
             "SELECT DISTINCT t FROM Theme t JOIN t.questions q", Theme.class);
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Theme> findThemesWithoutQuestions() {
         TypedQuery<Theme> query = entityManager.createQuery(
             "SELECT t FROM Theme t WHERE NOT EXISTS (SELECT q FROM Question q WHERE q.theme.id = t.id)", 
@@ -65,6 +73,7 @@ public class ThemeRepository extends GenericRepository<Theme, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public boolean existsByNom(String nom) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(t) FROM Theme t WHERE t.nom = :nom", Long.class);
@@ -80,12 +89,14 @@ public class ThemeRepository extends GenericRepository<Theme, Integer> {
         return super.create(theme);
     }
     
+    @LectureSeule
     public long countThemesWithQuestions() {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(DISTINCT t) FROM Theme t JOIN t.questions q", Long.class);
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public long countThemesWithoutQuestions() {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(t) FROM Theme t WHERE NOT EXISTS (SELECT q FROM Question q WHERE q.theme.id = t.id)", 
@@ -93,6 +104,7 @@ public class ThemeRepository extends GenericRepository<Theme, Integer> {
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public Theme findThemeWithMostQuestions() {
         TypedQuery<Theme> query = entityManager.createQuery(
             "SELECT t FROM Theme t LEFT JOIN t.questions q GROUP BY t.id ORDER BY COUNT(q) DESC", 
@@ -102,6 +114,7 @@ public class ThemeRepository extends GenericRepository<Theme, Integer> {
         return results.isEmpty() ? null : results.get(0);
     }
     
+    @LectureSeule
     public Theme findThemeWithFewestQuestions() {
         TypedQuery<Theme> query = entityManager.createQuery(
             "SELECT t FROM Theme t LEFT JOIN t.questions q GROUP BY t.id ORDER BY COUNT(q) ASC", 
@@ -111,6 +124,7 @@ public class ThemeRepository extends GenericRepository<Theme, Integer> {
         return results.isEmpty() ? null : results.get(0);
     }
     
+    @LectureSeule
     public List<Theme> findThemesByDateRange(java.time.LocalDateTime startDate, java.time.LocalDateTime endDate) {
         TypedQuery<Theme> query = entityManager.createQuery(
             "SELECT t FROM Theme t WHERE t.createdAt BETWEEN :startDate AND :endDate ORDER BY t.createdAt DESC", 
@@ -120,6 +134,7 @@ public class ThemeRepository extends GenericRepository<Theme, Integer> {
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<Theme> findRecentThemes(int limit) {
         TypedQuery<Theme> query = entityManager.createQuery(
             "SELECT t FROM Theme t ORDER BY t.createdAt DESC", Theme.class);
@@ -1,5 +1,6 @@
 package com.gestiontests.repository;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.TypeQuestion;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Named;
@@ -15,6 +16,7 @@ public class TypeQuestionRepository extends GenericRepository<TypeQuestion, Inte
         super(TypeQuestion.class);
     }
     
+    @LectureSeule
     public Optional<TypeQuestion> findByNom(String nom) {
         TypedQuery<TypeQuestion> query = entityManager.createQuery(
             "SELECT tq FROM TypeQuestion tq WHERE tq.nom = :nom", TypeQuestion.class);
@@ -23,12 +25,14 @@ public class TypeQuestionRepository extends GenericRepository<TypeQuestion, Inte
         return results.isEmpty() ? Optional.empty() : Optional.of(results.get(0));
     }
     
+    @LectureSeule
     public List<TypeQuestion> findAllOrderByNom() {
         TypedQuery<TypeQuestion> query = entityManager.createQuery(
             "SELECT tq FROM TypeQuestion tq ORDER BY tq.nom", TypeQuestion.class);
         return query.getResultList();
     }
     
+    @LectureSeule
     public boolean existsByNom(String nom) {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(tq) FROM TypeQuestion tq WHERE tq.nom = :nom", Long.class);
@@ -44,18 +48,21 @@ public class TypeQuestionRepository extends GenericRepository<TypeQuestion, Inte
         return super.create(typeQuestion);
     }
     
+    @LectureSeule
     public long countTypesWithQuestions() {
         TypedQuery<Long> query = entityManager.createQuery(
             "SELECT COUNT(DISTINCT tq) FROM TypeQuestion tq JOIN tq.questions q", Long.class);
         return query.getSingleResult();
     }
     
+    @LectureSeule
     public List<TypeQuestion> findTypesWithQuestions() {
         TypedQuery<TypeQuestion> query = entityManager.createQuery(
             "SELECT DISTINCT tq FROM TypeQuestion tq JOIN tq.questions q", TypeQuestion.class);
         return query.getResultList();
     }
     
+    @LectureSeule
     public List<TypeQuestion> findTypesWithoutQuestions() {
         TypedQuery<TypeQuestion> query = entityManager.createQuery(
             "SELECT tq FROM TypeQuestion tq WHERE NOT EXISTS (SELECT q FROM Question q WHERE q.typeQuestion.id = tq.id)", 
@@ -44,6 +44,33 @@ public class AdministrationResource {
     @Inject
     private TestService testService;
     
+    @Inject
+    private AnalyseItemsService analyseItemsService;
+    
+    @Inject
+    private TableauBordService tableauBordService;
+    
+    @Inject
+    private CoalesceurCalculs coalesceurCalculs;
+    
+    @Inject
+    private PreparationSessionsService preparationSessionsService;
+    
+    @Inject
+    private AdmissionDemarrageService admissionDemarrageService;
+    
+    @Inject
+    private FinalisationSessionsService finalisationSessionsService;
+    
+    @Inject
+    private IdempotenceService idempotenceService;
+    
+    @Inject
+    private ReprisesConflitsService reprisesConflitsService;
+    
+    @Inject
+    private RoutageLecturesService routageLecturesService;
+    
     // Login administrateur
     @POST
     @Path("/login")
@@ -93,11 +120,14 @@ public class AdministrationResource {
     @Path("/questions")
     public Response createQuestion(Map<String, Object> questionData) {
         try {
+            // Détection des quasi-doublons avant l'indexation de la nouvelle question
+            List<Map<String, Object>> doublons = questionService.trouverDoublons((String) questionData.get("libelle"), null);
             Question question = questionService.createQuestion(questionData);
             return Response.status(Response.Status.CREATED)
                 .entity(Map.of(
                     "message", "Question créée avec succès",
-                    "question", question
+                    "question", question,
+                    "doublonsPotentiels", doublons
                 ))
                 .build();
         } catch (Exception e) {
@@ -192,6 +222,36 @@ public class AdministrationResource {
         }
     }
     
+    @GET
+    @Path("/questions/recherche")
+    public Response rechercherQuestions(@QueryParam("q") String texte, @QueryParam("limite") Integer limite) {
+        if (texte == null || texte.trim().isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("error", "Le texte de recherche est obligatoire"))
+                .build();
+        }
+        
+        int taille = limite != null && limite > 0 ? Math.min(limite, 100) : 20;
+        List<Map<String, Object>> questions = questionService.rechercherQuestions(texte, taille);
+        return Response.ok(Map.of(
+            "q", texte,
+            "questions", questions,
+            "total", questions.size()
+        )).build();
+    }
+    
+    @GET
+    @Path("/questions/doublons")
+    public Response getDoublonsQuestion(@QueryParam("libelle") String libelle, @QueryParam("exclure") Integer exclureId) {
+        if (libelle == null || libelle.trim().isEmpty()) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("error", "Le libellé est obligatoire"))
+                .build();
+        }
+        
+        return Response.ok(Map.of("doublons", questionService.trouverDoublons(libelle, exclureId))).build();
+    }
+    
     @GET
     @Path("/questions/theme/{themeId}")
     public Response getQuestionsByTheme(@PathParam("themeId") Integer themeId) {
@@ -479,22 +539,80 @@ public class AdministrationResource {
     }
     
     // Statistiques
+    @POST
+    @Path("/creneaux/{id}/preparer-sessions")
+    public Response preparerSessionsCreneau(@PathParam("id") Integer id) {
+        int preparees = preparationSessionsService.preparerCreneau(id);
+        return Response.ok(Map.of(
+            "sessionsPreparees", preparees,
+            "totalDepuisDemarrage", preparationSessionsService.getNombreSessionsPreparees()
+        )).build();
+    }
+    
+    /**
+     * Réinitialise plusieurs sessions en une transaction : {"sessionIds": [...], "nouveauTirage": false}
+     */
+    @POST
+    @Path("/sessions/reinitialiser")
+    public Response reinitialiserSessions(Map<String, Object> data) {
+        try {
+            Object ids = data.get("sessionIds");
+            if (!(ids instanceof List) || ((List<?>) ids).isEmpty()) {
+                return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", "La liste sessionIds est obligatoire"))
+                    .build();
+            }
+            List<Integer> sessionIds = new java.util.ArrayList<>();
+            for (Object id : (List<?>) ids) {
+                sessionIds.add(((Number) id).intValue());
+            }
+            boolean nouveauTirage = Boolean.TRUE.equals(data.get("nouveauTirage"));
+            
+            int reinitialisees = testService.reinitialiserSessions(sessionIds, nouveauTirage);
+            return Response.ok(Map.of(
+                "message", "Sessions réinitialisées",
+                "sessionsReinitialisees", reinitialisees,
+                "nouveauTirage", nouveauTirage
+            )).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("error", e.getMessage()))
+                .build();
+        }
+    }
+    
     @GET
     @Path("/stats/overview")
     public Response getStatsOverview() {
         Map<String, Object> stats = Map.of(
-            "totalCandidats", candidatService.count(),
-            "candidatsValides", candidatService.findByEstValide(true).size(),
-            "candidatsEnAttente", candidatService.findByEstValide(false).size(),
-            "totalCreneaux", creneauHoraireService.findAll().size(),
-            "creneauxDisponibles", creneauHoraireService.countAvailableCreneaux(),
-            "totalQuestions", questionService.count(),
-            "statsResultats", resultatService.getStatsGlobales()
+            "totalCandidats", tableauBordService.get("totalCandidats"),
+            "candidatsValides", tableauBordService.get("candidatsValides"),
+            "candidatsEnAttente", tableauBordService.get("candidatsEnAttente"),
+            "totalCreneaux", tableauBordService.get("totalCreneaux"),
+            "creneauxDisponibles", tableauBordService.get("creneauxDisponibles"),
+            "totalQuestions", tableauBordService.get("totalQuestions"),
+            "statsResultats", tableauBordService.getStatsResultats()
         );
         
         return Response.ok(stats).build();
     }
     
+    // Cartes de la page d'accueil de l'administration
+    @GET
+    @Path("/dashboard/stats")
+    public Response getStatsDashboard() {
+        Map<String, Number> compteurs = tableauBordService.getCompteurs();
+        return Response.ok(Map.of(
+            "totalCandidates", compteurs.get("totalCandidats"),
+            "activeTests", compteurs.get("sessionsEnCours"),
+            "completedTests", compteurs.get("sessionsTerminees"),
+            "averageScore", compteurs.get("scoreMoyen"),
+            "pendingValidations", compteurs.get("candidatsEnAttente"),
+            "todaySessions", compteurs.get("sessionsAujourdhui"),
+            "calculeLe", tableauBordService.getDateCalcul()
+        )).build();
+    }
+    
     @GET
     @Path("/stats/questions")
     public Response getStatsQuestions() {
@@ -502,13 +620,79 @@ public class AdministrationResource {
         return Response.ok(stats).build();
     }
     
+    @GET
+    @Path("/stats/questions/analyse")
+    public Response getAnalyseQuestions() {
+        List<Map<String, Object>> analyses = analyseItemsService.getAnalyses();
+        return Response.ok(Map.of(
+            "questions", analyses,
+            "total", analyses.size(),
+            "aRevoir", analyses.stream().filter(a -> Boolean.TRUE.equals(a.get("aRevoir"))).count()
+        )).build();
+    }
+    
+    @GET
+    @Path("/questions/{id}/analyse")
+    public Response getAnalyseQuestion(@PathParam("id") Integer id) {
+        try {
+            return Response.ok(analyseItemsService.getAnalyse(id)).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity(Map.of("error", e.getMessage()))
+                .build();
+        }
+    }
+    
+    @POST
+    @Path("/stats/questions/analyse/recalcul")
+    public Response recalculerAnalyseQuestions() {
+        analyseItemsService.recalculer();
+        return Response.ok(Map.of("message", "Analyse des questions recalculée")).build();
+    }
+    
+    @GET
+    @Path("/stats/admission")
+    public Response getMetriquesAdmission() {
+        return Response.ok(admissionDemarrageService.getMetriques()).build();
+    }
+    
+    @GET
+    @Path("/stats/finalisations")
+    public Response getMetriquesFinalisations() {
+        return Response.ok(finalisationSessionsService.getMetriques()).build();
+    }
+    
+    @GET
+    @Path("/stats/idempotence")
+    public Response getMetriquesIdempotence() {
+        return Response.ok(idempotenceService.getMetriques()).build();
+    }
+    
+    @GET
+    @Path("/stats/conflits")
+    public Response getMetriquesConflits() {
+        return Response.ok(Map.of("operations", reprisesConflitsService.getMetriques())).build();
+    }
+    
+    @GET
+    @Path("/stats/replique")
+    public Response getMetriquesReplique() {
+        return Response.ok(routageLecturesService.getMetriques()).build();
+    }
+    
+    @GET
+    @Path("/stats/calculs-partages")
+    public Response getMetriquesCalculsPartages() {
+        return Response.ok(Map.of("operations", coalesceurCalculs.getMetriques())).build();
+    }
+    
     @GET
     @Path("/stats/candidats")
     public Response getStatsCandidats() {
         Map<String, Object> stats = Map.of(
-            "total", candidatService.count(),
-            "valides", candidatService.findByEstValide(true).size(),
-            "enAttente", candidatService.findByEstValide(false).size(),
+            "total", tableauBordService.get("totalCandidats"),
+            "valides", tableauBordService.get("candidatsValides"),
+            "enAttente", tableauBordService.get("candidatsEnAttente"),
             "recent", candidatService.findRecentCandidates(10)
         );
         
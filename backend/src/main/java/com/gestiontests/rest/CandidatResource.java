@@ -4,6 +4,7 @@ import com.gestiontests.entity.Candidat;
 import com.gestiontests.entity.CreneauHoraire;
 import com.gestiontests.service.CandidatService;
 import com.gestiontests.service.CreneauHoraireService;
+import com.gestiontests.service.TableauBordService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
@@ -26,6 +27,9 @@ public class CandidatResource {
     @Inject
     private CreneauHoraireService creneauHoraireService;
     
+    @Inject
+    private TableauBordService tableauBordService;
+    
     @POST
     @Path("/inscription")
     public Response inscrireCandidat(Map<String, Object> payload) {
@@ -212,9 +216,9 @@ public class CandidatResource {
     @GET
     @Path("/stats")
     public Response getStats() {
-        long total = candidatService.count();
-        long valides = candidatService.findByEstValide(true).size();
-        long enAttente = candidatService.findByEstValide(false).size();
+        long total = tableauBordService.get("totalCandidats");
+        long valides = tableauBordService.get("candidatsValides");
+        long enAttente = tableauBordService.get("candidatsEnAttente");
         
         return Response.ok(Map.of(
             "total", total,
@@ -2,6 +2,7 @@ package com.gestiontests.rest;
 
 import com.gestiontests.entity.CreneauHoraire;
 import com.gestiontests.service.CreneauHoraireService;
+import com.gestiontests.service.TableauBordService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
@@ -22,6 +23,9 @@ public class CreneauHoraireResource {
     @Inject
     private CreneauHoraireService creneauHoraireService;
     
+    @Inject
+    private TableauBordService tableauBordService;
+    
     @POST
     public Response createCreneau(CreneauHoraire creneau) {
         try {
@@ -268,8 +272,8 @@ public class CreneauHoraireResource {
     @GET
     @Path("/stats")
     public Response getStats() {
-        long total = creneauHoraireService.findAll().size();
-        long disponibles = creneauHoraireService.countAvailableCreneaux();
+        long total = tableauBordService.get("totalCreneaux");
+        long disponibles = tableauBordService.get("creneauxDisponibles");
         
         return Response.ok(Map.of(
             "total", total,
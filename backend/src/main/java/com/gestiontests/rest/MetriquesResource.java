@@ -0,0 +1,29 @@
+package com.gestiontests.rest;
+
+import com.gestiontests.service.MetriquesPrometheusService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Métriques au format texte Prometheus, à déclarer comme cible de collecte :
+ * metrics_path: /gestion-tests-backend/api/metrics
+ */
+@Path("/metrics")
+@ApplicationScoped
+public class MetriquesResource {
+
+    static final String TYPE_PROMETHEUS = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Inject
+    private MetriquesPrometheusService metriquesPrometheusService;
+
+    @GET
+    @Produces(TYPE_PROMETHEUS)
+    public Response getMetriques() {
+        return Response.ok(metriquesPrometheusService.exporter()).build();
+    }
+}
@@ -4,6 +4,9 @@ import com.gestiontests.entity.SessionTest;
 import com.gestiontests.entity.ReponseCandidat;
 import com.gestiontests.service.TestService;
 import com.gestiontests.service.ResultatService;
+import com.gestiontests.service.CoalesceurCalculs;
+import com.gestiontests.service.EntreeClassement;
+import com.gestiontests.repository.CriteresRechercheSession;
 import com.gestiontests.repository.ReponseCandidatRepository;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -13,6 +16,8 @@ import jakarta.ws.rs.core.Response;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -24,6 +29,9 @@ import java.util.stream.Collectors;
 @ApplicationScoped
 public class ResultatResource {
     
+    // Périodes (en jours) acceptées par /stats/par-date
+    private static final List<Integer> PERIODES_STATS = List.of(7, 30, 90, 365);
+    
     // DTO pour éviter les problèmes de lazy loading
     public static class SessionTestDTO {
         private Integer id;
@@ -66,6 +74,9 @@ public class ResultatResource {
     @Inject
     private ResultatService resultatService;
     
+    @Inject
+    private CoalesceurCalculs coalesceurCalculs;
+    
     @GET
     @Path("/session/{sessionId}")
     public Response getResultatsBySession(@PathParam("sessionId") Integer sessionId) {
@@ -86,10 +97,26 @@ public class ResultatResource {
                 "total", session.getScoreTotal(),
                 "max", session.getScoreMax(),
                 "pourcentage", session.getPourcentage()
-            )
+            ),
+            "rangPercentile", resultatService.getRangsPercentiles(session)
         )).build();
     }
     
+    @GET
+    @Path("/distribution")
+    public Response getDistributionScores(@QueryParam("ecole") String ecole,
+                                          @QueryParam("creneauId") Integer creneauId,
+                                          @QueryParam("du") String du,
+                                          @QueryParam("au") String au) {
+        try {
+            return Response.ok(resultatService.getDistributionScores(ecole, creneauId, du, au)).build();
+        } catch (DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("error", "Format de date invalide (attendu: AAAA-MM-JJ)"))
+                .build();
+        }
+    }
+    
     @GET
     @Path("/candidat/{candidatId}")
     public Response getResultatsByCandidat(@PathParam("candidatId") Integer candidatId) {
@@ -123,20 +150,33 @@ public class ResultatResource {
     
     @GET
     @Path("/recherche")
-    public Response rechercherResultats(@QueryParam("terme") String terme) {
+    public Response rechercherResultats(@QueryParam("terme") String terme,
+                                       @QueryParam("limite") Integer limite,
+                                       @QueryParam("apresDateDebut") String apresDateDebut,
+                                       @QueryParam("apresId") Integer apresId) {
         if (terme == null || terme.trim().isEmpty()) {
             return Response.status(Response.Status.BAD_REQUEST)
                 .entity(Map.of("error", "Le terme de recherche est obligatoire"))
                 .build();
         }
         
-        List<SessionTest> sessions = resultatService.rechercherSessionsParCandidat(terme);
+        CriteresRechercheSession criteres = CriteresRechercheSession.parTerme(terme);
+        try {
+            appliquerPagination(criteres, limite, apresDateDebut, apresId);
+        } catch (DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("error", "Format de apresDateDebut invalide. Utilisez YYYY-MM-DDTHH:mm:ss"))
+                .build();
+        }
         
-        return Response.ok(Map.of(
-            "terme", terme,
-            "sessions", sessions,
-            "total", sessions.size()
-        )).build();
+        List<SessionTest> sessions = resultatService.rechercherSessions(criteres);
+        
+        Map<String, Object> resultat = new HashMap<>();
+        resultat.put("terme", terme);
+        resultat.put("sessions", sessions);
+        resultat.put("total", sessions.size());
+        resultat.put("suivant", curseurSuivant(sessions, criteres.getLimite()));
+        return Response.ok(resultat).build();
     }
     
     @GET
@@ -144,24 +184,76 @@ public class ResultatResource {
     public Response rechercheAvancee(@QueryParam("nom") String nom,
                                    @QueryParam("prenom") String prenom,
                                    @QueryParam("ecole") String ecole,
-                                   @QueryParam("codeExam") String codeExam) {
-        List<SessionTest> sessions = resultatService.rechercheAvanceeSessions(nom, prenom, ecole, codeExam);
+                                   @QueryParam("codeExam") String codeExam,
+                                   @QueryParam("limite") Integer limite,
+                                   @QueryParam("apresDateDebut") String apresDateDebut,
+                                   @QueryParam("apresId") Integer apresId) {
+        CriteresRechercheSession criteres = new CriteresRechercheSession();
+        criteres.setNom(nom);
+        criteres.setPrenom(prenom);
+        criteres.setEcole(ecole);
+        criteres.setCodeSession(codeExam);
+        try {
+            appliquerPagination(criteres, limite, apresDateDebut, apresId);
+        } catch (DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("error", "Format de apresDateDebut invalide. Utilisez YYYY-MM-DDTHH:mm:ss"))
+                .build();
+        }
         
-        return Response.ok(Map.of(
-            "critères", Map.of(
-                "nom", nom,
-                "prenom", prenom,
-                "ecole", ecole,
-                "codeExam", codeExam
-            ),
-            "sessions", sessions,
-            "total", sessions.size()
-        )).build();
+        List<SessionTest> sessions = resultatService.rechercherSessions(criteres);
+        
+        // Map.of refuse les valeurs nulles : les critères absents sont omis
+        Map<String, Object> criteresMap = new HashMap<>();
+        criteresMap.put("nom", nom);
+        criteresMap.put("prenom", prenom);
+        criteresMap.put("ecole", ecole);
+        criteresMap.put("codeExam", codeExam);
+        
+        Map<String, Object> resultat = new HashMap<>();
+        resultat.put("critères", criteresMap);
+        resultat.put("sessions", sessions);
+        resultat.put("total", sessions.size());
+        resultat.put("suivant", curseurSuivant(sessions, criteres.getLimite()));
+        return Response.ok(resultat).build();
+    }
+    
+    private void appliquerPagination(CriteresRechercheSession criteres, Integer limite,
+                                     String apresDateDebut, Integer apresId) {
+        criteres.setLimite(limite);
+        if (apresDateDebut != null && apresId != null) {
+            criteres.setApresDateDebut(LocalDateTime.parse(apresDateDebut));
+            criteres.setApresId(apresId);
+        }
+    }
+    
+    /**
+     * Curseur de la page suivante, ou null si la page courante est la dernière
+     */
+    private Map<String, Object> curseurSuivant(List<SessionTest> sessions, int limite) {
+        if (sessions.size() < limite) {
+            return null;
+        }
+        SessionTest derniere = sessions.get(sessions.size() - 1);
+        return Map.of(
+            "apresDateDebut", derniere.getDateDebut().toString(),
+            "apresId", derniere.getId()
+        );
     }
     
     @GET
     @Path("/stats/globales")
     public Response getStatsGlobales() {
+        try {
+            return Response.ok(coalesceurCalculs.executer("stats-globales", null, this::calculerStatsGlobales)).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("error", e.getMessage()))
+                .build();
+        }
+    }
+    
+    private Map<String, Object> calculerStatsGlobales() {
         List<SessionTest> recentSessions = testService.getRecentSessions(1000);
         
         long totalSessions = recentSessions.size();
@@ -184,22 +276,29 @@ public class ResultatResource {
             .min()
             .orElse(0.0);
         
-        return Response.ok(Map.of(
+        return Map.of(
             "totalSessions", totalSessions,
             "sessionsTerminees", sessionsTerminees,
             "tauxCompletion", totalSessions > 0 ? (double) sessionsTerminees / totalSessions * 100 : 0,
             "scoreMoyen", Math.round(scoreMoyen * 100.0) / 100.0,
             "scoreMax", Math.round(scoreMax * 100.0) / 100.0,
             "scoreMin", Math.round(scoreMin * 100.0) / 100.0
-        )).build();
+        );
     }
     
     @GET
     @Path("/stats/par-ecole")
     public Response getStatsParEcole() {
-        List<Map<String, Object>> statsEcole = resultatService.getStatsParEcole();
-        
-        return Response.ok(Map.of("statsEcole", statsEcole)).build();
+        try {
+            List<Map<String, Object>> statsEcole = coalesceurCalculs.executer("stats-par-ecole", null,
+                resultatService::getStatsParEcole);
+            
+            return Response.ok(Map.of("statsEcole", statsEcole)).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("error", e.getMessage()))
+                .build();
+        }
     }
     
     @GET
@@ -208,19 +307,35 @@ public class ResultatResource {
         if (jours == null) {
             jours = 30; // Par défaut 30 jours
         }
+        // Périodes proposées uniquement : chaque valeur distincte occupe une entrée du cache de calculs
+        if (!PERIODES_STATS.contains(jours)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("error", "Période non prise en charge, valeurs possibles : " + PERIODES_STATS))
+                .build();
+        }
         
-        List<Map<String, Object>> statsDate = resultatService.getStatsParDate(jours);
-        
-        return Response.ok(Map.of(
-            "periode", jours + " jours",
-            "statsDate", statsDate
-        )).build();
+        Integer periode = jours;
+        try {
+            List<Map<String, Object>> statsDate = coalesceurCalculs.executer("stats-par-date", periode.toString(),
+                () -> resultatService.getStatsParDate(periode));
+            
+            return Response.ok(Map.of(
+                "periode", jours + " jours",
+                "statsDate", statsDate
+            )).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("error", e.getMessage()))
+                .build();
+        }
     }
     
     @GET
     @Path("/top-scores/{limit}")
-    public Response getTopScores(@PathParam("limit") Integer limit) {
-        List<SessionTest> topScores = resultatService.getTopScores(limit);
+    public Response getTopScores(@PathParam("limit") Integer limit,
+                                 @QueryParam("ecole") String ecole,
+                                 @QueryParam("creneauId") Integer creneauId) {
+        List<EntreeClassement> topScores = resultatService.getTopScores(limit, ecole, creneauId);
         
         return Response.ok(Map.of(
             "topScores", topScores,
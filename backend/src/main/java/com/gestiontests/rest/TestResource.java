@@ -8,8 +8,13 @@ import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 
 import java.time.LocalDateTime;
 import java.math.BigDecimal;
@@ -20,6 +25,7 @@ import java.util.stream.Collectors;
 import java.util.LinkedHashMap;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 
 @Path("/tests")
 @Produces(MediaType.APPLICATION_JSON)
@@ -30,6 +36,27 @@ public class TestResource {
     @Inject
     private TestService testService;
     
+    @Inject
+    private DecompteSessionsService decompteSessionsService;
+    
+    @Inject
+    private AdmissionDemarrageService admissionDemarrageService;
+    
+    @Inject
+    private FinalisationSessionsService finalisationSessionsService;
+    
+    @Inject
+    private IdempotenceService idempotenceService;
+    
+    @Inject
+    private ReprisesConflitsService reprisesConflitsService;
+    
+    // Attente maximale d'une demande d'état différée
+    private static final int ATTENTE_MAX_SECONDES = 30;
+    
+    // Attente d'une finalisation suivie par un autre nœud : la ligne de la session est relue à chaque appel
+    private static final int ATTENTE_DISTANTE_SECONDES = 2;
+    
     @PersistenceContext
     private EntityManager entityManager;
     
@@ -47,7 +74,8 @@ public class TestResource {
             Optional<SessionTest> sessionOpt = testService.getSessionByCodeSession(codeSession);
             if (sessionOpt.isPresent()) {
                 SessionTest session = sessionOpt.get();
-                if (!session.getEstTermine()) {
+                // Une session préparée avant le créneau (sans date de début) n'est pas encore active
+                if (!session.getEstTermine() && session.getDateDebut() != null) {
                     List<SessionQuestion> questions = testService.getQuestionsBySession(session.getId());
                     SessionTestDTO sessionDTO = new SessionTestDTO(session);
                     return Response.ok(Map.of(
@@ -80,7 +108,35 @@ public class TestResource {
                     .build();
             }
             
-            SessionTest session = testService.demarrerTest(codeSession);
+            // Salle d'attente : le chronomètre du candidat ne démarre qu'une fois admis
+            AdmissionDemarrageService.Admission admission = admissionDemarrageService.entrer(codeSession);
+            if (!admission.estAdmis()) {
+                return Response.status(Response.Status.ACCEPTED)
+                    .header("Retry-After", admission.getDelaiSecondes())
+                    .entity(Map.of(
+                        "enAttente", true,
+                        "position", admission.getPosition(),
+                        "retryAfter", admission.getDelaiSecondes()
+                    ))
+                    .build();
+            }
+            
+            long debutAdmission = System.nanoTime();
+            try {
+                return demarrerTestAdmis(codeSession);
+            } finally {
+                admissionDemarrageService.sortir(System.nanoTime() - debutAdmission);
+            }
+        } catch (Exception e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("error", e.getMessage()))
+                .build();
+        }
+    }
+    
+    private Response demarrerTestAdmis(String codeSession) {
+        try {
+            SessionTest session = reprisesConflitsService.executer("demarrerTest", () -> testService.demarrerTest(codeSession));
             SessionTestDTO sessionDTO = new SessionTestDTO(session);
             
             // Utiliser une requête native pour récupérer toutes les données des questions
@@ -100,54 +156,7 @@ public class TestResource {
                 .setParameter("sessionId", session.getId())
                 .getResultList();
             
-            // Organiser les résultats par question
-            Map<Integer, SessionQuestionDTO> questionsMap = new LinkedHashMap<>();
-            
-            for (Object[] row : results) {
-                Integer sqId = (Integer) row[0];
-                Integer ordre = (Integer) row[1];
-                Integer temps = (Integer) row[2];
-                Integer qId = (Integer) row[3];
-                String libelle = (String) row[4];
-                String explication = (String) row[5];
-                Integer typeId = (Integer) row[6];
-                String typeNom = (String) row[7];
-                Integer repId = (Integer) row[8];
-                String repLibelle = (String) row[9];
-                Boolean estCorrect = (Boolean) row[10];
-                
-                SessionQuestionDTO sqDto = questionsMap.computeIfAbsent(sqId, id -> {
-                    SessionQuestionDTO dto = new SessionQuestionDTO();
-                    dto.setId(id);
-                    dto.setOrdreAffichage(ordre);
-                    dto.setTempsAlloue(temps);
-                    
-                    QuestionDTO qDto = new QuestionDTO();
-                    qDto.setId(qId);
-                    qDto.setLibelle(libelle);
-                    qDto.setExplication(explication);
-                    
-                    TypeQuestionDTO tqDto = new TypeQuestionDTO();
-                    tqDto.setId(typeId);
-                    tqDto.setNom(typeNom);
-                    qDto.setTypeQuestion(tqDto);
-                    
-                    qDto.setReponsesPossibles(new ArrayList<>());
-                    dto.setQuestion(qDto);
-                    
-                    return dto;
-                });
-                
-                if (repId != null) {
-                    ReponsePossibleDTO rpDto = new ReponsePossibleDTO();
-                    rpDto.setId(repId);
-                    rpDto.setLibelle(repLibelle);
-                    rpDto.setEstCorrect(estCorrect);
-                    sqDto.getQuestion().getReponsesPossibles().add(rpDto);
-                }
-            }
-            
-            List<SessionQuestionDTO> questionDTOs = new ArrayList<>(questionsMap.values());
+            List<SessionQuestionDTO> questionDTOs = plierQuestions(results);
             
             System.out.println("Session ID: " + session.getId());
             System.out.println("Session estTermine: " + session.getEstTermine());
@@ -168,6 +177,59 @@ public class TestResource {
         }
     }
     
+    /**
+     * Regroupe les lignes (session_question x réponse possible) en questions avec leurs réponses possibles
+     */
+    static List<SessionQuestionDTO> plierQuestions(List<Object[]> results) {
+        Map<Integer, SessionQuestionDTO> questionsMap = new LinkedHashMap<>();
+        
+        for (Object[] row : results) {
+            Integer sqId = (Integer) row[0];
+            Integer ordre = (Integer) row[1];
+            Integer temps = (Integer) row[2];
+            Integer qId = (Integer) row[3];
+            String libelle = (String) row[4];
+            String explication = (String) row[5];
+            Integer typeId = (Integer) row[6];
+            String typeNom = (String) row[7];
+            Integer repId = (Integer) row[8];
+            String repLibelle = (String) row[9];
+            Boolean estCorrect = (Boolean) row[10];
+            
+            SessionQuestionDTO sqDto = questionsMap.computeIfAbsent(sqId, id -> {
+                SessionQuestionDTO dto = new SessionQuestionDTO();
+                dto.setId(id);
+                dto.setOrdreAffichage(ordre);
+                dto.setTempsAlloue(temps);
+                
+                QuestionDTO qDto = new QuestionDTO();
+                qDto.setId(qId);
+                qDto.setLibelle(libelle);
+                qDto.setExplication(explication);
+                
+                TypeQuestionDTO tqDto = new TypeQuestionDTO();
+                tqDto.setId(typeId);
+                tqDto.setNom(typeNom);
+                qDto.setTypeQuestion(tqDto);
+                
+                qDto.setReponsesPossibles(new ArrayList<>());
+                dto.setQuestion(qDto);
+                
+                return dto;
+            });
+            
+            if (repId != null) {
+                ReponsePossibleDTO rpDto = new ReponsePossibleDTO();
+                rpDto.setId(repId);
+                rpDto.setLibelle(repLibelle);
+                rpDto.setEstCorrect(estCorrect);
+                sqDto.getQuestion().getReponsesPossibles().add(rpDto);
+            }
+        }
+        
+        return new ArrayList<>(questionsMap.values());
+    }
+    
     // SessionTest DTO for JSON response
     public static class SessionTestDTO {
         private Integer id;
@@ -364,9 +426,20 @@ public class TestResource {
                 .build();
         }
     }
+    /**
+     * Soumission asynchrone : les réponses et la finalisation sont traitées en arrière-plan,
+     * l'état se suit sur /tests/{sessionId}/finalisation
+     */
     @POST
     @Path("/soumettre")
-    public Response soumettreTest(Map<String, Object> payload) {
+    public Response soumettreTest(Map<String, Object> payload,
+                                  @HeaderParam(IdempotenceService.EN_TETE) String cleIdempotence) {
+        Object sessionIdPayload = payload.get("sessionId");
+        return idempotenceService.executer(cleIdempotence, "soumettre:" + sessionIdPayload, payload,
+            () -> soumettre(payload));
+    }
+    
+    private Response soumettre(Map<String, Object> payload) {
         try {
             Integer sessionId = (Integer) payload.get("sessionId");
             @SuppressWarnings("unchecked")
@@ -378,75 +451,8 @@ public class TestResource {
                     .build();
             }
             
-            // Enregistrer toutes les réponses avant de terminer le test
-            System.out.println("DEBUG: Processing " + answers.size() + " answers for session " + sessionId);
-            for (Map.Entry<String, Object> entry : answers.entrySet()) {
-                String questionIdStr = entry.getKey();
-                Object answer = entry.getValue();
-                
-                System.out.println("DEBUG: Processing answer for question " + questionIdStr + ": " + answer);
-                
-                // Convertir l'ID de question de String à Integer
-                Integer questionId;
-                try {
-                    questionId = Integer.parseInt(questionIdStr);
-                } catch (NumberFormatException e) {
-                    System.err.println("ID de question invalide: " + questionIdStr);
-                    continue;
-                }
-                
-                Map<String, Object> reponseData = new HashMap<>();
-                
-                if (answer instanceof Integer) {
-                    // Réponse à choix (ID de la réponse possible)
-                    reponseData.put("reponsePossibleId", answer);
-                    System.out.println("DEBUG: Setting reponsePossibleId = " + answer);
-                } else if (answer instanceof String) {
-                    // Réponse textuelle
-                    reponseData.put("reponseText", answer);
-                    System.out.println("DEBUG: Setting reponseText = " + answer);
-                } else if (answer instanceof List) {
-                    // Réponses multiples (liste d'IDs)
-                    @SuppressWarnings("unchecked")
-                    List<Integer> reponseIds = (List<Integer>) answer;
-                    System.out.println("DEBUG: Processing multiple answers: " + reponseIds);
-                    if (!reponseIds.isEmpty()) {
-                        // Pour les questions multiples, on enregistre chaque réponse
-                        for (Integer reponseId : reponseIds) {
-                            reponseData.put("reponsePossibleId", reponseId);
-                            try {
-                                testService.enregistrerReponse(sessionId, questionId, reponseData);
-                                System.out.println("DEBUG: Recorded multiple answer " + reponseId + " for question " + questionId);
-                            } catch (Exception e) {
-                                // Continuer avec les autres réponses
-                                System.err.println("Erreur lors de l'enregistrement de la réponse " + reponseId + ": " + e.getMessage());
-                            }
-                        }
-                        continue; // Passer à la question suivante
-                    }
-                }
-                
-                try {
-                    testService.enregistrerReponse(sessionId, questionId, reponseData);
-                    System.out.println("DEBUG: Successfully recorded answer for question " + questionId);
-                } catch (Exception e) {
-                    System.err.println("Erreur lors de l'enregistrement de la réponse pour la question " + questionId + ": " + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
-            
-            SessionTest session = testService.terminerTest(sessionId);
-            SessionTestDTO sessionDTO = new SessionTestDTO(session);
-            
-            return Response.ok(Map.of(
-                "message", "Test terminé avec succès",
-                "session", sessionDTO,
-                "score", Map.of(
-                    "total", session.getScoreTotal(),
-                    "max", session.getScoreMax(),
-                    "pourcentage", session.getPourcentage()
-                )
-            )).build();
+            System.out.println("DEBUG: Queuing " + answers.size() + " answers for session " + sessionId);
+            return reponseSoumission(finalisationSessionsService.soumettre(sessionId, answers));
         } catch (Exception e) {
             return Response.status(Response.Status.BAD_REQUEST)
                 .entity(Map.of("error", e.getMessage()))
@@ -456,7 +462,13 @@ public class TestResource {
     
     @POST
     @Path("/{sessionId}/reponses")
-    public Response enregistrerReponse(@PathParam("sessionId") Integer sessionId, Map<String, Object> reponseData) {
+    public Response enregistrerReponse(@PathParam("sessionId") Integer sessionId, Map<String, Object> reponseData,
+                                       @HeaderParam(IdempotenceService.EN_TETE) String cleIdempotence) {
+        return idempotenceService.executer(cleIdempotence, "reponse:" + sessionId, reponseData,
+            () -> enregistrer(sessionId, reponseData));
+    }
+    
+    private Response enregistrer(Integer sessionId, Map<String, Object> reponseData) {
         try {
             Integer questionId = (Integer) reponseData.get("questionId");
             if (questionId == null) {
@@ -465,7 +477,10 @@ public class TestResource {
                     .build();
             }
             
-            ReponseCandidat reponse = testService.enregistrerReponse(sessionId, questionId, reponseData);
+            // Instant d'arrivée fixé une fois pour toutes les tentatives (règle de fusion)
+            LocalDateTime recueA = LocalDateTime.now();
+            ReponseCandidat reponse = reprisesConflitsService.executer("enregistrerReponse",
+                () -> testService.enregistrerReponse(sessionId, questionId, reponseData, recueA));
             
             return Response.ok(Map.of(
                 "message", "Réponse enregistrée avec succès",
@@ -482,25 +497,76 @@ public class TestResource {
     @POST
     @Path("/{sessionId}/terminer")
     public Response terminerTest(@PathParam("sessionId") Integer sessionId) {
-        try {
-            SessionTest session = testService.terminerTest(sessionId);
-            SessionTestDTO sessionDTO = new SessionTestDTO(session);
-            
-            return Response.ok(Map.of(
-                "message", "Test terminé avec succès",
-                "session", sessionDTO,
-                "score", Map.of(
-                    "total", session.getScoreTotal(),
-                    "max", session.getScoreMax(),
-                    "pourcentage", session.getPourcentage()
-                )
-            )).build();
-            
-        } catch (Exception e) {
-            return Response.status(Response.Status.BAD_REQUEST)
-                .entity(Map.of("error", e.getMessage()))
+        return reponseSoumission(finalisationSessionsService.soumettre(sessionId, null));
+    }
+    
+    /**
+     * État de la finalisation d'une session ; avec ?attendre=N, la réponse est différée jusqu'à la fin
+     * de la finalisation ou pendant N secondes au plus, sans occuper de thread du serveur
+     */
+    @GET
+    @Path("/{sessionId}/finalisation")
+    public void getFinalisation(@PathParam("sessionId") Integer sessionId,
+                                @QueryParam("attendre") @DefaultValue("0") int attendre,
+                                @Suspended AsyncResponse reponseAsynchrone) {
+        FinalisationSessionsService.Finalisation finalisation = finalisationSessionsService.getFinalisation(sessionId);
+        if (finalisation == null) {
+            reponseAsynchrone.resume(Response.status(Response.Status.NOT_FOUND)
+                .entity(Map.of("error", "Aucune finalisation pour cette session"))
+                .build());
+            return;
+        }
+        if (attendre <= 0 || finalisation.getResultat().isDone()) {
+            reponseAsynchrone.resume(reponseFinalisation(finalisation));
+            return;
+        }
+        
+        reponseAsynchrone.setTimeoutHandler(r -> r.resume(reponseFinalisation(finalisation)));
+        int attenteMax = finalisation.isLocale() ? ATTENTE_MAX_SECONDES : ATTENTE_DISTANTE_SECONDES;
+        reponseAsynchrone.setTimeout(Math.min(attendre, attenteMax), TimeUnit.SECONDS);
+        finalisation.getResultat().whenComplete((session, erreur) -> reponseAsynchrone.resume(reponseFinalisation(finalisation)));
+    }
+    
+    private Response reponseSoumission(FinalisationSessionsService.Finalisation finalisation) {
+        if (finalisation == null) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header("Retry-After", 2)
+                .entity(Map.of("error", "Trop de soumissions en cours, veuillez réessayer"))
                 .build();
         }
+        return reponseFinalisation(finalisation);
+    }
+    
+    private Response reponseFinalisation(FinalisationSessionsService.Finalisation finalisation) {
+        switch (finalisation.getStatut()) {
+            case TERMINEE:
+                SessionTest session = finalisation.getResultat().join();
+                return Response.ok(Map.of(
+                    "statut", finalisation.getStatut(),
+                    "message", "Test terminé avec succès",
+                    "session", new SessionTestDTO(session),
+                    "score", Map.of(
+                        "total", session.getScoreTotal(),
+                        "max", session.getScoreMax(),
+                        "pourcentage", session.getPourcentage()
+                    )
+                )).build();
+            case ECHOUEE:
+                return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of(
+                        "statut", finalisation.getStatut(),
+                        "error", finalisation.getErreur() != null ? finalisation.getErreur() : "Erreur lors de la finalisation"
+                    ))
+                    .build();
+            default:
+                return Response.status(Response.Status.ACCEPTED)
+                    .entity(Map.of(
+                        "statut", finalisation.getStatut(),
+                        "sessionId", finalisation.getSessionId(),
+                        "suivi", "/tests/" + finalisation.getSessionId() + "/finalisation"
+                    ))
+                    .build();
+        }
     }
     
     @GET
@@ -561,10 +627,7 @@ public class TestResource {
                     .build();
             }
             
-            List<SessionQuestion> questions = testService.getQuestionsBySession(sessionId);
-            Optional<SessionQuestion> questionOpt = questions.stream()
-                .filter(q -> q.getQuestion().getId().equals(questionId))
-                .findFirst();
+            Optional<SessionQuestion> questionOpt = testService.getSessionQuestion(sessionId, questionId);
             
             if (questionOpt.isEmpty()) {
                 return Response.status(Response.Status.NOT_FOUND)
@@ -625,6 +688,36 @@ public class TestResource {
         )).build();
     }
     
+    @GET
+    @Path("/{sessionId}/progression")
+    public Response getProgression(@PathParam("sessionId") Integer sessionId) {
+        Map<String, Object> progression = testService.getProgression(sessionId);
+        if (progression == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                .entity(Map.of("error", "Aucune session en cours"))
+                .build();
+        }
+        return Response.ok(progression).build();
+    }
+    
+    /**
+     * Flux SSE du décompte : événements "temps-restant" périodiques puis "fin" à la clôture de la session
+     * ("remplace" si un onglet plus récent prend le relais) ; 503 si le nœud suit déjà trop de flux
+     */
+    @GET
+    @Path("/{sessionId}/decompte")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void suivreDecompte(@PathParam("sessionId") Integer sessionId,
+                               @Context SseEventSink flux, @Context Sse sse) {
+        if (!decompteSessionsService.abonner(sessionId, flux, sse)) {
+            throw new WebApplicationException(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header("Retry-After", 30)
+                .entity(Map.of("error", "Trop de décomptes suivis, réessayez plus tard"))
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .build());
+        }
+    }
+    
     @GET
     @Path("/{sessionId}/temps-restant")
     public Response getTempsRestant(@PathParam("sessionId") Integer sessionId) {
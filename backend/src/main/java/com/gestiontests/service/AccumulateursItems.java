@@ -0,0 +1,122 @@
+package com.gestiontests.service;
+
+import java.util.Arrays;
+
+/**
+ * Compteurs d'analyse des questions dans des tableaux primitifs indexés par identifiant de question
+ * (et par identifiant de réponse possible pour les choix). Toutes les valeurs sont des sommes :
+ * elles s'additionnent, se soustraient et se fusionnent exactement.
+ */
+final class AccumulateursItems {
+
+    // Par question : présentations dans une session terminée, réponses données, réponses correctes
+    int[] presentations = new int[0];
+    int[] reponses = new int[0];
+    int[] correctes = new int[0];
+
+    // Par question : temps de réponse (somme en secondes et nombre de mesures)
+    long[] sommeTemps = new long[0];
+    int[] nbTemps = new int[0];
+
+    // Par question : sommes du score restant y (hors question) pour la corrélation point-bisériale
+    double[] sommeY = new double[0];
+    double[] sommeY2 = new double[0];
+    double[] sommeXY = new double[0];
+
+    // Par réponse possible : nombre de fois où elle a été choisie
+    int[] choix = new int[0];
+
+    /**
+     * Ajoute (signe 1) ou retire (signe -1) une question corrigée
+     *
+     * @param scoreRestant proportion de bonnes réponses de la session hors cette question
+     */
+    void ajouter(int questionId, int optionId, boolean repondue, boolean correcte, int temps,
+                 double scoreRestant, int signe) {
+        assurerQuestion(questionId);
+        int x = correcte ? 1 : 0;
+        presentations[questionId] += signe;
+        if (repondue) {
+            reponses[questionId] += signe;
+        }
+        correctes[questionId] += signe * x;
+        if (temps >= 0) {
+            sommeTemps[questionId] += (long) signe * temps;
+            nbTemps[questionId] += signe;
+        }
+        sommeY[questionId] += signe * scoreRestant;
+        sommeY2[questionId] += signe * scoreRestant * scoreRestant;
+        sommeXY[questionId] += signe * x * scoreRestant;
+        if (optionId > 0) {
+            assurerOption(optionId);
+            choix[optionId] += signe;
+        }
+    }
+
+    void fusionner(AccumulateursItems autre) {
+        assurerQuestion(autre.presentations.length - 1);
+        for (int i = 0; i < autre.presentations.length; i++) {
+            presentations[i] += autre.presentations[i];
+            reponses[i] += autre.reponses[i];
+            correctes[i] += autre.correctes[i];
+            sommeTemps[i] += autre.sommeTemps[i];
+            nbTemps[i] += autre.nbTemps[i];
+            sommeY[i] += autre.sommeY[i];
+            sommeY2[i] += autre.sommeY2[i];
+            sommeXY[i] += autre.sommeXY[i];
+        }
+        assurerOption(autre.choix.length - 1);
+        for (int i = 0; i < autre.choix.length; i++) {
+            choix[i] += autre.choix[i];
+        }
+    }
+
+    int presentations(int questionId) {
+        return questionId < presentations.length ? presentations[questionId] : 0;
+    }
+
+    int choix(int optionId) {
+        return optionId < choix.length ? choix[optionId] : 0;
+    }
+
+    /**
+     * Corrélation point-bisériale entre la réussite de la question et le score restant,
+     * null si elle n'est pas définie (moins de deux présentations ou variance nulle)
+     */
+    Double discrimination(int questionId) {
+        if (questionId >= presentations.length || presentations[questionId] < 2) {
+            return null;
+        }
+        double n = presentations[questionId];
+        double sx = correctes[questionId];
+        double sy = sommeY[questionId];
+        double numerateur = n * sommeXY[questionId] - sx * sy;
+        double varianceX = n * sx - sx * sx;
+        double varianceY = n * sommeY2[questionId] - sy * sy;
+        if (varianceX <= 0 || varianceY <= 1e-12) {
+            return null;
+        }
+        return numerateur / Math.sqrt(varianceX * varianceY);
+    }
+
+    private void assurerQuestion(int questionId) {
+        if (questionId < presentations.length) {
+            return;
+        }
+        int taille = Math.max(questionId + 1, presentations.length * 2);
+        presentations = Arrays.copyOf(presentations, taille);
+        reponses = Arrays.copyOf(reponses, taille);
+        correctes = Arrays.copyOf(correctes, taille);
+        sommeTemps = Arrays.copyOf(sommeTemps, taille);
+        nbTemps = Arrays.copyOf(nbTemps, taille);
+        sommeY = Arrays.copyOf(sommeY, taille);
+        sommeY2 = Arrays.copyOf(sommeY2, taille);
+        sommeXY = Arrays.copyOf(sommeXY, taille);
+    }
+
+    private void assurerOption(int optionId) {
+        if (optionId >= choix.length) {
+            choix = Arrays.copyOf(choix, Math.max(optionId + 1, choix.length * 2));
+        }
+    }
+}
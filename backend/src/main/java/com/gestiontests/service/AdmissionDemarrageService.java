@@ -0,0 +1,204 @@
+package com.gestiontests.service;
+
+import com.gestiontests.repository.ParametreRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Contrôle d'admission des démarrages de test. Au début d'un créneau, tous les candidats démarrent
+ * en même temps : au-delà d'un nombre de démarrages simultanés, les demandes sont placées dans une
+ * file d'attente FIFO et reçoivent leur position avec un délai de nouvelle tentative. La capacité
+ * s'adapte à la latence observée (augmentation additive, diminution multiplicative) sans dépasser
+ * ADMISSION_CAPACITE_MAX, à aligner sur la taille du pool de connexions.
+ */
+@ApplicationScoped
+public class AdmissionDemarrageService {
+
+    private static final int CAPACITE_MIN = 2;
+    private static final int CAPACITE_MAX_PAR_DEFAUT = 16;
+
+    // Latence de démarrage visée (paramètre ADMISSION_LATENCE_CIBLE_MS)
+    private static final int LATENCE_CIBLE_PAR_DEFAUT = 1500;
+
+    // Une place dans la file est perdue si le candidat ne se représente pas dans ce délai
+    private static final long EXPIRATION_ATTENTE_MS = 30_000;
+
+    private static final int DELAI_MAX_SECONDES = 10;
+
+    // Poids d'une nouvelle mesure dans la moyenne mobile de latence
+    private static final double LISSAGE = 0.2;
+
+    @Inject
+    private ParametreRepository parametreRepository;
+
+    private final ReentrantLock verrou = new ReentrantLock();
+
+    // Code session -> dernière présentation (ms), dans l'ordre d'arrivée
+    private final LinkedHashMap<String, Long> fileAttente = new LinkedHashMap<>();
+
+    private double capacite = CAPACITE_MIN * 2;
+    private int enCours = 0;
+    private double latenceMoyenneMs = 0;
+    private long admis = 0;
+    private long misEnAttente = 0;
+    private long abandons = 0;
+    private int fileMax = 0;
+
+    private volatile long parametresLusA = 0;
+    private volatile int capaciteMax = CAPACITE_MAX_PAR_DEFAUT;
+    private volatile int latenceCibleMs = LATENCE_CIBLE_PAR_DEFAUT;
+
+    /**
+     * Demande l'admission d'un candidat : admis immédiatement si une place est libre et que personne
+     * n'attend devant lui, sinon placé (ou maintenu) dans la file
+     */
+    public Admission entrer(String codeSession) {
+        lireParametres();
+        long maintenant = System.currentTimeMillis();
+        verrou.lock();
+        try {
+            purger(maintenant);
+            capacite = Math.min(capacite, capaciteMax);
+            int libres = (int) capacite - enCours;
+            int position = positionDans(codeSession);
+            if (libres > 0 && (position < 0 ? fileAttente.size() < libres : position < libres)) {
+                fileAttente.remove(codeSession);
+                enCours++;
+                admis++;
+                return Admission.ADMIS;
+            }
+
+            if (position < 0) {
+                fileAttente.put(codeSession, maintenant);
+                misEnAttente++;
+                position = fileAttente.size() - 1;
+                fileMax = Math.max(fileMax, fileAttente.size());
+            } else {
+                fileAttente.put(codeSession, maintenant);
+            }
+            return new Admission(position + 1, delaiEstime(position + 1));
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Libère la place d'un démarrage terminé et ajuste la capacité selon sa durée
+     */
+    public void sortir(long dureeNs) {
+        double dureeMs = dureeNs / 1_000_000.0;
+        verrou.lock();
+        try {
+            enCours = Math.max(0, enCours - 1);
+            latenceMoyenneMs = latenceMoyenneMs == 0 ? dureeMs : latenceMoyenneMs + LISSAGE * (dureeMs - latenceMoyenneMs);
+            if (latenceMoyenneMs > latenceCibleMs) {
+                capacite = Math.max(CAPACITE_MIN, capacite * 0.75);
+            } else if (enCours + 1 >= (int) capacite) {
+                // Saturée mais rapide : une place de plus par « tour » de capacité
+                capacite = Math.min(capaciteMax, capacite + 1.0 / capacite);
+            }
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    public Map<String, Object> getMetriques() {
+        verrou.lock();
+        try {
+            purger(System.currentTimeMillis());
+            Map<String, Object> metriques = new LinkedHashMap<>();
+            metriques.put("capacite", (int) capacite);
+            metriques.put("capaciteMax", capaciteMax);
+            metriques.put("enCours", enCours);
+            metriques.put("fileAttente", fileAttente.size());
+            metriques.put("fileAttenteMax", fileMax);
+            metriques.put("admis", admis);
+            metriques.put("misEnAttente", misEnAttente);
+            metriques.put("abandons", abandons);
+            metriques.put("latenceMoyenneMs", Math.round(latenceMoyenneMs * 10.0) / 10.0);
+            metriques.put("latenceCibleMs", latenceCibleMs);
+            return metriques;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private int positionDans(String codeSession) {
+        if (!fileAttente.containsKey(codeSession)) {
+            return -1;
+        }
+        int position = 0;
+        for (String code : fileAttente.keySet()) {
+            if (code.equals(codeSession)) {
+                return position;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    private void purger(long maintenant) {
+        Iterator<Long> it = fileAttente.values().iterator();
+        while (it.hasNext()) {
+            if (maintenant - it.next() > EXPIRATION_ATTENTE_MS) {
+                it.remove();
+                abandons++;
+            }
+        }
+    }
+
+    private int delaiEstime(int position) {
+        double latence = latenceMoyenneMs > 0 ? latenceMoyenneMs : latenceCibleMs;
+        double secondes = position * latence / 1000.0 / Math.max(1, (int) capacite);
+        return (int) Math.max(1, Math.min(DELAI_MAX_SECONDES, Math.ceil(secondes)));
+    }
+
+    private void lireParametres() {
+        long maintenant = System.currentTimeMillis();
+        if (maintenant - parametresLusA < 60_000) {
+            return;
+        }
+        parametresLusA = maintenant;
+        try {
+            capaciteMax = Math.max(CAPACITE_MIN,
+                parametreRepository.getValeurParametreAsInteger("ADMISSION_CAPACITE_MAX", CAPACITE_MAX_PAR_DEFAUT));
+            latenceCibleMs = Math.max(1,
+                parametreRepository.getValeurParametreAsInteger("ADMISSION_LATENCE_CIBLE_MS", LATENCE_CIBLE_PAR_DEFAUT));
+        } catch (Exception e) {
+            System.err.println("Lecture des paramètres d'admission impossible: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Résultat d'une demande d'admission : admis, ou position dans la file et délai conseillé
+     */
+    public static final class Admission {
+
+        static final Admission ADMIS = new Admission(0, 0);
+
+        private final int position;
+        private final int delaiSecondes;
+
+        Admission(int position, int delaiSecondes) {
+            this.position = position;
+            this.delaiSecondes = delaiSecondes;
+        }
+
+        public boolean estAdmis() {
+            return position == 0;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public int getDelaiSecondes() {
+            return delaiSecondes;
+        }
+    }
+}
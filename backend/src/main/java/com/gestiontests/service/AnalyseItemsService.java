@@ -0,0 +1,331 @@
+package com.gestiontests.service;
+
+import com.gestiontests.entity.ReponsePossible;
+import com.gestiontests.repository.QuestionRepository;
+import com.gestiontests.repository.ReponsePossibleRepository;
+import com.gestiontests.repository.SessionQuestionRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Analyse des questions (difficulté, discrimination, usage des distracteurs) maintenue
+ * incrémentalement à la correction de chaque session. Un recalcul complet sur l'historique
+ * est possible ; il est réparti en sous-tâches fork/join puis fusionné.
+ */
+@ApplicationScoped
+public class AnalyseItemsService {
+
+    // Lignes traitées par une sous-tâche du recalcul
+    private static final int SEUIL_DECOUPAGE = 10_000;
+
+    // Seuils de signalement d'une question à revoir
+    private static final double DISCRIMINATION_MIN = 0.2;
+    private static final double DIFFICULTE_MIN = 0.1;
+    private static final double DIFFICULTE_MAX = 0.95;
+    private static final int PRESENTATIONS_MIN = 30;
+
+    @Inject
+    private SessionQuestionRepository sessionQuestionRepository;
+
+    @Inject
+    private ReponsePossibleRepository reponsePossibleRepository;
+
+    @Inject
+    private QuestionRepository questionRepository;
+
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    private AccumulateursItems accumulateurs = new AccumulateursItems();
+
+    // Sessions corrigées ou retirées pendant un recalcul (null hors recalcul)
+    private List<SessionCorrigee> journal;
+
+    void auDemarrage(@Observes @Initialized(ApplicationScoped.class) Object evenement) {
+        try {
+            recalculer();
+        } catch (Exception e) {
+            System.err.println("Calcul de l'analyse des questions impossible: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Intègre une session corrigée. Les tableaux sont parallèles : une case par question de la session,
+     * option à 0 et temps à -1 quand la question n'a pas de réponse.
+     */
+    public void enregistrerSession(Integer sessionId, int[] questions, int[] options, boolean[] repondues,
+                                   boolean[] correctes, int[] temps, int score, int scoreMax) {
+        appliquer(new SessionCorrigee(sessionId, questions, options, repondues, correctes, temps, score, scoreMax, 1));
+    }
+
+    /**
+     * Retire la contribution d'une session (avant sa réinitialisation)
+     */
+    public void retirerSession(Integer sessionId, int[] questions, int[] options, boolean[] repondues,
+                               boolean[] correctes, int[] temps, int score, int scoreMax) {
+        appliquer(new SessionCorrigee(sessionId, questions, options, repondues, correctes, temps, score, scoreMax, -1));
+    }
+
+    /**
+     * Recalcule tous les compteurs depuis l'historique des sessions terminées
+     */
+    public void recalculer() {
+        verrou.writeLock().lock();
+        try {
+            if (journal != null) {
+                System.out.println("Recalcul de l'analyse des questions déjà en cours");
+                return;
+            }
+            journal = new ArrayList<>();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+
+        try {
+            long debut = System.currentTimeMillis();
+            List<Object[]> lignes = sessionQuestionRepository.findLignesAnalyseItems();
+            AccumulateursItems recalcules = ForkJoinPool.commonPool()
+                .invoke(new CalculPartiel(lignes, 0, lignes.size()));
+
+            Set<Integer> sessionsChargees = new HashSet<>();
+            for (Object[] ligne : lignes) {
+                sessionsChargees.add((Integer) ligne[0]);
+            }
+
+            verrou.writeLock().lock();
+            try {
+                // Rejoue les corrections survenues pendant le recalcul et absentes de l'historique lu
+                for (SessionCorrigee session : journal) {
+                    if (session.signe > 0 && !sessionsChargees.contains(session.sessionId)) {
+                        session.appliquer(recalcules);
+                    } else if (session.signe < 0 && sessionsChargees.remove(session.sessionId)) {
+                        session.appliquer(recalcules);
+                    }
+                }
+                accumulateurs = recalcules;
+            } finally {
+                verrou.writeLock().unlock();
+            }
+            System.out.println("Analyse des questions recalculée: " + lignes.size() + " lignes en "
+                + (System.currentTimeMillis() - debut) + " ms");
+        } finally {
+            verrou.writeLock().lock();
+            try {
+                journal = null;
+            } finally {
+                verrou.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Analyse de toutes les questions ayant été présentées, les questions à revoir en premier
+     */
+    public List<Map<String, Object>> getAnalyses() {
+        Map<Integer, List<Object[]>> optionsParQuestion = new HashMap<>();
+        for (Object[] option : reponsePossibleRepository.findResumeOptions()) {
+            optionsParQuestion.computeIfAbsent((Integer) option[1], q -> new ArrayList<>()).add(option);
+        }
+        Map<Integer, String> libelles = new HashMap<>();
+        for (Object[] question : questionRepository.findChampsRecherche()) {
+            libelles.put((Integer) question[0], (String) question[1]);
+        }
+
+        List<Map<String, Object>> analyses = new ArrayList<>();
+        verrou.readLock().lock();
+        try {
+            for (Map.Entry<Integer, String> question : libelles.entrySet()) {
+                if (accumulateurs.presentations(question.getKey()) > 0) {
+                    analyses.add(analyser(question.getKey(), question.getValue(),
+                        optionsParQuestion.getOrDefault(question.getKey(), List.of())));
+                }
+            }
+        } finally {
+            verrou.readLock().unlock();
+        }
+        analyses.sort((a, b) -> {
+            int revoir = Boolean.compare((Boolean) b.get("aRevoir"), (Boolean) a.get("aRevoir"));
+            return revoir != 0 ? revoir : Integer.compare((Integer) a.get("questionId"), (Integer) b.get("questionId"));
+        });
+        return analyses;
+    }
+
+    public Map<String, Object> getAnalyse(Integer questionId) throws Exception {
+        String libelle = questionRepository.findById(questionId)
+            .orElseThrow(() -> new Exception("Question non trouvée"))
+            .getLibelle();
+        List<Object[]> options = new ArrayList<>();
+        for (ReponsePossible reponse : reponsePossibleRepository.findByQuestion(questionId)) {
+            options.add(new Object[] { reponse.getId(), questionId, reponse.getLibelle(), reponse.getEstCorrect() });
+        }
+
+        verrou.readLock().lock();
+        try {
+            return analyser(questionId, libelle, options);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private void appliquer(SessionCorrigee session) {
+        verrou.writeLock().lock();
+        try {
+            session.appliquer(accumulateurs);
+            if (journal != null) {
+                journal.add(session);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    private Map<String, Object> analyser(int questionId, String libelle, List<Object[]> options) {
+        AccumulateursItems a = accumulateurs;
+        int presentations = a.presentations(questionId);
+        int reponses = presentations > 0 ? a.reponses[questionId] : 0;
+        int correctes = presentations > 0 ? a.correctes[questionId] : 0;
+        Double difficulte = presentations > 0 ? arrondir((double) correctes / presentations) : null;
+        Double discrimination = a.discrimination(questionId);
+        Double tempsMoyen = presentations > 0 && a.nbTemps[questionId] > 0
+            ? arrondir((double) a.sommeTemps[questionId] / a.nbTemps[questionId]) : null;
+
+        List<Map<String, Object>> detailOptions = new ArrayList<>();
+        List<Integer> distracteursInutilises = new ArrayList<>();
+        for (Object[] option : options) {
+            Integer optionId = (Integer) option[0];
+            boolean estCorrecte = Boolean.TRUE.equals(option[3]);
+            int choix = a.choix(optionId);
+            Map<String, Object> detail = new LinkedHashMap<>();
+            detail.put("id", optionId);
+            detail.put("libelle", option[2]);
+            detail.put("estCorrect", estCorrecte);
+            detail.put("choix", choix);
+            detail.put("taux", reponses > 0 ? arrondir((double) choix / reponses) : 0.0);
+            detailOptions.add(detail);
+            if (!estCorrecte && choix == 0) {
+                distracteursInutilises.add(optionId);
+            }
+        }
+
+        boolean aRevoir = presentations >= PRESENTATIONS_MIN && (
+            (discrimination != null && discrimination < DISCRIMINATION_MIN)
+                || difficulte < DIFFICULTE_MIN || difficulte > DIFFICULTE_MAX);
+
+        Map<String, Object> analyse = new LinkedHashMap<>();
+        analyse.put("questionId", questionId);
+        analyse.put("libelle", libelle);
+        analyse.put("presentations", presentations);
+        analyse.put("reponses", reponses);
+        analyse.put("correctes", correctes);
+        analyse.put("difficulte", difficulte);
+        analyse.put("discrimination", discrimination != null ? arrondir(discrimination) : null);
+        analyse.put("tempsMoyen", tempsMoyen);
+        analyse.put("options", detailOptions);
+        analyse.put("distracteursInutilises", distracteursInutilises);
+        analyse.put("aRevoir", aRevoir);
+        return analyse;
+    }
+
+    private static double arrondir(double valeur) {
+        return Math.round(valeur * 1000.0) / 1000.0;
+    }
+
+    /**
+     * Proportion de bonnes réponses de la session hors la question considérée
+     */
+    private static double scoreRestant(int score, int scoreMax, boolean correcte) {
+        return scoreMax > 1 ? (double) (score - (correcte ? 1 : 0)) / (scoreMax - 1) : 0;
+    }
+
+    /**
+     * Sous-tâche du recalcul : accumule une tranche de lignes
+     * (session, question, correcte, option, temps, score, scoreMax)
+     */
+    private static final class CalculPartiel extends RecursiveTask<AccumulateursItems> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Object[]> lignes;
+        private final int debut;
+        private final int fin;
+
+        CalculPartiel(List<Object[]> lignes, int debut, int fin) {
+            this.lignes = lignes;
+            this.debut = debut;
+            this.fin = fin;
+        }
+
+        @Override
+        protected AccumulateursItems compute() {
+            if (fin - debut > SEUIL_DECOUPAGE) {
+                int milieu = (debut + fin) >>> 1;
+                CalculPartiel gauche = new CalculPartiel(lignes, debut, milieu);
+                gauche.fork();
+                AccumulateursItems droite = new CalculPartiel(lignes, milieu, fin).compute();
+                AccumulateursItems resultat = gauche.join();
+                resultat.fusionner(droite);
+                return resultat;
+            }
+
+            AccumulateursItems partiel = new AccumulateursItems();
+            for (int i = debut; i < fin; i++) {
+                Object[] ligne = lignes.get(i);
+                Integer questionId = (Integer) ligne[1];
+                boolean correcte = Boolean.TRUE.equals(ligne[2]);
+                Integer optionId = (Integer) ligne[3];
+                Integer temps = (Integer) ligne[4];
+                int score = ligne[5] != null ? (Integer) ligne[5] : 0;
+                int scoreMax = ligne[6] != null ? (Integer) ligne[6] : 0;
+                partiel.ajouter(questionId, optionId != null ? optionId : 0, ligne[2] != null, correcte,
+                    temps != null ? temps : -1, scoreRestant(score, scoreMax, correcte), 1);
+            }
+            return partiel;
+        }
+    }
+
+    /**
+     * Contribution d'une session corrigée (ou retirée, signe -1)
+     */
+    private static final class SessionCorrigee {
+        private final Integer sessionId;
+        private final int[] questions;
+        private final int[] options;
+        private final boolean[] repondues;
+        private final boolean[] correctes;
+        private final int[] temps;
+        private final int score;
+        private final int scoreMax;
+        private final int signe;
+
+        SessionCorrigee(Integer sessionId, int[] questions, int[] options, boolean[] repondues,
+                        boolean[] correctes, int[] temps, int score, int scoreMax, int signe) {
+            this.sessionId = sessionId;
+            this.questions = questions;
+            this.options = options;
+            this.repondues = repondues;
+            this.correctes = correctes;
+            this.temps = temps;
+            this.score = score;
+            this.scoreMax = scoreMax;
+            this.signe = signe;
+        }
+
+        void appliquer(AccumulateursItems cible) {
+            for (int i = 0; i < questions.length; i++) {
+                cible.ajouter(questions[i], options[i], repondues[i], correctes[i], temps[i],
+                    scoreRestant(score, scoreMax, correctes[i]), signe);
+            }
+        }
+    }
+}
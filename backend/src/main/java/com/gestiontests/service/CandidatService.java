@@ -1,5 +1,6 @@
 package com.gestiontests.service;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.Candidat;
 import com.gestiontests.entity.CreneauHoraire;
 import com.gestiontests.entity.Inscription;
@@ -7,14 +8,19 @@ import com.gestiontests.repository.CandidatRepository;
 import com.gestiontests.repository.CreneauHoraireRepository;
 import com.gestiontests.repository.InscriptionRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import org.mindrot.jbcrypt.BCrypt;
 
 import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class CandidatService {
@@ -28,8 +34,21 @@ public class CandidatService {
     @Inject
     private InscriptionRepository inscriptionRepository;
     
+    // E-mails envoyés après la validation de la transaction (NotificationsEmailService)
     @Inject
-    private EmailService emailService;
+    private Event<InscriptionCandidat> inscriptionCandidat;
+    
+    @Inject
+    private Event<ValidationCandidat> validationCandidat;
+    
+    @Inject
+    private IndexRechercheCandidats indexRechercheCandidats;
+    
+    // L'index de recherche n'est mis à jour qu'après la validation de la transaction
+    @Inject
+    private Event<ModificationCandidat> modificationCandidat;
+    
+    private static final int LIMITE_RECHERCHE = 100;
     
     private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
     private static final int CODE_LENGTH = 8;
@@ -58,18 +77,14 @@ public class CandidatService {
         
         // Sauvegarder le candidat
         Candidat savedCandidat = candidatRepository.create(candidat);
+        signalerModification(savedCandidat);
         
         // Créer l'inscription
         Inscription inscription = new Inscription(savedCandidat, creneau);
         inscriptionRepository.create(inscription);
         
-        // Envoyer l'email de confirmation d'inscription (en attente de validation)
-        try {
-            emailService.envoyerEmailInscription(savedCandidat, creneau, null);
-        } catch (Exception e) {
-            // Logger l'erreur mais ne pas bloquer l'inscription
-            System.err.println("Erreur lors de l'envoi de l'email: " + e.getMessage());
-        }
+        // Email de confirmation d'inscription (en attente de validation), envoyé après validation de la transaction
+        inscriptionCandidat.fire(new InscriptionCandidat(savedCandidat, creneau));
         
         return savedCandidat;
     }
@@ -88,59 +103,81 @@ public class CandidatService {
         candidat.setCodeSession(codeSession);
         candidat.setEstValide(true);
         
-        // Envoyer l'email de validation avec le code session
-        try {
-            emailService.envoyerEmailValidation(candidat);
-        } catch (Exception e) {
-            System.err.println("Erreur lors de l'envoi de l'email de validation: " + e.getMessage());
-        }
-        
-        return candidatRepository.update(candidat);
+        Candidat valide = candidatRepository.update(candidat);
+        // Email de validation avec le code session, envoyé après validation de la transaction
+        validationCandidat.fire(new ValidationCandidat(valide));
+        return valide;
     }
     
+    @LectureSeule
     public Optional<Candidat> findByEmail(String email) {
         return candidatRepository.findByEmail(email);
     }
     
     @Transactional
+    @LectureSeule
     public Optional<Candidat> findByCodeSession(String codeSession) {
         return candidatRepository.findByCodeSession(codeSession);
     }
     
+    /**
+     * Recherche par nom, prénom, école ou email via l'index en mémoire
+     */
+    @LectureSeule(replique = true)
     public List<Candidat> findByNomOrPrenomOrEcole(String searchTerm) {
-        return candidatRepository.findByNomOrPrenomOrEcole(searchTerm);
+        List<Integer> ids = indexRechercheCandidats.rechercher(searchTerm, LIMITE_RECHERCHE);
+        Map<Integer, Integer> rang = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            rang.put(ids.get(i), i);
+        }
+        return candidatRepository.findByIds(ids).stream()
+            .sorted(Comparator.comparing(c -> rang.get(c.getId())))
+            .collect(Collectors.toList());
     }
     
+    @LectureSeule
     public List<Candidat> findByEstValide(Boolean estValide) {
         return candidatRepository.findByEstValide(estValide);
     }
     
+    @LectureSeule
     public List<Candidat> findRecentCandidates(int limit) {
         return candidatRepository.findRecentCandidates(limit);
     }
     
     @Transactional
     public Candidat updateCandidat(Candidat candidat) {
-        return candidatRepository.update(candidat);
+        Candidat updated = candidatRepository.update(candidat);
+        signalerModification(updated);
+        return updated;
     }
     
     @Transactional
     public void deleteCandidat(Integer candidatId) {
         candidatRepository.deleteById(candidatId);
+        modificationCandidat.fire(ModificationCandidat.suppression(candidatId));
     }
     
+    @LectureSeule
     public List<Candidat> findAll() {
         return candidatRepository.findAll();
     }
     
+    @LectureSeule
     public Optional<Candidat> findById(Integer id) {
         return candidatRepository.findById(id);
     }
     
+    @LectureSeule
     public long count() {
         return candidatRepository.count();
     }
     
+    private void signalerModification(Candidat candidat) {
+        modificationCandidat.fire(ModificationCandidat.enregistrement(candidat.getId(), candidat.getNom(),
+            candidat.getPrenom(), candidat.getEcole(), candidat.getEmail()));
+    }
+    
     /**
      * Génère un code session unique de 8 caractères
      */
@@ -169,6 +206,7 @@ public class CandidatService {
      * Vérifie si un candidat peut passer un test maintenant
      */
     @Transactional
+    @LectureSeule
     public boolean peutPasserTest(String codeSession) {
         Optional<Candidat> candidatOpt = candidatRepository.findByCodeSession(codeSession);
         if (candidatOpt.isEmpty()) {
@@ -257,6 +295,7 @@ public class CandidatService {
      * Vérifie si le créneau horaire est passé
      */
     @Transactional
+    @LectureSeule
     public boolean creneauEstPasse(String codeSession) {
         Optional<Candidat> candidatOpt = candidatRepository.findByCodeSession(codeSession);
         if (candidatOpt.isEmpty()) {
@@ -285,6 +324,7 @@ public class CandidatService {
      * Vérifie si le créneau horaire est atteint (peut commencer le test)
      */
     @Transactional
+    @LectureSeule
     public boolean creneauEstAtteint(String codeSession) {
         Optional<Candidat> candidatOpt = candidatRepository.findByCodeSession(codeSession);
         if (candidatOpt.isEmpty()) {
@@ -0,0 +1,352 @@
+package com.gestiontests.service;
+
+import com.gestiontests.entity.Candidat;
+import com.gestiontests.entity.Inscription;
+import com.gestiontests.entity.SessionTest;
+import com.gestiontests.repository.InscriptionRepository;
+import com.gestiontests.repository.SessionTestRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Classement en mémoire des meilleures sessions (global, par école, par créneau).
+ * Chaque vue est un ensemble trié borné à CAPACITE entrées, alimenté à la fin de chaque test
+ * (après validation de la transaction) et reconstruit depuis la base au démarrage : la lecture
+ * du top K ne touche pas la base. Une vue tronquée (qui a déjà écarté des entrées) et retombée
+ * sous LIMITE_MAX après des retraits est rechargée depuis la base à la lecture suivante.
+ */
+@ApplicationScoped
+public class ClassementService {
+
+    // Marge au-dessus de LIMITE_MAX pour absorber les sessions retirées (réinitialisation)
+    static final int CAPACITE = 200;
+    public static final int LIMITE_MAX = 100;
+
+    @Inject
+    private SessionTestRepository sessionTestRepository;
+
+    @Inject
+    private InscriptionRepository inscriptionRepository;
+
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    private final TreeSet<EntreeClassement> global = new TreeSet<>(EntreeClassement.ORDRE);
+    private final Map<String, TreeSet<EntreeClassement>> parEcole = new HashMap<>();
+    private final Map<Integer, TreeSet<EntreeClassement>> parCreneau = new HashMap<>();
+
+    // Session -> entrée présente dans au moins une vue
+    private final Map<Integer, EntreeClassement> entrees = new HashMap<>();
+
+    // Vues qui ont écarté au moins une entrée : la base peut contenir des sessions absentes de la vue
+    private final Set<TreeSet<EntreeClassement>> vuesTronquees = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private volatile boolean aRecharger = false;
+
+    // Modifications validées pendant une reconstruction, rejouées sur les vues reconstruites
+    private int reconstructionsEnCours = 0;
+    private final List<Runnable> modificationsPendantReconstruction = new ArrayList<>();
+
+    void auDemarrage(@Observes @Initialized(ApplicationScoped.class) Object evenement) {
+        try {
+            reconstruire();
+        } catch (Exception e) {
+            System.err.println("Reconstruction du classement impossible: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recharge toutes les vues depuis les sessions terminées
+     */
+    public void reconstruire() {
+        verrou.writeLock().lock();
+        try {
+            reconstructionsEnCours++;
+            aRecharger = false;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        List<EntreeClassement> lignes;
+        try {
+            lignes = chargerEntrees(null);
+        } catch (RuntimeException e) {
+            terminerReconstruction();
+            throw e;
+        }
+        verrou.writeLock().lock();
+        try {
+            global.clear();
+            parEcole.clear();
+            parCreneau.clear();
+            entrees.clear();
+            vuesTronquees.clear();
+            for (EntreeClassement entree : lignes) {
+                ajouterSansVerrou(entree);
+            }
+            for (Runnable modification : modificationsPendantReconstruction) {
+                modification.run();
+            }
+        } finally {
+            verrou.writeLock().unlock();
+            terminerReconstruction();
+        }
+        System.out.println("Classement reconstruit à partir de " + lignes.size() + " sessions terminées");
+    }
+
+    /**
+     * Sessions terminées (à partir de la date de fin donnée, incluse, si elle est renseignée), créneau résolu
+     */
+    public List<EntreeClassement> chargerEntrees(LocalDateTime finDepuis) {
+        return versEntrees(sessionTestRepository.findLignesClassement(finDepuis));
+    }
+
+    /**
+     * Entrées des sessions données qui sont terminées, créneau résolu
+     */
+    public List<EntreeClassement> chargerEntreesSessions(List<Integer> sessionIds) {
+        return versEntrees(sessionTestRepository.findLignesClassement(null, sessionIds));
+    }
+
+    private List<EntreeClassement> versEntrees(List<Object[]> lignes) {
+        if (lignes.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Integer> creneauParCandidat = new HashMap<>();
+        for (Object[] ligne : inscriptionRepository.findCreneauParCandidat()) {
+            creneauParCandidat.put((Integer) ligne[0], (Integer) ligne[1]);
+        }
+
+        List<EntreeClassement> resultat = new ArrayList<>();
+        for (Object[] ligne : lignes) {
+            Integer candidatId = (Integer) ligne[6];
+            Integer creneauId = ligne[10] != null ? (Integer) ligne[10] : creneauParCandidat.get(candidatId);
+            resultat.add(new EntreeClassement(
+                (Integer) ligne[0], (String) ligne[1], (BigDecimal) ligne[2], (Integer) ligne[3],
+                (Integer) ligne[4], (LocalDateTime) ligne[5], candidatId, (String) ligne[7],
+                (String) ligne[8], (String) ligne[9], creneauId));
+        }
+        return resultat;
+    }
+
+    /**
+     * Entrée d'une session qui vient d'être terminée, à construire dans sa transaction
+     * (le candidat et le créneau sont encore chargeables) ; le classement n'est pas modifié
+     */
+    public EntreeClassement creerEntree(SessionTest session) {
+        if (session == null || session.getId() == null || !Boolean.TRUE.equals(session.getEstTermine())) {
+            return null;
+        }
+        Candidat candidat = session.getCandidat();
+        return new EntreeClassement(
+            session.getId(), session.getCodeSession(), session.getPourcentage(), session.getScoreTotal(),
+            session.getScoreMax(), session.getDateFin(), candidat.getId(), candidat.getNom(),
+            candidat.getPrenom(), candidat.getEcole(), resoudreCreneau(session));
+    }
+
+    /**
+     * Enregistre (ou remplace) une session terminée
+     */
+    public void enregistrer(EntreeClassement entree) {
+        if (entree == null) {
+            return;
+        }
+        modifier(() -> {
+            retirerSansVerrou(entree.getSessionId());
+            ajouterSansVerrou(entree);
+        });
+    }
+
+    /**
+     * Retire une session du classement (par exemple lors de sa réinitialisation)
+     */
+    public void retirer(Integer sessionId) {
+        modifier(() -> retirerSansVerrou(sessionId));
+    }
+
+    // Le classement ne suit que des changements validés en base
+    void surFinSession(@Observes(during = TransactionPhase.AFTER_SUCCESS) FinSessionTest evenement) {
+        enregistrer(evenement.getEntree());
+    }
+
+    void surReinitialisation(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReinitialisationSessions evenement) {
+        List<Integer> sessionIds = new ArrayList<>(evenement.getSessionIds());
+        modifier(() -> {
+            for (Integer sessionId : sessionIds) {
+                retirerSansVerrou(sessionId);
+            }
+        });
+    }
+
+    private void modifier(Runnable modification) {
+        verrou.writeLock().lock();
+        try {
+            modification.run();
+            if (reconstructionsEnCours > 0) {
+                modificationsPendantReconstruction.add(modification);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    private void terminerReconstruction() {
+        verrou.writeLock().lock();
+        try {
+            if (--reconstructionsEnCours == 0) {
+                modificationsPendantReconstruction.clear();
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    private void rechargerSiNecessaire() {
+        if (!aRecharger) {
+            return;
+        }
+        try {
+            reconstruire();
+        } catch (Exception e) {
+            // Les vues actuelles restent servies ; nouvel essai à la lecture suivante
+            aRecharger = true;
+            System.err.println("Rechargement du classement impossible: " + e.getMessage());
+        }
+    }
+
+    public List<EntreeClassement> getTopGlobal(int limite) {
+        rechargerSiNecessaire();
+        verrou.readLock().lock();
+        try {
+            return premiers(global, limite);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    public List<EntreeClassement> getTopParEcole(String ecole, int limite) {
+        rechargerSiNecessaire();
+        verrou.readLock().lock();
+        try {
+            return premiers(parEcole.get(cleEcole(ecole)), limite);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    public List<EntreeClassement> getTopParCreneau(Integer creneauId, int limite) {
+        rechargerSiNecessaire();
+        verrou.readLock().lock();
+        try {
+            return premiers(parCreneau.get(creneauId), limite);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    Integer resoudreCreneau(SessionTest session) {
+        if (session.getCreneau() != null) {
+            return session.getCreneau().getId();
+        }
+        // Les sessions ne portent pas toujours leur créneau : on retient la dernière inscription
+        List<Inscription> inscriptions = inscriptionRepository.findByCandidat(session.getCandidat().getId());
+        return inscriptions.isEmpty() ? null : inscriptions.get(0).getCreneau().getId();
+    }
+
+    private void ajouterSansVerrou(EntreeClassement entree) {
+        boolean retenue = ajouterBorne(global, entree);
+        if (entree.getEcole() != null) {
+            retenue |= ajouterBorne(parEcole.computeIfAbsent(cleEcole(entree.getEcole()), e -> nouvelleVue()), entree);
+        }
+        if (entree.getCreneauId() != null) {
+            retenue |= ajouterBorne(parCreneau.computeIfAbsent(entree.getCreneauId(), c -> nouvelleVue()), entree);
+        }
+        if (retenue) {
+            entrees.put(entree.getSessionId(), entree);
+        }
+    }
+
+    private void retirerSansVerrou(Integer sessionId) {
+        EntreeClassement entree = entrees.remove(sessionId);
+        if (entree == null) {
+            return;
+        }
+        retirerDeVue(global, entree);
+        if (entree.getEcole() != null) {
+            retirerDeVue(parEcole.get(cleEcole(entree.getEcole())), entree);
+        }
+        if (entree.getCreneauId() != null) {
+            retirerDeVue(parCreneau.get(entree.getCreneauId()), entree);
+        }
+    }
+
+    private void retirerDeVue(TreeSet<EntreeClassement> vue, EntreeClassement entree) {
+        if (vue != null && vue.remove(entree) && vue.size() < LIMITE_MAX && vuesTronquees.contains(vue)) {
+            // Des sessions écartées par la borne peuvent désormais entrer dans le top K
+            aRecharger = true;
+        }
+    }
+
+    /**
+     * Insère dans une vue bornée ; renvoie false si l'entrée n'y a pas sa place
+     */
+    private boolean ajouterBorne(TreeSet<EntreeClassement> vue, EntreeClassement entree) {
+        if (vue.size() >= CAPACITE && EntreeClassement.ORDRE.compare(entree, vue.last()) >= 0) {
+            vuesTronquees.add(vue);
+            return false;
+        }
+        vue.add(entree);
+        if (vue.size() > CAPACITE) {
+            vuesTronquees.add(vue);
+            EntreeClassement evincee = vue.pollLast();
+            // L'entrée évincée peut rester présente dans une autre vue
+            if (!estPresente(evincee)) {
+                entrees.remove(evincee.getSessionId());
+            }
+        }
+        return true;
+    }
+
+    private boolean estPresente(EntreeClassement entree) {
+        if (global.contains(entree)) {
+            return true;
+        }
+        TreeSet<EntreeClassement> ecole = entree.getEcole() != null ? parEcole.get(cleEcole(entree.getEcole())) : null;
+        TreeSet<EntreeClassement> creneau = entree.getCreneauId() != null ? parCreneau.get(entree.getCreneauId()) : null;
+        return (ecole != null && ecole.contains(entree)) || (creneau != null && creneau.contains(entree));
+    }
+
+    private List<EntreeClassement> premiers(TreeSet<EntreeClassement> vue, int limite) {
+        List<EntreeClassement> resultat = new ArrayList<>(Math.min(limite, CAPACITE));
+        if (vue == null) {
+            return resultat;
+        }
+        Iterator<EntreeClassement> it = vue.iterator();
+        while (it.hasNext() && resultat.size() < limite) {
+            resultat.add(it.next());
+        }
+        return resultat;
+    }
+
+    private TreeSet<EntreeClassement> nouvelleVue() {
+        return new TreeSet<>(EntreeClassement.ORDRE);
+    }
+
+    private String cleEcole(String ecole) {
+        return ecole == null ? null : NormalisationTexte.sansAccents(ecole).trim();
+    }
+}
@@ -0,0 +1,165 @@
+package com.gestiontests.service;
+
+import com.gestiontests.repository.ParametreRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Regroupement des calculs coûteux (single-flight) : des requêtes identiques simultanées partagent
+ * un seul calcul en cours via un CompletableFuture, et le résultat est réutilisé pendant une fenêtre
+ * de fraîcheur (paramètre DUREE_FRAICHEUR_STATS, en secondes). Le calcul s'exécute dans le thread
+ * de la première requête, avec son contexte de persistance. Les résultats expirés sont purgés
+ * régulièrement ; les appelants bornent l'ensemble des paramètres possibles.
+ */
+@ApplicationScoped
+public class CoalesceurCalculs {
+
+    private static final int FRAICHEUR_PAR_DEFAUT = 30;
+
+    // Intervalle minimal entre deux purges des résultats expirés
+    private static final long INTERVALLE_PURGE_MS = 60_000;
+
+    @Inject
+    private ParametreRepository parametreRepository;
+
+    private final ConcurrentHashMap<String, Calcul> calculs = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Compteurs> compteurs = new ConcurrentHashMap<>();
+
+    private final AtomicLong prochainePurge = new AtomicLong();
+
+    /**
+     * Renvoie le résultat de l'opération pour ces paramètres, en le calculant au plus une fois
+     * à la fois et au plus une fois par fenêtre de fraîcheur
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T executer(String operation, String parametres, Callable<T> calcul) throws Exception {
+        String cle = parametres == null || parametres.isEmpty() ? operation : operation + ":" + parametres;
+        Compteurs c = compteurs.computeIfAbsent(operation, o -> new Compteurs());
+        c.demandes.incrementAndGet();
+        purgerExpires();
+
+        while (true) {
+            Calcul existant = calculs.get(cle);
+            if (existant != null && !existant.estExpire()) {
+                if (existant.resultat.isDone()) {
+                    c.servisFrais.incrementAndGet();
+                } else {
+                    c.partages.incrementAndGet();
+                }
+                return (T) attendre(existant.resultat);
+            }
+
+            Calcul nouveau = new Calcul();
+            boolean proprietaire = existant == null
+                ? calculs.putIfAbsent(cle, nouveau) == null
+                : calculs.replace(cle, existant, nouveau);
+            if (!proprietaire) {
+                // Une autre requête vient de lancer le calcul : on le rejoint
+                continue;
+            }
+
+            c.calculs.incrementAndGet();
+            long debut = System.nanoTime();
+            try {
+                long fraicheur = fraicheurMs();
+                T resultat = calcul.call();
+                nouveau.expireA = System.currentTimeMillis() + fraicheur;
+                nouveau.resultat.complete(resultat);
+                return resultat;
+            } catch (Exception | Error e) {
+                // Un échec n'est pas mis en cache : la prochaine requête recalcule
+                c.erreurs.incrementAndGet();
+                calculs.remove(cle, nouveau);
+                nouveau.resultat.completeExceptionally(e);
+                throw e;
+            } finally {
+                c.dureeTotaleNs.addAndGet(System.nanoTime() - debut);
+            }
+        }
+    }
+
+    /**
+     * Compteurs par opération : demandes, calculs réellement exécutés et calculs évités
+     */
+    public Map<String, Object> getMetriques() {
+        Map<String, Object> metriques = new TreeMap<>();
+        for (Map.Entry<String, Compteurs> e : compteurs.entrySet()) {
+            Compteurs c = e.getValue();
+            long calculsEffectues = c.calculs.get();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("demandes", c.demandes.get());
+            m.put("calculs", calculsEffectues);
+            m.put("partagesEnCours", c.partages.get());
+            m.put("servisDepuisCache", c.servisFrais.get());
+            m.put("calculsEvites", c.partages.get() + c.servisFrais.get());
+            m.put("erreurs", c.erreurs.get());
+            m.put("dureeMoyenneMs", calculsEffectues > 0
+                ? Math.round(c.dureeTotaleNs.get() / 1_000_000.0 / calculsEffectues * 100.0) / 100.0 : 0.0);
+            metriques.put(e.getKey(), m);
+        }
+        return metriques;
+    }
+
+    /**
+     * Retire les résultats dont la fenêtre de fraîcheur est passée (au plus une fois par intervalle)
+     */
+    private void purgerExpires() {
+        long maintenant = System.currentTimeMillis();
+        long prevue = prochainePurge.get();
+        if (maintenant < prevue || !prochainePurge.compareAndSet(prevue, maintenant + INTERVALLE_PURGE_MS)) {
+            return;
+        }
+        for (Map.Entry<String, Calcul> e : calculs.entrySet()) {
+            if (e.getValue().estExpire()) {
+                // Ne retire pas un calcul qui vient de remplacer l'entrée expirée
+                calculs.remove(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    private long fraicheurMs() {
+        Integer secondes = parametreRepository.getValeurParametreAsInteger("DUREE_FRAICHEUR_STATS", FRAICHEUR_PAR_DEFAUT);
+        return Math.max(0, secondes) * 1000L;
+    }
+
+    private static Object attendre(CompletableFuture<Object> resultat) throws Exception {
+        try {
+            return resultat.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    private static final class Calcul {
+        private final CompletableFuture<Object> resultat = new CompletableFuture<>();
+        // Fin de la fenêtre de fraîcheur, fixée une fois le calcul terminé
+        private volatile long expireA = Long.MAX_VALUE;
+
+        boolean estExpire() {
+            return System.currentTimeMillis() > expireA;
+        }
+    }
+
+    private static final class Compteurs {
+        private final AtomicLong demandes = new AtomicLong();
+        private final AtomicLong calculs = new AtomicLong();
+        private final AtomicLong partages = new AtomicLong();
+        private final AtomicLong servisFrais = new AtomicLong();
+        private final AtomicLong erreurs = new AtomicLong();
+        private final AtomicLong dureeTotaleNs = new AtomicLong();
+    }
+}
@@ -1,5 +1,6 @@
 package com.gestiontests.service;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.CreneauHoraire;
 import com.gestiontests.repository.CreneauHoraireRepository;
 import com.gestiontests.repository.InscriptionRepository;
@@ -36,38 +37,47 @@ public class CreneauHoraireService {
         creneauHoraireRepository.deleteById(creneauId);
     }
     
+    @LectureSeule
     public Optional<CreneauHoraire> findById(Integer id) {
         return creneauHoraireRepository.findById(id);
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findAll() {
         return creneauHoraireRepository.findAll();
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findByDateExam(LocalDate dateExam) {
         return creneauHoraireRepository.findByDateExam(dateExam);
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findByDateBetween(LocalDate startDate, LocalDate endDate) {
         return creneauHoraireRepository.findByDateBetween(startDate, endDate);
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findAvailableCreneaux() {
         return creneauHoraireRepository.findAvailableCreneaux();
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findFutureCreneaux() {
         return creneauHoraireRepository.findFutureCreneaux();
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findPastCreneaux() {
         return creneauHoraireRepository.findPastCreneaux();
     }
     
+    @LectureSeule
     public List<CreneauHoraire> findCreneauxInNextDays(int days) {
         return creneauHoraireRepository.findCreneauxInNextDays(days);
     }
     
+    @LectureSeule
     public Optional<CreneauHoraire> findNextAvailable() {
         return creneauHoraireRepository.findNextAvailable();
     }
@@ -91,10 +101,12 @@ public class CreneauHoraireService {
         creneauHoraireRepository.update(creneau);
     }
     
+    @LectureSeule
     public boolean isCreneauAvailable(Integer creneauId) {
         return creneauHoraireRepository.isCreneauAvailable(creneauId);
     }
     
+    @LectureSeule
     public long countAvailableCreneaux() {
         return creneauHoraireRepository.countAvailableCreneaux();
     }
@@ -111,16 +123,19 @@ public class CreneauHoraireService {
         return creneauHoraireRepository.create(creneau);
     }
     
+    @LectureSeule
     public List<CreneauHoraire> getCreneauxForToday() {
         return creneauHoraireRepository.findByDateExam(LocalDate.now());
     }
     
+    @LectureSeule
     public List<CreneauHoraire> getCreneauxForWeek() {
         LocalDate today = LocalDate.now();
         LocalDate endOfWeek = today.plusDays(7);
         return creneauHoraireRepository.findByDateBetween(today, endOfWeek);
     }
     
+    @LectureSeule
     public boolean isCreneauInPast(Integer creneauId) {
         Optional<CreneauHoraire> creneauOpt = creneauHoraireRepository.findById(creneauId);
         if (creneauOpt.isEmpty()) {
@@ -132,6 +147,7 @@ public class CreneauHoraireService {
         return LocalDateTime.now().isAfter(finCreneau);
     }
     
+    @LectureSeule
     public boolean isCreneauInProgress(Integer creneauId) {
         Optional<CreneauHoraire> creneauOpt = creneauHoraireRepository.findById(creneauId);
         if (creneauOpt.isEmpty()) {
@@ -146,6 +162,7 @@ public class CreneauHoraireService {
         return now.isAfter(debutCreneau) && now.isBefore(finCreneau);
     }
     
+    @LectureSeule
     public boolean canStartTest(Integer creneauId) {
         Optional<CreneauHoraire> creneauOpt = creneauHoraireRepository.findById(creneauId);
         if (creneauOpt.isEmpty()) {
@@ -0,0 +1,242 @@
+package com.gestiontests.service;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.BeforeDestroyed;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Décompte des sessions de test poussé aux navigateurs par Server-Sent Events. Une seule tâche
+ * planifiée diffuse le temps restant de toutes les sessions suivies à partir des échéances
+ * gardées en mémoire par ExpirationSessionsService, sans lecture en base ; la fin d'une session
+ * est poussée dès la validation de la transaction qui la termine ou la réinitialise. Une session
+ * dont l'échéance disparaît sans événement local (finalisée sur un autre nœud, par exemple) est
+ * relue en base à la diffusion suivante, puis close si elle n'est plus en cours. Les flux sont
+ * bornés par session (le plus ancien est remplacé au-delà) et sur le nœud (abonnement refusé).
+ */
+@ApplicationScoped
+public class DecompteSessionsService {
+
+    // Intervalle entre deux diffusions du temps restant
+    private static final long PERIODE_DIFFUSION_S = 5;
+
+    // Onglets suivant une même session ; au-delà, le flux le plus ancien est fermé
+    static final int MAX_FLUX_PAR_SESSION = 3;
+
+    // Flux ouverts sur le nœud ; au-delà, les nouveaux abonnements sont refusés
+    static final int MAX_FLUX = 5_000;
+
+    @Inject
+    private ExpirationSessionsService expirationSessionsService;
+
+    @Inject
+    private TestService testService;
+
+    @Resource
+    private ManagedScheduledExecutorService planificateur;
+
+    private final ConcurrentHashMap<Integer, Deque<SseEventSink>> abonnes = new ConcurrentHashMap<>();
+
+    // Sessions suivies dont l'échéance manquait à la diffusion précédente (tâche de diffusion uniquement)
+    private final Set<Integer> echeancesAbsentes = new HashSet<>();
+
+    // Fourni par le conteneur JAX-RS au premier abonnement
+    private volatile Sse sse;
+
+    private ScheduledFuture<?> tache;
+
+    void auDemarrage(@Observes @Initialized(ApplicationScoped.class) Object evenement) {
+        tache = planificateur.scheduleAtFixedRate(this::diffuser, PERIODE_DIFFUSION_S, PERIODE_DIFFUSION_S, TimeUnit.SECONDS);
+    }
+
+    void avantArret(@Observes @BeforeDestroyed(ApplicationScoped.class) Object evenement) {
+        if (tache != null) {
+            tache.cancel(false);
+        }
+        for (Deque<SseEventSink> flux : abonnes.values()) {
+            flux.forEach(DecompteSessionsService::fermer);
+        }
+        abonnes.clear();
+    }
+
+    /**
+     * Abonne un flux SSE au décompte d'une session : le temps restant est envoyé immédiatement,
+     * puis à chaque diffusion jusqu'à l'événement de fin
+     *
+     * @return false si le nombre maximal de flux du nœud est atteint (le flux n'est pas utilisé)
+     */
+    public boolean abonner(Integer sessionId, SseEventSink flux, Sse sse) {
+        if (getNombreAbonnes() >= MAX_FLUX) {
+            return false;
+        }
+        this.sse = sse;
+        long tempsRestant = testService.getTempsRestant(sessionId);
+        if (expirationSessionsService.getEcheanceMs(sessionId) == null) {
+            // Session inconnue ou déjà terminée
+            flux.send(evenementFin(sessionId, tempsRestant <= 0));
+            fermer(flux);
+            return true;
+        }
+
+        Deque<SseEventSink> ensemble = abonnes.computeIfAbsent(sessionId, id -> new ConcurrentLinkedDeque<>());
+        ensemble.addLast(flux);
+        while (ensemble.size() > MAX_FLUX_PAR_SESSION) {
+            SseEventSink ancien = ensemble.pollFirst();
+            if (ancien != null && !ancien.isClosed()) {
+                // Événement dédié : le navigateur ferme l'EventSource au lieu de se reconnecter
+                ancien.send(evenementRemplace(sessionId)).whenComplete((r, e) -> fermer(ancien));
+            }
+        }
+        envoyer(sessionId, flux, evenementTempsRestant(tempsRestant));
+        return true;
+    }
+
+    public int getNombreAbonnes() {
+        return abonnes.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    void surFinSession(@Observes(during = TransactionPhase.AFTER_SUCCESS) FinSessionTest evenement) {
+        cloturer(evenement.getSessionId(), evenement.isTempsEcoule());
+    }
+
+    void surReinitialisation(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReinitialisationSessions evenement) {
+        for (Integer sessionId : evenement.getSessionIds()) {
+            // Une reprise rouvre aussitôt la session : le flux du candidat suit la nouvelle passation
+            if (!evenement.estRedemarree(sessionId)) {
+                cloturer(sessionId, false);
+            }
+        }
+    }
+
+    /**
+     * Envoie l'événement de fin aux abonnés de la session puis ferme leurs flux
+     */
+    private void cloturer(Integer sessionId, boolean tempsEcoule) {
+        Deque<SseEventSink> flux = abonnes.remove(sessionId);
+        if (flux == null || sse == null) {
+            return;
+        }
+        OutboundSseEvent fin = evenementFin(sessionId, tempsEcoule);
+        for (SseEventSink f : flux) {
+            if (!f.isClosed()) {
+                f.send(fin).whenComplete((r, e) -> fermer(f));
+            }
+        }
+    }
+
+    private void diffuser() {
+        try {
+            echeancesAbsentes.retainAll(abonnes.keySet());
+            if (abonnes.isEmpty()) {
+                return;
+            }
+            long maintenant = System.currentTimeMillis();
+            for (Map.Entry<Integer, Deque<SseEventSink>> entree : abonnes.entrySet()) {
+                Integer sessionId = entree.getKey();
+                Long echeance = expirationSessionsService.getEcheanceMs(sessionId);
+                if (echeance == null) {
+                    // Fin en cours de traitement : l'événement de fin suit en général avant la prochaine diffusion
+                    if (echeancesAbsentes.add(sessionId)) {
+                        continue;
+                    }
+                    verifierFin(sessionId);
+                    continue;
+                }
+                echeancesAbsentes.remove(sessionId);
+                OutboundSseEvent evenement = evenementTempsRestant(Math.max(0, (echeance - maintenant) / 1000));
+                for (SseEventSink flux : entree.getValue()) {
+                    envoyer(sessionId, flux, evenement);
+                }
+                if (entree.getValue().isEmpty()) {
+                    abonnes.remove(sessionId, entree.getValue());
+                }
+            }
+        } catch (Exception e) {
+            // Une exception non rattrapée arrêterait la tâche planifiée
+            System.err.println("Erreur de diffusion du décompte des sessions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Échéance absente depuis plus d'une diffusion : la session est relue en base (et replanifiée
+     * si elle est toujours en cours), sinon ses flux sont clos
+     */
+    private void verifierFin(Integer sessionId) {
+        long tempsRestant = testService.getTempsRestant(sessionId);
+        if (expirationSessionsService.getEcheanceMs(sessionId) != null) {
+            echeancesAbsentes.remove(sessionId);
+            return;
+        }
+        echeancesAbsentes.remove(sessionId);
+        cloturer(sessionId, tempsRestant <= 0);
+    }
+
+    private void envoyer(Integer sessionId, SseEventSink flux, OutboundSseEvent evenement) {
+        if (flux.isClosed()) {
+            retirer(sessionId, flux);
+            return;
+        }
+        flux.send(evenement).exceptionally(e -> {
+            // Navigateur déconnecté
+            retirer(sessionId, flux);
+            fermer(flux);
+            return null;
+        });
+    }
+
+    private void retirer(Integer sessionId, SseEventSink flux) {
+        Deque<SseEventSink> ensemble = abonnes.get(sessionId);
+        if (ensemble != null) {
+            ensemble.remove(flux);
+        }
+    }
+
+    private OutboundSseEvent evenementTempsRestant(long tempsRestant) {
+        return sse.newEventBuilder()
+            .name("temps-restant")
+            .mediaType(MediaType.APPLICATION_JSON_TYPE)
+            .data(Map.class, Map.of("tempsRestant", tempsRestant))
+            .build();
+    }
+
+    private OutboundSseEvent evenementFin(Integer sessionId, boolean tempsEcoule) {
+        return sse.newEventBuilder()
+            .name("fin")
+            .mediaType(MediaType.APPLICATION_JSON_TYPE)
+            .data(Map.class, Map.of("sessionId", sessionId, "tempsEcoule", tempsEcoule))
+            .build();
+    }
+
+    private OutboundSseEvent evenementRemplace(Integer sessionId) {
+        return sse.newEventBuilder()
+            .name("remplace")
+            .mediaType(MediaType.APPLICATION_JSON_TYPE)
+            .data(Map.class, Map.of("sessionId", sessionId))
+            .build();
+    }
+
+    private static void fermer(SseEventSink flux) {
+        try {
+            flux.close();
+        } catch (Exception e) {
+            // Déjà fermé par le client
+        }
+    }
+}
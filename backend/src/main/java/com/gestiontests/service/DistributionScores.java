@@ -0,0 +1,170 @@
+package com.gestiontests.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distribution des pourcentages d'une dimension : esquisse de quantiles et histogramme
+ * à classes fixes de 5 points. Deux distributions se fusionnent sans perte d'histogramme.
+ */
+final class DistributionScores {
+
+    static final int NB_CLASSES = 20;
+    private static final double LARGEUR_CLASSE = 100.0 / NB_CLASSES;
+
+    private final long[] classes = new long[NB_CLASSES];
+    private final EsquisseQuantiles esquisse;
+    private double somme = 0;
+
+    // Dernière session intégrée (date de fin puis id) : point de reprise au redémarrage
+    private LocalDateTime derniereFin;
+    private Integer derniereSession;
+
+    DistributionScores() {
+        this.esquisse = new EsquisseQuantiles();
+    }
+
+    private DistributionScores(EsquisseQuantiles esquisse) {
+        this.esquisse = esquisse;
+    }
+
+    void ajouter(double pourcentage, LocalDateTime dateFin, Integer sessionId) {
+        classes[classe(pourcentage)]++;
+        esquisse.ajouter(pourcentage);
+        somme += pourcentage;
+        if (estApres(dateFin, sessionId, derniereFin, derniereSession)) {
+            derniereFin = dateFin;
+            derniereSession = sessionId;
+        }
+    }
+
+    /**
+     * Retire un pourcentage intégré auparavant ; le point de reprise est conservé
+     */
+    void retirer(double pourcentage) {
+        int classe = classe(pourcentage);
+        if (classes[classe] > 0) {
+            classes[classe]--;
+        }
+        esquisse.retirer(pourcentage);
+        somme = esquisse.nombre() > 0 ? somme - pourcentage : 0;
+    }
+
+    void fusionner(DistributionScores autre) {
+        for (int i = 0; i < NB_CLASSES; i++) {
+            classes[i] += autre.classes[i];
+        }
+        esquisse.fusionner(autre.esquisse);
+        somme += autre.somme;
+        if (estApres(autre.derniereFin, autre.derniereSession, derniereFin, derniereSession)) {
+            derniereFin = autre.derniereFin;
+            derniereSession = autre.derniereSession;
+        }
+    }
+
+    long nombre() {
+        return (long) esquisse.nombre();
+    }
+
+    LocalDateTime getDerniereFin() {
+        return derniereFin;
+    }
+
+    Integer getDerniereSession() {
+        return derniereSession;
+    }
+
+    void setPointReprise(LocalDateTime derniereFin, Integer derniereSession) {
+        this.derniereFin = derniereFin;
+        this.derniereSession = derniereSession;
+    }
+
+    /**
+     * Ordre (date de fin, id) des sessions : vrai si la première est strictement après la seconde
+     */
+    static boolean estApres(LocalDateTime fin, Integer session, LocalDateTime autreFin, Integer autreSession) {
+        if (fin == null) {
+            return false;
+        }
+        if (autreFin == null || fin.isAfter(autreFin)) {
+            return true;
+        }
+        // Sans id de référence (sauvegarde antérieure), une date égale est considérée comme déjà intégrée
+        return fin.isEqual(autreFin) && session != null && autreSession != null && session > autreSession;
+    }
+
+    /**
+     * Rang percentile (0 à 100) d'un pourcentage dans la distribution
+     */
+    Double rangPercentile(double pourcentage) {
+        if (esquisse.nombre() == 0) {
+            return null;
+        }
+        return arrondir(esquisse.rang(pourcentage) * 100);
+    }
+
+    Map<String, Object> resume() {
+        Map<String, Object> resume = new LinkedHashMap<>();
+        long nombre = nombre();
+        resume.put("nombre", nombre);
+        if (nombre > 0) {
+            resume.put("moyenne", arrondir(somme / nombre));
+            resume.put("min", arrondir(esquisse.min()));
+            resume.put("max", arrondir(esquisse.max()));
+            Map<String, Object> quantiles = new LinkedHashMap<>();
+            for (int p : new int[] {10, 25, 50, 75, 90, 95}) {
+                quantiles.put("p" + p, arrondir(esquisse.quantile(p / 100.0)));
+            }
+            resume.put("quantiles", quantiles);
+        }
+        List<Map<String, Object>> histogramme = new ArrayList<>(NB_CLASSES);
+        for (int i = 0; i < NB_CLASSES; i++) {
+            Map<String, Object> classe = new LinkedHashMap<>();
+            classe.put("de", i * LARGEUR_CLASSE);
+            classe.put("a", (i + 1) * LARGEUR_CLASSE);
+            classe.put("nombre", classes[i]);
+            histogramme.add(classe);
+        }
+        resume.put("histogramme", histogramme);
+        return resume;
+    }
+
+    /**
+     * Format texte : classes séparées par des virgules | somme | esquisse
+     */
+    String serialiser() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < NB_CLASSES; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(classes[i]);
+        }
+        sb.append('|').append(somme).append('|').append(esquisse.serialiser());
+        return sb.toString();
+    }
+
+    static DistributionScores deserialiser(String texte) {
+        String[] parties = texte.split("\\|", 3);
+        DistributionScores distribution = new DistributionScores(EsquisseQuantiles.deserialiser(parties[2]));
+        String[] valeurs = parties[0].split(",");
+        for (int i = 0; i < NB_CLASSES && i < valeurs.length; i++) {
+            distribution.classes[i] = Long.parseLong(valeurs[i]);
+        }
+        distribution.somme = Double.parseDouble(parties[1]);
+        return distribution;
+    }
+
+    private static int classe(double pourcentage) {
+        // 100 % tombe dans la dernière classe
+        int indice = (int) (pourcentage / LARGEUR_CLASSE);
+        return Math.max(0, Math.min(NB_CLASSES - 1, indice));
+    }
+
+    private static double arrondir(double valeur) {
+        return Math.round(valeur * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,374 @@
+package com.gestiontests.service;
+
+import com.gestiontests.entity.EsquisseScore;
+import com.gestiontests.entity.SessionTest;
+import com.gestiontests.repository.EsquisseScoreRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.BeforeDestroyed;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Distributions des pourcentages (esquisse de quantiles + histogramme) par dimension :
+ * global, créneau, école et jour. Alimentées après validation de chaque fin de test, une seule
+ * contribution par session (une nouvelle passation remplace l'ancienne, une réinitialisation la
+ * retire), sauvegardées périodiquement en base et rechargées au démarrage, avec reprise des seules
+ * sessions terminées depuis la dernière sauvegarde.
+ */
+@ApplicationScoped
+public class DistributionScoresService {
+
+    static final String GLOBAL = "global";
+    static final String CRENEAU = "creneau";
+    static final String ECOLE = "ecole";
+    static final String JOUR = "jour";
+
+    private static final String CLE_GLOBALE = "tous";
+
+    // Nombre de sessions enregistrées entre deux sauvegardes
+    private static final int SAUVEGARDE_TOUTES_LES = 25;
+
+    @Inject
+    private EsquisseScoreRepository esquisseScoreRepository;
+
+    @Inject
+    private ClassementService classementService;
+
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    // Une seule sauvegarde à la fois : un instantané ancien n'écrase jamais un plus récent
+    private final ReentrantLock verrouSauvegarde = new ReentrantLock();
+
+    // Dimension -> clé -> distribution
+    private final Map<String, Map<String, DistributionScores>> distributions = new HashMap<>();
+
+    // Distributions modifiées depuis la dernière sauvegarde (dimension -> clés)
+    private final Map<String, Set<String>> modifiees = new HashMap<>();
+
+    // Session -> contribution intégrée depuis le démarrage (remplacée lors d'une nouvelle passation)
+    private final Map<Integer, EntreeClassement> contributions = new HashMap<>();
+
+    private int enregistrementsDepuisSauvegarde = 0;
+
+    void auDemarrage(@Observes @Initialized(ApplicationScoped.class) Object evenement) {
+        try {
+            charger();
+        } catch (Exception e) {
+            System.err.println("Chargement des distributions de scores impossible: " + e.getMessage());
+        }
+    }
+
+    void avantArret(@Observes @BeforeDestroyed(ApplicationScoped.class) Object evenement) {
+        try {
+            sauvegarder();
+        } catch (Exception e) {
+            System.err.println("Sauvegarde des distributions de scores impossible: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recharge les esquisses sauvegardées puis intègre les sessions terminées depuis
+     */
+    public void charger() {
+        Map<String, Map<String, DistributionScores>> chargees = new HashMap<>();
+        Map<String, DistributionScores> seuils = new HashMap<>();
+        for (EsquisseScore esquisse : esquisseScoreRepository.findAll()) {
+            DistributionScores distribution = DistributionScores.deserialiser(esquisse.getDonnees());
+            distribution.setPointReprise(esquisse.getDerniereFin(), esquisse.getDerniereSession());
+            chargees.computeIfAbsent(esquisse.getDimension(), d -> new HashMap<>()).put(esquisse.getCle(), distribution);
+            seuils.put(esquisse.getDimension() + "/" + esquisse.getCle(), distribution);
+        }
+
+        // La distribution globale est sauvegardée en dernier : tout ce qui la précède est déjà compté.
+        // La date de reprise est incluse, l'id départage les sessions terminées au même instant.
+        DistributionScores globale = seuils.get(GLOBAL + "/" + CLE_GLOBALE);
+        List<EntreeClassement> nouvelles = classementService.chargerEntrees(globale != null ? globale.getDerniereFin() : null);
+
+        verrou.writeLock().lock();
+        try {
+            distributions.clear();
+            distributions.putAll(chargees);
+            modifiees.clear();
+            contributions.clear();
+            for (EntreeClassement entree : nouvelles) {
+                for (Map.Entry<String, String> cle : cles(entree.getEcole(), entree.getCreneauId(), entree.getDateFin()).entrySet()) {
+                    DistributionScores seuil = seuils.get(cle.getKey() + "/" + cle.getValue());
+                    if (seuil == null || entree.getDateFin() == null || DistributionScores.estApres(entree.getDateFin(),
+                            entree.getSessionId(), seuil.getDerniereFin(), seuil.getDerniereSession())) {
+                        ajouterSansVerrou(cle.getKey(), cle.getValue(), entree);
+                    }
+                }
+                contributions.put(entree.getSessionId(), entree);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        System.out.println("Distributions de scores chargées: " + seuils.size() + " esquisses, "
+            + nouvelles.size() + " sessions reprises");
+        if (!nouvelles.isEmpty()) {
+            sauvegarder();
+        }
+    }
+
+    void surFinSession(@Observes(during = TransactionPhase.AFTER_SUCCESS) FinSessionTest evenement) {
+        enregistrer(evenement.getEntree());
+    }
+
+    /**
+     * Retire les résultats des sessions réinitialisées, puis sauvegarde aussitôt (opération rare)
+     */
+    void surReinitialisation(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReinitialisationSessions evenement) {
+        if (evenement.getAnciennesEntrees().isEmpty()) {
+            return;
+        }
+        verrou.writeLock().lock();
+        try {
+            for (EntreeClassement ancienne : evenement.getAnciennesEntrees()) {
+                EntreeClassement contribuee = contributions.remove(ancienne.getSessionId());
+                retirerSansVerrou(contribuee != null ? contribuee : ancienne);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        try {
+            sauvegarder();
+        } catch (Exception e) {
+            System.err.println("Sauvegarde des distributions de scores impossible: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Intègre une session terminée dans toutes ses dimensions ; une contribution antérieure
+     * de la même session est d'abord retirée
+     */
+    public void enregistrer(EntreeClassement entree) {
+        if (entree == null) {
+            return;
+        }
+        boolean aSauvegarder;
+        verrou.writeLock().lock();
+        try {
+            EntreeClassement ancienne = contributions.put(entree.getSessionId(), entree);
+            if (ancienne != null) {
+                retirerSansVerrou(ancienne);
+            }
+            for (Map.Entry<String, String> cle : cles(entree.getEcole(), entree.getCreneauId(), entree.getDateFin()).entrySet()) {
+                ajouterSansVerrou(cle.getKey(), cle.getValue(), entree);
+            }
+            aSauvegarder = ++enregistrementsDepuisSauvegarde >= SAUVEGARDE_TOUTES_LES;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        if (aSauvegarder) {
+            try {
+                sauvegarder();
+            } catch (Exception e) {
+                System.err.println("Sauvegarde des distributions de scores impossible: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Écrit en base les distributions modifiées, la distribution globale en dernier
+     */
+    public void sauvegarder() {
+        verrouSauvegarde.lock();
+        try {
+            sauvegarderModifiees();
+        } finally {
+            verrouSauvegarde.unlock();
+        }
+    }
+
+    private void sauvegarderModifiees() {
+        List<Sauvegarde> aEcrire = new ArrayList<>();
+        Map<String, Set<String>> copieModifiees;
+        verrou.writeLock().lock();
+        try {
+            copieModifiees = new HashMap<>(modifiees);
+            for (Map.Entry<String, Set<String>> dimension : modifiees.entrySet()) {
+                for (String cle : dimension.getValue()) {
+                    DistributionScores distribution = distributions.get(dimension.getKey()).get(cle);
+                    Sauvegarde sauvegarde = new Sauvegarde(dimension.getKey(), cle,
+                        distribution.serialiser(), distribution.getDerniereFin(), distribution.getDerniereSession());
+                    if (GLOBAL.equals(dimension.getKey())) {
+                        aEcrire.add(sauvegarde);
+                    } else {
+                        aEcrire.add(0, sauvegarde);
+                    }
+                }
+            }
+            modifiees.clear();
+            enregistrementsDepuisSauvegarde = 0;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+
+        try {
+            for (Sauvegarde sauvegarde : aEcrire) {
+                esquisseScoreRepository.sauvegarder(sauvegarde.dimension, sauvegarde.cle,
+                    sauvegarde.donnees, sauvegarde.derniereFin, sauvegarde.derniereSession);
+            }
+        } catch (RuntimeException e) {
+            // Les distributions restent à sauvegarder à la prochaine occasion
+            verrou.writeLock().lock();
+            try {
+                for (Map.Entry<String, Set<String>> dimension : copieModifiees.entrySet()) {
+                    modifiees.computeIfAbsent(dimension.getKey(), d -> new HashSet<>()).addAll(dimension.getValue());
+                }
+            } finally {
+                verrou.writeLock().unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Rangs percentiles d'une session terminée : global, dans son école et dans son créneau
+     */
+    public Map<String, Object> getRangsPercentiles(SessionTest session) {
+        Map<String, Object> rangs = new LinkedHashMap<>();
+        if (session == null || !Boolean.TRUE.equals(session.getEstTermine()) || session.getPourcentage() == null) {
+            return rangs;
+        }
+        double pourcentage = session.getPourcentage().doubleValue();
+        String ecole = session.getCandidat() != null ? session.getCandidat().getEcole() : null;
+        Integer creneauId = classementService.resoudreCreneau(session);
+
+        verrou.readLock().lock();
+        try {
+            rangs.put("global", rang(GLOBAL, CLE_GLOBALE, pourcentage));
+            if (ecole != null) {
+                rangs.put("ecole", rang(ECOLE, cleEcole(ecole), pourcentage));
+            }
+            if (creneauId != null) {
+                rangs.put("creneau", rang(CRENEAU, creneauId.toString(), pourcentage));
+            }
+        } finally {
+            verrou.readLock().unlock();
+        }
+        return rangs;
+    }
+
+    /**
+     * Distribution d'une dimension ; sans filtre, la distribution globale. Une période (du, au)
+     * fusionne les distributions journalières correspondantes.
+     */
+    public Map<String, Object> getDistribution(String ecole, Integer creneauId, LocalDate du, LocalDate au) {
+        Map<String, Object> resultat = new LinkedHashMap<>();
+        verrou.readLock().lock();
+        try {
+            DistributionScores distribution;
+            if (creneauId != null) {
+                resultat.put("dimension", CRENEAU);
+                resultat.put("cle", creneauId);
+                distribution = trouver(CRENEAU, creneauId.toString());
+            } else if (ecole != null && !ecole.trim().isEmpty()) {
+                resultat.put("dimension", ECOLE);
+                resultat.put("cle", ecole);
+                distribution = trouver(ECOLE, cleEcole(ecole));
+            } else if (du != null || au != null) {
+                resultat.put("dimension", JOUR);
+                resultat.put("du", du);
+                resultat.put("au", au);
+                distribution = new DistributionScores();
+                for (Map.Entry<String, DistributionScores> jour : distributions.getOrDefault(JOUR, Map.of()).entrySet()) {
+                    LocalDate date = LocalDate.parse(jour.getKey());
+                    if ((du == null || !date.isBefore(du)) && (au == null || !date.isAfter(au))) {
+                        distribution.fusionner(jour.getValue());
+                    }
+                }
+            } else {
+                resultat.put("dimension", GLOBAL);
+                distribution = trouver(GLOBAL, CLE_GLOBALE);
+            }
+            resultat.putAll(distribution.resume());
+        } finally {
+            verrou.readLock().unlock();
+        }
+        return resultat;
+    }
+
+    private void ajouterSansVerrou(String dimension, String cle, EntreeClassement entree) {
+        distributions.computeIfAbsent(dimension, d -> new HashMap<>())
+            .computeIfAbsent(cle, c -> new DistributionScores())
+            .ajouter(entree.getPourcentage().doubleValue(), entree.getDateFin(), entree.getSessionId());
+        modifiees.computeIfAbsent(dimension, d -> new HashSet<>()).add(cle);
+    }
+
+    private void retirerSansVerrou(EntreeClassement entree) {
+        for (Map.Entry<String, String> cle : cles(entree.getEcole(), entree.getCreneauId(), entree.getDateFin()).entrySet()) {
+            DistributionScores distribution = distributions.getOrDefault(cle.getKey(), Map.of()).get(cle.getValue());
+            if (distribution != null) {
+                distribution.retirer(entree.getPourcentage().doubleValue());
+                modifiees.computeIfAbsent(cle.getKey(), d -> new HashSet<>()).add(cle.getValue());
+            }
+        }
+    }
+
+    private Double rang(String dimension, String cle, double pourcentage) {
+        DistributionScores distribution = distributions.getOrDefault(dimension, Map.of()).get(cle);
+        return distribution != null ? distribution.rangPercentile(pourcentage) : null;
+    }
+
+    private DistributionScores trouver(String dimension, String cle) {
+        DistributionScores distribution = distributions.getOrDefault(dimension, Map.of()).get(cle);
+        return distribution != null ? distribution : new DistributionScores();
+    }
+
+    /**
+     * Clés (dimension -> clé) auxquelles contribue une session
+     */
+    private Map<String, String> cles(String ecole, Integer creneauId, LocalDateTime dateFin) {
+        Map<String, String> cles = new LinkedHashMap<>();
+        cles.put(GLOBAL, CLE_GLOBALE);
+        if (creneauId != null) {
+            cles.put(CRENEAU, creneauId.toString());
+        }
+        if (ecole != null && !ecole.trim().isEmpty()) {
+            cles.put(ECOLE, cleEcole(ecole));
+        }
+        if (dateFin != null) {
+            cles.put(JOUR, dateFin.toLocalDate().toString());
+        }
+        return cles;
+    }
+
+    private String cleEcole(String ecole) {
+        String cle = NormalisationTexte.sansAccents(ecole).trim();
+        return cle.length() > 150 ? cle.substring(0, 150) : cle;
+    }
+
+    /**
+     * Instantané sérialisé d'une distribution, écrit hors verrou
+     */
+    private static final class Sauvegarde {
+        private final String dimension;
+        private final String cle;
+        private final String donnees;
+        private final LocalDateTime derniereFin;
+        private final Integer derniereSession;
+
+        Sauvegarde(String dimension, String cle, String donnees, LocalDateTime derniereFin, Integer derniereSession) {
+            this.dimension = dimension;
+            this.cle = cle;
+            this.donnees = donnees;
+            this.derniereFin = derniereFin;
+            this.derniereSession = derniereSession;
+        }
+    }
+}
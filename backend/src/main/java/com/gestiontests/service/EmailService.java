@@ -178,7 +178,7 @@ public class EmailService {
     }
 
     /** Contenu email pour l'inscription */
-    private String construireContenuInscription(Candidat candidat, CreneauHoraire creneau, String messageInfo) {
+    String construireContenuInscription(Candidat candidat, CreneauHoraire creneau, String messageInfo) {
         StringBuilder html = new StringBuilder();
         html.append("<!DOCTYPE html>");
         html.append("<html><head><meta charset='UTF-8'>");
@@ -246,7 +246,7 @@ public class EmailService {
     }
 
     /** Contenu email pour la validation */
-    private String construireContenuValidation(Candidat candidat) {
+    String construireContenuValidation(Candidat candidat) {
         StringBuilder html = new StringBuilder();
         html.append("<!DOCTYPE html>");
         html.append("<html><head><meta charset='UTF-8'>");
@@ -298,7 +298,7 @@ public class EmailService {
     }
 
     /** Contenu email pour les résultats */
-    private String construireContenuResultats(Candidat candidat, String score, String pourcentage) {
+    String construireContenuResultats(Candidat candidat, String score, String pourcentage) {
         double pourcentageNum = Double.parseDouble(pourcentage);
         String messageMotivation = "";
         String couleurBarre = "";
@@ -390,7 +390,7 @@ public class EmailService {
     }
     
     /** Construit le contenu de l'email pour l'envoi du code de session */
-    private String construireContenuCodeSession(String prenom, String codeSession) {
+    String construireContenuCodeSession(String prenom, String codeSession) {
         StringBuilder html = new StringBuilder();
         html.append("<!DOCTYPE html><html><head>");
         html.append("<meta charset='UTF-8'>");
@@ -0,0 +1,60 @@
+package com.gestiontests.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+/**
+ * Ligne du classement en mémoire : copie immuable des champs affichés d'une session terminée
+ */
+public class EntreeClassement {
+
+    /**
+     * Meilleur pourcentage d'abord, puis la session terminée le plus tôt, puis l'id
+     */
+    static final Comparator<EntreeClassement> ORDRE = Comparator
+        .comparing(EntreeClassement::getPourcentage, Comparator.reverseOrder())
+        .thenComparing(EntreeClassement::getDateFin, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(EntreeClassement::getSessionId);
+
+    private final Integer sessionId;
+    private final String codeSession;
+    private final BigDecimal pourcentage;
+    private final Integer scoreTotal;
+    private final Integer scoreMax;
+    private final LocalDateTime dateFin;
+    private final Integer candidatId;
+    private final String nom;
+    private final String prenom;
+    private final String ecole;
+    private final Integer creneauId;
+
+    public EntreeClassement(Integer sessionId, String codeSession, BigDecimal pourcentage, Integer scoreTotal,
+                            Integer scoreMax, LocalDateTime dateFin, Integer candidatId, String nom,
+                            String prenom, String ecole, Integer creneauId) {
+        this.sessionId = sessionId;
+        this.codeSession = codeSession;
+        this.pourcentage = pourcentage != null ? pourcentage : BigDecimal.ZERO;
+        this.scoreTotal = scoreTotal;
+        this.scoreMax = scoreMax;
+        this.dateFin = dateFin;
+        this.candidatId = candidatId;
+        this.nom = nom;
+        this.prenom = prenom;
+        this.ecole = ecole;
+        this.creneauId = creneauId;
+    }
+
+    // Getters
+    public Integer getSessionId() { return sessionId; }
+    public String getCodeSession() { return codeSession; }
+    public BigDecimal getPourcentage() { return pourcentage; }
+    public Integer getScoreTotal() { return scoreTotal; }
+    public Integer getScoreMax() { return scoreMax; }
+    public LocalDateTime getDateFin() { return dateFin; }
+    public Integer getCandidatId() { return candidatId; }
+    public String getNom() { return nom; }
+    public String getPrenom() { return prenom; }
+    public String getEcole() { return ecole; }
+    public Integer getCreneauId() { return creneauId; }
+}
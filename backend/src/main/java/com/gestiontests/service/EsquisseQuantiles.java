@@ -0,0 +1,300 @@
+package com.gestiontests.service;
+
+import java.util.Arrays;
+
+/**
+ * Esquisse de quantiles fusionnable (t-digest à fusion) : les valeurs sont résumées par des
+ * centroïdes (moyenne, poids) dont la taille est bornée par la compression, plus fine aux extrêmes.
+ * Les lectures ne modifient pas l'esquisse ; l'appelant protège les écritures concurrentes.
+ * Le retrait d'une valeur est approché : il décrémente le centroïde le plus proche.
+ */
+final class EsquisseQuantiles {
+
+    private static final double COMPRESSION = 100;
+    private static final int TAILLE_TAMPON = 500;
+
+    // Centroïdes compressés, triés par moyenne
+    private double[] moyennes = new double[0];
+    private double[] poids = new double[0];
+
+    // Valeurs (ou centroïdes d'une autre esquisse) en attente de compression
+    private double[] tamponMoyennes = new double[TAILLE_TAMPON];
+    private double[] tamponPoids = new double[TAILLE_TAMPON];
+    private int nbTampon = 0;
+
+    private double total = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    void ajouter(double valeur) {
+        ajouter(valeur, 1);
+    }
+
+    private void ajouter(double moyenne, double w) {
+        if (nbTampon == tamponMoyennes.length) {
+            compresser();
+        }
+        tamponMoyennes[nbTampon] = moyenne;
+        tamponPoids[nbTampon] = w;
+        nbTampon++;
+        total += w;
+        min = Double.isNaN(min) ? moyenne : Math.min(min, moyenne);
+        max = Double.isNaN(max) ? moyenne : Math.max(max, moyenne);
+    }
+
+    /**
+     * Retire une valeur précédemment ajoutée (session réinitialisée ou recorrigée)
+     */
+    void retirer(double valeur) {
+        compresser();
+        if (moyennes.length == 0) {
+            return;
+        }
+        int proche = 0;
+        for (int i = 1; i < moyennes.length; i++) {
+            if (Math.abs(moyennes[i] - valeur) < Math.abs(moyennes[proche] - valeur)) {
+                proche = i;
+            }
+        }
+        double retire = Math.min(1, poids[proche]);
+        poids[proche] -= retire;
+        total -= retire;
+        if (poids[proche] <= 0) {
+            int reste = moyennes.length - proche - 1;
+            System.arraycopy(moyennes, proche + 1, moyennes, proche, reste);
+            System.arraycopy(poids, proche + 1, poids, proche, reste);
+            moyennes = Arrays.copyOf(moyennes, moyennes.length - 1);
+            poids = Arrays.copyOf(poids, poids.length - 1);
+        }
+        if (moyennes.length == 0 || total <= 0) {
+            moyennes = new double[0];
+            poids = new double[0];
+            total = 0;
+            min = Double.NaN;
+            max = Double.NaN;
+            return;
+        }
+        // Un centroïde extrême de poids 1 est la valeur exacte ; sinon, la borne retirée est
+        // remplacée par la moyenne du centroïde extrême restant
+        int dernier = moyennes.length - 1;
+        if (valeur <= min || poids[0] <= 1) {
+            min = moyennes[0];
+        }
+        if (valeur >= max || poids[dernier] <= 1) {
+            max = moyennes[dernier];
+        }
+    }
+
+    /**
+     * Intègre une autre esquisse (ses centroïdes sont ajoutés comme des valeurs pondérées)
+     */
+    void fusionner(EsquisseQuantiles autre) {
+        double[][] centroides = autre.centroidesFusionnes();
+        for (int i = 0; i < centroides[0].length; i++) {
+            ajouter(centroides[0][i], centroides[1][i]);
+        }
+        if (autre.total > 0) {
+            min = Double.isNaN(min) ? autre.min : Math.min(min, autre.min);
+            max = Double.isNaN(max) ? autre.max : Math.max(max, autre.max);
+        }
+    }
+
+    double nombre() {
+        return total;
+    }
+
+    double min() {
+        return min;
+    }
+
+    double max() {
+        return max;
+    }
+
+    /**
+     * Valeur sous laquelle se trouve la fraction q des observations
+     */
+    double quantile(double q) {
+        if (total == 0) {
+            return Double.NaN;
+        }
+        double[][] c = centroidesFusionnes();
+        double[] m = c[0];
+        double[] w = c[1];
+        double cible = Math.max(0, Math.min(1, q)) * total;
+
+        // Centres de masse des centroïdes, bornés par (min, 0) et (max, total)
+        double positionPrecedente = 0;
+        double valeurPrecedente = min;
+        double cumul = 0;
+        for (int i = 0; i < m.length; i++) {
+            double centre = cumul + w[i] / 2;
+            if (cible <= centre) {
+                return interpoler(cible, positionPrecedente, centre, valeurPrecedente, m[i]);
+            }
+            positionPrecedente = centre;
+            valeurPrecedente = m[i];
+            cumul += w[i];
+        }
+        return interpoler(cible, positionPrecedente, total, valeurPrecedente, max);
+    }
+
+    /**
+     * Fraction des observations inférieures à la valeur, les égalités comptant pour moitié
+     */
+    double rang(double valeur) {
+        if (total == 0) {
+            return Double.NaN;
+        }
+        if (valeur < min) {
+            return 0;
+        }
+        if (valeur > max) {
+            return 1;
+        }
+        double[][] c = centroidesFusionnes();
+        double[] m = c[0];
+        double[] w = c[1];
+
+        double positionPrecedente = 0;
+        double valeurPrecedente = min;
+        double cumul = 0;
+        for (int i = 0; i < m.length; i++) {
+            if (m[i] == valeur) {
+                // Centroïdes exactement égaux à la valeur (scores identiques fréquents)
+                double egaux = 0;
+                for (int j = i; j < m.length && m[j] == valeur; j++) {
+                    egaux += w[j];
+                }
+                return (cumul + egaux / 2) / total;
+            }
+            double centre = cumul + w[i] / 2;
+            if (valeur < m[i]) {
+                return interpoler(valeur, valeurPrecedente, m[i], positionPrecedente, centre) / total;
+            }
+            positionPrecedente = centre;
+            valeurPrecedente = m[i];
+            cumul += w[i];
+        }
+        return interpoler(valeur, valeurPrecedente, max, positionPrecedente, total) / total;
+    }
+
+    /**
+     * Format texte compact : total;min;max;moyenne:poids,...
+     */
+    String serialiser() {
+        double[][] c = centroidesFusionnes();
+        StringBuilder sb = new StringBuilder();
+        sb.append(formater(total)).append(';').append(formater(min)).append(';').append(formater(max)).append(';');
+        for (int i = 0; i < c[0].length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(formater(c[0][i])).append(':').append(formater(c[1][i]));
+        }
+        return sb.toString();
+    }
+
+    static EsquisseQuantiles deserialiser(String texte) {
+        EsquisseQuantiles esquisse = new EsquisseQuantiles();
+        String[] parties = texte.split(";", -1);
+        if (parties.length < 4 || parties[3].isEmpty()) {
+            return esquisse;
+        }
+        String[] centroides = parties[3].split(",");
+        esquisse.moyennes = new double[centroides.length];
+        esquisse.poids = new double[centroides.length];
+        for (int i = 0; i < centroides.length; i++) {
+            String[] mw = centroides[i].split(":");
+            esquisse.moyennes[i] = Double.parseDouble(mw[0]);
+            esquisse.poids[i] = Double.parseDouble(mw[1]);
+        }
+        esquisse.total = Double.parseDouble(parties[0]);
+        esquisse.min = Double.parseDouble(parties[1]);
+        esquisse.max = Double.parseDouble(parties[2]);
+        return esquisse;
+    }
+
+    private void compresser() {
+        double[][] c = centroidesFusionnes();
+        moyennes = c[0];
+        poids = c[1];
+        nbTampon = 0;
+    }
+
+    /**
+     * Fusionne centroïdes et tampon sans modifier l'esquisse. Deux éléments voisins sont réunis
+     * tant que le poids cumulé reste sous la limite donnée par la fonction d'échelle
+     * k(q) = compression / 2π · asin(2q - 1).
+     */
+    private double[][] centroidesFusionnes() {
+        int n = moyennes.length + nbTampon;
+        if (nbTampon == 0) {
+            return new double[][] { moyennes, poids };
+        }
+        double[] m = new double[n];
+        double[] w = new double[n];
+        System.arraycopy(moyennes, 0, m, 0, moyennes.length);
+        System.arraycopy(poids, 0, w, 0, poids.length);
+        System.arraycopy(tamponMoyennes, 0, m, moyennes.length, nbTampon);
+        System.arraycopy(tamponPoids, 0, w, moyennes.length, nbTampon);
+        trier(m, w);
+
+        double[] sortieM = new double[n];
+        double[] sortieW = new double[n];
+        int k = 0;
+        double poidsAvant = 0;
+        double courantM = m[0];
+        double courantW = w[0];
+        double limite = limiteQ(0);
+        for (int i = 1; i < n; i++) {
+            if ((poidsAvant + courantW + w[i]) / total <= limite) {
+                courantW += w[i];
+                courantM += (m[i] - courantM) * w[i] / courantW;
+            } else {
+                sortieM[k] = courantM;
+                sortieW[k] = courantW;
+                k++;
+                poidsAvant += courantW;
+                limite = limiteQ(poidsAvant / total);
+                courantM = m[i];
+                courantW = w[i];
+            }
+        }
+        sortieM[k] = courantM;
+        sortieW[k] = courantW;
+        k++;
+        return new double[][] { Arrays.copyOf(sortieM, k), Arrays.copyOf(sortieW, k) };
+    }
+
+    private static double limiteQ(double q) {
+        double normalisation = COMPRESSION / (2 * Math.PI);
+        double k = normalisation * Math.asin(2 * Math.min(1, q) - 1) + 1;
+        return k >= COMPRESSION / 4 ? 1 : (Math.sin(k / normalisation) + 1) / 2;
+    }
+
+    private static void trier(double[] m, double[] w) {
+        Integer[] ordre = new Integer[m.length];
+        for (int i = 0; i < ordre.length; i++) {
+            ordre[i] = i;
+        }
+        Arrays.sort(ordre, (a, b) -> Double.compare(m[a], m[b]));
+        double[] copieM = m.clone();
+        double[] copieW = w.clone();
+        for (int i = 0; i < ordre.length; i++) {
+            m[i] = copieM[ordre[i]];
+            w[i] = copieW[ordre[i]];
+        }
+    }
+
+    private static double interpoler(double x, double x0, double x1, double y0, double y1) {
+        if (x1 <= x0) {
+            return (y0 + y1) / 2;
+        }
+        return y0 + (y1 - y0) * (x - x0) / (x1 - x0);
+    }
+
+    private static String formater(double valeur) {
+        return Double.toString(valeur);
+    }
+}
@@ -0,0 +1,93 @@
+package com.gestiontests.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * État compact d'une session en cours : questions dans l'ordre d'affichage, position de chaque
+ * question et questions déjà répondues. L'ordre ne change pas pendant le test, seules les
+ * réponses évoluent (de façon atomique).
+ */
+final class EtatSessionActive {
+
+    // Identifiants de question et de session_question, par position d'affichage
+    private final int[] questions;
+    private final int[] sessionQuestions;
+
+    // Identifiant de question -> position
+    private final Map<Integer, Integer> positions;
+
+    // 1 si la question à cette position a une réponse
+    private final AtomicIntegerArray repondues;
+    private final AtomicInteger nombreRepondues = new AtomicInteger();
+
+    // Fin du temps imparti (epoch ms) : au-delà, l'état n'est plus servi
+    private final long echeanceMs;
+
+    EtatSessionActive(int[] questions, int[] sessionQuestions, boolean[] dejaRepondues, long echeanceMs) {
+        this.echeanceMs = echeanceMs;
+        this.questions = questions;
+        this.sessionQuestions = sessionQuestions;
+        this.positions = new HashMap<>(questions.length * 2);
+        this.repondues = new AtomicIntegerArray(questions.length);
+        for (int i = 0; i < questions.length; i++) {
+            positions.put(questions[i], i);
+            if (dejaRepondues[i]) {
+                repondues.set(i, 1);
+                nombreRepondues.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Position de la question dans la session, ou -1 si elle n'en fait pas partie
+     */
+    int position(int questionId) {
+        Integer position = positions.get(questionId);
+        return position != null ? position : -1;
+    }
+
+    boolean contient(int questionId) {
+        return positions.containsKey(questionId);
+    }
+
+    /**
+     * Identifiant de session_question à la position donnée, ou null hors limites
+     */
+    Integer sessionQuestionA(int position) {
+        return position >= 0 && position < sessionQuestions.length ? sessionQuestions[position] : null;
+    }
+
+    Integer sessionQuestionDe(int questionId) {
+        return sessionQuestionA(position(questionId));
+    }
+
+    void marquerRepondue(int questionId) {
+        int position = position(questionId);
+        if (position >= 0 && repondues.compareAndSet(position, 0, 1)) {
+            nombreRepondues.incrementAndGet();
+        }
+    }
+
+    boolean estRepondue(int position) {
+        return repondues.get(position) == 1;
+    }
+
+    int getNombreQuestions() {
+        return questions.length;
+    }
+
+    int getNombreRepondues() {
+        return nombreRepondues.get();
+    }
+
+    int questionA(int position) {
+        return questions[position];
+    }
+
+    boolean estExpire(long maintenantMs) {
+        return maintenantMs >= echeanceMs;
+    }
+}
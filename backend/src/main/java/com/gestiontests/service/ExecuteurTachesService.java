@@ -0,0 +1,73 @@
+package com.gestiontests.service;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.BeforeDestroyed;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Exécution en arrière-plan des tâches d'entrées/sorties qui n'utilisent pas les ressources du
+ * conteneur (envoi SMTP, appels externes). Sur Java 21 lancé avec -Dgestiontests.threadsVirtuels=true,
+ * chaque tâche s'exécute sur un thread virtuel : une attente réseau ne bloque plus un thread du pool.
+ * Sinon, et pour tout ce qui touche à JPA/JTA, l'exécuteur géré du serveur est utilisé.
+ */
+@ApplicationScoped
+public class ExecuteurTachesService {
+
+    public static final String PROPRIETE_THREADS_VIRTUELS = "gestiontests.threadsVirtuels";
+
+    @Resource
+    private ManagedExecutorService executeurGere;
+
+    private volatile ExecutorService executeurVirtuel;
+
+    void auDemarrage(@Observes @Initialized(ApplicationScoped.class) Object evenement) {
+        if (Boolean.getBoolean(PROPRIETE_THREADS_VIRTUELS)) {
+            executeurVirtuel = creerExecuteurVirtuel();
+        }
+        System.out.println("Tâches d'arrière-plan: " + (executeurVirtuel != null ? "threads virtuels" : "exécuteur géré")
+            + " (Java " + Runtime.version().feature()
+            + ", jdk.tracePinnedThreads=" + System.getProperty("jdk.tracePinnedThreads", "non défini") + ")");
+    }
+
+    void avantArret(@Observes @BeforeDestroyed(ApplicationScoped.class) Object evenement) {
+        if (executeurVirtuel != null) {
+            executeurVirtuel.shutdown();
+        }
+    }
+
+    /**
+     * Exécuteur des tâches d'entrées/sorties sans contexte transactionnel ni persistance
+     */
+    public Executor getExecuteurEntreesSorties() {
+        ExecutorService virtuel = executeurVirtuel;
+        return virtuel != null ? virtuel : executeurGere;
+    }
+
+    public void executer(Runnable tache) {
+        getExecuteurEntreesSorties().execute(tache);
+    }
+
+    public boolean utiliseThreadsVirtuels() {
+        return executeurVirtuel != null;
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() par réflexion : le code reste compilable en Java 11
+     */
+    private static ExecutorService creerExecuteurVirtuel() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Threads virtuels indisponibles sur Java " + Runtime.version().feature()
+                + " (Java 21 requis), utilisation de l'exécuteur géré");
+            return null;
+        }
+    }
+}
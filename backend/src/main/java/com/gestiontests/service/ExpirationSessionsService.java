@@ -0,0 +1,171 @@
+package com.gestiontests.service;
+
+import com.gestiontests.repository.SessionTestRepository;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.BeforeDestroyed;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Expiration des sessions de test côté serveur : chaque session démarrée est planifiée dans une
+ * roue de temporisation ; un tick par seconde relève les sessions échues et les finalise par lots
+ * (score, e-mail) en arrière-plan. La finalisation verrouille la ligne de la session, ce qui rend
+ * le traitement sûr lorsque plusieurs nœuds récupèrent les mêmes sessions.
+ */
+@ApplicationScoped
+public class ExpirationSessionsService {
+
+    private static final long DUREE_TICK_MS = 1000;
+    private static final int TAILLE_ROUE = 512;
+
+    // Sessions finalisées au plus par tick (le reste attend le tick suivant)
+    private static final int TAILLE_LOT = 20;
+
+    @Inject
+    private SessionTestRepository sessionTestRepository;
+
+    @Inject
+    private TestService testService;
+
+    @Inject
+    private ReprisesConflitsService reprisesConflitsService;
+
+    @Resource
+    private ManagedScheduledExecutorService planificateur;
+
+    // Échéance (epoch ms) de chaque session planifiée, lue par le décompte et par temps-restant
+    private final ConcurrentHashMap<Integer, Long> echeances = new ConcurrentHashMap<>();
+
+    private final RoueTemporisation roue = new RoueTemporisation(DUREE_TICK_MS, TAILLE_ROUE, System.currentTimeMillis());
+
+    // Sessions échues en attente de finalisation, dans l'ordre d'échéance
+    private final Set<Integer> aFinaliser = new LinkedHashSet<>();
+    private final ReentrantLock verrouFile = new ReentrantLock();
+
+    private ScheduledFuture<?> tache;
+
+    void auDemarrage(@Observes @Initialized(ApplicationScoped.class) Object evenement) {
+        try {
+            recuperer();
+        } catch (Exception e) {
+            System.err.println("Récupération des sessions en cours impossible: " + e.getMessage());
+        }
+        tache = planificateur.scheduleWithFixedDelay(this::tick, DUREE_TICK_MS, DUREE_TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    void avantArret(@Observes @BeforeDestroyed(ApplicationScoped.class) Object evenement) {
+        if (tache != null) {
+            tache.cancel(false);
+        }
+    }
+
+    /**
+     * Replanifie toutes les sessions non terminées (démarrage ou reprise après incident)
+     */
+    public void recuperer() {
+        List<Object[]> sessions = sessionTestRepository.findDebutsSessionsEnCours();
+        for (Object[] ligne : sessions) {
+            planifier((Integer) ligne[0], (LocalDateTime) ligne[1]);
+        }
+        System.out.println("Expiration des sessions: " + sessions.size() + " sessions en cours planifiées");
+    }
+
+    /**
+     * Planifie la fin d'une session démarrée à la date donnée
+     */
+    public void planifier(Integer sessionId, LocalDateTime dateDebut) {
+        if (sessionId == null || dateDebut == null) {
+            return;
+        }
+        long echeance = versMillis(TestService.echeance(dateDebut));
+        echeances.put(sessionId, echeance);
+        roue.planifier(sessionId, echeance);
+    }
+
+    public void annuler(Integer sessionId) {
+        if (sessionId != null) {
+            echeances.remove(sessionId);
+            roue.annuler(sessionId);
+        }
+    }
+
+    /**
+     * Une remise à zéro validée retire l'échéance de la passation abandonnée ; annulée, elle laisse
+     * la session en cours à son échéance. Une session redémarrée dans la même transaction garde
+     * l'échéance de sa nouvelle passation.
+     */
+    void surReinitialisation(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReinitialisationSessions evenement) {
+        for (Integer sessionId : evenement.getSessionIds()) {
+            if (!evenement.estRedemarree(sessionId)) {
+                annuler(sessionId);
+            }
+        }
+    }
+
+    /**
+     * Échéance en mémoire d'une session en cours, ou null si elle n'est pas planifiée sur ce nœud
+     */
+    public Long getEcheanceMs(Integer sessionId) {
+        return sessionId != null ? echeances.get(sessionId) : null;
+    }
+
+    public int getNombreSessionsPlanifiees() {
+        return roue.taille();
+    }
+
+    private void tick() {
+        try {
+            long maintenant = System.currentTimeMillis();
+            List<Integer> echues = roue.avancer(maintenant);
+            Integer[] lot;
+            verrouFile.lock();
+            try {
+                aFinaliser.addAll(echues);
+                lot = aFinaliser.stream().limit(TAILLE_LOT).toArray(Integer[]::new);
+                for (Integer sessionId : lot) {
+                    aFinaliser.remove(sessionId);
+                }
+            } finally {
+                verrouFile.unlock();
+            }
+
+            for (Integer sessionId : lot) {
+                // Retirée sauf si une replanification plus tardive l'a remplacée entre-temps
+                Long echeance = echeances.get(sessionId);
+                if (echeance != null && echeance <= maintenant) {
+                    echeances.remove(sessionId, echeance);
+                }
+                try {
+                    // Chaque session dans sa propre transaction : un échec n'annule pas le lot
+                    if (reprisesConflitsService.executer("finaliserSessionExpiree",
+                            () -> testService.finaliserSessionExpiree(sessionId))) {
+                        System.out.println("Session " + sessionId + " finalisée automatiquement (temps écoulé)");
+                    }
+                } catch (Exception e) {
+                    System.err.println("Finalisation de la session " + sessionId + " impossible: " + e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            // Une exception non rattrapée arrêterait la tâche planifiée
+            System.err.println("Erreur du tick d'expiration des sessions: " + e.getMessage());
+        }
+    }
+
+    private static long versMillis(LocalDateTime date) {
+        return date.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,43 @@
+package com.gestiontests.service;
+
+import com.gestiontests.entity.Candidat;
+
+/**
+ * Événement émis lorsqu'une session de test est terminée (par le candidat ou à l'expiration du temps)
+ */
+public class FinSessionTest {
+
+    private final Integer sessionId;
+    private final boolean tempsEcoule;
+
+    // Candidat (champs simples chargés) et résultat, construits dans la transaction de fin de test
+    private final Candidat candidat;
+    private final EntreeClassement entree;
+
+    public FinSessionTest(Integer sessionId, Candidat candidat, boolean tempsEcoule, EntreeClassement entree) {
+        this.sessionId = sessionId;
+        this.candidat = candidat;
+        this.tempsEcoule = tempsEcoule;
+        this.entree = entree;
+    }
+
+    public Integer getSessionId() {
+        return sessionId;
+    }
+
+    public Integer getCandidatId() {
+        return candidat != null ? candidat.getId() : null;
+    }
+
+    public Candidat getCandidat() {
+        return candidat;
+    }
+
+    public boolean isTempsEcoule() {
+        return tempsEcoule;
+    }
+
+    public EntreeClassement getEntree() {
+        return entree;
+    }
+}
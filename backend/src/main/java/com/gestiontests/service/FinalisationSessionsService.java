@@ -0,0 +1,300 @@
+package com.gestiontests.service;
+
+import com.gestiontests.entity.SessionTest;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Soumission et finalisation asynchrones des tests. L'enregistrement des réponses, le calcul du
+ * score et la clôture de la session sont exécutés par un nombre borné de travailleurs sur
+ * l'exécuteur géré, à partir d'une file de capacité bornée ; le thread HTTP rend la main tout de
+ * suite et le client suit l'état de la finalisation de sa session. L'état suivi ici est local au
+ * nœud qui a reçu la soumission ; ailleurs, la ligne de la session fait foi.
+ */
+@ApplicationScoped
+public class FinalisationSessionsService {
+
+    // Finalisations exécutées en parallèle (chacune tient une connexion pendant le calcul du score)
+    private static final int PARALLELISME = 4;
+
+    private static final int CAPACITE_FILE = 500;
+
+    // Durée de conservation de l'état d'une finalisation terminée
+    private static final long CONSERVATION_MS = 10 * 60_000;
+
+    @Inject
+    private TestService testService;
+
+    @Inject
+    private ReprisesConflitsService reprisesConflitsService;
+
+    @Resource
+    private ManagedExecutorService executeur;
+
+    private final ArrayBlockingQueue<Runnable> file = new ArrayBlockingQueue<>(CAPACITE_FILE);
+    private final AtomicInteger travailleurs = new AtomicInteger();
+    private final ConcurrentHashMap<Integer, Finalisation> finalisations = new ConcurrentHashMap<>();
+
+    private final AtomicLong soumises = new AtomicLong();
+    private final AtomicLong refusees = new AtomicLong();
+
+    /**
+     * Met en file la soumission des réponses puis la finalisation de la session ; une demande encore
+     * en attente ou en cours pour la même session est renvoyée telle quelle. Une finalisation achevée
+     * n'est pas réutilisée : la session a pu être réinitialisée et repassée depuis, et la nouvelle
+     * exécution relit son état en base (terminerTest rend la session déjà terminée sans la recalculer).
+     *
+     * @return la finalisation, ou null si la file est pleine
+     */
+    public Finalisation soumettre(Integer sessionId, Map<String, Object> reponses) {
+        purger();
+        Finalisation nouvelle = new Finalisation(sessionId);
+        Finalisation existante = finalisations.putIfAbsent(sessionId, nouvelle);
+        if (existante != null && !existante.estAchevee()) {
+            return existante;
+        }
+        if (existante != null && !finalisations.replace(sessionId, existante, nouvelle)) {
+            // Une autre soumission a pris la place entre-temps
+            Finalisation concurrente = finalisations.get(sessionId);
+            return concurrente != null ? concurrente : soumettre(sessionId, reponses);
+        }
+
+        if (!file.offer(() -> executer(nouvelle, reponses))) {
+            finalisations.remove(sessionId, nouvelle);
+            refusees.incrementAndGet();
+            return null;
+        }
+        soumises.incrementAndGet();
+        demarrerTravailleurs();
+        return nouvelle;
+    }
+
+    /**
+     * État de la finalisation d'une session ; sans état local (soumission reçue par un autre nœud,
+     * ou état purgé), il est déduit de la ligne de la session
+     *
+     * @return la finalisation, ou null si la session n'existe pas ou n'a pas démarré
+     */
+    public Finalisation getFinalisation(Integer sessionId) {
+        Finalisation finalisation = finalisations.get(sessionId);
+        if (finalisation != null) {
+            return finalisation;
+        }
+        return testService.getSessionById(sessionId).map(this::depuisSession).orElse(null);
+    }
+
+    private Finalisation depuisSession(SessionTest session) {
+        Finalisation finalisation = new Finalisation(session.getId(), false);
+        if (Boolean.TRUE.equals(session.getEstTermine())) {
+            finalisation.statut = Statut.TERMINEE;
+            finalisation.termineeA = System.currentTimeMillis();
+            finalisation.resultat.complete(session);
+            return finalisation;
+        }
+        if (session.getDateDebut() == null) {
+            return null;
+        }
+        // Démarrée et pas encore terminée : la finalisation est en cours ailleurs (ou la session expirera)
+        finalisation.statut = Statut.EN_COURS;
+        return finalisation;
+    }
+
+    /**
+     * Une session réinitialisée (reprise ou remise à zéro par un administrateur) oublie sa
+     * finalisation achevée, dont le score n'a plus cours
+     */
+    void surReinitialisation(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReinitialisationSessions evenement) {
+        for (Integer sessionId : evenement.getSessionIds()) {
+            finalisations.computeIfPresent(sessionId, (id, f) -> f.estAchevee() ? null : f);
+        }
+    }
+
+    public Map<String, Object> getMetriques() {
+        Map<String, Object> metriques = new LinkedHashMap<>();
+        metriques.put("enFile", file.size());
+        metriques.put("travailleursActifs", travailleurs.get());
+        metriques.put("parallelisme", PARALLELISME);
+        metriques.put("soumises", soumises.get());
+        metriques.put("refusees", refusees.get());
+        metriques.put("suivies", finalisations.size());
+        return metriques;
+    }
+
+    private void demarrerTravailleurs() {
+        while (!file.isEmpty()) {
+            int actifs = travailleurs.get();
+            if (actifs >= PARALLELISME) {
+                return;
+            }
+            if (travailleurs.compareAndSet(actifs, actifs + 1)) {
+                try {
+                    executeur.execute(this::vider);
+                } catch (RuntimeException e) {
+                    travailleurs.decrementAndGet();
+                    System.err.println("Démarrage d'un travailleur de finalisation impossible: " + e.getMessage());
+                    return;
+                }
+            }
+        }
+    }
+
+    private void vider() {
+        try {
+            Runnable tache;
+            while ((tache = file.poll()) != null) {
+                tache.run();
+            }
+        } finally {
+            travailleurs.decrementAndGet();
+        }
+        // Une tâche a pu arriver entre le dernier poll et la sortie
+        demarrerTravailleurs();
+    }
+
+    private void executer(Finalisation finalisation, Map<String, Object> reponses) {
+        finalisation.statut = Statut.EN_COURS;
+        try {
+            if (reponses != null) {
+                enregistrerReponses(finalisation.sessionId, reponses);
+            }
+            SessionTest session = reprisesConflitsService.executer("terminerTest",
+                () -> testService.terminerTest(finalisation.sessionId));
+            finalisation.statut = Statut.TERMINEE;
+            finalisation.termineeA = System.currentTimeMillis();
+            finalisation.resultat.complete(session);
+        } catch (Exception | Error e) {
+            finalisation.erreur = e.getMessage();
+            finalisation.statut = Statut.ECHOUEE;
+            finalisation.termineeA = System.currentTimeMillis();
+            finalisation.resultat.completeExceptionally(e);
+            System.err.println("Finalisation de la session " + finalisation.sessionId + " impossible: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Enregistre les réponses soumises (identifiant de question -> réponse), chacune dans sa transaction
+     */
+    private void enregistrerReponses(Integer sessionId, Map<String, Object> answers) {
+        for (Map.Entry<String, Object> entry : answers.entrySet()) {
+            // Convertir l'ID de question de String à Integer
+            Integer questionId;
+            try {
+                questionId = Integer.parseInt(entry.getKey());
+            } catch (NumberFormatException e) {
+                System.err.println("ID de question invalide: " + entry.getKey());
+                continue;
+            }
+
+            Object answer = entry.getValue();
+            Map<String, Object> reponseData = new HashMap<>();
+            if (answer instanceof Integer) {
+                // Réponse à choix (ID de la réponse possible)
+                reponseData.put("reponsePossibleId", answer);
+            } else if (answer instanceof String) {
+                // Réponse textuelle
+                reponseData.put("reponseText", answer);
+            } else if (answer instanceof List) {
+                // Réponses multiples (liste d'IDs) : chaque réponse est enregistrée
+                @SuppressWarnings("unchecked")
+                List<Integer> reponseIds = (List<Integer>) answer;
+                if (!reponseIds.isEmpty()) {
+                    for (Integer reponseId : reponseIds) {
+                        reponseData.put("reponsePossibleId", reponseId);
+                        enregistrer(sessionId, questionId, reponseData);
+                    }
+                    continue;
+                }
+            }
+            enregistrer(sessionId, questionId, reponseData);
+        }
+    }
+
+    private void enregistrer(Integer sessionId, Integer questionId, Map<String, Object> reponseData) {
+        try {
+            // Instant d'arrivée fixé une fois pour toutes les tentatives (règle de fusion)
+            LocalDateTime recueA = LocalDateTime.now();
+            reprisesConflitsService.executer("enregistrerReponse",
+                () -> testService.enregistrerReponse(sessionId, questionId, reponseData, recueA));
+        } catch (Exception e) {
+            // Continuer avec les autres réponses
+            System.err.println("Erreur lors de l'enregistrement de la réponse pour la question " + questionId + ": " + e.getMessage());
+        }
+    }
+
+    private void purger() {
+        long limite = System.currentTimeMillis() - CONSERVATION_MS;
+        finalisations.values().removeIf(f -> f.termineeA > 0 && f.termineeA < limite);
+    }
+
+    public enum Statut {
+        EN_ATTENTE, EN_COURS, TERMINEE, ECHOUEE
+    }
+
+    /**
+     * État d'une finalisation ; le résultat est la session terminée
+     */
+    public static final class Finalisation {
+
+        private final Integer sessionId;
+        private final LocalDateTime dateDemande = LocalDateTime.now();
+        private final CompletableFuture<SessionTest> resultat = new CompletableFuture<>();
+        private volatile Statut statut = Statut.EN_ATTENTE;
+        private volatile String erreur;
+        private volatile long termineeA = 0;
+
+        // Faux pour un état déduit de la ligne de la session, dont le résultat n'est jamais attendu ici
+        private final boolean locale;
+
+        Finalisation(Integer sessionId) {
+            this(sessionId, true);
+        }
+
+        private Finalisation(Integer sessionId, boolean locale) {
+            this.sessionId = sessionId;
+            this.locale = locale;
+        }
+
+        public Integer getSessionId() {
+            return sessionId;
+        }
+
+        public Statut getStatut() {
+            return statut;
+        }
+
+        public String getErreur() {
+            return erreur;
+        }
+
+        public LocalDateTime getDateDemande() {
+            return dateDemande;
+        }
+
+        public CompletableFuture<SessionTest> getResultat() {
+            return resultat;
+        }
+
+        public boolean isLocale() {
+            return locale;
+        }
+
+        boolean estAchevee() {
+            return statut == Statut.TERMINEE || statut == Statut.ECHOUEE;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.gestiontests.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gestiontests.config.JacksonConfiguration;
+import com.gestiontests.entity.CleIdempotence;
+import com.gestiontests.repository.CleIdempotenceRepository;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.BeforeDestroyed;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Clés d'idempotence des requêtes répétées par le client (réseaux instables) : la réponse réussie
+ * d'une requête porteuse d'une clé est mémorisée (table bornée en mémoire avec expiration, et base
+ * pour les autres nœuds et les redémarrages) puis renvoyée aux répétitions sans retraiter la requête.
+ * Une répétition arrivant pendant le traitement de l'original attend son résultat, puis reçoit 409
+ * si l'original n'a pas fini à temps. L'empreinte du corps est mémorisée avec la clé : une requête
+ * réutilisant la clé avec un autre corps reçoit 422 au lieu de la réponse d'une autre requête.
+ */
+@ApplicationScoped
+public class IdempotenceService {
+
+    public static final String EN_TETE = "Idempotency-Key";
+
+    private static final int LONGUEUR_MAX_CLE = 100;
+    private static final int CAPACITE_MEMOIRE = 10_000;
+    private static final long DUREE_VIE_HEURES = 24;
+    private static final long ATTENTE_ORIGINAL_S = 15;
+
+    @Inject
+    private CleIdempotenceRepository cleIdempotenceRepository;
+
+    @Resource
+    private ManagedScheduledExecutorService planificateur;
+
+    private final ObjectMapper mapper = new JacksonConfiguration().getContext(Object.class);
+
+    // Sérialisation canonique des corps (clés triées) pour le calcul des empreintes
+    private final ObjectMapper mapperEmpreintes = new JacksonConfiguration().getContext(Object.class).copy()
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    // Réponses récentes, les moins récemment utilisées évincées en premier
+    private final LinkedHashMap<String, ReponseMemorisee> memoire = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock verrou = new ReentrantLock();
+
+    // Requêtes en cours de traitement, par clé
+    private final ConcurrentHashMap<String, TraitementEnCours> enCours = new ConcurrentHashMap<>();
+
+    private final AtomicLong rejouees = new AtomicLong();
+    private final AtomicLong traitees = new AtomicLong();
+
+    private ScheduledFuture<?> tachePurge;
+
+    void auDemarrage(@Observes @Initialized(ApplicationScoped.class) Object evenement) {
+        tachePurge = planificateur.scheduleWithFixedDelay(this::purger, 1, 1, TimeUnit.HOURS);
+    }
+
+    void avantArret(@Observes @BeforeDestroyed(ApplicationScoped.class) Object evenement) {
+        if (tachePurge != null) {
+            tachePurge.cancel(false);
+        }
+    }
+
+    /**
+     * Exécute le traitement, ou renvoie la réponse mémorisée si la clé a déjà été traitée dans cette portée
+     *
+     * @param cle clé fournie par le client (sans clé, le traitement est toujours exécuté)
+     * @param portee opération et ressource visées, pour qu'une clé ne serve qu'à une seule requête
+     * @param corps corps de la requête, comparé à celui de la requête d'origine
+     */
+    public Response executer(String cle, String portee, Object corps, Supplier<Response> traitement) {
+        if (cle == null || cle.isBlank()) {
+            return traitement.get();
+        }
+        if (cle.length() > LONGUEUR_MAX_CLE) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("error", "Clé d'idempotence trop longue (" + LONGUEUR_MAX_CLE + " caractères au plus)"))
+                .build();
+        }
+
+        String cleComplete = portee + ":" + cle;
+        String empreinte = empreinte(corps);
+        ReponseMemorisee connue = trouverEnMemoire(cleComplete);
+        if (connue != null) {
+            return rejouerSiMemeCorps(connue, empreinte);
+        }
+
+        TraitementEnCours nouveau = new TraitementEnCours(empreinte);
+        TraitementEnCours original = enCours.putIfAbsent(cleComplete, nouveau);
+        if (original != null) {
+            if (!Objects.equals(original.empreinte, empreinte)) {
+                return corpsDifferent();
+            }
+            ReponseMemorisee resultat;
+            try {
+                resultat = original.resultat.get(ATTENTE_ORIGINAL_S, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return originalEnCours();
+            } catch (TimeoutException | ExecutionException e) {
+                // Jamais de second traitement en parallèle de l'original
+                return originalEnCours();
+            }
+            // Original en erreur (rien de mémorisé) : la répétition est une nouvelle tentative légitime
+            return resultat != null ? rejouer(resultat) : executer(cle, portee, corps, traitement);
+        }
+
+        ReponseMemorisee memorisee = null;
+        try {
+            Optional<CleIdempotence> enBase = cleIdempotenceRepository.findByCleCreeeApres(cleComplete,
+                LocalDateTime.now().minusHours(DUREE_VIE_HEURES));
+            if (enBase.isPresent()) {
+                memorisee = new ReponseMemorisee(enBase.get().getStatutHttp(), enBase.get().getReponse(),
+                    enBase.get().getEmpreinte(),
+                    enBase.get().getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                mettreEnMemoire(cleComplete, memorisee);
+                return rejouerSiMemeCorps(memorisee, empreinte);
+            }
+
+            traitees.incrementAndGet();
+            Response reponse = traitement.get();
+            memorisee = memoriser(cleComplete, empreinte, reponse);
+            return reponse;
+        } finally {
+            nouveau.resultat.complete(memorisee);
+            enCours.remove(cleComplete, nouveau);
+        }
+    }
+
+    public Map<String, Object> getMetriques() {
+        Map<String, Object> metriques = new LinkedHashMap<>();
+        verrou.lock();
+        try {
+            metriques.put("clesEnMemoire", memoire.size());
+        } finally {
+            verrou.unlock();
+        }
+        metriques.put("traitementsEnCours", enCours.size());
+        metriques.put("requetesTraitees", traitees.get());
+        metriques.put("requetesRejouees", rejouees.get());
+        return metriques;
+    }
+
+    /**
+     * Seules les réponses réussies et définitives sont mémorisées (pas les erreurs ni les 202)
+     */
+    private ReponseMemorisee memoriser(String cleComplete, String empreinte, Response reponse) {
+        int statut = reponse.getStatus();
+        if (statut < 200 || statut >= 300 || statut == Response.Status.ACCEPTED.getStatusCode()) {
+            return null;
+        }
+        try {
+            String corps = mapper.writeValueAsString(reponse.getEntity());
+            ReponseMemorisee memorisee = new ReponseMemorisee(statut, corps, empreinte, System.currentTimeMillis());
+            mettreEnMemoire(cleComplete, memorisee);
+            cleIdempotenceRepository.sauvegarder(cleComplete, empreinte, statut, corps);
+            return memorisee;
+        } catch (Exception e) {
+            System.err.println("Mémorisation de la clé d'idempotence impossible: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Response rejouer(ReponseMemorisee memorisee) {
+        rejouees.incrementAndGet();
+        return Response.status(memorisee.statut)
+            .entity(memorisee.corps)
+            .type(MediaType.APPLICATION_JSON_TYPE)
+            .header("Idempotent-Replayed", "true")
+            .build();
+    }
+
+    // Clés mémorisées avant l'ajout des empreintes (empreinte nulle) : rejouées sans comparaison
+    private Response rejouerSiMemeCorps(ReponseMemorisee memorisee, String empreinte) {
+        if (memorisee.empreinte != null && !memorisee.empreinte.equals(empreinte)) {
+            return corpsDifferent();
+        }
+        return rejouer(memorisee);
+    }
+
+    private static Response originalEnCours() {
+        return Response.status(Response.Status.CONFLICT)
+            .header("Retry-After", 2)
+            .entity(Map.of("error", "La requête d'origine est encore en cours de traitement, veuillez réessayer"))
+            .build();
+    }
+
+    private static Response corpsDifferent() {
+        return Response.status(422)
+            .entity(Map.of("error", "Clé d'idempotence déjà utilisée pour une requête différente"))
+            .build();
+    }
+
+    /**
+     * SHA-256 hexadécimal de la forme JSON canonique du corps
+     */
+    private String empreinte(Object corps) {
+        try {
+            byte[] octets = mapperEmpreintes.writeValueAsString(corps).getBytes(StandardCharsets.UTF_8);
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(octets)) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Empreinte du corps de la requête impossible: " + e.getMessage(), e);
+        }
+    }
+
+    private ReponseMemorisee trouverEnMemoire(String cleComplete) {
+        verrou.lock();
+        try {
+            ReponseMemorisee memorisee = memoire.get(cleComplete);
+            if (memorisee != null && memorisee.estExpiree()) {
+                memoire.remove(cleComplete);
+                return null;
+            }
+            return memorisee;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private void mettreEnMemoire(String cleComplete, ReponseMemorisee memorisee) {
+        verrou.lock();
+        try {
+            memoire.put(cleComplete, memorisee);
+            if (memoire.size() > CAPACITE_MEMOIRE) {
+                memoire.remove(memoire.keySet().iterator().next());
+            }
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private void purger() {
+        try {
+            verrou.lock();
+            try {
+                memoire.values().removeIf(ReponseMemorisee::estExpiree);
+            } finally {
+                verrou.unlock();
+            }
+            int supprimees = cleIdempotenceRepository.supprimerCreeesAvant(LocalDateTime.now().minusHours(DUREE_VIE_HEURES));
+            if (supprimees > 0) {
+                System.out.println("Clés d'idempotence expirées supprimées: " + supprimees);
+            }
+        } catch (Exception e) {
+            System.err.println("Purge des clés d'idempotence impossible: " + e.getMessage());
+        }
+    }
+
+    private static final class TraitementEnCours {
+        private final String empreinte;
+        private final CompletableFuture<ReponseMemorisee> resultat = new CompletableFuture<>();
+
+        TraitementEnCours(String empreinte) {
+            this.empreinte = empreinte;
+        }
+    }
+
+    private static final class ReponseMemorisee {
+        private final int statut;
+        private final String corps;
+        private final String empreinte;
+        private final long creeeA;
+
+        ReponseMemorisee(int statut, String corps, String empreinte, long creeeA) {
+            this.statut = statut;
+            this.corps = corps;
+            this.empreinte = empreinte;
+            this.creeeA = creeeA;
+        }
+
+        boolean estExpiree() {
+            return System.currentTimeMillis() - creeeA > TimeUnit.HOURS.toMillis(DUREE_VIE_HEURES);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.gestiontests.service;
+
+import com.gestiontests.repository.CandidatRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Index inversé en mémoire (trigrammes) sur nom, prénom, école et email des candidats.
+ * Remplace les LIKE '%terme%' : insensible aux accents et à la casse, gère la recherche
+ * par préfixe (1 ou 2 caractères) et par sous-chaîne (3 caractères et plus).
+ */
+@ApplicationScoped
+public class IndexRechercheCandidats {
+
+    private static final Pattern SEPARATEURS = Pattern.compile("[^a-z0-9]+");
+
+    @Inject
+    private CandidatRepository candidatRepository;
+
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    // Trigramme -> identifiants des candidats (tableau trié)
+    private final Map<String, ListePostings> postings = new HashMap<>();
+
+    // Texte normalisé indexé pour chaque candidat (vérification et désindexation)
+    private final Map<Integer, String> documents = new HashMap<>();
+
+    private volatile boolean construit = false;
+
+    // Modifications validées pendant une reconstruction (sous le verrou) : rejouées sur l'index
+    // reconstruit, dont l'instantané a pu être lu avant elles
+    private int reconstructionsEnCours = 0;
+    private final List<ModificationCandidat> modificationsPendantReconstruction = new ArrayList<>();
+
+    void auDemarrage(@Observes @Initialized(ApplicationScoped.class) Object evenement) {
+        try {
+            reconstruire();
+        } catch (Exception e) {
+            // L'index sera construit à la première recherche
+            System.err.println("Construction de l'index des candidats différée: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruit l'index complet depuis la base
+     */
+    public void reconstruire() {
+        verrou.writeLock().lock();
+        try {
+            reconstructionsEnCours++;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        List<Object[]> lignes;
+        try {
+            lignes = candidatRepository.findChampsRecherche();
+        } catch (RuntimeException e) {
+            terminerReconstruction();
+            throw e;
+        }
+        verrou.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            for (Object[] ligne : lignes) {
+                indexerSansVerrou((Integer) ligne[0], (String) ligne[1], (String) ligne[2],
+                    (String) ligne[3], (String) ligne[4]);
+            }
+            for (ModificationCandidat modification : modificationsPendantReconstruction) {
+                appliquerSansVerrou(modification);
+            }
+            construit = true;
+        } finally {
+            verrou.writeLock().unlock();
+            terminerReconstruction();
+        }
+        System.out.println("Index de recherche des candidats construit: " + lignes.size() + " candidats");
+    }
+
+    /**
+     * Ajoute, remplace ou retire un candidat une fois la transaction validée
+     */
+    void surModificationCandidat(@Observes(during = TransactionPhase.AFTER_SUCCESS) ModificationCandidat evenement) {
+        if (evenement.getCandidatId() == null) {
+            return;
+        }
+        verrou.writeLock().lock();
+        try {
+            appliquerSansVerrou(evenement);
+            if (reconstructionsEnCours > 0) {
+                modificationsPendantReconstruction.add(evenement);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    private void appliquerSansVerrou(ModificationCandidat modification) {
+        supprimerSansVerrou(modification.getCandidatId());
+        if (!modification.isSupprime()) {
+            indexerSansVerrou(modification.getCandidatId(), modification.getNom(), modification.getPrenom(),
+                modification.getEcole(), modification.getEmail());
+        }
+    }
+
+    private void terminerReconstruction() {
+        verrou.writeLock().lock();
+        try {
+            if (--reconstructionsEnCours == 0) {
+                modificationsPendantReconstruction.clear();
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    public void supprimer(Integer candidatId) {
+        if (candidatId == null) {
+            return;
+        }
+        verrou.writeLock().lock();
+        try {
+            supprimerSansVerrou(candidatId);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Identifiants des candidats correspondant à tous les mots du terme, par id décroissant
+     */
+    public List<Integer> rechercher(String terme, int limite) {
+        if (!construit) {
+            reconstruire();
+        }
+
+        String normalise = NormalisationTexte.sansAccents(terme);
+        String[] mots = SEPARATEURS.split(normalise.trim());
+
+        verrou.readLock().lock();
+        try {
+            int[] resultat = null;
+            for (String mot : mots) {
+                if (mot.isEmpty()) {
+                    continue;
+                }
+                int[] ids = rechercherMot(mot);
+                resultat = resultat == null ? ids : intersection(resultat, ids);
+                if (resultat.length == 0) {
+                    break;
+                }
+            }
+            if (resultat == null) {
+                return new ArrayList<>();
+            }
+
+            List<Integer> ids = new ArrayList<>(Math.min(resultat.length, limite));
+            for (int i = resultat.length - 1; i >= 0 && ids.size() < limite; i--) {
+                ids.add(resultat[i]);
+            }
+            return ids;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    public int taille() {
+        verrou.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private int[] rechercherMot(String mot) {
+        // Préfixe court : gramme de début de mot (" j" ou " je")
+        if (mot.length() < 3) {
+            ListePostings liste = postings.get(" " + mot);
+            return liste != null ? liste.versTableau() : new int[0];
+        }
+
+        // Sous-chaîne : intersection des trigrammes puis vérification du texte
+        int[] candidats = null;
+        for (String gramme : trigrammes(mot)) {
+            ListePostings liste = postings.get(gramme);
+            if (liste == null) {
+                return new int[0];
+            }
+            candidats = candidats == null ? liste.versTableau() : intersection(candidats, liste.versTableau());
+            if (candidats.length == 0) {
+                return candidats;
+            }
+        }
+
+        int[] verifies = new int[candidats.length];
+        int n = 0;
+        for (int id : candidats) {
+            String document = documents.get(id);
+            if (document != null && document.contains(mot)) {
+                verifies[n++] = id;
+            }
+        }
+        return Arrays.copyOf(verifies, n);
+    }
+
+    private void indexerSansVerrou(Integer id, String nom, String prenom, String ecole, String email) {
+        // Les champs sont séparés par un espace : un trigramme ne chevauche jamais deux mots
+        String document = " " + String.join(" ",
+            normaliserMots(nom), normaliserMots(prenom), normaliserMots(ecole), normaliserMots(email)) + " ";
+        documents.put(id, document);
+        for (String gramme : grammesDocument(document)) {
+            postings.computeIfAbsent(gramme, g -> new ListePostings()).ajouter(id);
+        }
+    }
+
+    private void supprimerSansVerrou(Integer id) {
+        String document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (String gramme : grammesDocument(document)) {
+            ListePostings liste = postings.get(gramme);
+            if (liste != null) {
+                liste.retirer(id);
+                if (liste.estVide()) {
+                    postings.remove(gramme);
+                }
+            }
+        }
+    }
+
+    /**
+     * Trigrammes du document, plus le bigramme de début de chaque mot pour les préfixes d'un caractère
+     */
+    private Set<String> grammesDocument(String document) {
+        Set<String> grammes = new LinkedHashSet<>(trigrammes(document));
+        for (int i = 0; i + 1 < document.length(); i++) {
+            if (document.charAt(i) == ' ' && document.charAt(i + 1) != ' ') {
+                grammes.add(document.substring(i, i + 2));
+            }
+        }
+        return grammes;
+    }
+
+    private Set<String> trigrammes(String texte) {
+        Set<String> grammes = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= texte.length(); i++) {
+            grammes.add(texte.substring(i, i + 3));
+        }
+        return grammes;
+    }
+
+    private String normaliserMots(String valeur) {
+        return SEPARATEURS.matcher(NormalisationTexte.sansAccents(valeur)).replaceAll(" ").trim();
+    }
+
+    private static int[] intersection(int[] a, int[] b) {
+        int[] resultat = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                resultat[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(resultat, n);
+    }
+
+    /**
+     * Liste de postings : tableau d'entiers trié, sans doublon
+     */
+    private static final class ListePostings {
+        private int[] ids = new int[4];
+        private int taille = 0;
+
+        void ajouter(int id) {
+            int position = Arrays.binarySearch(ids, 0, taille, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (taille == ids.length) {
+                ids = Arrays.copyOf(ids, taille * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, taille - position);
+            ids[position] = id;
+            taille++;
+        }
+
+        void retirer(int id) {
+            int position = Arrays.binarySearch(ids, 0, taille, id);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(ids, position + 1, ids, position, taille - position - 1);
+            taille--;
+        }
+
+        boolean estVide() {
+            return taille == 0;
+        }
+
+        int[] versTableau() {
+            return Arrays.copyOf(ids, taille);
+        }
+    }
+}
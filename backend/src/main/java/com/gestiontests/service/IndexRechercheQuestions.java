@@ -0,0 +1,318 @@
+package com.gestiontests.service;
+
+import com.gestiontests.repository.QuestionRepository;
+import com.gestiontests.repository.ReponsePossibleRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Index plein texte en mémoire de la banque de questions (libellé, explication, réponses possibles).
+ * Les mots sont repliés sans accents, filtrés des mots vides et racinisés (racinisation légère du
+ * français) ; les résultats sont classés par BM25 avec un poids par champ.
+ */
+@ApplicationScoped
+public class IndexRechercheQuestions {
+
+    private static final Pattern SEPARATEURS = Pattern.compile("[^a-z0-9]+");
+
+    private static final Set<String> MOTS_VIDES = Set.of(
+        "le", "la", "les", "l", "un", "une", "des", "de", "du", "d", "et", "ou", "a", "au", "aux",
+        "en", "dans", "pour", "par", "sur", "avec", "sans", "est", "sont", "que", "qui", "quoi",
+        "quel", "quelle", "quels", "quelles", "ce", "cet", "cette", "ces", "il", "elle", "on", "ne",
+        "pas", "se", "sa", "son", "ses", "leur", "leurs", "y", "c", "s", "qu", "n", "the", "of", "is"
+    );
+
+    // Poids des champs dans la fréquence pondérée d'un terme
+    private static final float POIDS_LIBELLE = 3.0f;
+    private static final float POIDS_REPONSE = 2.0f;
+    private static final float POIDS_EXPLICATION = 1.0f;
+
+    // Paramètres BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    public static final double SEUIL_DOUBLON = 0.8;
+
+    @Inject
+    private QuestionRepository questionRepository;
+
+    @Inject
+    private ReponsePossibleRepository reponsePossibleRepository;
+
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    // Terme -> (question -> fréquence pondérée)
+    private final Map<String, Map<Integer, Float>> postings = new HashMap<>();
+
+    // Question -> termes indexés avec leur fréquence pondérée (désindexation)
+    private final Map<Integer, Map<String, Float>> documents = new HashMap<>();
+
+    // Question -> longueur pondérée du document (normalisation BM25)
+    private final Map<Integer, Float> longueurs = new HashMap<>();
+
+    // Question -> ensemble des termes du libellé (détection de doublons)
+    private final Map<Integer, Set<String>> termesLibelle = new HashMap<>();
+
+    private double longueurTotale = 0;
+
+    private volatile boolean construit = false;
+
+    void auDemarrage(@Observes @Initialized(ApplicationScoped.class) Object evenement) {
+        try {
+            reconstruire();
+        } catch (Exception e) {
+            System.err.println("Construction de l'index des questions différée: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruit l'index complet depuis la base (deux projections, sans charger les entités)
+     */
+    public void reconstruire() {
+        List<Object[]> questions = questionRepository.findChampsRecherche();
+        Map<Integer, List<String>> reponsesParQuestion = new HashMap<>();
+        for (Object[] ligne : reponsePossibleRepository.findLibellesParQuestion()) {
+            reponsesParQuestion.computeIfAbsent((Integer) ligne[0], id -> new ArrayList<>()).add((String) ligne[1]);
+        }
+
+        verrou.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            longueurs.clear();
+            termesLibelle.clear();
+            longueurTotale = 0;
+            for (Object[] ligne : questions) {
+                Integer id = (Integer) ligne[0];
+                indexerSansVerrou(id, (String) ligne[1], (String) ligne[2],
+                    reponsesParQuestion.getOrDefault(id, List.of()));
+            }
+            construit = true;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        System.out.println("Index de recherche des questions construit: " + questions.size() + " questions");
+    }
+
+    /**
+     * Ajoute, remplace ou retire une question une fois la transaction validée : une écriture
+     * annulée ne laisse ni question fantôme ni question perdue dans l'index
+     */
+    void surModificationBanque(@Observes(during = TransactionPhase.AFTER_SUCCESS) ModificationBanqueQuestions evenement) {
+        if (evenement.isSupprimee()) {
+            supprimer(evenement.getQuestionId());
+        } else {
+            indexer(evenement.getQuestionId(), evenement.getLibelle(), evenement.getExplication(),
+                evenement.getReponses());
+        }
+    }
+
+    /**
+     * Ajoute ou remplace une question dans l'index
+     */
+    public void indexer(Integer questionId, String libelle, String explication, List<String> reponses) {
+        if (questionId == null) {
+            return;
+        }
+        verrou.writeLock().lock();
+        try {
+            supprimerSansVerrou(questionId);
+            indexerSansVerrou(questionId, libelle, explication, reponses);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    public void supprimer(Integer questionId) {
+        verrou.writeLock().lock();
+        try {
+            supprimerSansVerrou(questionId);
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Questions classées par score BM25 décroissant (identifiant -> score)
+     */
+    public Map<Integer, Double> rechercher(String texte, int limite) {
+        if (!construit) {
+            reconstruire();
+        }
+        Set<String> termes = new HashSet<>(analyser(texte));
+
+        verrou.readLock().lock();
+        try {
+            int nombreDocuments = documents.size();
+            if (termes.isEmpty() || nombreDocuments == 0) {
+                return new LinkedHashMap<>();
+            }
+            double longueurMoyenne = longueurTotale / nombreDocuments;
+
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String terme : termes) {
+                Map<Integer, Float> liste = postings.get(terme);
+                if (liste == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (nombreDocuments - liste.size() + 0.5) / (liste.size() + 0.5));
+                for (Map.Entry<Integer, Float> entree : liste.entrySet()) {
+                    double tf = entree.getValue();
+                    double longueur = longueurs.getOrDefault(entree.getKey(), 0f);
+                    double score = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * longueur / longueurMoyenne));
+                    scores.merge(entree.getKey(), score, Double::sum);
+                }
+            }
+
+            Map<Integer, Double> resultat = new LinkedHashMap<>();
+            scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed())
+                .limit(limite)
+                .forEach(e -> resultat.put(e.getKey(), Math.round(e.getValue() * 1000.0) / 1000.0));
+            return resultat;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Questions dont le libellé est quasi identique (similarité de Jaccard sur les termes >= seuil)
+     */
+    public Map<Integer, Double> trouverDoublons(String libelle, Integer exclureId) {
+        if (!construit) {
+            reconstruire();
+        }
+        Set<String> termes = new HashSet<>(analyser(libelle));
+        Map<Integer, Double> doublons = new LinkedHashMap<>();
+        if (termes.isEmpty()) {
+            return doublons;
+        }
+
+        verrou.readLock().lock();
+        try {
+            // Seules les questions partageant au moins un terme sont comparées
+            Set<Integer> candidates = new HashSet<>();
+            for (String terme : termes) {
+                Map<Integer, Float> liste = postings.get(terme);
+                if (liste != null) {
+                    candidates.addAll(liste.keySet());
+                }
+            }
+            candidates.remove(exclureId);
+
+            Map<Integer, Double> similarites = new HashMap<>();
+            for (Integer id : candidates) {
+                Set<String> autres = termesLibelle.get(id);
+                if (autres == null || autres.isEmpty()) {
+                    continue;
+                }
+                long communs = termes.stream().filter(autres::contains).count();
+                double jaccard = (double) communs / (termes.size() + autres.size() - communs);
+                if (jaccard >= SEUIL_DOUBLON) {
+                    similarites.put(id, Math.round(jaccard * 100.0) / 100.0);
+                }
+            }
+            similarites.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed())
+                .forEach(e -> doublons.put(e.getKey(), e.getValue()));
+            return doublons;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private void indexerSansVerrou(Integer id, String libelle, String explication, List<String> reponses) {
+        Map<String, Float> frequences = new HashMap<>();
+        List<String> termesDuLibelle = analyser(libelle);
+        ajouterTermes(frequences, termesDuLibelle, POIDS_LIBELLE);
+        ajouterTermes(frequences, analyser(explication), POIDS_EXPLICATION);
+        for (String reponse : reponses) {
+            ajouterTermes(frequences, analyser(reponse), POIDS_REPONSE);
+        }
+
+        float longueur = 0;
+        for (Map.Entry<String, Float> entree : frequences.entrySet()) {
+            postings.computeIfAbsent(entree.getKey(), t -> new HashMap<>()).put(id, entree.getValue());
+            longueur += entree.getValue();
+        }
+        documents.put(id, frequences);
+        longueurs.put(id, longueur);
+        termesLibelle.put(id, new HashSet<>(termesDuLibelle));
+        longueurTotale += longueur;
+    }
+
+    private void supprimerSansVerrou(Integer id) {
+        Map<String, Float> frequences = documents.remove(id);
+        termesLibelle.remove(id);
+        Float longueur = longueurs.remove(id);
+        if (frequences == null) {
+            return;
+        }
+        for (String terme : frequences.keySet()) {
+            Map<Integer, Float> liste = postings.get(terme);
+            if (liste != null) {
+                liste.remove(id);
+                if (liste.isEmpty()) {
+                    postings.remove(terme);
+                }
+            }
+        }
+        longueurTotale -= longueur != null ? longueur : 0;
+    }
+
+    private void ajouterTermes(Map<String, Float> frequences, List<String> termes, float poids) {
+        for (String terme : termes) {
+            frequences.merge(terme, poids, Float::sum);
+        }
+    }
+
+    /**
+     * Découpe en mots, retire accents et mots vides, puis racinise
+     */
+    static List<String> analyser(String texte) {
+        List<String> termes = new ArrayList<>();
+        for (String mot : SEPARATEURS.split(NormalisationTexte.sansAccents(texte))) {
+            if (mot.isEmpty() || MOTS_VIDES.contains(mot)) {
+                continue;
+            }
+            termes.add(raciniser(mot));
+        }
+        return termes;
+    }
+
+    /**
+     * Racinisation légère du français : pluriels et suffixes flexionnels courants
+     */
+    static String raciniser(String mot) {
+        if (mot.length() <= 4 || Character.isDigit(mot.charAt(0))) {
+            return mot;
+        }
+        if (mot.endsWith("eaux")) {
+            return mot.substring(0, mot.length() - 1);
+        }
+        if (mot.endsWith("aux")) {
+            return mot.substring(0, mot.length() - 3) + "al";
+        }
+        String[] suffixes = {"ements", "ement", "ations", "ation", "euses", "euse", "ites", "ite",
+            "ees", "ee", "es", "s", "x", "er", "ez"};
+        for (String suffixe : suffixes) {
+            if (mot.endsWith(suffixe) && mot.length() - suffixe.length() >= 3) {
+                return mot.substring(0, mot.length() - suffixe.length());
+            }
+        }
+        return mot;
+    }
+}
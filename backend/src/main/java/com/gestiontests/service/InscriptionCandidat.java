@@ -0,0 +1,26 @@
+package com.gestiontests.service;
+
+import com.gestiontests.entity.Candidat;
+import com.gestiontests.entity.CreneauHoraire;
+
+/**
+ * Événement émis lorsqu'un candidat s'inscrit à un créneau (inscription en attente de validation)
+ */
+public class InscriptionCandidat {
+
+    private final Candidat candidat;
+    private final CreneauHoraire creneau;
+
+    public InscriptionCandidat(Candidat candidat, CreneauHoraire creneau) {
+        this.candidat = candidat;
+        this.creneau = creneau;
+    }
+
+    public Candidat getCandidat() {
+        return candidat;
+    }
+
+    public CreneauHoraire getCreneau() {
+        return creneau;
+    }
+}
@@ -0,0 +1,160 @@
+package com.gestiontests.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.container.Suspended;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latences (HdrHistogram, en microsecondes), requêtes en cours et statuts HTTP par route, la
+ * route étant le gabarit du chemin (/admin/questions/{id}) et non l'URL appelée. Chaque route
+ * est créée à son premier appel ; ensuite l'enregistrement d'une requête n'alloue rien.
+ */
+@ApplicationScoped
+public class MetriquesHttpService {
+
+    private static final long LATENCE_MAX_US = TimeUnit.MINUTES.toMicros(10);
+
+    // Requêtes qu'aucune méthode de ressource n'a prises en charge (404, 405, pré-vérifications CORS)
+    private final MesureRoute nonResolue = new MesureRoute("*", "non_resolue", false);
+
+    private final ConcurrentHashMap<Method, MesureRoute> parMethode = new ConcurrentHashMap<>();
+
+    /**
+     * Mesure de la route servie par la méthode de ressource donnée (null si aucune)
+     */
+    public MesureRoute route(Method methode) {
+        if (methode == null) {
+            return nonResolue;
+        }
+        // get avant computeIfAbsent : la lambda n'est créée qu'au premier appel de la route
+        MesureRoute route = parMethode.get(methode);
+        return route != null ? route : parMethode.computeIfAbsent(methode, MetriquesHttpService::creerRoute);
+    }
+
+    /**
+     * Routes triées par chemin puis par méthode HTTP, la route non résolue en dernier
+     */
+    public List<MesureRoute> getRoutes() {
+        List<MesureRoute> routes = new ArrayList<>(parMethode.values());
+        routes.sort(Comparator.comparing(MesureRoute::getChemin).thenComparing(MesureRoute::getMethodeHttp));
+        routes.add(nonResolue);
+        return routes;
+    }
+
+    private static MesureRoute creerRoute(Method methode) {
+        String methodeHttp = "*";
+        for (Annotation annotation : methode.getAnnotations()) {
+            HttpMethod httpMethod = annotation.annotationType().getAnnotation(HttpMethod.class);
+            if (httpMethod != null) {
+                methodeHttp = httpMethod.value();
+            }
+        }
+
+        boolean asynchrone = false;
+        for (Annotation[] annotations : methode.getParameterAnnotations()) {
+            for (Annotation annotation : annotations) {
+                asynchrone |= annotation instanceof Suspended;
+            }
+        }
+
+        Path cheminClasse = methode.getDeclaringClass().getAnnotation(Path.class);
+        Path cheminMethode = methode.getAnnotation(Path.class);
+        String chemin = joindre(cheminClasse != null ? cheminClasse.value() : "", cheminMethode != null ? cheminMethode.value() : "");
+        return new MesureRoute(methodeHttp, chemin, asynchrone);
+    }
+
+    private static String joindre(String debut, String fin) {
+        String chemin = ("/" + debut + "/" + fin).replaceAll("/+", "/");
+        return chemin.length() > 1 && chemin.endsWith("/") ? chemin.substring(0, chemin.length() - 1) : chemin;
+    }
+
+    public static final class MesureRoute {
+
+        private final String methodeHttp;
+        private final String chemin;
+        private final boolean asynchrone;
+
+        private final LongAdder enCours = new LongAdder();
+        private final LongAdder sommeMicros = new LongAdder();
+        // Index 1 à 5 : 1xx à 5xx
+        private final LongAdder[] parClasseStatut = new LongAdder[6];
+        private final Recorder latences = new Recorder(LATENCE_MAX_US, 3);
+
+        // Cumul depuis le démarrage, alimenté à chaque lecture par l'intervalle du Recorder
+        private final Histogram cumul = new Histogram(LATENCE_MAX_US, 3);
+        private Histogram intervalle;
+
+        MesureRoute(String methodeHttp, String chemin, boolean asynchrone) {
+            this.methodeHttp = methodeHttp;
+            this.chemin = chemin;
+            this.asynchrone = asynchrone;
+            for (int i = 0; i < parClasseStatut.length; i++) {
+                parClasseStatut[i] = new LongAdder();
+            }
+        }
+
+        public void debut() {
+            enCours.increment();
+        }
+
+        public void fin(long dureeNanos, int statut) {
+            enCours.decrement();
+            long micros = Math.max(0, Math.min(LATENCE_MAX_US, dureeNanos / 1000));
+            latences.recordValue(micros);
+            sommeMicros.add(micros);
+            compter(statut);
+        }
+
+        /**
+         * Réponse sans mesure de durée (requête non résolue ou filtre de requête non exécuté)
+         */
+        public void compter(int statut) {
+            parClasseStatut[Math.max(1, Math.min(5, statut / 100))].increment();
+        }
+
+        /**
+         * Copie des latences cumulées depuis le démarrage
+         */
+        public synchronized Histogram getLatences() {
+            intervalle = latences.getIntervalHistogram(intervalle);
+            cumul.add(intervalle);
+            return cumul.copy();
+        }
+
+        public long getSommeMicros() {
+            return sommeMicros.sum();
+        }
+
+        public long getEnCours() {
+            return enCours.sum();
+        }
+
+        public long getReponses(int classeStatut) {
+            return parClasseStatut[classeStatut].sum();
+        }
+
+        public String getMethodeHttp() {
+            return methodeHttp;
+        }
+
+        public String getChemin() {
+            return chemin;
+        }
+
+        public boolean isAsynchrone() {
+            return asynchrone;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.gestiontests.service;
+
+import com.gestiontests.config.RoutageSourceDonnees;
+import com.gestiontests.service.MetriquesHttpService.MesureRoute;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.HdrHistogram.Histogram;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Export au format texte Prometheus (0.0.4) : latences et statuts par route, JVM et GC, pools de
+ * connexions WildFly (JMX, statistiques de la source activées) et statistiques Hibernate.
+ * Les noms JVM et Hibernate reprennent ceux des exportateurs courants pour garder les tableaux
+ * de bord existants ; les métriques propres à l'application sont préfixées par gestiontests_.
+ */
+@ApplicationScoped
+public class MetriquesPrometheusService {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final String SOURCE_PRIMAIRE = "java:/MySqlDS";
+
+    // Attributs du MBean jboss.as:subsystem=datasources,data-source=...,statistics=pool
+    private static final String[][] ATTRIBUTS_POOL = {
+        {"inUseCount", "gestiontests_pool_connexions_utilisees", "gauge", "Connexions empruntées au pool"},
+        {"activeCount", "gestiontests_pool_connexions_actives", "gauge", "Connexions ouvertes par le pool"},
+        {"availableCount", "gestiontests_pool_connexions_disponibles", "gauge", "Connexions encore disponibles"},
+        {"idleCount", "gestiontests_pool_connexions_inactives", "gauge", "Connexions ouvertes non utilisées"},
+        {"maxUsedCount", "gestiontests_pool_connexions_max_utilisees", "gauge", "Plus grand nombre de connexions utilisées simultanément"},
+        {"waitCount", "gestiontests_pool_attentes", "gauge", "Requêtes en attente d'une connexion"},
+        {"timedOut", "gestiontests_pool_expirations_total", "counter", "Connexions fermées après expiration"},
+        {"blockingFailureCount", "gestiontests_pool_echecs_obtention_total", "counter", "Échecs d'obtention d'une connexion"},
+        {"createdCount", "gestiontests_pool_creations_total", "counter", "Connexions créées"},
+        {"destroyedCount", "gestiontests_pool_destructions_total", "counter", "Connexions détruites"}
+    };
+
+    @Inject
+    private MetriquesHttpService metriquesHttpService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public String exporter() {
+        StringBuilder sortie = new StringBuilder(32 * 1024);
+        ecrireHttp(sortie);
+        ecrireJvm(sortie);
+        ecrirePools(sortie);
+        ecrireHibernate(sortie);
+        return sortie.toString();
+    }
+
+    private void ecrireHttp(StringBuilder sortie) {
+        List<MesureRoute> routes = metriquesHttpService.getRoutes();
+
+        entete(sortie, "gestiontests_http_requetes_en_cours", "gauge", "Requêtes REST en cours de traitement");
+        for (MesureRoute route : routes) {
+            valeur(sortie, "gestiontests_http_requetes_en_cours", etiquettesRoute(route), route.getEnCours());
+        }
+
+        entete(sortie, "gestiontests_http_reponses_total", "counter", "Réponses REST par classe de statut HTTP");
+        for (MesureRoute route : routes) {
+            for (int classe = 1; classe <= 5; classe++) {
+                long reponses = route.getReponses(classe);
+                if (reponses > 0) {
+                    valeur(sortie, "gestiontests_http_reponses_total",
+                        etiquettesRoute(route) + ",statut=\"" + classe + "xx\"", reponses);
+                }
+            }
+        }
+
+        List<Histogram> latencesRoutes = new ArrayList<>(routes.size());
+        for (MesureRoute route : routes) {
+            latencesRoutes.add(route.getLatences());
+        }
+
+        entete(sortie, "gestiontests_http_duree_secondes", "summary", "Durée de traitement des requêtes REST depuis le démarrage");
+        for (int i = 0; i < routes.size(); i++) {
+            MesureRoute route = routes.get(i);
+            Histogram latences = latencesRoutes.get(i);
+            if (latences.getTotalCount() == 0) {
+                continue;
+            }
+            String etiquettes = etiquettesRoute(route);
+            for (double quantile : QUANTILES) {
+                valeur(sortie, "gestiontests_http_duree_secondes", etiquettes + ",quantile=\"" + quantile + "\"",
+                    latences.getValueAtPercentile(quantile * 100) / 1e6);
+            }
+            valeur(sortie, "gestiontests_http_duree_secondes_sum", etiquettes, route.getSommeMicros() / 1e6);
+            valeur(sortie, "gestiontests_http_duree_secondes_count", etiquettes, latences.getTotalCount());
+        }
+
+        entete(sortie, "gestiontests_http_duree_max_secondes", "gauge", "Durée maximale observée par route depuis le démarrage");
+        for (int i = 0; i < routes.size(); i++) {
+            Histogram latences = latencesRoutes.get(i);
+            if (latences.getTotalCount() > 0) {
+                valeur(sortie, "gestiontests_http_duree_max_secondes", etiquettesRoute(routes.get(i)), latences.getMaxValue() / 1e6);
+            }
+        }
+    }
+
+    private void ecrireJvm(StringBuilder sortie) {
+        MemoryMXBean memoire = ManagementFactory.getMemoryMXBean();
+        MemoryUsage tas = memoire.getHeapMemoryUsage();
+        MemoryUsage horsTas = memoire.getNonHeapMemoryUsage();
+
+        entete(sortie, "jvm_memory_bytes_used", "gauge", "Mémoire utilisée par zone");
+        valeur(sortie, "jvm_memory_bytes_used", "area=\"heap\"", tas.getUsed());
+        valeur(sortie, "jvm_memory_bytes_used", "area=\"nonheap\"", horsTas.getUsed());
+        entete(sortie, "jvm_memory_bytes_committed", "gauge", "Mémoire réservée par zone");
+        valeur(sortie, "jvm_memory_bytes_committed", "area=\"heap\"", tas.getCommitted());
+        valeur(sortie, "jvm_memory_bytes_committed", "area=\"nonheap\"", horsTas.getCommitted());
+        entete(sortie, "jvm_memory_bytes_max", "gauge", "Mémoire maximale par zone (-1 si non bornée)");
+        valeur(sortie, "jvm_memory_bytes_max", "area=\"heap\"", tas.getMax());
+        valeur(sortie, "jvm_memory_bytes_max", "area=\"nonheap\"", horsTas.getMax());
+
+        entete(sortie, "jvm_memory_pool_bytes_used", "gauge", "Mémoire utilisée par espace mémoire");
+        for (MemoryPoolMXBean espace : ManagementFactory.getMemoryPoolMXBeans()) {
+            valeur(sortie, "jvm_memory_pool_bytes_used", "pool=\"" + echapper(espace.getName()) + "\"", espace.getUsage().getUsed());
+        }
+
+        entete(sortie, "jvm_gc_collection_seconds", "summary", "Collectes et temps passé par ramasse-miettes");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String etiquettes = "gc=\"" + echapper(gc.getName()) + "\"";
+            valeur(sortie, "jvm_gc_collection_seconds_count", etiquettes, Math.max(0, gc.getCollectionCount()));
+            valeur(sortie, "jvm_gc_collection_seconds_sum", etiquettes, Math.max(0, gc.getCollectionTime()) / 1000.0);
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        entete(sortie, "jvm_threads_current", "gauge", "Threads vivants");
+        valeur(sortie, "jvm_threads_current", null, threads.getThreadCount());
+        entete(sortie, "jvm_threads_daemon", "gauge", "Threads démons vivants");
+        valeur(sortie, "jvm_threads_daemon", null, threads.getDaemonThreadCount());
+        entete(sortie, "jvm_threads_peak", "gauge", "Plus grand nombre de threads vivants");
+        valeur(sortie, "jvm_threads_peak", null, threads.getPeakThreadCount());
+
+        entete(sortie, "jvm_classes_loaded", "gauge", "Classes actuellement chargées");
+        valeur(sortie, "jvm_classes_loaded", null, ManagementFactory.getClassLoadingMXBean().getLoadedClassCount());
+
+        Object tempsCpu = attribut("java.lang:type=OperatingSystem", "ProcessCpuTime");
+        if (tempsCpu instanceof Number) {
+            entete(sortie, "process_cpu_seconds_total", "counter", "Temps CPU consommé par le processus");
+            valeur(sortie, "process_cpu_seconds_total", null, ((Number) tempsCpu).longValue() / 1e9);
+        }
+        entete(sortie, "process_start_time_seconds", "gauge", "Date de démarrage du processus (epoch)");
+        valeur(sortie, "process_start_time_seconds", null, ManagementFactory.getRuntimeMXBean().getStartTime() / 1000.0);
+    }
+
+    private void ecrirePools(StringBuilder sortie) {
+        List<String> sources = new ArrayList<>();
+        sources.add(SOURCE_PRIMAIRE);
+        if (RoutageSourceDonnees.getReplique() != null) {
+            sources.add(RoutageSourceDonnees.NOM_JNDI_REPLIQUE);
+        }
+
+        entete(sortie, "gestiontests_pool_statistiques_disponibles", "gauge",
+            "1 si les statistiques du pool sont lisibles (statistics-enabled=true sur la source)");
+        List<String> lisibles = new ArrayList<>();
+        for (String source : sources) {
+            boolean lisible = attribut(nomMBeanPool(source), "inUseCount") != null;
+            valeur(sortie, "gestiontests_pool_statistiques_disponibles", etiquetteSource(source), lisible ? 1 : 0);
+            if (lisible) {
+                lisibles.add(source);
+            }
+        }
+
+        for (String[] attributPool : ATTRIBUTS_POOL) {
+            entete(sortie, attributPool[1], attributPool[2], attributPool[3]);
+            for (String source : lisibles) {
+                Object valeur = attribut(nomMBeanPool(source), attributPool[0]);
+                if (valeur instanceof Number) {
+                    valeur(sortie, attributPool[1], etiquetteSource(source), ((Number) valeur).doubleValue());
+                }
+            }
+        }
+    }
+
+    private void ecrireHibernate(StringBuilder sortie) {
+        Statistics stats;
+        try {
+            stats = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        } catch (Exception e) {
+            System.err.println("Statistiques Hibernate indisponibles: " + e.getMessage());
+            return;
+        }
+        entete(sortie, "hibernate_statistics_enabled", "gauge", "1 si hibernate.generate_statistics est actif");
+        valeur(sortie, "hibernate_statistics_enabled", null, stats.isStatisticsEnabled() ? 1 : 0);
+        if (!stats.isStatisticsEnabled()) {
+            return;
+        }
+
+        compteur(sortie, "hibernate_sessions_open_total", "Sessions ouvertes", null, stats.getSessionOpenCount());
+        compteur(sortie, "hibernate_sessions_closed_total", "Sessions fermées", null, stats.getSessionCloseCount());
+        compteur(sortie, "hibernate_connections_obtained_total", "Connexions JDBC obtenues", null, stats.getConnectCount());
+        compteur(sortie, "hibernate_flushes_total", "Flushs du contexte de persistance", null, stats.getFlushCount());
+        compteur(sortie, "hibernate_optimistic_failures_total", "Conflits de verrouillage optimiste", null, stats.getOptimisticFailureCount());
+
+        entete(sortie, "hibernate_transactions_total", "counter", "Transactions par issue");
+        valeur(sortie, "hibernate_transactions_total", "result=\"success\"", stats.getSuccessfulTransactionCount());
+        valeur(sortie, "hibernate_transactions_total", "result=\"failure\"",
+            Math.max(0, stats.getTransactionCount() - stats.getSuccessfulTransactionCount()));
+
+        entete(sortie, "hibernate_statements_total", "counter", "Requêtes JDBC préparées et fermées");
+        valeur(sortie, "hibernate_statements_total", "status=\"prepared\"", stats.getPrepareStatementCount());
+        valeur(sortie, "hibernate_statements_total", "status=\"closed\"", stats.getCloseStatementCount());
+
+        entete(sortie, "hibernate_entities_total", "counter", "Opérations sur les entités");
+        valeur(sortie, "hibernate_entities_total", "operation=\"load\"", stats.getEntityLoadCount());
+        valeur(sortie, "hibernate_entities_total", "operation=\"fetch\"", stats.getEntityFetchCount());
+        valeur(sortie, "hibernate_entities_total", "operation=\"insert\"", stats.getEntityInsertCount());
+        valeur(sortie, "hibernate_entities_total", "operation=\"update\"", stats.getEntityUpdateCount());
+        valeur(sortie, "hibernate_entities_total", "operation=\"delete\"", stats.getEntityDeleteCount());
+
+        entete(sortie, "hibernate_collections_total", "counter", "Opérations sur les collections");
+        valeur(sortie, "hibernate_collections_total", "operation=\"load\"", stats.getCollectionLoadCount());
+        valeur(sortie, "hibernate_collections_total", "operation=\"fetch\"", stats.getCollectionFetchCount());
+
+        compteur(sortie, "hibernate_query_executions_total", "Requêtes JPQL/HQL exécutées", null, stats.getQueryExecutionCount());
+        entete(sortie, "hibernate_query_executions_max_seconds", "gauge", "Requête la plus lente depuis le démarrage");
+        valeur(sortie, "hibernate_query_executions_max_seconds", null, stats.getQueryExecutionMaxTime() / 1000.0);
+
+        entete(sortie, "hibernate_query_plan_total", "counter", "Consultations du cache des plans de requête");
+        valeur(sortie, "hibernate_query_plan_total", "result=\"hit\"", stats.getQueryPlanCacheHitCount());
+        valeur(sortie, "hibernate_query_plan_total", "result=\"miss\"", stats.getQueryPlanCacheMissCount());
+    }
+
+    private static String etiquettesRoute(MesureRoute route) {
+        return "methode=\"" + route.getMethodeHttp() + "\",route=\"" + echapper(route.getChemin()) + "\"";
+    }
+
+    private static String etiquetteSource(String source) {
+        return "source=\"" + echapper(nomSource(source)) + "\"";
+    }
+
+    /**
+     * java:/MySqlDS -> MySqlDS, nom de la source dans le sous-système datasources
+     */
+    private static String nomSource(String nomJndi) {
+        return nomJndi.substring(nomJndi.lastIndexOf('/') + 1);
+    }
+
+    private static String nomMBeanPool(String source) {
+        return "jboss.as:subsystem=datasources,data-source=" + nomSource(source) + ",statistics=pool";
+    }
+
+    /**
+     * Attribut JMX, null si le MBean ou l'attribut n'existe pas sur ce serveur
+     */
+    private static Object attribut(String nomMBean, String attribut) {
+        try {
+            MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nom = new ObjectName(nomMBean);
+            return serveur.isRegistered(nom) ? serveur.getAttribute(nom, attribut) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static void compteur(StringBuilder sortie, String nom, String aide, String etiquettes, long valeur) {
+        entete(sortie, nom, "counter", aide);
+        valeur(sortie, nom, etiquettes, valeur);
+    }
+
+    private static void entete(StringBuilder sortie, String nom, String type, String aide) {
+        sortie.append("# HELP ").append(nom).append(' ').append(aide).append('\n');
+        sortie.append("# TYPE ").append(nom).append(' ').append(type).append('\n');
+    }
+
+    private static void valeur(StringBuilder sortie, String nom, String etiquettes, long valeur) {
+        ligne(sortie, nom, etiquettes).append(valeur).append('\n');
+    }
+
+    private static void valeur(StringBuilder sortie, String nom, String etiquettes, double valeur) {
+        StringBuilder ligne = ligne(sortie, nom, etiquettes);
+        if (Double.isNaN(valeur)) {
+            ligne.append("NaN");
+        } else if (Double.isInfinite(valeur)) {
+            ligne.append(valeur > 0 ? "+Inf" : "-Inf");
+        } else {
+            ligne.append(valeur);
+        }
+        ligne.append('\n');
+    }
+
+    private static StringBuilder ligne(StringBuilder sortie, String nom, String etiquettes) {
+        sortie.append(nom);
+        if (etiquettes != null) {
+            sortie.append('{').append(etiquettes).append('}');
+        }
+        return sortie.append(' ');
+    }
+
+    private static String echapper(String valeur) {
+        return valeur.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,55 @@
+package com.gestiontests.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Événement émis à chaque création, modification ou suppression d'une question ; porte les
+ * champs indexés pour la recherche (nuls pour une suppression)
+ */
+public class ModificationBanqueQuestions {
+
+    private final Integer questionId;
+    private final String libelle;
+    private final String explication;
+    private final List<String> reponses;
+    private final boolean supprimee;
+
+    private ModificationBanqueQuestions(Integer questionId, String libelle, String explication,
+                                        List<String> reponses, boolean supprimee) {
+        this.questionId = questionId;
+        this.libelle = libelle;
+        this.explication = explication;
+        this.reponses = reponses;
+        this.supprimee = supprimee;
+    }
+
+    public static ModificationBanqueQuestions enregistrement(Integer questionId, String libelle, String explication,
+                                                             List<String> reponses) {
+        return new ModificationBanqueQuestions(questionId, libelle, explication, new ArrayList<>(reponses), false);
+    }
+
+    public static ModificationBanqueQuestions suppression(Integer questionId) {
+        return new ModificationBanqueQuestions(questionId, null, null, List.of(), true);
+    }
+
+    public Integer getQuestionId() {
+        return questionId;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+
+    public String getExplication() {
+        return explication;
+    }
+
+    public List<String> getReponses() {
+        return reponses;
+    }
+
+    public boolean isSupprimee() {
+        return supprimee;
+    }
+}
@@ -0,0 +1,58 @@
+package com.gestiontests.service;
+
+/**
+ * Événement émis à chaque inscription, modification ou suppression d'un candidat ; porte les
+ * champs indexés pour la recherche (nuls pour une suppression)
+ */
+public class ModificationCandidat {
+
+    private final Integer candidatId;
+    private final String nom;
+    private final String prenom;
+    private final String ecole;
+    private final String email;
+    private final boolean supprime;
+
+    private ModificationCandidat(Integer candidatId, String nom, String prenom, String ecole, String email,
+                                 boolean supprime) {
+        this.candidatId = candidatId;
+        this.nom = nom;
+        this.prenom = prenom;
+        this.ecole = ecole;
+        this.email = email;
+        this.supprime = supprime;
+    }
+
+    public static ModificationCandidat enregistrement(Integer candidatId, String nom, String prenom,
+                                                      String ecole, String email) {
+        return new ModificationCandidat(candidatId, nom, prenom, ecole, email, false);
+    }
+
+    public static ModificationCandidat suppression(Integer candidatId) {
+        return new ModificationCandidat(candidatId, null, null, null, null, true);
+    }
+
+    public Integer getCandidatId() {
+        return candidatId;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public String getPrenom() {
+        return prenom;
+    }
+
+    public String getEcole() {
+        return ecole;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public boolean isSupprime() {
+        return supprime;
+    }
+}
@@ -0,0 +1,25 @@
+package com.gestiontests.service;
+
+import java.text.Normalizer;
+import java.util.regex.Pattern;
+
+/**
+ * Normalisation commune aux index de recherche en mémoire
+ */
+final class NormalisationTexte {
+
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+
+    private NormalisationTexte() {}
+
+    /**
+     * Minuscules sans accents ("Élodie" -> "elodie")
+     */
+    static String sansAccents(String valeur) {
+        if (valeur == null) {
+            return "";
+        }
+        String decompose = Normalizer.normalize(valeur, Normalizer.Form.NFD);
+        return DIACRITIQUES.matcher(decompose).replaceAll("").toLowerCase();
+    }
+}
@@ -0,0 +1,59 @@
+package com.gestiontests.service;
+
+import com.gestiontests.entity.Candidat;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+/**
+ * E-mails envoyés aux candidats une fois la transaction validée : une transaction annulée n'envoie
+ * rien, et une transaction rejouée après un conflit n'envoie qu'une fois, à sa validation. L'envoi
+ * SMTP s'exécute en arrière-plan sur l'exécuteur des tâches d'entrées/sorties.
+ */
+@ApplicationScoped
+public class NotificationsEmailService {
+
+    @Inject
+    private EmailService emailService;
+
+    @Inject
+    private ExecuteurTachesService executeurTachesService;
+
+    void surInscription(@Observes(during = TransactionPhase.AFTER_SUCCESS) InscriptionCandidat evenement) {
+        executeurTachesService.executer(() -> {
+            try {
+                emailService.envoyerEmailInscription(evenement.getCandidat(), evenement.getCreneau(), null);
+            } catch (Exception e) {
+                System.err.println("Erreur lors de l'envoi de l'email: " + e.getMessage());
+            }
+        });
+    }
+
+    void surValidation(@Observes(during = TransactionPhase.AFTER_SUCCESS) ValidationCandidat evenement) {
+        executeurTachesService.executer(() -> {
+            try {
+                emailService.envoyerEmailValidation(evenement.getCandidat());
+            } catch (Exception e) {
+                System.err.println("Erreur lors de l'envoi de l'email de validation: " + e.getMessage());
+            }
+        });
+    }
+
+    void surFinSession(@Observes(during = TransactionPhase.AFTER_SUCCESS) FinSessionTest evenement) {
+        Candidat candidat = evenement.getCandidat();
+        EntreeClassement entree = evenement.getEntree();
+        if (candidat == null || entree == null) {
+            return;
+        }
+        String score = String.valueOf(entree.getScoreTotal());
+        String pourcentage = entree.getPourcentage().toString();
+        executeurTachesService.executer(() -> {
+            try {
+                emailService.envoyerEmailResultats(candidat, score, pourcentage);
+            } catch (Exception e) {
+                System.err.println("Erreur lors de l'envoi des résultats par email: " + e.getMessage());
+            }
+        });
+    }
+}
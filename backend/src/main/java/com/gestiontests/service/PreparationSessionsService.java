@@ -0,0 +1,130 @@
+package com.gestiontests.service;
+
+import com.gestiontests.entity.CreneauHoraire;
+import com.gestiontests.repository.CreneauHoraireRepository;
+import com.gestiontests.repository.InscriptionRepository;
+import com.gestiontests.repository.ParametreRepository;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.BeforeDestroyed;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pré-génération des sessions avant chaque créneau : quelques minutes avant l'heure de début
+ * (paramètre DELAI_PREPARATION_SESSIONS, en minutes), les sessions et tirages de questions des
+ * candidats validés inscrits sont créés par lots, chacun dans sa propre transaction. Au démarrage
+ * du test, il ne reste qu'à fixer la date de début.
+ */
+@ApplicationScoped
+public class PreparationSessionsService {
+
+    private static final int DELAI_PAR_DEFAUT = 30;
+
+    // Candidats préparés par transaction
+    private static final int TAILLE_LOT = 25;
+
+    // Intervalle entre deux passages de la tâche
+    private static final long PERIODE_MINUTES = 1;
+
+    @Inject
+    private CreneauHoraireRepository creneauHoraireRepository;
+
+    @Inject
+    private InscriptionRepository inscriptionRepository;
+
+    @Inject
+    private ParametreRepository parametreRepository;
+
+    @Inject
+    private TestService testService;
+
+    @Resource
+    private ManagedScheduledExecutorService planificateur;
+
+    // Un seul passage à la fois (tâche planifiée ou déclenchement manuel)
+    private final ReentrantLock verrou = new ReentrantLock();
+
+    private final AtomicLong sessionsPreparees = new AtomicLong();
+
+    private ScheduledFuture<?> tache;
+
+    void auDemarrage(@Observes @Initialized(ApplicationScoped.class) Object evenement) {
+        tache = planificateur.scheduleWithFixedDelay(this::executer, PERIODE_MINUTES, PERIODE_MINUTES, TimeUnit.MINUTES);
+    }
+
+    void avantArret(@Observes @BeforeDestroyed(ApplicationScoped.class) Object evenement) {
+        if (tache != null) {
+            tache.cancel(false);
+        }
+    }
+
+    /**
+     * Prépare les sessions des créneaux qui commencent dans le délai configuré
+     *
+     * @return nombre de sessions préparées
+     */
+    public int preparerCreneauxProchains() {
+        Integer delai = parametreRepository.getValeurParametreAsInteger("DELAI_PREPARATION_SESSIONS", DELAI_PAR_DEFAUT);
+        LocalDateTime maintenant = LocalDateTime.now();
+        LocalDateTime limite = maintenant.plusMinutes(Math.max(0, delai));
+
+        int total = 0;
+        for (CreneauHoraire creneau : creneauHoraireRepository.findByDateBetween(maintenant.toLocalDate(), limite.toLocalDate())) {
+            LocalDateTime debut = LocalDateTime.of(creneau.getDateExam(), creneau.getHeureDebut());
+            if (!debut.isBefore(maintenant) && !debut.isAfter(limite)) {
+                total += preparerCreneau(creneau.getId());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Prépare les sessions manquantes d'un créneau, lot par lot
+     */
+    public int preparerCreneau(Integer creneauId) {
+        verrou.lock();
+        try {
+            List<Integer> candidats = inscriptionRepository.findCandidatsSansSession(creneauId);
+            int preparees = 0;
+            for (int debut = 0; debut < candidats.size(); debut += TAILLE_LOT) {
+                List<Integer> lot = candidats.subList(debut, Math.min(candidats.size(), debut + TAILLE_LOT));
+                try {
+                    preparees += testService.preparerSessions(creneauId, lot);
+                } catch (Exception e) {
+                    // Lot annulé (par exemple session créée entre-temps par le candidat) : repris au prochain passage
+                    System.err.println("Préparation d'un lot du créneau " + creneauId + " impossible: " + e.getMessage());
+                }
+            }
+            if (preparees > 0) {
+                sessionsPreparees.addAndGet(preparees);
+                System.out.println("Créneau " + creneauId + ": " + preparees + " sessions préparées");
+            }
+            return preparees;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    public long getNombreSessionsPreparees() {
+        return sessionsPreparees.get();
+    }
+
+    private void executer() {
+        try {
+            preparerCreneauxProchains();
+        } catch (Exception e) {
+            // Une exception non rattrapée arrêterait la tâche planifiée
+            System.err.println("Erreur de préparation des sessions: " + e.getMessage());
+        }
+    }
+}
@@ -3,12 +3,21 @@ package com.gestiontests.service;
 import com.gestiontests.entity.*;
 import com.gestiontests.repository.*;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class QuestionService {
@@ -25,6 +34,19 @@ public class QuestionService {
     @Inject
     private TypeQuestionRepository typeQuestionRepository;
     
+    @Inject
+    private IndexRechercheQuestions indexRechercheQuestions;
+    
+    @Inject
+    private ParametreRepository parametreRepository;
+    
+    @Inject
+    private Event<ModificationBanqueQuestions> modificationBanqueQuestions;
+    
+    // Agrégats de la banque de questions, invalidés après chaque écriture validée
+    private volatile AgregatsQuestions agregats;
+    private final AtomicLong generationAgregats = new AtomicLong();
+    
     @Transactional
     public Question createQuestion(Map<String, Object> questionData) throws Exception {
         // Récupérer le thème
@@ -51,20 +73,28 @@ public class QuestionService {
         Question savedQuestion = questionRepository.create(question);
         
         // Ajouter les réponses possibles si fournies
+        List<String> libellesReponses = new ArrayList<>();
         if (questionData.containsKey("reponses")) {
             @SuppressWarnings("unchecked")
             List<Map<String, Object>> reponsesData = (List<Map<String, Object>>) questionData.get("reponses");
             
+            List<ReponsePossible> reponses = new ArrayList<>();
             for (Map<String, Object> reponseData : reponsesData) {
                 ReponsePossible reponse = new ReponsePossible();
                 reponse.setQuestion(savedQuestion);
                 reponse.setLibelle((String) reponseData.get("libelle"));
                 reponse.setEstCorrect((Boolean) reponseData.get("estCorrect"));
                 
-                reponsePossibleRepository.create(reponse);
+                reponses.add(reponse);
+                libellesReponses.add(reponse.getLibelle());
             }
+            reponsePossibleRepository.createAll(reponses);
         }
         
+        // Index de recherche mis à jour après validation (IndexRechercheQuestions)
+        modificationBanqueQuestions.fire(ModificationBanqueQuestions.enregistrement(savedQuestion.getId(),
+            savedQuestion.getLibelle(), savedQuestion.getExplication(), libellesReponses));
+        
         return savedQuestion;
     }
     
@@ -104,7 +134,13 @@ public class QuestionService {
             question.setExplication((String) questionData.get("explication"));
         }
         
-        return questionRepository.update(question);
+        Question updated = questionRepository.update(question);
+        modificationBanqueQuestions.fire(ModificationBanqueQuestions.enregistrement(updated.getId(),
+            updated.getLibelle(), updated.getExplication(),
+            reponsePossibleRepository.findByQuestion(id).stream()
+                .map(ReponsePossible::getLibelle)
+                .collect(Collectors.toList())));
+        return updated;
     }
     
     @Transactional
@@ -115,6 +151,50 @@ public class QuestionService {
         }
         
         questionRepository.deleteById(id);
+        modificationBanqueQuestions.fire(ModificationBanqueQuestions.suppression(id));
+    }
+    
+    /**
+     * Recherche plein texte classée dans la banque de questions
+     */
+    public List<Map<String, Object>> rechercherQuestions(String texte, int limite) {
+        Map<Integer, Double> scores = indexRechercheQuestions.rechercher(texte, limite);
+        return resumerQuestions(scores, "score");
+    }
+    
+    /**
+     * Questions existantes dont le libellé est quasi identique à celui fourni
+     */
+    public List<Map<String, Object>> trouverDoublons(String libelle, Integer exclureId) {
+        Map<Integer, Double> similarites = indexRechercheQuestions.trouverDoublons(libelle, exclureId);
+        return resumerQuestions(similarites, "similarite");
+    }
+    
+    private List<Map<String, Object>> resumerQuestions(Map<Integer, Double> valeurs, String cle) {
+        Map<Integer, Question> questions = questionRepository.findByIdsWithTheme(new ArrayList<>(valeurs.keySet()))
+            .stream()
+            .collect(Collectors.toMap(Question::getId, Function.identity()));
+        
+        List<Map<String, Object>> resultat = new ArrayList<>();
+        for (Map.Entry<Integer, Double> entree : valeurs.entrySet()) {
+            Question q = questions.get(entree.getKey());
+            if (q == null) {
+                continue;
+            }
+            Map<String, Object> qMap = new HashMap<>();
+            qMap.put("id", q.getId());
+            qMap.put("libelle", q.getLibelle());
+            qMap.put("explication", q.getExplication());
+            if (q.getTheme() != null) {
+                qMap.put("theme", Map.of("id", q.getTheme().getId(), "nom", q.getTheme().getNom()));
+            }
+            if (q.getTypeQuestion() != null) {
+                qMap.put("typeQuestion", Map.of("id", q.getTypeQuestion().getId(), "nom", q.getTypeQuestion().getNom()));
+            }
+            qMap.put(cle, entree.getValue());
+            resultat.add(qMap);
+        }
+        return resultat;
     }
     
     public List<Question> findAll() {
@@ -137,25 +217,117 @@ public class QuestionService {
         return questionRepository.count();
     }
     
+    /**
+     * Bilan de la banque de questions : répartition par thème et par type, questions incomplètes
+     * et couverture de chaque thème par rapport à NOMBRE_QUESTIONS_PAR_THEME
+     */
     public Map<String, Object> getStatsQuestions() {
-        long total = questionRepository.count();
-        List<Theme> themes = themeRepository.findAll();
-        
-        long questionsSansReponses = questionRepository.findQuestionsWithoutReponses().size();
-        long questionsSansReponsesCorrectes = questionRepository.findQuestionsWithoutCorrectReponses().size();
-        
-        return Map.of(
-            "total", total,
-            "parTheme", themes.stream().collect(
-                java.util.stream.Collectors.toMap(
-                    Theme::getNom,
-                    theme -> questionRepository.countByTheme(theme.getId())
-                )
-            ),
-            "questionsSansReponses", questionsSansReponses,
-            "questionsSansReponsesCorrectes", questionsSansReponsesCorrectes,
-            "tauxCompletude", total > 0 ? (double) (total - questionsSansReponses) / total * 100 : 0
-        );
+        AgregatsQuestions a = getAgregats();
+        int requis = parametreRepository.getValeurParametreAsInteger("NOMBRE_QUESTIONS_PAR_THEME", 5);
+        
+        Map<String, Long> parTheme = new LinkedHashMap<>();
+        List<Map<String, Object>> couverture = new ArrayList<>();
+        List<String> themesInsuffisants = new ArrayList<>();
+        for (Theme theme : a.themes) {
+            long questions = a.questionsParTheme.getOrDefault(theme.getId(), 0L);
+            long utilisables = a.utilisablesParTheme.getOrDefault(theme.getId(), 0L);
+            parTheme.put(theme.getNom(), questions);
+            
+            Map<String, Object> ligne = new LinkedHashMap<>();
+            ligne.put("themeId", theme.getId());
+            ligne.put("theme", theme.getNom());
+            ligne.put("questions", questions);
+            ligne.put("utilisables", utilisables);
+            ligne.put("requis", requis);
+            ligne.put("manquantes", Math.max(0, requis - utilisables));
+            ligne.put("peutCompleterTest", utilisables >= requis);
+            couverture.add(ligne);
+            if (utilisables < requis) {
+                themesInsuffisants.add(theme.getNom());
+            }
+        }
+        
+        Map<String, Long> parType = new LinkedHashMap<>();
+        for (TypeQuestion type : a.types) {
+            parType.put(type.getNom(), a.questionsParType.getOrDefault(type.getId(), 0L));
+        }
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("total", a.total);
+        stats.put("parTheme", parTheme);
+        stats.put("parType", parType);
+        stats.put("questionsSansReponses", a.sansReponses);
+        stats.put("questionsSansReponsesCorrectes", a.sansReponsesCorrectes);
+        stats.put("tauxCompletude", a.total > 0 ? (double) (a.total - a.sansReponses) / a.total * 100 : 0);
+        stats.put("nombreQuestionsParTheme", requis);
+        stats.put("couverture", couverture);
+        stats.put("themesInsuffisants", themesInsuffisants);
+        stats.put("testComplet", themesInsuffisants.isEmpty());
+        return stats;
+    }
+    
+    void surModificationBanque(@Observes(during = TransactionPhase.AFTER_COMPLETION) ModificationBanqueQuestions evenement) {
+        generationAgregats.incrementAndGet();
+        agregats = null;
+    }
+    
+    private AgregatsQuestions getAgregats() {
+        AgregatsQuestions courant = agregats;
+        if (courant != null) {
+            return courant;
+        }
+        long generation = generationAgregats.get();
+        courant = calculerAgregats();
+        // Une écriture validée pendant le calcul rend le résultat douteux : on ne le garde pas
+        if (generationAgregats.get() == generation) {
+            agregats = courant;
+        }
+        return courant;
+    }
+    
+    /**
+     * Agrège en un passage la projection (question, thème, type, réponses, réponses correctes)
+     */
+    private AgregatsQuestions calculerAgregats() {
+        AgregatsQuestions a = new AgregatsQuestions();
+        a.themes = themeRepository.findAll();
+        a.types = typeQuestionRepository.findAll();
+        for (Object[] ligne : questionRepository.findResumeParQuestion()) {
+            Integer themeId = (Integer) ligne[1];
+            Integer typeId = (Integer) ligne[2];
+            long reponses = ((Number) ligne[3]).longValue();
+            long correctes = ligne[4] != null ? ((Number) ligne[4]).longValue() : 0L;
+            
+            a.total++;
+            if (reponses == 0) {
+                a.sansReponses++;
+            }
+            if (correctes == 0) {
+                a.sansReponsesCorrectes++;
+            }
+            if (themeId != null) {
+                a.questionsParTheme.merge(themeId, 1L, Long::sum);
+                // Une question n'est utilisable dans un test que si elle a au moins une bonne réponse
+                if (correctes > 0) {
+                    a.utilisablesParTheme.merge(themeId, 1L, Long::sum);
+                }
+            }
+            if (typeId != null) {
+                a.questionsParType.merge(typeId, 1L, Long::sum);
+            }
+        }
+        return a;
+    }
+    
+    private static final class AgregatsQuestions {
+        private List<Theme> themes;
+        private List<TypeQuestion> types;
+        private long total;
+        private long sansReponses;
+        private long sansReponsesCorrectes;
+        private final Map<Integer, Long> questionsParTheme = new HashMap<>();
+        private final Map<Integer, Long> utilisablesParTheme = new HashMap<>();
+        private final Map<Integer, Long> questionsParType = new HashMap<>();
     }
     
     @Transactional
@@ -0,0 +1,37 @@
+package com.gestiontests.service;
+
+import java.util.List;
+
+/**
+ * Événement émis lorsque des sessions sont réinitialisées pour une nouvelle passation
+ */
+public class ReinitialisationSessions {
+
+    private final List<Integer> sessionIds;
+
+    // Résultats des sessions qui étaient terminées, lus avant la remise à zéro
+    private final List<EntreeClassement> anciennesEntrees;
+
+    // Sessions redémarrées dans la même transaction (reprise par le candidat) : leur nouvelle
+    // échéance est déjà planifiée et leur nouveau flux de décompte ne doit pas être clos
+    private final List<Integer> sessionsRedemarrees;
+
+    public ReinitialisationSessions(List<Integer> sessionIds, List<EntreeClassement> anciennesEntrees,
+                                    List<Integer> sessionsRedemarrees) {
+        this.sessionIds = sessionIds;
+        this.anciennesEntrees = anciennesEntrees;
+        this.sessionsRedemarrees = sessionsRedemarrees;
+    }
+
+    public List<Integer> getSessionIds() {
+        return sessionIds;
+    }
+
+    public List<EntreeClassement> getAnciennesEntrees() {
+        return anciennesEntrees;
+    }
+
+    public boolean estRedemarree(Integer sessionId) {
+        return sessionsRedemarrees.contains(sessionId);
+    }
+}
@@ -0,0 +1,23 @@
+package com.gestiontests.service;
+
+/**
+ * Événement émis lorsqu'une question d'une session reçoit sa première réponse
+ */
+public class ReponseEnregistree {
+
+    private final Integer sessionId;
+    private final Integer questionId;
+
+    public ReponseEnregistree(Integer sessionId, Integer questionId) {
+        this.sessionId = sessionId;
+        this.questionId = questionId;
+    }
+
+    public Integer getSessionId() {
+        return sessionId;
+    }
+
+    public Integer getQuestionId() {
+        return questionId;
+    }
+}
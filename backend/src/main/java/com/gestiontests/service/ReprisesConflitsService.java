@@ -0,0 +1,106 @@
+package com.gestiontests.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.StaleStateException;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reprise des conflits de verrouillage optimiste (@Version sur SessionTest et ReponseCandidat)
+ * et des doublons de clé unique (deux premières réponses simultanées à la même question : la
+ * reprise relit la réponse insérée par l'autre requête et la fusionne).
+ * Le traitement, qui doit ouvrir lui-même sa transaction, est réexécuté sur l'état relu en base.
+ * Terminer ou démarrer une session relit l'état et ne refait rien si l'autre écriture l'a déjà fait ;
+ * l'enregistrement d'une réponse applique une règle de fusion explicite (la requête arrivée la
+ * dernière sur le serveur l'emporte, voir TestService.enregistrerReponse). Les effets hors
+ * transaction (classement, distributions, e-mails) suivent la validation et ne sont donc pas
+ * répétés par les reprises. Les taux de conflit sont comptés par opération.
+ */
+@ApplicationScoped
+public class ReprisesConflitsService {
+
+    private static final int TENTATIVES_MAX = 3;
+
+    // Doublon de clé unique : code MySQL ER_DUP_ENTRY, état SQL standard (H2, PostgreSQL)
+    private static final int CODE_MYSQL_DOUBLON = 1062;
+    private static final String ETAT_SQL_DOUBLON = "23505";
+
+    private final ConcurrentHashMap<String, Compteurs> compteurs = new ConcurrentHashMap<>();
+
+    public <T> T executer(String operation, Callable<T> traitement) throws Exception {
+        Compteurs c = compteurs.computeIfAbsent(operation, o -> new Compteurs());
+        c.executions.incrementAndGet();
+        for (int tentative = 1; ; tentative++) {
+            try {
+                T resultat = traitement.call();
+                if (tentative > 1) {
+                    c.reprisesReussies.incrementAndGet();
+                }
+                return resultat;
+            } catch (Exception e) {
+                if (!estConflit(e)) {
+                    throw e;
+                }
+                c.conflits.incrementAndGet();
+                if (tentative >= TENTATIVES_MAX) {
+                    c.echecs.incrementAndGet();
+                    throw new Exception("Modification concurrente de la session, veuillez réessayer");
+                }
+                // Petite attente aléatoire pour désynchroniser les requêtes concurrentes
+                Thread.sleep(ThreadLocalRandom.current().nextInt(5, 25) * (long) tentative);
+            }
+        }
+    }
+
+    public Map<String, Object> getMetriques() {
+        Map<String, Object> metriques = new TreeMap<>();
+        for (Map.Entry<String, Compteurs> e : compteurs.entrySet()) {
+            Compteurs c = e.getValue();
+            long executions = c.executions.get();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("executions", executions);
+            m.put("conflits", c.conflits.get());
+            m.put("reprisesReussies", c.reprisesReussies.get());
+            m.put("echecs", c.echecs.get());
+            m.put("tauxConflit", executions > 0 ? Math.round(c.conflits.get() * 10000.0 / executions) / 100.0 : 0.0);
+            metriques.put(e.getKey(), m);
+        }
+        return metriques;
+    }
+
+    /**
+     * Conflit de version ou doublon de clé unique, éventuellement enveloppé par la transaction
+     * (RollbackException, TransactionalException). Les autres violations de contrainte (clé
+     * étrangère, non-nullité) ne sont pas reprises : relire n'y changerait rien.
+     */
+    static boolean estConflit(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof OptimisticLockException || t instanceof StaleStateException) {
+                return true;
+            }
+            if (t instanceof SQLException && estDoublon((SQLException) t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean estDoublon(SQLException e) {
+        return e.getErrorCode() == CODE_MYSQL_DOUBLON || ETAT_SQL_DOUBLON.equals(e.getSQLState());
+    }
+
+    private static final class Compteurs {
+        private final AtomicLong executions = new AtomicLong();
+        private final AtomicLong conflits = new AtomicLong();
+        private final AtomicLong reprisesReussies = new AtomicLong();
+        private final AtomicLong echecs = new AtomicLong();
+    }
+}
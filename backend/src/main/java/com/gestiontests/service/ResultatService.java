@@ -1,5 +1,6 @@
 package com.gestiontests.service;
 
+import com.gestiontests.config.LectureSeule;
 import com.gestiontests.entity.*;
 import com.gestiontests.repository.*;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -10,8 +11,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+@LectureSeule(replique = true)
 @ApplicationScoped
 public class ResultatService {
     
@@ -33,68 +36,94 @@ public class ResultatService {
     @Inject
     private ReponsePossibleRepository reponsePossibleRepository;
     
+    @Inject
+    private IndexRechercheCandidats indexRechercheCandidats;
+    
+    @Inject
+    private ClassementService classementService;
+    
+    @Inject
+    private DistributionScoresService distributionScoresService;
+    
+    @Inject
+    private RoutageLecturesService routageLectures;
+    
+    // Nombre maximum de candidats par clause IN d'une recherche de sessions
+    private static final int MAX_CANDIDATS_RECHERCHE = 1000;
+
+    private static final Comparator<SessionTest> ORDRE_RECHERCHE = Comparator
+        .comparing(SessionTest::getDateDebut).thenComparing(SessionTest::getId).reversed();
+    
     public List<SessionTest> getResultatsByCandidat(Integer candidatId) {
+        routageLectures.exigerFraicheurCandidat(candidatId);
         return sessionTestRepository.findByCandidat(candidatId);
     }
     
     public List<SessionTest> getResultatsTermineesByCandidat(Integer candidatId) {
+        routageLectures.exigerFraicheurCandidat(candidatId);
         return sessionTestRepository.findByCandidat(candidatId).stream()
             .filter(SessionTest::getEstTermine)
             .collect(Collectors.toList());
     }
     
     public List<SessionTest> rechercherSessionsParCandidat(String terme) {
-        List<Candidat> candidats = candidatRepository.findByNomOrPrenomOrEcole(terme);
-        List<SessionTest> sessions = new ArrayList<>();
-        
-        for (Candidat candidat : candidats) {
-            sessions.addAll(sessionTestRepository.findByCandidat(candidat.getId()));
-        }
-        
-        return sessions.stream()
-            .sorted((s1, s2) -> s2.getDateDebut().compareTo(s1.getDateDebut()))
-            .collect(Collectors.toList());
+        return rechercherSessions(CriteresRechercheSession.parTerme(terme));
     }
     
     public List<SessionTest> rechercheAvanceeSessions(String nom, String prenom, String ecole, String codeExam) {
-        List<SessionTest> sessions = new ArrayList<>();
+        CriteresRechercheSession criteres = new CriteresRechercheSession();
+        criteres.setNom(nom);
+        criteres.setPrenom(prenom);
+        criteres.setEcole(ecole);
+        criteres.setCodeSession(codeExam);
+        return rechercherSessions(criteres);
+    }
+    
+    /**
+     * Recherche paginée des sessions : filtres, tri et limite sont appliqués en SQL
+     */
+    public List<SessionTest> rechercherSessions(CriteresRechercheSession criteres) {
+        if (!criteres.aDesFiltres()) {
+            return new ArrayList<>();
+        }
         
-        if (codeExam != null && !codeExam.trim().isEmpty()) {
-            Optional<SessionTest> sessionOpt = sessionTestRepository.findByCodeSession(codeExam);
-            if (sessionOpt.isPresent()) {
-                sessions.add(sessionOpt.get());
-            }
-        } else {
-            List<Candidat> candidats = new ArrayList<>();
-            
-            if (nom != null && !nom.trim().isEmpty()) {
-                candidats.addAll(candidatRepository.findByNomOrPrenomOrEcole(nom));
-            }
-            if (prenom != null && !prenom.trim().isEmpty()) {
-                candidats.addAll(candidatRepository.findByNomOrPrenomOrEcole(prenom));
-            }
-            if (ecole != null && !ecole.trim().isEmpty()) {
-                candidats.addAll(candidatRepository.findByEcole(ecole));
-            }
-            
-            // Éviter les doublons
-            Set<Integer> candidatIds = candidats.stream()
-                .map(Candidat::getId)
-                .collect(Collectors.toSet());
-            
-            for (Integer candidatId : candidatIds) {
-                sessions.addAll(sessionTestRepository.findByCandidat(candidatId));
+        // Le terme libre est toujours résolu par l'index en mémoire (accents, email, mot par mot) :
+        // le résultat ne dépend pas du nombre de candidats correspondants
+        if (CriteresRechercheSession.estRenseigne(criteres.getTerme())) {
+            List<Integer> candidatIds = indexRechercheCandidats.rechercher(criteres.getTerme(), Integer.MAX_VALUE);
+            criteres.setTerme(null);
+            if (candidatIds.size() > MAX_CANDIDATS_RECHERCHE) {
+                return rechercherParTranches(criteres, candidatIds);
             }
+            criteres.setCandidatIds(candidatIds);
         }
-        
-        return sessions.stream()
-            .sorted((s1, s2) -> s2.getDateDebut().compareTo(s1.getDateDebut()))
-            .distinct()
-            .collect(Collectors.toList());
+        return sessionTestRepository.rechercher(criteres);
+    }
+    
+    /**
+     * Terme très large : une requête par tranche de candidats, chacune triée et limitée comme la
+     * recherche complète, puis fusion des pages et coupe à la limite
+     */
+    private List<SessionTest> rechercherParTranches(CriteresRechercheSession criteres, List<Integer> candidatIds) {
+        List<SessionTest> sessions = new ArrayList<>();
+        for (int debut = 0; debut < candidatIds.size(); debut += MAX_CANDIDATS_RECHERCHE) {
+            criteres.setCandidatIds(candidatIds.subList(debut, Math.min(debut + MAX_CANDIDATS_RECHERCHE, candidatIds.size())));
+            sessions.addAll(sessionTestRepository.rechercher(criteres));
+        }
+        sessions.sort(ORDRE_RECHERCHE);
+        return sessions.size() > criteres.getLimite() ? new ArrayList<>(sessions.subList(0, criteres.getLimite())) : sessions;
     }
     
     public List<Map<String, Object>> getStatsParEcole() {
-        List<Candidat> candidats = candidatRepository.findAll();
+        return statsParEcole(candidatRepository.findAll(),
+            candidatId -> sessionTestRepository.findByCandidat(candidatId));
+    }
+    
+    /**
+     * Regroupement par école des candidats et de leurs sessions (mesuré dans le module benchmarks)
+     */
+    static List<Map<String, Object>> statsParEcole(List<Candidat> candidats,
+                                                   Function<Integer, List<SessionTest>> sessionsParCandidat) {
         Map<String, List<Candidat>> candidatsParEcole = candidats.stream()
             .filter(c -> c.getEcole() != null && !c.getEcole().trim().isEmpty())
             .collect(Collectors.groupingBy(Candidat::getEcole));
@@ -107,7 +136,7 @@ public class ResultatService {
             
             List<SessionTest> sessionsEcole = new ArrayList<>();
             for (Candidat candidat : candidatsEcole) {
-                sessionsEcole.addAll(sessionTestRepository.findByCandidat(candidat.getId()));
+                sessionsEcole.addAll(sessionsParCandidat.apply(candidat.getId()));
             }
             
             List<SessionTest> sessionsTerminees = sessionsEcole.stream()
@@ -176,8 +205,31 @@ public class ResultatService {
         return stats;
     }
     
-    public List<SessionTest> getTopScores(Integer limit) {
-        return sessionTestRepository.findTopScorers(limit);
+    /**
+     * Meilleurs scores lus dans le classement en mémoire (global, par école ou par créneau)
+     */
+    public List<EntreeClassement> getTopScores(Integer limit, String ecole, Integer creneauId) {
+        int limite = limit == null || limit <= 0 ? 10 : Math.min(limit, ClassementService.LIMITE_MAX);
+        if (creneauId != null) {
+            return classementService.getTopParCreneau(creneauId, limite);
+        }
+        if (ecole != null && !ecole.trim().isEmpty()) {
+            return classementService.getTopParEcole(ecole, limite);
+        }
+        return classementService.getTopGlobal(limite);
+    }
+    
+    /**
+     * Position d'une session terminée dans les distributions de scores (rang percentile 0-100)
+     */
+    public Map<String, Object> getRangsPercentiles(SessionTest session) {
+        return distributionScoresService.getRangsPercentiles(session);
+    }
+    
+    public Map<String, Object> getDistributionScores(String ecole, Integer creneauId, String du, String au) {
+        return distributionScoresService.getDistribution(ecole, creneauId,
+            du != null ? LocalDate.parse(du) : null,
+            au != null ? LocalDate.parse(au) : null);
     }
     
     public String exporterResultatsCSV(String dateDebutStr, String dateFinStr) throws Exception {
@@ -188,7 +240,13 @@ public class ResultatService {
             LocalDate.parse(dateFinStr).atTime(23, 59, 59) : 
             LocalDateTime.now();
         
-        List<SessionTest> sessions = sessionTestRepository.findByDateRange(dateDebut, dateFin);
+        return construireCSV(sessionTestRepository.findByDateRange(dateDebut, dateFin));
+    }
+    
+    /**
+     * Export CSV des sessions terminées, les plus récentes d'abord
+     */
+    static String construireCSV(List<SessionTest> sessions) {
         List<SessionTest> sessionsTerminees = sessions.stream()
             .filter(SessionTest::getEstTermine)
             .sorted((s1, s2) -> s2.getDateDebut().compareTo(s1.getDateDebut()))
@@ -215,17 +273,21 @@ public class ResultatService {
     }
     
     public Map<String, Object> getDetailsSession(Integer sessionId) {
+        routageLectures.exigerFraicheurSession(sessionId);
         Optional<SessionTest> sessionOpt = sessionTestRepository.findById(sessionId);
         if (sessionOpt.isEmpty()) {
             return null;
         }
         
-        SessionTest session = sessionOpt.get();
-        List<ReponseCandidat> reponses = reponseCandidatRepository.findBySession(sessionId);
-        
+        return detailsSession(sessionOpt.get(), reponseCandidatRepository.findBySession(sessionId), themeRepository.findAll());
+    }
+    
+    /**
+     * Statistiques par thème, temps moyen et questions sans réponse d'une session
+     */
+    static Map<String, Object> detailsSession(SessionTest session, List<ReponseCandidat> reponses, List<Theme> themes) {
         // Statistiques par thème
         Map<String, Object> statsParTheme = new HashMap<>();
-        List<Theme> themes = themeRepository.findAll();
         
         for (Theme theme : themes) {
             List<ReponseCandidat> reponsesTheme = reponses.stream()
@@ -0,0 +1,125 @@
+package com.gestiontests.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Roue de temporisation hachée : chaque échéance est rangée dans la case (tick modulo taille)
+ * avec un nombre de tours restants. Planifier et annuler coûtent O(1), avancer ne parcourt
+ * que les cases écoulées. Une échéance n'est jamais signalée avant son heure.
+ */
+final class RoueTemporisation {
+
+    private final long dureeTickMs;
+    private final int masque;
+    private final List<LinkedList<Echeance>> cases;
+    private final Map<Integer, Echeance> parIdentifiant = new HashMap<>();
+    private final long origine;
+    private final ReentrantLock verrou = new ReentrantLock();
+
+    // Prochain tick à traiter
+    private long tickCourant = 0;
+
+    /**
+     * @param taille nombre de cases, arrondi à la puissance de deux supérieure
+     */
+    RoueTemporisation(long dureeTickMs, int taille, long origineMs) {
+        int n = Integer.highestOneBit(Math.max(2, taille - 1)) << 1;
+        this.dureeTickMs = dureeTickMs;
+        this.masque = n - 1;
+        this.cases = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            cases.add(new LinkedList<>());
+        }
+        this.origine = origineMs;
+    }
+
+    /**
+     * Planifie (ou replanifie) l'échéance d'un identifiant
+     */
+    void planifier(int identifiant, long echeanceMs) {
+        verrou.lock();
+        try {
+            annulerSansVerrou(identifiant);
+            // Arrondi supérieur : le tick de l'échéance n'est traité qu'une fois l'échéance passée
+            long tick = Math.max(tickCourant, Math.floorDiv(echeanceMs - origine + dureeTickMs - 1, dureeTickMs));
+            Echeance echeance = new Echeance(identifiant, (tick - tickCourant) / cases.size());
+            cases.get((int) (tick & masque)).add(echeance);
+            parIdentifiant.put(identifiant, echeance);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    void annuler(int identifiant) {
+        verrou.lock();
+        try {
+            annulerSansVerrou(identifiant);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Traite les ticks écoulés jusqu'à l'instant donné et renvoie les identifiants arrivés à échéance
+     */
+    List<Integer> avancer(long maintenantMs) {
+        List<Integer> echus = new ArrayList<>();
+        verrou.lock();
+        try {
+            long dernierTick = Math.floorDiv(maintenantMs - origine, dureeTickMs);
+            while (tickCourant <= dernierTick) {
+                Iterator<Echeance> it = cases.get((int) (tickCourant & masque)).iterator();
+                while (it.hasNext()) {
+                    Echeance echeance = it.next();
+                    if (echeance.annulee) {
+                        it.remove();
+                    } else if (echeance.tours > 0) {
+                        echeance.tours--;
+                    } else {
+                        it.remove();
+                        parIdentifiant.remove(echeance.identifiant);
+                        echus.add(echeance.identifiant);
+                    }
+                }
+                tickCourant++;
+            }
+        } finally {
+            verrou.unlock();
+        }
+        return echus;
+    }
+
+    int taille() {
+        verrou.lock();
+        try {
+            return parIdentifiant.size();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private void annulerSansVerrou(int identifiant) {
+        Echeance existante = parIdentifiant.remove(identifiant);
+        if (existante != null) {
+            // Retrait paresseux : la case l'ignorera à son prochain passage
+            existante.annulee = true;
+        }
+    }
+
+    private static final class Echeance {
+        private final int identifiant;
+        private long tours;
+        private boolean annulee = false;
+
+        Echeance(int identifiant, long tours) {
+            this.identifiant = identifiant;
+            this.tours = tours;
+        }
+    }
+}
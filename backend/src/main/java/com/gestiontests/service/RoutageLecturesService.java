@@ -0,0 +1,190 @@
+package com.gestiontests.service;
+
+import com.gestiontests.config.RoutageSourceDonnees;
+import com.gestiontests.repository.ParametreRepository;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.BeforeDestroyed;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aiguillage des lectures analytiques (résultats, statistiques, recherche, exports) vers la
+ * réplique de lecture. Le retard de réplication est mesuré toutes les 5 secondes ; au-delà du
+ * seuil REPLIQUE_RETARD_MAX_S, ou si la réplication est arrêtée, tout repart sur la primaire.
+ * Les fins de session récentes sont retenues : tant que la réplique n'a pas pu les recevoir,
+ * les lectures portant sur la session ou sur son candidat restent sur la primaire.
+ */
+@ApplicationScoped
+public class RoutageLecturesService {
+
+    private static final long PERIODE_MESURE_MS = 5000;
+    private static final int RETARD_MAX_PAR_DEFAUT_S = 5;
+
+    // Couvre la granularité de Seconds_Behind_Source (1 s) et l'intervalle entre deux mesures
+    private static final long MARGE_FRAICHEUR_MS = 1000 + PERIODE_MESURE_MS;
+
+    private static final long RETENTION_FINS_MS = 10 * 60_000;
+
+    @Inject
+    private ParametreRepository parametreRepository;
+
+    @Resource
+    private ManagedScheduledExecutorService planificateur;
+
+    // Retard mesuré en secondes, null si la réplique est absente, injoignable ou arrêtée
+    private volatile Integer retardSecondes = null;
+    private volatile int retardMaxSecondes = RETARD_MAX_PAR_DEFAUT_S;
+
+    private final ConcurrentHashMap<Integer, Long> finsParSession = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Long> finsParCandidat = new ConcurrentHashMap<>();
+
+    private final AtomicLong lecturesReplique = new AtomicLong();
+    private final AtomicLong lecturesPrimaire = new AtomicLong();
+    private final AtomicLong retoursPrimaireFraicheur = new AtomicLong();
+
+    private ScheduledFuture<?> tache;
+
+    void auDemarrage(@Observes @Initialized(ApplicationScoped.class) Object evenement) {
+        if (RoutageSourceDonnees.getReplique() != null) {
+            tache = planificateur.scheduleWithFixedDelay(this::mesurer, 0, PERIODE_MESURE_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void avantArret(@Observes @BeforeDestroyed(ApplicationScoped.class) Object evenement) {
+        if (tache != null) {
+            tache.cancel(false);
+        }
+    }
+
+    void surFinSession(@Observes(during = TransactionPhase.AFTER_SUCCESS) FinSessionTest evenement) {
+        long maintenant = System.currentTimeMillis();
+        finsParSession.put(evenement.getSessionId(), maintenant);
+        if (evenement.getCandidatId() != null) {
+            finsParCandidat.put(evenement.getCandidatId(), maintenant);
+        }
+    }
+
+    public boolean repliqueUtilisable() {
+        Integer retard = retardSecondes;
+        return retard != null && retard <= retardMaxSecondes;
+    }
+
+    public void compterLecture(boolean replique) {
+        (replique ? lecturesReplique : lecturesPrimaire).incrementAndGet();
+    }
+
+    /**
+     * Ramène la lecture en cours sur la primaire si la session vient d'être terminée
+     */
+    public void exigerFraicheurSession(Integer sessionId) {
+        exigerFraicheur(sessionId != null ? finsParSession.get(sessionId) : null);
+    }
+
+    /**
+     * Ramène la lecture en cours sur la primaire si une session du candidat vient d'être terminée
+     */
+    public void exigerFraicheurCandidat(Integer candidatId) {
+        exigerFraicheur(candidatId != null ? finsParCandidat.get(candidatId) : null);
+    }
+
+    public Map<String, Object> getMetriques() {
+        Map<String, Object> metriques = new LinkedHashMap<>();
+        metriques.put("replique", RoutageSourceDonnees.NOM_JNDI_REPLIQUE);
+        metriques.put("configuree", RoutageSourceDonnees.getReplique() != null);
+        metriques.put("retardSecondes", retardSecondes);
+        metriques.put("retardMaxSecondes", retardMaxSecondes);
+        metriques.put("utilisable", repliqueUtilisable());
+        metriques.put("lecturesReplique", lecturesReplique.get());
+        metriques.put("lecturesPrimaire", lecturesPrimaire.get());
+        metriques.put("retoursPrimaireFraicheur", retoursPrimaireFraicheur.get());
+        metriques.put("finsRecentesSuivies", finsParSession.size());
+        return metriques;
+    }
+
+    private void exigerFraicheur(Long fin) {
+        if (fin == null) {
+            return;
+        }
+        Integer retard = retardSecondes;
+        if (retard == null || System.currentTimeMillis() - fin <= retard * 1000L + MARGE_FRAICHEUR_MS) {
+            RoutageSourceDonnees.forcerPrimaire();
+            retoursPrimaireFraicheur.incrementAndGet();
+        }
+    }
+
+    private void mesurer() {
+        try {
+            try {
+                retardMaxSecondes = Math.max(0,
+                    parametreRepository.getValeurParametreAsInteger("REPLIQUE_RETARD_MAX_S", RETARD_MAX_PAR_DEFAUT_S));
+            } catch (Exception e) {
+                System.err.println("Lecture du retard maximal de la réplique impossible: " + e.getMessage());
+            }
+
+            Integer precedent = retardSecondes;
+            try {
+                retardSecondes = lireRetard(RoutageSourceDonnees.getReplique());
+            } catch (SQLException e) {
+                retardSecondes = null;
+                if (precedent != null) {
+                    System.err.println("Réplique injoignable, lectures sur la primaire: " + e.getMessage());
+                }
+            }
+
+            long limite = System.currentTimeMillis() - RETENTION_FINS_MS;
+            finsParSession.values().removeIf(fin -> fin < limite);
+            finsParCandidat.values().removeIf(fin -> fin < limite);
+        } catch (Exception e) {
+            // Une exception non rattrapée arrêterait la tâche planifiée
+            System.err.println("Erreur de mesure du retard de la réplique: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Seconds_Behind_Source de la réplique ; 0 pour une instance autonome (seconde base locale, H2),
+     * null si la réplication est arrêtée
+     */
+    private static Integer lireRetard(DataSource replique) throws SQLException {
+        try (Connection connexion = replique.getConnection();
+             Statement statement = connexion.createStatement()) {
+            for (String requete : new String[] {"SHOW REPLICA STATUS", "SHOW SLAVE STATUS"}) {
+                ResultSet resultat;
+                try {
+                    resultat = statement.executeQuery(requete);
+                } catch (SQLException e) {
+                    // MySQL antérieur à 8.0.22, ou base qui ne connaît pas la réplication
+                    continue;
+                }
+                try (ResultSet lignes = resultat) {
+                    if (!lignes.next()) {
+                        return 0;
+                    }
+                    Object retard;
+                    try {
+                        retard = lignes.getObject("Seconds_Behind_Source");
+                    } catch (SQLException e) {
+                        retard = lignes.getObject("Seconds_Behind_Master");
+                    }
+                    return retard != null ? ((Number) retard).intValue() : null;
+                }
+            }
+            return 0;
+        }
+    }
+}
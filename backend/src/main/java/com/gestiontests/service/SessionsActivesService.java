@@ -0,0 +1,192 @@
+package com.gestiontests.service;
+
+import com.gestiontests.repository.SessionQuestionRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Registre des sessions de test en cours. L'ordre des questions d'une session est chargé une seule
+ * fois (une requête de projection) au premier accès ; navigation, contrôle d'appartenance et
+ * progression deviennent ensuite de simples accès tableau. Une session est évincée lorsqu'elle est
+ * terminée ou réinitialisée sur ce nœud, et au plus tard à son échéance (fin ou remise à zéro
+ * décidée par un autre nœud) ; un identifiant de session_question qui ne se résout plus en base
+ * fait aussi évincer la session (voir TestService.getSessionQuestion).
+ */
+@ApplicationScoped
+public class SessionsActivesService {
+
+    @Inject
+    private SessionQuestionRepository sessionQuestionRepository;
+
+    private static final int NOMBRE_GENERATIONS = 64;
+
+    private static final long INTERVALLE_PURGE_MS = 60_000;
+
+    private final ConcurrentHashMap<Integer, EtatSessionActive> sessions = new ConcurrentHashMap<>();
+
+    // Compteurs d'évictions par tranche d'identifiants : un état chargé pendant une éviction de sa
+    // session (lu avant la validation de la fin ou de la remise à zéro) n'est pas conservé
+    private final AtomicLongArray generations = new AtomicLongArray(NOMBRE_GENERATIONS);
+
+    private final AtomicLong prochainePurge = new AtomicLong();
+
+    /**
+     * État de la session si elle est en cours, ou null si elle n'existe pas ou est terminée
+     */
+    EtatSessionActive getEtat(Integer sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+        long maintenant = System.currentTimeMillis();
+        purgerExpires(maintenant);
+        EtatSessionActive etat = sessions.get(sessionId);
+        if (etat != null) {
+            if (!etat.estExpire(maintenant)) {
+                return etat;
+            }
+            sessions.remove(sessionId, etat);
+        }
+        // Chargé hors de computeIfAbsent : la requête ne s'exécute pas sous le verrou de la table de hachage
+        long generation = generations.get(tranche(sessionId));
+        etat = charger(sessionId);
+        if (etat == null || etat.estExpire(maintenant)) {
+            return null;
+        }
+        EtatSessionActive existant = sessions.putIfAbsent(sessionId, etat);
+        if (existant != null) {
+            return existant;
+        }
+        if (generations.get(tranche(sessionId)) != generation) {
+            // Une éviction a pu suivre la lecture : l'état sert à cet appel mais n'est pas gardé
+            sessions.remove(sessionId, etat);
+        }
+        return etat;
+    }
+
+    public boolean contientQuestion(Integer sessionId, Integer questionId) {
+        EtatSessionActive etat = getEtat(sessionId);
+        return etat != null && questionId != null && etat.contient(questionId);
+    }
+
+    /**
+     * Identifiant de session_question de la question dans la session en cours, ou null
+     */
+    public Integer getSessionQuestionId(Integer sessionId, Integer questionId) {
+        EtatSessionActive etat = getEtat(sessionId);
+        return etat != null && questionId != null ? etat.sessionQuestionDe(questionId) : null;
+    }
+
+    /**
+     * Identifiant de session_question situé à un décalage donné de la question courante, ou null
+     * (question absente, début ou fin de test)
+     */
+    public Integer getSessionQuestionVoisine(Integer sessionId, Integer questionId, int decalage) {
+        EtatSessionActive etat = getEtat(sessionId);
+        if (etat == null || questionId == null) {
+            return null;
+        }
+        int position = etat.position(questionId);
+        return position >= 0 ? etat.sessionQuestionA(position + decalage) : null;
+    }
+
+    public void marquerRepondue(Integer sessionId, Integer questionId) {
+        EtatSessionActive etat = sessions.get(sessionId);
+        if (etat != null && questionId != null) {
+            etat.marquerRepondue(questionId);
+        }
+    }
+
+    /**
+     * Progression de la session en cours, ou null si elle n'est pas en cours
+     */
+    public Map<String, Object> getProgression(Integer sessionId) {
+        EtatSessionActive etat = getEtat(sessionId);
+        if (etat == null) {
+            return null;
+        }
+        int total = etat.getNombreQuestions();
+        List<Integer> nonRepondues = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            if (!etat.estRepondue(i)) {
+                nonRepondues.add(etat.questionA(i));
+            }
+        }
+        Map<String, Object> progression = new LinkedHashMap<>();
+        progression.put("totalQuestions", total);
+        progression.put("questionsRepondues", etat.getNombreRepondues());
+        progression.put("pourcentage", total > 0 ? Math.round(etat.getNombreRepondues() * 1000.0 / total) / 10.0 : 0.0);
+        progression.put("questionsNonRepondues", nonRepondues);
+        return progression;
+    }
+
+    public void evincer(Integer sessionId) {
+        if (sessionId != null) {
+            generations.incrementAndGet(tranche(sessionId));
+            sessions.remove(sessionId);
+        }
+    }
+
+    public int getNombreSessions() {
+        return sessions.size();
+    }
+
+    // Le registre ne suit que des changements validés en base
+    void surReponseEnregistree(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReponseEnregistree evenement) {
+        marquerRepondue(evenement.getSessionId(), evenement.getQuestionId());
+    }
+
+    void surFinSession(@Observes(during = TransactionPhase.AFTER_SUCCESS) FinSessionTest evenement) {
+        evincer(evenement.getSessionId());
+    }
+
+    void surReinitialisation(@Observes(during = TransactionPhase.AFTER_SUCCESS) ReinitialisationSessions evenement) {
+        for (Integer sessionId : evenement.getSessionIds()) {
+            evincer(sessionId);
+        }
+    }
+
+    private static int tranche(Integer sessionId) {
+        return Math.floorMod(sessionId, NOMBRE_GENERATIONS);
+    }
+
+    // Sessions abandonnées : retirées à leur échéance même si plus personne ne les consulte
+    private void purgerExpires(long maintenant) {
+        long prevue = prochainePurge.get();
+        if (maintenant < prevue || !prochainePurge.compareAndSet(prevue, maintenant + INTERVALLE_PURGE_MS)) {
+            return;
+        }
+        sessions.values().removeIf(etat -> etat.estExpire(maintenant));
+    }
+
+    private EtatSessionActive charger(Integer sessionId) {
+        List<Object[]> lignes = sessionQuestionRepository.findNavigationSessionEnCours(sessionId);
+        if (lignes.isEmpty()) {
+            return null;
+        }
+        int n = lignes.size();
+        int[] sessionQuestions = new int[n];
+        int[] questions = new int[n];
+        boolean[] repondues = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            Object[] ligne = lignes.get(i);
+            sessionQuestions[i] = (Integer) ligne[0];
+            questions[i] = (Integer) ligne[1];
+            repondues[i] = ((Number) ligne[2]).longValue() > 0;
+        }
+        LocalDateTime echeance = TestService.echeance((LocalDateTime) lignes.get(0)[3]);
+        return new EtatSessionActive(questions, sessionQuestions, repondues,
+            echeance.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+}
@@ -0,0 +1,120 @@
+package com.gestiontests.service;
+
+import com.gestiontests.repository.StatistiquesRepository;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Instantané des compteurs du tableau de bord d'administration. Calculé en une requête,
+ * servi depuis la mémoire et rafraîchi en arrière-plan une fois sa durée de validité écoulée :
+ * les lecteurs ne paient jamais le calcul, sauf au tout premier appel.
+ */
+@ApplicationScoped
+public class TableauBordService {
+
+    // Durée de validité de l'instantané
+    private static final long VALIDITE_MS = 15_000;
+
+    @Inject
+    private StatistiquesRepository statistiquesRepository;
+
+    @Resource
+    private ManagedExecutorService executeur;
+
+    private volatile Instantane instantane;
+
+    private final AtomicBoolean rafraichissementEnCours = new AtomicBoolean(false);
+
+    // Évite plusieurs calculs simultanés au premier appel
+    private final ReentrantLock verrouInitial = new ReentrantLock();
+
+    /**
+     * Compteurs courants (éventuellement périmés de quelques secondes)
+     */
+    public Map<String, Number> getCompteurs() {
+        Instantane courant = instantane;
+        if (courant == null) {
+            verrouInitial.lock();
+            try {
+                if (instantane == null) {
+                    rafraichir();
+                }
+                courant = instantane;
+            } finally {
+                verrouInitial.unlock();
+            }
+        } else if (courant.estPerime() && rafraichissementEnCours.compareAndSet(false, true)) {
+            try {
+                executeur.submit(() -> {
+                    try {
+                        rafraichir();
+                    } catch (Exception e) {
+                        System.err.println("Rafraîchissement du tableau de bord impossible: " + e.getMessage());
+                    } finally {
+                        rafraichissementEnCours.set(false);
+                    }
+                });
+            } catch (RuntimeException e) {
+                rafraichissementEnCours.set(false);
+                throw e;
+            }
+        }
+        return courant.compteurs;
+    }
+
+    public long get(String compteur) {
+        Number valeur = getCompteurs().get(compteur);
+        return valeur != null ? valeur.longValue() : 0L;
+    }
+
+    public LocalDateTime getDateCalcul() {
+        getCompteurs();
+        return instantane.dateCalcul;
+    }
+
+    /**
+     * Statistiques de résultats dans le format de ResultatService.getStatsGlobales
+     */
+    public Map<String, Object> getStatsResultats() {
+        Map<String, Number> compteurs = getCompteurs();
+        long total = compteurs.get("totalSessions").longValue();
+        long terminees = compteurs.get("sessionsTerminees").longValue();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalSessions", total);
+        stats.put("sessionsTerminees", terminees);
+        stats.put("tauxCompletion", total > 0 ? (double) terminees / total * 100 : 0);
+        stats.put("scoreMoyen", compteurs.get("scoreMoyen"));
+        return stats;
+    }
+
+    private void rafraichir() {
+        Map<String, Number> compteurs = statistiquesRepository.compterTableauBord();
+        instantane = new Instantane(Collections.unmodifiableMap(compteurs), LocalDateTime.now(),
+            System.currentTimeMillis());
+    }
+
+    private static final class Instantane {
+        private final Map<String, Number> compteurs;
+        private final LocalDateTime dateCalcul;
+        private final long calculeA;
+
+        Instantane(Map<String, Number> compteurs, LocalDateTime dateCalcul, long calculeA) {
+            this.compteurs = compteurs;
+            this.dateCalcul = dateCalcul;
+            this.calculeA = calculeA;
+        }
+
+        boolean estPerime() {
+            return System.currentTimeMillis() - calculeA > VALIDITE_MS;
+        }
+    }
+}
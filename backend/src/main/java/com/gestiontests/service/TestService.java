@@ -3,6 +3,7 @@ package com.gestiontests.service;
 import com.gestiontests.entity.*;
 import com.gestiontests.repository.*;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
@@ -11,10 +12,14 @@ import jakarta.transaction.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 
 @ApplicationScoped
 public class TestService {
     
+    // Durée d'un test, à compter de dateDebut
+    public static final int DUREE_TEST_MINUTES = 120;
+    
     @Inject
     private SessionTestRepository sessionTestRepository;
     
@@ -39,11 +44,32 @@ public class TestService {
     @Inject
     private ParametreRepository parametreRepository;
     
+    @Inject
+    private CreneauHoraireRepository creneauHoraireRepository;
+    
     @PersistenceContext
     private EntityManager entityManager;
     
     @Inject
-    private EmailService emailService;
+    private ClassementService classementService;
+    
+    @Inject
+    private AnalyseItemsService analyseItemsService;
+    
+    @Inject
+    private ExpirationSessionsService expirationSessionsService;
+    
+    @Inject
+    private Event<FinSessionTest> finSession;
+    
+    @Inject
+    private Event<ReinitialisationSessions> reinitialisationSessions;
+    
+    @Inject
+    private Event<ReponseEnregistree> reponseEnregistree;
+    
+    @Inject
+    private SessionsActivesService sessionsActivesService;
     
     @Transactional
     public SessionTest demarrerTest(String codeSession) throws Exception {
@@ -71,9 +97,18 @@ public class TestService {
         Optional<SessionTest> sessionExistante = sessionTestRepository.findByCodeSession(codeSession);
         if (sessionExistante.isPresent() && !sessionExistante.get().getEstTermine()) {
             SessionTest session = sessionExistante.get();
+            if (session.getDateDebut() == null) {
+                // Session préparée avant le créneau : il ne reste qu'à lancer le chronomètre
+                session.demarrerSession();
+                SessionTest demarree = sessionTestRepository.update(session);
+                expirationSessionsService.planifier(demarree.getId(), demarree.getDateDebut());
+                System.out.println("Starting pre-generated session: " + demarree.getId());
+                return demarree;
+            }
             List<SessionQuestion> questions = sessionQuestionRepository.findBySession(session.getId());
             
             System.out.println("Returning existing active session: " + session.getId() + " with " + questions.size() + " questions");
+            expirationSessionsService.planifier(session.getId(), session.getDateDebut());
             return session;
         }
         
@@ -81,26 +116,13 @@ public class TestService {
         if (sessionExistante.isPresent() && sessionExistante.get().getEstTermine()) {
             System.out.println("Resetting terminated session: " + sessionExistante.get().getId());
             SessionTest session = sessionExistante.get();
-            session.setEstTermine(false);
-            session.setScoreTotal(0);
-            session.setDateDebut(LocalDateTime.now());
-            session.setDateFin(null);
-            session.setPourcentage(BigDecimal.ZERO);
             
             // Supprimer anciennes réponses seulement (garder les questions existantes)
-            List<SessionQuestion> questions = sessionQuestionRepository.findBySession(session.getId());
-            System.out.println("Found " + questions.size() + " existing questions for terminated session");
-            
-            for (SessionQuestion q : questions) {
-                List<ReponseCandidat> reponses = reponseCandidatRepository.findBySession(q.getId());
-                for (ReponseCandidat r : reponses) {
-                    reponseCandidatRepository.delete(r);
-                }
-            }
-            
-            session.setScoreMax(questions.size());
+            reinitialiser(List.of(session), false, true);
+            session.demarrerSession();
             SessionTest updatedSession = sessionTestRepository.update(session);
-            System.out.println("Returning reset session with " + questions.size() + " existing questions");
+            expirationSessionsService.planifier(updatedSession.getId(), updatedSession.getDateDebut());
+            System.out.println("Returning reset session with " + updatedSession.getScoreMax() + " existing questions");
             return updatedSession;
         }
         
@@ -110,17 +132,177 @@ public class TestService {
             throw new Exception("Aucune question disponible pour le test");
         }
         
+        SessionTest savedSession = creerSession(candidat, codeSession, null, questions, true);
+        expirationSessionsService.planifier(savedSession.getId(), savedSession.getDateDebut());
+        
+        return savedSession;
+    }
+    
+    /**
+     * Prépare à l'avance les sessions (tirage et insertion des questions) des candidats donnés,
+     * sans les démarrer ; les candidats ayant déjà une session sont ignorés
+     *
+     * @return nombre de sessions préparées
+     */
+    @Transactional
+    public int preparerSessions(Integer creneauId, List<Integer> candidatIds) throws Exception {
+        Optional<CreneauHoraire> creneauOpt = creneauHoraireRepository.findById(creneauId);
+        if (creneauOpt.isEmpty()) {
+            throw new Exception("Créneau non trouvé");
+        }
+        
+        // Banque de questions lue une seule fois pour tout le lot
+        Map<Integer, List<Question>> questionsParTheme = chargerQuestionsParTheme();
+        Random random = new Random();
+        int preparees = 0;
+        for (Integer candidatId : candidatIds) {
+            Optional<Candidat> candidatOpt = candidatService.findById(candidatId);
+            if (candidatOpt.isEmpty() || !Boolean.TRUE.equals(candidatOpt.get().getEstValide())) {
+                continue;
+            }
+            Candidat candidat = candidatOpt.get();
+            if (sessionTestRepository.findByCodeSession(candidat.getCodeSession()).isPresent()) {
+                continue;
+            }
+            
+            List<SessionQuestion> questions = genererQuestionsPourTest(questionsParTheme, random);
+            if (questions.isEmpty()) {
+                throw new Exception("Aucune question disponible pour le test");
+            }
+            creerSession(candidat, candidat.getCodeSession(), creneauOpt.get(), questions, false);
+            preparees++;
+        }
+        return preparees;
+    }
+    
+    /**
+     * Réinitialise des sessions en une seule transaction, pour une nouvelle passation : elles
+     * repassent à l'état préparé (non démarrées) et le candidat peut relancer le test
+     *
+     * @param nouveauTirage remplace aussi les questions par un nouveau tirage
+     * @return nombre de sessions réinitialisées
+     */
+    @Transactional
+    public int reinitialiserSessions(List<Integer> sessionIds, boolean nouveauTirage) {
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            return 0;
+        }
+        List<SessionTest> sessions = sessionTestRepository.findByIds(sessionIds);
+        if (!sessions.isEmpty()) {
+            reinitialiser(sessions, nouveauTirage, false);
+        }
+        return sessions.size();
+    }
+    
+    /**
+     * Remet à zéro des sessions avec des suppressions ensemblistes (réponses, et questions en cas de
+     * nouveau tirage) ; les anciennes corrections sont retirées des statistiques. Les échéances sont
+     * annulées après validation (ExpirationSessionsService), sauf pour des sessions redémarrées aussitôt.
+     */
+    private void reinitialiser(List<SessionTest> sessions, boolean nouveauTirage, boolean redemarrees) {
+        List<Integer> ids = new ArrayList<>(sessions.size());
+        List<Integer> terminees = new ArrayList<>();
+        for (SessionTest session : sessions) {
+            ids.add(session.getId());
+            if (Boolean.TRUE.equals(session.getEstTermine())) {
+                terminees.add(session.getId());
+            }
+        }
+        // Anciens résultats, retirés des distributions de scores après validation
+        List<EntreeClassement> anciennesEntrees = classementService.chargerEntreesSessions(terminees);
+        
+        Map<Integer, Integer> nombreQuestions = retirerCorrections(sessions, ids);
+        int reponsesSupprimees = reponseCandidatRepository.deleteBySessions(ids);
+        System.out.println("Reset of " + ids.size() + " sessions: " + reponsesSupprimees + " answers deleted");
+        
+        Map<Integer, List<Question>> questionsParTheme = null;
+        Random random = new Random();
+        if (nouveauTirage) {
+            sessionQuestionRepository.deleteBySessions(ids);
+            questionsParTheme = chargerQuestionsParTheme();
+        }
+        
+        for (SessionTest session : sessions) {
+            if (nouveauTirage) {
+                List<SessionQuestion> questions = genererQuestionsPourTest(questionsParTheme, random);
+                insererQuestions(session, questions);
+                session.setScoreMax(questions.size());
+            } else {
+                session.setScoreMax(nombreQuestions.getOrDefault(session.getId(), 0));
+            }
+            session.setEstTermine(false);
+            session.setScoreTotal(0);
+            session.setDateDebut(null);
+            session.setDateFin(null);
+            session.setPourcentage(BigDecimal.ZERO);
+        }
+        reinitialisationSessions.fire(new ReinitialisationSessions(ids, anciennesEntrees,
+            redemarrees ? ids : List.of()));
+    }
+    
+    /**
+     * Retire de l'analyse des questions la correction des sessions terminées (une seule requête)
+     *
+     * @return nombre de questions de chaque session
+     */
+    private Map<Integer, Integer> retirerCorrections(List<SessionTest> sessions, List<Integer> ids) {
+        Map<Integer, List<Object[]>> lignesParSession = new HashMap<>();
+        Integer dernierSessionQuestion = null;
+        for (Object[] ligne : sessionQuestionRepository.findLignesCorrection(ids)) {
+            // Une seule réponse par question, comme lors de la correction
+            if (ligne[1].equals(dernierSessionQuestion)) {
+                continue;
+            }
+            dernierSessionQuestion = (Integer) ligne[1];
+            lignesParSession.computeIfAbsent((Integer) ligne[0], id -> new ArrayList<>()).add(ligne);
+        }
+        
+        Map<Integer, Integer> nombreQuestions = new HashMap<>();
+        for (SessionTest session : sessions) {
+            List<Object[]> lignes = lignesParSession.getOrDefault(session.getId(), Collections.emptyList());
+            nombreQuestions.put(session.getId(), lignes.size());
+            if (!Boolean.TRUE.equals(session.getEstTermine())) {
+                continue;
+            }
+            
+            ItemsCorriges anciens = new ItemsCorriges(lignes.size());
+            for (Object[] ligne : lignes) {
+                anciens.ajouter((Integer) ligne[2], (Integer) ligne[4], ligne[3] != null,
+                    Boolean.TRUE.equals(ligne[5]), (Integer) ligne[6]);
+            }
+            // L'ancienne correction ne compte plus dans l'analyse des questions
+            int ancienScore = session.getScoreTotal() != null ? session.getScoreTotal() : 0;
+            int ancienScoreMax = session.getScoreMax() != null ? session.getScoreMax() : 0;
+            analyseItemsService.retirerSession(session.getId(), anciens.questions, anciens.options,
+                anciens.repondues, anciens.correctes, anciens.temps, ancienScore, ancienScoreMax);
+        }
+        return nombreQuestions;
+    }
+    
+    /**
+     * Crée la session et ses questions ; une session non démarrée garde une date de début nulle
+     */
+    private SessionTest creerSession(Candidat candidat, String codeSession, CreneauHoraire creneau,
+                                     List<SessionQuestion> questions, boolean demarrer) {
         // Créer la session de test
         SessionTest sessionTest = new SessionTest();
         sessionTest.setCandidat(candidat);
         sessionTest.setCodeSession(codeSession);
+        sessionTest.setCreneau(creneau);
         sessionTest.setScoreMax(questions.size());
-        sessionTest.demarrerSession();
+        if (demarrer) {
+            sessionTest.demarrerSession();
+        }
         
         SessionTest savedSession = sessionTestRepository.create(sessionTest);
         
         System.out.println("Created new session with ID: " + savedSession.getId());
+        insererQuestions(savedSession, questions);
         
+        return savedSession;
+    }
+    
+    private void insererQuestions(SessionTest savedSession, List<SessionQuestion> questions) {
         // Sauvegarder les questions de la session avec SQL natif
         for (int i = 0; i < questions.size(); i++) {
             SessionQuestion sessionQuestion = questions.get(i);
@@ -137,12 +319,20 @@ public class TestService {
         }
         
         System.out.println("Created " + questions.size() + " session questions");
-        
-        return savedSession;
     }
     
-    @Transactional
     public ReponseCandidat enregistrerReponse(Integer sessionId, Integer questionId, Map<String, Object> reponseData) throws Exception {
+        return enregistrerReponse(sessionId, questionId, reponseData, LocalDateTime.now());
+    }
+    
+    /**
+     * Enregistre la réponse à une question. L'instant d'arrivée est fixé par l'appelant avant les
+     * reprises sur conflit : une requête rejouée après une écriture concurrente plus récente ne
+     * remplace pas la réponse de celle-ci (voir fusionnerReponse).
+     */
+    @Transactional
+    public ReponseCandidat enregistrerReponse(Integer sessionId, Integer questionId, Map<String, Object> reponseData,
+                                              LocalDateTime recueA) throws Exception {
         Optional<SessionTest> sessionOpt = sessionTestRepository.findById(sessionId);
         if (sessionOpt.isEmpty()) {
             throw new Exception("Session de test non trouvée");
@@ -153,16 +343,18 @@ public class TestService {
             throw new Exception("Le test est déjà terminé");
         }
         
+        // Session préparée avant le créneau : le test n'a pas commencé
+        if (session.getDateDebut() == null) {
+            throw new Exception("Le test n'a pas encore commencé");
+        }
+        
         // Vérifier si le temps n'est pas écoulé
-        if (session.getDateDebut() != null) {
-            LocalDateTime finEstimee = session.getDateDebut().plusMinutes(120); // 2 heures de test
-            if (LocalDateTime.now().isAfter(finEstimee)) {
-                terminerTest(sessionId);
-                throw new Exception("Le temps du test est écoulé");
-            }
+        if (LocalDateTime.now().isAfter(echeance(session.getDateDebut()))) {
+            terminerTest(sessionId);
+            throw new Exception("Le temps du test est écoulé");
         }
         
-        Optional<SessionQuestion> sessionQuestionOpt = sessionQuestionRepository.findBySessionAndQuestion(sessionId, questionId);
+        Optional<SessionQuestion> sessionQuestionOpt = getSessionQuestion(sessionId, questionId);
         if (sessionQuestionOpt.isEmpty()) {
             throw new Exception("Question non trouvée dans cette session");
         }
@@ -174,18 +366,22 @@ public class TestService {
         if (reponseExistanteOpt.isPresent()) {
             // Mettre à jour la réponse existante
             ReponseCandidat reponse = reponseExistanteOpt.get();
-            mettreAJourReponse(reponse, reponseData);
+            fusionnerReponse(reponse, reponseData, recueA);
             return reponseCandidatRepository.update(reponse);
         } else {
             // Créer une nouvelle réponse
             ReponseCandidat reponse = creerReponse(sessionQuestion, reponseData);
-            return reponseCandidatRepository.create(reponse);
+            reponse.setDateModification(recueA);
+            ReponseCandidat creee = reponseCandidatRepository.create(reponse);
+            reponseEnregistree.fire(new ReponseEnregistree(sessionId, questionId));
+            return creee;
         }
     }
     
     @Transactional
     public SessionTest terminerTest(Integer sessionId) throws Exception {
-        Optional<SessionTest> sessionOpt = sessionTestRepository.findById(sessionId);
+        // Verrou de ligne : une seule finalisation même si plusieurs requêtes ou nœuds se croisent
+        Optional<SessionTest> sessionOpt = sessionTestRepository.findByIdPourMiseAJour(sessionId);
         if (sessionOpt.isEmpty()) {
             throw new Exception("Session de test non trouvée");
         }
@@ -194,6 +390,10 @@ public class TestService {
         if (session.getEstTermine()) {
             return session;
         }
+        if (session.getDateDebut() == null) {
+            // Session préparée jamais démarrée : ni score, ni classement, ni e-mail de résultats
+            throw new Exception("Le test n'a pas encore commencé");
+        }
         
         // Calculer le score
         calculerScore(session);
@@ -201,19 +401,41 @@ public class TestService {
         // Marquer comme terminé
         session.terminerSession();
         SessionTest updatedSession = sessionTestRepository.update(session);
+        expirationSessionsService.annuler(sessionId);
+        // Classement, distributions et e-mail de résultats suivent la validation (le candidat est chargé ici)
+        EntreeClassement entree = classementService.creerEntree(updatedSession);
+        finSession.fire(new FinSessionTest(sessionId, session.getCandidat(),
+            session.getDateDebut() != null && !LocalDateTime.now().isBefore(echeance(session.getDateDebut())), entree));
+        
+        return updatedSession;
+    }
+    
+    /**
+     * Finalise une session dont le temps est écoulé ; renvoie false si elle est déjà terminée
+     * (par le candidat ou un autre nœud) ou si elle a été redémarrée entre-temps
+     */
+    @Transactional
+    public boolean finaliserSessionExpiree(Integer sessionId) throws Exception {
+        Optional<SessionTest> sessionOpt = sessionTestRepository.findByIdPourMiseAJour(sessionId);
+        if (sessionOpt.isEmpty() || sessionOpt.get().getEstTermine() || sessionOpt.get().getDateDebut() == null) {
+            return false;
+        }
         
-        // Envoyer les résultats par email
-        try {
-            emailService.envoyerEmailResultats(
-                session.getCandidat(),
-                session.getScoreTotal().toString(),
-                session.getPourcentage().toString()
-            );
-        } catch (Exception e) {
-            System.err.println("Erreur lors de l'envoi des résultats par email: " + e.getMessage());
+        SessionTest session = sessionOpt.get();
+        if (LocalDateTime.now().isBefore(echeance(session.getDateDebut()))) {
+            expirationSessionsService.planifier(sessionId, session.getDateDebut());
+            return false;
         }
         
-        return updatedSession;
+        terminerTest(sessionId);
+        return true;
+    }
+    
+    /**
+     * Heure de fin d'un test démarré à la date donnée
+     */
+    public static LocalDateTime echeance(LocalDateTime dateDebut) {
+        return dateDebut.plusMinutes(DUREE_TEST_MINUTES);
     }
     
     public Optional<SessionTest> getSessionById(Integer sessionId) {
@@ -228,12 +450,55 @@ public class TestService {
         return sessionQuestionRepository.findBySession(sessionId);
     }
     
+    /**
+     * Question d'une session : lecture par clé primaire depuis le registre des sessions en cours,
+     * requête sur la session et la question sinon. Un identifiant du registre qui ne se résout plus
+     * (nouveau tirage décidé par un autre nœud) fait évincer la session, relue ensuite en base.
+     */
+    public Optional<SessionQuestion> getSessionQuestion(Integer sessionId, Integer questionId) {
+        Integer sessionQuestionId = sessionsActivesService.getSessionQuestionId(sessionId, questionId);
+        if (sessionQuestionId != null) {
+            Optional<SessionQuestion> sessionQuestion = sessionQuestionRepository.findById(sessionQuestionId);
+            if (sessionQuestion.isPresent()) {
+                return sessionQuestion;
+            }
+            sessionsActivesService.evincer(sessionId);
+        }
+        return sessionQuestionRepository.findBySessionAndQuestion(sessionId, questionId);
+    }
+    
     public Optional<SessionQuestion> getNextQuestion(Integer sessionId, Integer currentQuestionId) {
-        return sessionQuestionRepository.findNextQuestion(sessionId, currentQuestionId);
+        return getQuestionVoisine(sessionId, currentQuestionId, 1);
     }
     
     public Optional<SessionQuestion> getPreviousQuestion(Integer sessionId, Integer currentQuestionId) {
-        return sessionQuestionRepository.findPreviousQuestion(sessionId, currentQuestionId);
+        return getQuestionVoisine(sessionId, currentQuestionId, -1);
+    }
+    
+    private Optional<SessionQuestion> getQuestionVoisine(Integer sessionId, Integer currentQuestionId, int decalage) {
+        if (sessionsActivesService.contientQuestion(sessionId, currentQuestionId)) {
+            Integer voisine = sessionsActivesService.getSessionQuestionVoisine(sessionId, currentQuestionId, decalage);
+            if (voisine == null) {
+                return Optional.empty();
+            }
+            Optional<SessionQuestion> sessionQuestion = sessionQuestionRepository.findById(voisine);
+            if (sessionQuestion.isPresent()) {
+                return sessionQuestion;
+            }
+            // Tirage remplacé ailleurs : le registre est relu au prochain accès
+            sessionsActivesService.evincer(sessionId);
+        }
+        // Session terminée : parcours en base
+        return decalage > 0
+            ? sessionQuestionRepository.findNextQuestion(sessionId, currentQuestionId)
+            : sessionQuestionRepository.findPreviousQuestion(sessionId, currentQuestionId);
+    }
+    
+    /**
+     * Progression de la session en cours (questions répondues), ou null si elle n'est pas en cours
+     */
+    public Map<String, Object> getProgression(Integer sessionId) {
+        return sessionsActivesService.getProgression(sessionId);
     }
     
     public Optional<ReponseCandidat> getReponseBySessionQuestion(Integer sessionQuestionId) {
@@ -253,21 +518,37 @@ public class TestService {
     }
     
     private List<SessionQuestion> genererQuestionsPourTest() {
+        return genererQuestionsPourTest(chargerQuestionsParTheme(), new Random());
+    }
+    
+    /**
+     * Questions de la banque groupées par thème (chargées une fois pour tout un lot de sessions)
+     */
+    private Map<Integer, List<Question>> chargerQuestionsParTheme() {
+        Map<Integer, List<Question>> questionsParTheme = new LinkedHashMap<>();
+        for (Theme theme : themeRepository.findAll()) {
+            questionsParTheme.put(theme.getId(), questionRepository.findByTheme(theme.getId()));
+        }
+        return questionsParTheme;
+    }
+    
+    private List<SessionQuestion> genererQuestionsPourTest(Map<Integer, List<Question>> questionsParTheme, Random random) {
         // Récupérer les paramètres
         Integer nombreQuestionsParTheme = parametreRepository.getValeurParametreAsInteger("NOMBRE_QUESTIONS_PAR_THEME", 5);
         Integer tempsParQuestion = parametreRepository.getValeurParametreAsInteger("TEMPS_QUESTION_PAR_DEFAUT", 120);
-        
-        // Récupérer tous les thèmes
-        List<Theme> themes = themeRepository.findAll();
+        return tirerQuestions(questionsParTheme, nombreQuestionsParTheme, tempsParQuestion, random);
+    }
+    
+    /**
+     * Tirage aléatoire des questions d'une session, sans accès à la base (mesuré dans le module benchmarks)
+     */
+    static List<SessionQuestion> tirerQuestions(Map<Integer, List<Question>> questionsParTheme,
+                                                int nombreQuestionsParTheme, int tempsParQuestion, Random random) {
         List<SessionQuestion> sessionQuestions = new ArrayList<>();
         
-        Random random = new Random();
-        
-        for (Theme theme : themes) {
-            // Récupérer les questions pour ce thème
-            List<Question> questionsTheme = questionRepository.findByTheme(theme.getId());
-            
-            // Mélanger les questions
+        for (List<Question> banqueTheme : questionsParTheme.values()) {
+            // Mélanger une copie des questions du thème
+            List<Question> questionsTheme = new ArrayList<>(banqueTheme);
             Collections.shuffle(questionsTheme, random);
             
             // Prendre le nombre requis de questions
@@ -292,27 +573,81 @@ public class TestService {
         List<SessionQuestion> questions = sessionQuestionRepository.findBySession(session.getId());
         System.out.println("DEBUG: Calculating score for session " + session.getId() + " with " + questions.size() + " questions");
         
-        int score = 0;
-        int totalReponses = 0;
+        ItemsCorriges items = new ItemsCorriges(questions.size());
+        int score = corriger(questions,
+            sessionQuestionId -> reponseCandidatRepository.findBySessionQuestion(sessionQuestionId).orElse(null), items);
+        
+        System.out.println("DEBUG: Final score - Correct: " + score + ", Total responses: " + items.nombreRepondues()
+            + ", Total questions: " + questions.size());
+        
+        session.setScoreTotal(score);
+        session.setScoreMax(questions.size());
         
+        analyseItemsService.enregistrerSession(session.getId(), items.questions, items.options,
+            items.repondues, items.correctes, items.temps, score, questions.size());
+    }
+    
+    /**
+     * Correction des questions d'une session : renvoie le nombre de bonnes réponses et remplit les items
+     */
+    static int corriger(List<SessionQuestion> questions, Function<Integer, ReponseCandidat> reponseParSessionQuestion,
+                        ItemsCorriges items) {
+        int score = 0;
         for (SessionQuestion sessionQuestion : questions) {
-            Optional<ReponseCandidat> reponseOpt = reponseCandidatRepository.findBySessionQuestion(sessionQuestion.getId());
-            if (reponseOpt.isPresent()) {
-                totalReponses++;
-                ReponseCandidat reponse = reponseOpt.get();
-                System.out.println("DEBUG: Question " + sessionQuestion.getQuestion().getId() + " - estCorrect: " + reponse.getEstCorrect());
-                if (Boolean.TRUE.equals(reponse.getEstCorrect())) {
-                    score++;
-                }
-            } else {
-                System.out.println("DEBUG: Question " + sessionQuestion.getQuestion().getId() + " - No response found");
+            ReponseCandidat reponse = reponseParSessionQuestion.apply(sessionQuestion.getId());
+            items.ajouter(sessionQuestion, reponse);
+            if (reponse != null && Boolean.TRUE.equals(reponse.getEstCorrect())) {
+                score++;
             }
         }
+        return score;
+    }
+    
+    /**
+     * Questions d'une session et réponses données, en tableaux parallèles pour l'analyse des questions
+     */
+    static final class ItemsCorriges {
+        private final int[] questions;
+        private final int[] options;
+        private final boolean[] repondues;
+        private final boolean[] correctes;
+        private final int[] temps;
+        private int n = 0;
+        
+        ItemsCorriges(int taille) {
+            questions = new int[taille];
+            options = new int[taille];
+            repondues = new boolean[taille];
+            correctes = new boolean[taille];
+            temps = new int[taille];
+        }
         
-        System.out.println("DEBUG: Final score - Correct: " + score + ", Total responses: " + totalReponses + ", Total questions: " + questions.size());
+        void ajouter(SessionQuestion sessionQuestion, ReponseCandidat reponse) {
+            ajouter(sessionQuestion.getQuestion().getId(),
+                reponse != null && reponse.getReponsePossible() != null ? reponse.getReponsePossible().getId() : null,
+                reponse != null,
+                reponse != null && Boolean.TRUE.equals(reponse.getEstCorrect()),
+                reponse != null ? reponse.getTempsReponse() : null);
+        }
         
-        session.setScoreTotal(score);
-        session.setScoreMax(questions.size());
+        int nombreRepondues() {
+            int repondue = 0;
+            for (int i = 0; i < n; i++) {
+                if (repondues[i]) {
+                    repondue++;
+                }
+            }
+            return repondue;
+        }
+        
+        void ajouter(int questionId, Integer optionId, boolean repondue, boolean correcte, Integer tempsReponse) {
+            questions[n] = questionId;
+            options[n] = optionId != null ? optionId : 0;
+            repondues[n] = repondue;
+            correctes[n] = correcte;
+            temps[n] = tempsReponse != null ? tempsReponse : -1;
+            n++;
+        }
     }
     
     private ReponseCandidat creerReponse(SessionQuestion sessionQuestion, Map<String, Object> reponseData) {
@@ -340,6 +675,30 @@ public class TestService {
         return reponse;
     }
     
+    /**
+     * Règle de fusion de deux écritures sur la même réponse : la réponse choisie est celle de la
+     * requête arrivée la dernière sur le serveur, quel que soit l'ordre de validation des
+     * transactions ; le temps de réponse, cumulé côté client, garde la plus grande valeur reçue.
+     */
+    private void fusionnerReponse(ReponseCandidat reponse, Map<String, Object> reponseData, LocalDateTime recueA) {
+        LocalDateTime courante = reponse.getDateModification();
+        if (courante == null || !recueA.isBefore(courante)) {
+            Integer tempsCourant = reponse.getTempsReponse();
+            mettreAJourReponse(reponse, reponseData);
+            reponse.setDateModification(recueA);
+            if (tempsCourant != null && (reponse.getTempsReponse() == null || reponse.getTempsReponse() < tempsCourant)) {
+                reponse.setTempsReponse(tempsCourant);
+            }
+            return;
+        }
+        // Écriture plus ancienne que la réponse enregistrée : seul le temps de réponse peut progresser
+        Object temps = reponseData.get("tempsReponse");
+        if (temps instanceof Integer
+            && (reponse.getTempsReponse() == null || reponse.getTempsReponse() < (Integer) temps)) {
+            reponse.setTempsReponse((Integer) temps);
+        }
+    }
+    
     private void mettreAJourReponse(ReponseCandidat reponse, Map<String, Object> reponseData) {
         if (reponseData.containsKey("reponsePossibleId")) {
             // Réponse à choix
@@ -362,30 +721,29 @@ public class TestService {
     }
     
     public boolean peutNaviguerVersQuestion(Integer sessionId, Integer questionId) throws Exception {
-        Optional<SessionTest> sessionOpt = sessionTestRepository.findById(sessionId);
-        if (sessionOpt.isEmpty()) {
-            return false;
-        }
-        
-        SessionTest session = sessionOpt.get();
-        if (session.getEstTermine()) {
-            return false;
-        }
-        
-        // Vérifier si la question appartient à cette session
-        Optional<SessionQuestion> sessionQuestionOpt = sessionQuestionRepository.findBySessionAndQuestion(sessionId, questionId);
-        return sessionQuestionOpt.isPresent();
+        // Le registre ne connaît que les sessions existantes et non terminées
+        return sessionsActivesService.contientQuestion(sessionId, questionId);
     }
     
+    /**
+     * Temps restant en secondes, calculé depuis l'échéance en mémoire ; la base n'est lue que pour
+     * une session inconnue de ce nœud, qui est alors planifiée
+     */
     public long getTempsRestant(Integer sessionId) {
+        Long echeanceMs = expirationSessionsService.getEcheanceMs(sessionId);
+        if (echeanceMs != null) {
+            return Math.max(0, (echeanceMs - System.currentTimeMillis()) / 1000);
+        }
+        
         Optional<SessionTest> sessionOpt = sessionTestRepository.findById(sessionId);
-        if (sessionOpt.isEmpty() || sessionOpt.get().getDateDebut() == null) {
+        if (sessionOpt.isEmpty() || sessionOpt.get().getDateDebut() == null || sessionOpt.get().getEstTermine()) {
             return 0;
         }
         
         SessionTest session = sessionOpt.get();
-        LocalDateTime finEstimee = session.getDateDebut().plusMinutes(120); // 2 heures de test
+        LocalDateTime finEstimee = echeance(session.getDateDebut());
         LocalDateTime maintenant = LocalDateTime.now();
+        expirationSessionsService.planifier(sessionId, session.getDateDebut());
         
         if (maintenant.isAfter(finEstimee)) {
             return 0;
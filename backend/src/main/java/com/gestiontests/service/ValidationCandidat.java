@@ -0,0 +1,19 @@
+package com.gestiontests.service;
+
+import com.gestiontests.entity.Candidat;
+
+/**
+ * Événement émis lorsqu'un administrateur valide une inscription (le code session vient d'être attribué)
+ */
+public class ValidationCandidat {
+
+    private final Candidat candidat;
+
+    public ValidationCandidat(Candidat candidat) {
+        this.candidat = candidat;
+    }
+
+    public Candidat getCandidat() {
+        return candidat;
+    }
+}
@@ -0,0 +1,114 @@
+package com.gestiontests.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compare un résultat JMH (-rf json) à la référence enregistrée et signale les benchmarks dont le
+ * temps moyen dépasse la référence de plus de 20 % ou les octets alloués par opération de plus de 10 %.
+ * Par défaut la comparaison est indicative (code 0) : la référence fournie vient d'un tir court sur
+ * un poste de développement. Avec --stricte, une régression fait échouer (code 1) ; à n'activer
+ * qu'avec une référence produite sur la machine qui exécute la comparaison.
+ *
+ * Usage : java -cp target/benchmarks.jar com.gestiontests.benchmarks.ComparaisonBaseline baseline.json resultats.json [--stricte]
+ */
+public final class ComparaisonBaseline {
+
+    private static final double TOLERANCE_TEMPS = 0.20;
+    private static final double TOLERANCE_ALLOCATIONS = 0.10;
+    private static final String METRIQUE_ALLOCATIONS = "gc.alloc.rate.norm";
+
+    // En dessous, l'écart d'allocation relève du bruit de mesure (quelques octets)
+    private static final double ALLOCATIONS_MIN_OCTETS = 64;
+
+    private static final String OPTION_STRICTE = "--stricte";
+
+    private ComparaisonBaseline() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean stricte = args.length == 3 && OPTION_STRICTE.equals(args[2]);
+        if (args.length != 2 && !stricte) {
+            System.err.println("Usage: ComparaisonBaseline <baseline.json> <resultats.json> [" + OPTION_STRICTE + "]");
+            System.exit(2);
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> reference = indexer(mapper.readTree(new File(args[0])));
+        Map<String, JsonNode> resultats = indexer(mapper.readTree(new File(args[1])));
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entree : resultats.entrySet()) {
+            JsonNode base = reference.get(entree.getKey());
+            if (base == null) {
+                System.out.println("NOUVEAU  " + entree.getKey() + " (absent de la référence)");
+                continue;
+            }
+            JsonNode courant = entree.getValue();
+
+            double tempsBase = base.path("primaryMetric").path("score").asDouble();
+            double temps = courant.path("primaryMetric").path("score").asDouble();
+            String unite = courant.path("primaryMetric").path("scoreUnit").asText();
+            boolean regressionTemps = temps > tempsBase * (1 + TOLERANCE_TEMPS);
+
+            Double allocBase = allocations(base);
+            Double alloc = allocations(courant);
+            boolean regressionAlloc = allocBase != null && alloc != null
+                && alloc > Math.max(allocBase * (1 + TOLERANCE_ALLOCATIONS), allocBase + ALLOCATIONS_MIN_OCTETS);
+
+            if (regressionTemps || regressionAlloc) {
+                regressions++;
+            }
+            System.out.println(String.format("%s %s : %.3f -> %.3f %s (%+.1f%%)%s",
+                regressionTemps || regressionAlloc ? "ECHEC   " : "OK      ",
+                entree.getKey(), tempsBase, temps, unite, ecart(tempsBase, temps),
+                alloc != null && allocBase != null
+                    ? String.format(", alloc %.0f -> %.0f B/op (%+.1f%%)", allocBase, alloc, ecart(allocBase, alloc))
+                    : ""));
+        }
+
+        for (String nom : reference.keySet()) {
+            if (!resultats.containsKey(nom)) {
+                System.out.println("ABSENT   " + nom + " (non exécuté)");
+            }
+        }
+
+        if (regressions > 0 && stricte) {
+            System.err.println(regressions + " régression(s) par rapport à " + args[0]);
+            System.exit(1);
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " régression(s) par rapport à " + args[0]
+                + " (comparaison indicative, " + OPTION_STRICTE + " pour échouer)");
+            return;
+        }
+        System.out.println("Aucune régression par rapport à " + args[0]);
+    }
+
+    /**
+     * Résultats indexés par nom de benchmark suivi de ses paramètres
+     */
+    private static Map<String, JsonNode> indexer(JsonNode racine) {
+        Map<String, JsonNode> index = new LinkedHashMap<>();
+        for (JsonNode resultat : racine) {
+            StringBuilder cle = new StringBuilder(resultat.path("benchmark").asText());
+            JsonNode params = resultat.path("params");
+            params.fieldNames().forEachRemaining(nom ->
+                cle.append(' ').append(nom).append('=').append(params.path(nom).asText()));
+            index.put(cle.toString(), resultat);
+        }
+        return index;
+    }
+
+    private static Double allocations(JsonNode resultat) {
+        JsonNode metrique = resultat.path("secondaryMetrics").path(METRIQUE_ALLOCATIONS);
+        return metrique.isMissingNode() ? null : metrique.path("score").asDouble();
+    }
+
+    private static double ecart(double base, double valeur) {
+        return base == 0 ? 0 : (valeur - base) * 100.0 / base;
+    }
+}
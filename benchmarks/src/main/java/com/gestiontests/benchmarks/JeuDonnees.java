@@ -0,0 +1,198 @@
+package com.gestiontests.benchmarks;
+
+import com.gestiontests.entity.Candidat;
+import com.gestiontests.entity.Question;
+import com.gestiontests.entity.ReponseCandidat;
+import com.gestiontests.entity.ReponsePossible;
+import com.gestiontests.entity.SessionQuestion;
+import com.gestiontests.entity.SessionTest;
+import com.gestiontests.entity.Theme;
+import com.gestiontests.entity.TypeQuestion;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Données synthétiques de taille réaliste (banque de questions, session, candidats), construites
+ * sans base de données et avec une graine fixe pour des mesures reproductibles
+ */
+public final class JeuDonnees {
+
+    public static final int OPTIONS_PAR_QUESTION = 4;
+
+    private static final String[] ECOLES = {
+        "ENSA Agadir", "ENSA Marrakech", "ENSIAS", "EMI", "INPT", "FST Settat",
+        "ENSAM Meknès", "EHTP", "ENSA Tanger", "FST Fès", "ENSET", "EST Casablanca"
+    };
+
+    private JeuDonnees() {
+    }
+
+    public static List<Theme> themes(int nombre) {
+        List<Theme> themes = new ArrayList<>();
+        for (int t = 1; t <= nombre; t++) {
+            Theme theme = new Theme();
+            theme.setId(t);
+            theme.setNom("Thème " + t);
+            themes.add(theme);
+        }
+        return themes;
+    }
+
+    /**
+     * Banque de questions groupée par thème, chaque question ayant une seule bonne réponse
+     */
+    public static Map<Integer, List<Question>> banque(List<Theme> themes, int questionsParTheme) {
+        TypeQuestion qcm = new TypeQuestion();
+        qcm.setId(1);
+        qcm.setNom("QCM");
+
+        Map<Integer, List<Question>> banque = new LinkedHashMap<>();
+        int questionId = 1;
+        int reponseId = 1;
+        for (Theme theme : themes) {
+            List<Question> questions = new ArrayList<>();
+            for (int i = 0; i < questionsParTheme; i++) {
+                Question question = new Question(theme, qcm,
+                    "Question " + questionId + " du " + theme.getNom() + " : quelle proposition est exacte ?",
+                    "Explication détaillée de la question " + questionId);
+                question.setId(questionId++);
+                List<ReponsePossible> options = new ArrayList<>();
+                for (int o = 0; o < OPTIONS_PAR_QUESTION; o++) {
+                    ReponsePossible option = new ReponsePossible();
+                    option.setId(reponseId++);
+                    option.setQuestion(question);
+                    option.setLibelle("Proposition " + (o + 1));
+                    option.setEstCorrect(o == 0);
+                    options.add(option);
+                }
+                question.setReponsesPossibles(options);
+                questions.add(question);
+            }
+            banque.put(theme.getId(), questions);
+        }
+        return banque;
+    }
+
+    /**
+     * Questions de session prises en tête de chaque thème (sans tirage aléatoire)
+     */
+    public static List<SessionQuestion> questionsSession(Map<Integer, List<Question>> banque, int parTheme, int tempsAlloue) {
+        List<SessionQuestion> questions = new ArrayList<>();
+        for (List<Question> questionsTheme : banque.values()) {
+            for (Question question : questionsTheme.subList(0, Math.min(parTheme, questionsTheme.size()))) {
+                questions.add(new SessionQuestion(null, question, 0, tempsAlloue));
+            }
+        }
+        return questions;
+    }
+
+    /**
+     * Session terminée avec ses questions, et réponses pour la proportion de questions indiquée
+     */
+    public static SessionTest session(List<SessionQuestion> questions, Candidat candidat, int sessionId) {
+        SessionTest session = new SessionTest();
+        session.setId(sessionId);
+        session.setCandidat(candidat);
+        session.setCodeSession("S" + sessionId);
+        session.setDateDebut(LocalDateTime.of(2025, 6, 1, 9, 0).plusMinutes(sessionId % 600));
+        session.setDateFin(session.getDateDebut().plusMinutes(90));
+        session.setEstTermine(true);
+        int ordre = 1;
+        int sessionQuestionId = sessionId * 1000;
+        for (SessionQuestion sq : questions) {
+            sq.setId(sessionQuestionId++);
+            sq.setOrdreAffichage(ordre++);
+            sq.setSessionTest(session);
+        }
+        session.setSessionQuestions(questions);
+        return session;
+    }
+
+    public static List<ReponseCandidat> reponses(List<SessionQuestion> questions, double tauxReponse, Random aleatoire) {
+        List<ReponseCandidat> reponses = new ArrayList<>();
+        int reponseId = 1;
+        for (SessionQuestion sq : questions) {
+            if (aleatoire.nextDouble() >= tauxReponse) {
+                continue;
+            }
+            List<ReponsePossible> options = sq.getQuestion().getReponsesPossibles();
+            ReponsePossible choisie = options.get(aleatoire.nextInt(options.size()));
+            ReponseCandidat reponse = new ReponseCandidat();
+            reponse.setId(reponseId++);
+            reponse.setSessionQuestion(sq);
+            reponse.setReponsePossible(choisie);
+            reponse.setEstCorrect(choisie.getEstCorrect());
+            reponse.setTempsReponse(10 + aleatoire.nextInt(110));
+            reponses.add(reponse);
+        }
+        return reponses;
+    }
+
+    public static List<Candidat> candidats(int nombre) {
+        List<Candidat> candidats = new ArrayList<>();
+        for (int i = 1; i <= nombre; i++) {
+            Candidat candidat = new Candidat("Nom" + i, "Prénom" + i, ECOLES[i % ECOLES.length],
+                "Informatique", "candidat" + i + "@exemple.test", "0600000000");
+            candidat.setId(i);
+            candidat.setCodeSession("C" + i);
+            candidats.add(candidat);
+        }
+        return candidats;
+    }
+
+    /**
+     * Une à deux sessions par candidat, dont une part non terminée
+     */
+    public static Map<Integer, List<SessionTest>> sessionsParCandidat(List<Candidat> candidats, Random aleatoire) {
+        Map<Integer, List<SessionTest>> sessions = new LinkedHashMap<>();
+        int sessionId = 1;
+        for (Candidat candidat : candidats) {
+            List<SessionTest> liste = new ArrayList<>();
+            int nombre = 1 + aleatoire.nextInt(2);
+            for (int s = 0; s < nombre; s++) {
+                SessionTest session = new SessionTest();
+                session.setId(sessionId);
+                session.setCandidat(candidat);
+                session.setCodeSession("S" + sessionId);
+                session.setDateDebut(LocalDateTime.of(2025, 6, 1, 9, 0).plusMinutes(sessionId % 10_000));
+                boolean terminee = aleatoire.nextDouble() < 0.9;
+                session.setEstTermine(terminee);
+                int scoreMax = 40;
+                int score = terminee ? aleatoire.nextInt(scoreMax + 1) : 0;
+                session.setScoreTotal(score);
+                session.setScoreMax(scoreMax);
+                session.setPourcentage(BigDecimal.valueOf(score * 100.0 / scoreMax).setScale(2, RoundingMode.HALF_UP));
+                liste.add(session);
+                sessionId++;
+            }
+            sessions.put(candidat.getId(), liste);
+        }
+        return sessions;
+    }
+
+    /**
+     * Lignes de la requête native de démarrage : une ligne par (question de session, réponse possible)
+     */
+    public static List<Object[]> lignesDemarrage(List<SessionQuestion> questions) {
+        List<Object[]> lignes = new ArrayList<>();
+        for (SessionQuestion sq : questions) {
+            Question q = sq.getQuestion();
+            for (ReponsePossible option : q.getReponsesPossibles()) {
+                lignes.add(new Object[] {
+                    sq.getId(), sq.getOrdreAffichage(), sq.getTempsAlloue(),
+                    q.getId(), q.getLibelle(), q.getExplication(),
+                    q.getTypeQuestion().getId(), q.getTypeQuestion().getNom(),
+                    option.getId(), option.getLibelle(), option.getEstCorrect()
+                });
+            }
+        }
+        return lignes;
+    }
+}
@@ -0,0 +1,69 @@
+package com.gestiontests.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestiontests.benchmarks.JeuDonnees;
+import com.gestiontests.config.JacksonConfiguration;
+import com.gestiontests.entity.Question;
+import com.gestiontests.entity.SessionQuestion;
+import com.gestiontests.entity.SessionTest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Réponse de /tests/demarrer : regroupement des lignes en DTO puis sérialisation Jackson
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TestResourceBenchmark {
+
+    private List<Object[]> lignes;
+    private TestResource.SessionTestDTO sessionDTO;
+    private List<TestResource.SessionQuestionDTO> questionDTOs;
+    private ObjectMapper mapper;
+
+    @Setup
+    public void preparer() {
+        Map<Integer, List<Question>> banque = JeuDonnees.banque(JeuDonnees.themes(8), 60);
+        List<SessionQuestion> questions = JeuDonnees.questionsSession(banque, 5, 120);
+        SessionTest session = JeuDonnees.session(questions, JeuDonnees.candidats(1).get(0), 1);
+        lignes = JeuDonnees.lignesDemarrage(session.getSessionQuestions());
+        sessionDTO = new TestResource.SessionTestDTO(session);
+        questionDTOs = TestResource.plierQuestions(lignes);
+        mapper = new JacksonConfiguration().getContext(Object.class);
+    }
+
+    @Benchmark
+    public List<TestResource.SessionQuestionDTO> plierQuestions() {
+        return TestResource.plierQuestions(lignes);
+    }
+
+    @Benchmark
+    public byte[] serialiserDemarrage() throws Exception {
+        return mapper.writeValueAsBytes(Map.of(
+            "message", "Test démarré avec succès",
+            "session", sessionDTO,
+            "questions", questionDTOs
+        ));
+    }
+
+    @Benchmark
+    public byte[] serialiserSession() throws Exception {
+        return mapper.writeValueAsBytes(sessionDTO);
+    }
+}
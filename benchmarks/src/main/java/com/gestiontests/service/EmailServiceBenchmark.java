@@ -0,0 +1,67 @@
+package com.gestiontests.service;
+
+import com.gestiontests.benchmarks.JeuDonnees;
+import com.gestiontests.entity.Candidat;
+import com.gestiontests.entity.CreneauHoraire;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction des gabarits HTML des e-mails (sans envoi)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmailServiceBenchmark {
+
+    private EmailService emailService;
+    private Candidat candidat;
+    private CreneauHoraire creneau;
+
+    @Setup
+    public void preparer() {
+        emailService = new EmailService();
+        candidat = JeuDonnees.candidats(1).get(0);
+        creneau = new CreneauHoraire();
+        creneau.setId(1);
+        creneau.setDateExam(LocalDate.of(2025, 6, 1));
+        creneau.setHeureDebut(LocalTime.of(9, 0));
+        creneau.setHeureFin(LocalTime.of(11, 0));
+        creneau.setDureeMinutes(120);
+    }
+
+    @Benchmark
+    public String inscription() {
+        return emailService.construireContenuInscription(candidat, creneau, "Votre inscription est en attente de validation.");
+    }
+
+    @Benchmark
+    public String validation() {
+        return emailService.construireContenuValidation(candidat);
+    }
+
+    @Benchmark
+    public String resultats() {
+        return emailService.construireContenuResultats(candidat, "31", "77.50");
+    }
+
+    @Benchmark
+    public String codeSession() {
+        return emailService.construireContenuCodeSession(candidat.getPrenom(), candidat.getCodeSession());
+    }
+}
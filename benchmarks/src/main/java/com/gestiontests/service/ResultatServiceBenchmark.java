@@ -0,0 +1,78 @@
+package com.gestiontests.service;
+
+import com.gestiontests.benchmarks.JeuDonnees;
+import com.gestiontests.entity.Candidat;
+import com.gestiontests.entity.Question;
+import com.gestiontests.entity.ReponseCandidat;
+import com.gestiontests.entity.SessionQuestion;
+import com.gestiontests.entity.SessionTest;
+import com.gestiontests.entity.Theme;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regroupements en mémoire de ResultatService (stats par école, détails de session) et export CSV
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultatServiceBenchmark {
+
+    @Param({"2000"})
+    int candidats;
+
+    private List<Candidat> listeCandidats;
+    private Map<Integer, List<SessionTest>> sessionsParCandidat;
+    private List<SessionTest> sessions;
+    private SessionTest session;
+    private List<ReponseCandidat> reponses;
+    private List<Theme> themes;
+
+    @Setup
+    public void preparer() {
+        Random aleatoire = new Random(42);
+        listeCandidats = JeuDonnees.candidats(candidats);
+        sessionsParCandidat = JeuDonnees.sessionsParCandidat(listeCandidats, aleatoire);
+        sessions = new ArrayList<>();
+        sessionsParCandidat.values().forEach(sessions::addAll);
+
+        themes = JeuDonnees.themes(8);
+        Map<Integer, List<Question>> banque = JeuDonnees.banque(themes, 60);
+        List<SessionQuestion> questions = TestService.tirerQuestions(banque, 5, 120, aleatoire);
+        session = JeuDonnees.session(questions, listeCandidats.get(0), 1);
+        reponses = JeuDonnees.reponses(questions, 0.9, aleatoire);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> statsParEcole() {
+        return ResultatService.statsParEcole(listeCandidats, sessionsParCandidat::get);
+    }
+
+    @Benchmark
+    public Map<String, Object> detailsSession() {
+        return ResultatService.detailsSession(session, reponses, themes);
+    }
+
+    @Benchmark
+    public String construireCSV() {
+        return ResultatService.construireCSV(sessions);
+    }
+}
@@ -0,0 +1,69 @@
+package com.gestiontests.service;
+
+import com.gestiontests.benchmarks.JeuDonnees;
+import com.gestiontests.entity.Question;
+import com.gestiontests.entity.ReponseCandidat;
+import com.gestiontests.entity.SessionQuestion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tirage des questions d'une session et correction (TestService.tirerQuestions / corriger)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TestServiceBenchmark {
+
+    @Param({"60", "500"})
+    int questionsParTheme;
+
+    private static final int THEMES = 8;
+    private static final int QUESTIONS_TIREES_PAR_THEME = 5;
+
+    private Map<Integer, List<Question>> banque;
+    private List<SessionQuestion> questionsSession;
+    private Map<Integer, ReponseCandidat> reponsesParSessionQuestion;
+    private Random aleatoire;
+
+    @Setup
+    public void preparer() {
+        aleatoire = new Random(42);
+        banque = JeuDonnees.banque(JeuDonnees.themes(THEMES), questionsParTheme);
+        questionsSession = TestService.tirerQuestions(banque, QUESTIONS_TIREES_PAR_THEME, 120, aleatoire);
+        JeuDonnees.session(questionsSession, JeuDonnees.candidats(1).get(0), 1);
+        reponsesParSessionQuestion = new HashMap<>();
+        for (ReponseCandidat reponse : JeuDonnees.reponses(questionsSession, 0.9, aleatoire)) {
+            reponsesParSessionQuestion.put(reponse.getSessionQuestion().getId(), reponse);
+        }
+    }
+
+    @Benchmark
+    public List<SessionQuestion> tirerQuestions() {
+        return TestService.tirerQuestions(banque, QUESTIONS_TIREES_PAR_THEME, 120, aleatoire);
+    }
+
+    @Benchmark
+    public int corriger() {
+        TestService.ItemsCorriges items = new TestService.ItemsCorriges(questionsSession.size());
+        return TestService.corriger(questionsSession, reponsesParSessionQuestion::get, items);
+    }
+}
@@ -0,0 +1,101 @@
+package com.gestiontests.charge;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Amorçage par l'API : un créneau ouvert maintenant (ou le créneau donné), puis N candidats
+ * inscrits et validés. Renvoie les codes session à utiliser.
+ */
+final class Amorcage {
+
+    private static final String[] ECOLES = {"ENSA", "ENSIAS", "EMI", "INPT", "FST"};
+    private static final DateTimeFormatter FORMAT_HEURE = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final int PARALLELISME = 16;
+
+    private Amorcage() {
+    }
+
+    static List<String> amorcer(ClientApi client, Configuration configuration) throws Exception {
+        int creneauId = configuration.creneauId != null
+            ? configuration.creneauId
+            : creerCreneau(client, configuration.candidats);
+        String campagne = Long.toString(System.currentTimeMillis(), 36);
+        System.out.println("Amorçage de " + configuration.candidats + " candidats sur le créneau " + creneauId + "...");
+
+        ExecutorService executeur = Executors.newFixedThreadPool(PARALLELISME);
+        try {
+            List<Future<String>> codes = new ArrayList<>();
+            for (int i = 0; i < configuration.candidats; i++) {
+                int numero = i;
+                codes.add(executeur.submit(() -> inscrireEtValider(client, creneauId, campagne, numero)));
+            }
+            List<String> resultat = new ArrayList<>();
+            for (Future<String> code : codes) {
+                if (code.get() != null) {
+                    resultat.add(code.get());
+                }
+            }
+            System.out.println(resultat.size() + " candidats validés");
+            return resultat;
+        } finally {
+            executeur.shutdownNow();
+        }
+    }
+
+    private static int creerCreneau(ClientApi client, int places) throws Exception {
+        LocalTime maintenant = LocalTime.now().withNano(0);
+        // Le créneau doit être atteint et non passé pendant toute la campagne (borné au jour courant)
+        LocalTime debut = maintenant.isBefore(LocalTime.of(0, 5)) ? LocalTime.MIDNIGHT : maintenant.minusMinutes(5);
+        LocalTime fin = maintenant.isAfter(LocalTime.of(20, 59)) ? LocalTime.of(23, 59, 59) : maintenant.plusHours(3);
+
+        Map<String, Object> creneau = new LinkedHashMap<>();
+        creneau.put("dateExam", LocalDate.now().toString());
+        creneau.put("heureDebut", debut.format(FORMAT_HEURE));
+        creneau.put("heureFin", fin.format(FORMAT_HEURE));
+        creneau.put("dureeMinutes", 180);
+        creneau.put("placesDisponibles", places);
+
+        ClientApi.Reponse reponse = client.appeler("amorcage-creneau", "POST", "/creneaux", creneau, null, System.nanoTime());
+        if (!reponse.succes) {
+            throw new Exception("Création du créneau impossible (HTTP " + reponse.statut + "): " + reponse.corps.path("error").asText());
+        }
+        return reponse.corps.path("creneau").path("id").asInt();
+    }
+
+    private static String inscrireEtValider(ClientApi client, int creneauId, String campagne, int numero) {
+        Map<String, Object> candidat = new LinkedHashMap<>();
+        candidat.put("nom", "Charge");
+        candidat.put("prenom", "Candidat" + numero);
+        candidat.put("ecole", ECOLES[numero % ECOLES.length]);
+        candidat.put("filiere", "Informatique");
+        candidat.put("email", "charge-" + campagne + "-" + numero + "@exemple.test");
+        candidat.put("gsm", "0600000000");
+        candidat.put("creneauId", creneauId);
+
+        ClientApi.Reponse inscription = client.appeler("amorcage-inscription", "POST", "/candidats/inscription",
+            candidat, null, System.nanoTime());
+        if (!inscription.succes) {
+            System.err.println("Inscription " + numero + " refusée: " + inscription.corps.path("error").asText());
+            return null;
+        }
+        int candidatId = inscription.corps.path("candidat").path("id").asInt();
+
+        ClientApi.Reponse validation = client.appeler("amorcage-validation", "POST", "/candidats/validation/" + candidatId,
+            Collections.emptyMap(), null, System.nanoTime());
+        if (!validation.succes) {
+            System.err.println("Validation " + numero + " refusée: " + validation.corps.path("error").asText());
+            return null;
+        }
+        return validation.corps.path("candidat").path("codeSession").asText(null);
+    }
+}
@@ -0,0 +1,204 @@
+package com.gestiontests.charge;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Parcours d'un candidat le jour de l'examen : connexion, démarrage (avec la salle d'attente),
+ * sauvegardes automatiques et interrogations du temps restant pendant la composition, puis
+ * soumission et suivi de la finalisation. Chaque étape est une tâche planifiée : un candidat
+ * n'occupe un thread que pendant ses requêtes.
+ */
+final class CandidatVirtuel {
+
+    private static final long ATTENTE_DEFAUT_MS = 2000;
+    private static final long INTERVALLE_FINALISATION_MS = 1000;
+
+    private static final long NONCE_TIR = System.currentTimeMillis();
+
+    private final String codeSession;
+    private final ClientApi client;
+    private final ScheduledExecutorService planificateur;
+    private final Configuration configuration;
+    private final Random aleatoire;
+    private final StatistiquesEndpoints statistiques;
+    private final Consumer<Boolean> fin;
+
+    private Integer sessionId;
+    // Identifie la passation dans les clés d'idempotence (le serveur garde les clés 24 h, d'un tir à l'autre)
+    private String passation;
+    private final List<JsonNode> questions = new ArrayList<>();
+    // Réponses retenues pour la soumission (complétées par les sauvegardes, lues par soumettre)
+    private final Map<String, Object> reponses = new ConcurrentHashMap<>();
+    private int prochaineQuestion = 0;
+    private long finCompositionNanos;
+    private long soumissionNanos;
+    private volatile boolean soumis = false;
+    private final AtomicBoolean termine = new AtomicBoolean(false);
+
+    CandidatVirtuel(String codeSession, ClientApi client, ScheduledExecutorService planificateur,
+                    Configuration configuration, long graine, StatistiquesEndpoints statistiques, Consumer<Boolean> fin) {
+        this.codeSession = codeSession;
+        this.client = client;
+        this.planificateur = planificateur;
+        this.configuration = configuration;
+        this.aleatoire = new Random(graine);
+        this.statistiques = statistiques;
+        this.fin = fin;
+    }
+
+    void lancer(long delaiMs) {
+        planifier(this::connexion, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delaiMs));
+    }
+
+    private interface Etape {
+        void executer(long prevuNanos);
+    }
+
+    private void planifier(Etape etape, long prevuNanos) {
+        long delai = Math.max(0, prevuNanos - System.nanoTime());
+        planificateur.schedule(() -> {
+            try {
+                etape.executer(prevuNanos);
+            } catch (RuntimeException e) {
+                System.err.println("Candidat " + codeSession + ": " + e);
+                terminer(false);
+            }
+        }, delai, TimeUnit.NANOSECONDS);
+    }
+
+    private void connexion(long prevu) {
+        ClientApi.Reponse reponse = client.appeler("connexion", "POST", "/candidats/connexion",
+            Map.of("codeSession", codeSession), null, prevu);
+        if (!reponse.succes) {
+            terminer(false);
+            return;
+        }
+        planifier(this::demarrer, System.nanoTime());
+    }
+
+    private void demarrer(long prevu) {
+        ClientApi.Reponse reponse = client.appeler("demarrer", "POST", "/tests/demarrer",
+            Map.of("codeSession", codeSession), null, prevu);
+        if (reponse.statut == 202) {
+            // Salle d'attente : nouvel essai après le délai conseillé
+            planifier(this::demarrer, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(reponse.retryAfterMs(ATTENTE_DEFAUT_MS)));
+            return;
+        }
+        if (!reponse.succes || !reponse.corps.path("session").has("id")) {
+            terminer(false);
+            return;
+        }
+
+        sessionId = reponse.corps.path("session").path("id").asInt();
+        passation = sessionId + "-" + dateDebut(reponse.corps.path("session").path("dateDebut"));
+        reponse.corps.path("questions").forEach(questions::add);
+
+        long maintenant = System.nanoTime();
+        finCompositionNanos = maintenant + TimeUnit.SECONDS.toNanos(configuration.dureeTestSecondes);
+        // Décalage aléatoire pour ne pas synchroniser les sauvegardes de tous les candidats
+        planifier(this::sauvegarder, maintenant + (long) (aleatoire.nextDouble() * TimeUnit.SECONDS.toNanos(configuration.sauvegardeSecondes)));
+        planifier(this::sonder, maintenant + (long) (aleatoire.nextDouble() * TimeUnit.SECONDS.toNanos(configuration.sondageSecondes)));
+        planifier(this::soumettre, finCompositionNanos);
+    }
+
+    // Même clé que le frontend (soumission-<id>-<dateDebut>) ; date absente : propre à ce tir
+    private static String dateDebut(JsonNode date) {
+        if (date.isMissingNode() || date.isNull()) {
+            return Long.toString(NONCE_TIR);
+        }
+        return date.isValueNode() ? date.asText() : date.toString();
+    }
+
+    private void sauvegarder(long prevu) {
+        if (soumis || questions.isEmpty()) {
+            return;
+        }
+        JsonNode question = questions.get(prochaineQuestion % questions.size()).path("question");
+        prochaineQuestion++;
+        String questionId = question.path("id").asText();
+
+        Map<String, Object> corps = new LinkedHashMap<>();
+        corps.put("questionId", question.path("id").asInt());
+        corps.put("tempsReponse", configuration.sauvegardeSecondes);
+        JsonNode options = question.path("reponsesPossibles");
+        if (options.size() > 0) {
+            int reponsePossibleId = options.get(aleatoire.nextInt(options.size())).path("id").asInt();
+            corps.put("reponsePossibleId", reponsePossibleId);
+            reponses.put(questionId, reponsePossibleId);
+        } else {
+            corps.put("reponseText", "réponse " + prochaineQuestion);
+            reponses.put(questionId, "réponse " + prochaineQuestion);
+        }
+
+        client.appeler("reponses", "POST", "/tests/" + sessionId + "/reponses", corps,
+            Map.of("Idempotency-Key", "charge-" + passation + "-" + prochaineQuestion), prevu);
+
+        long suivante = prevu + TimeUnit.SECONDS.toNanos(configuration.sauvegardeSecondes);
+        if (suivante < finCompositionNanos) {
+            planifier(this::sauvegarder, suivante);
+        }
+    }
+
+    private void sonder(long prevu) {
+        if (soumis) {
+            return;
+        }
+        client.appeler("temps-restant", "GET", "/tests/" + sessionId + "/temps-restant", null, null, prevu);
+        long suivant = prevu + TimeUnit.SECONDS.toNanos(configuration.sondageSecondes);
+        if (suivant < finCompositionNanos) {
+            planifier(this::sonder, suivant);
+        }
+    }
+
+    private void soumettre(long prevu) {
+        soumis = true;
+        if (soumissionNanos == 0) {
+            soumissionNanos = prevu;
+        }
+        ClientApi.Reponse reponse = client.appeler("soumettre", "POST", "/tests/soumettre",
+            Map.of("sessionId", sessionId, "answers", reponses),
+            Map.of("Idempotency-Key", "soumission-" + passation), prevu, 503);
+        if (reponse.statut == 503) {
+            // File de finalisation pleine : le serveur demande de réessayer
+            planifier(this::soumettre, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(reponse.retryAfterMs(ATTENTE_DEFAUT_MS)));
+        } else if (reponse.statut == 202) {
+            planifier(this::suivreFinalisation, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(INTERVALLE_FINALISATION_MS));
+        } else {
+            terminerSoumission(reponse.succes);
+        }
+    }
+
+    private void suivreFinalisation(long prevu) {
+        ClientApi.Reponse reponse = client.appeler("finalisation", "GET", "/tests/" + sessionId + "/finalisation",
+            null, null, prevu);
+        if (reponse.statut == 202) {
+            planifier(this::suivreFinalisation, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(INTERVALLE_FINALISATION_MS));
+        } else {
+            terminerSoumission(reponse.succes);
+        }
+    }
+
+    private void terminerSoumission(boolean succes) {
+        // Délai ressenti par le candidat entre le clic sur « soumettre » et l'affichage du score
+        statistiques.enregistrer("soumission-resultat", System.nanoTime() - soumissionNanos, succes ? 200 : 0, !succes);
+        terminer(succes);
+    }
+
+    private void terminer(boolean succes) {
+        soumis = true;
+        if (termine.compareAndSet(false, true)) {
+            fin.accept(succes);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.gestiontests.charge;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Appels HTTP mesurés vers l'API du backend
+ */
+final class ClientApi {
+
+    private final HttpClient client;
+    private final ObjectMapper json = new ObjectMapper();
+    private final String url;
+    private final Duration delaiRequete;
+    private final StatistiquesEndpoints statistiques;
+
+    ClientApi(Configuration configuration, StatistiquesEndpoints statistiques) {
+        this.client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+        this.url = configuration.url;
+        this.delaiRequete = Duration.ofSeconds(configuration.delaiRequeteSecondes);
+        this.statistiques = statistiques;
+    }
+
+    /**
+     * @param prevuNanos instant (System.nanoTime) auquel l'appel devait partir
+     * @param attendus statuts considérés comme des succès, en plus des 2xx
+     */
+    Reponse appeler(String endpoint, String methode, String chemin, Object corps,
+                    Map<String, String> entetes, long prevuNanos, int... attendus) {
+        int statut = 0;
+        JsonNode contenu = MissingNode.getInstance();
+        String retryAfter = null;
+        try {
+            HttpRequest.Builder requete = HttpRequest.newBuilder(URI.create(url + chemin))
+                .timeout(delaiRequete)
+                .header("Accept", "application/json");
+            if (entetes != null) {
+                entetes.forEach(requete::header);
+            }
+            if (corps != null) {
+                requete.header("Content-Type", "application/json")
+                    .method(methode, HttpRequest.BodyPublishers.ofByteArray(json.writeValueAsBytes(corps)));
+            } else {
+                requete.method(methode, HttpRequest.BodyPublishers.noBody());
+            }
+
+            HttpResponse<byte[]> reponse = client.send(requete.build(), HttpResponse.BodyHandlers.ofByteArray());
+            statut = reponse.statusCode();
+            retryAfter = reponse.headers().firstValue("Retry-After").orElse(null);
+            if (reponse.body().length > 0) {
+                try {
+                    contenu = json.readTree(reponse.body());
+                } catch (Exception e) {
+                    // Corps non JSON (page d'erreur du serveur) : seul le statut compte
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Échec réseau ou délai dépassé : statut 0
+        }
+
+        boolean succes = statut >= 200 && statut < 300;
+        for (int attendu : attendus) {
+            succes |= statut == attendu;
+        }
+        statistiques.enregistrer(endpoint, System.nanoTime() - prevuNanos, statut, !succes);
+        return new Reponse(statut, contenu, retryAfter, succes);
+    }
+
+    static final class Reponse {
+        final int statut;
+        final JsonNode corps;
+        final boolean succes;
+        private final String retryAfter;
+
+        Reponse(int statut, JsonNode corps, String retryAfter, boolean succes) {
+            this.statut = statut;
+            this.corps = corps;
+            this.retryAfter = retryAfter;
+            this.succes = succes;
+        }
+
+        long retryAfterMs(long defautMs) {
+            JsonNode champ = corps.path("retryAfter");
+            try {
+                if (retryAfter != null) {
+                    return Long.parseLong(retryAfter.trim()) * 1000;
+                }
+            } catch (NumberFormatException e) {
+                // Date HTTP : on se rabat sur le corps ou la valeur par défaut
+            }
+            return champ.canConvertToLong() ? champ.asLong() * 1000 : defautMs;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.gestiontests.charge;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paramètres d'une campagne de charge, lus sur la ligne de commande sous la forme --cle=valeur
+ */
+final class Configuration {
+
+    String url = "http://localhost:8080/gestion-tests-backend/api";
+
+    // Nombre de candidats virtuels ; ignoré si des codes sont fournis
+    int candidats = 100;
+
+    // Créneau existant à utiliser ; sinon un créneau couvrant l'instant présent est créé
+    Integer creneauId = null;
+
+    // Codes session déjà validés (séparés par des virgules) : pas d'amorçage
+    String[] codes = null;
+
+    CourbeArrivee arrivee = CourbeArrivee.analyser("simultanee");
+
+    // Durée pendant laquelle chaque candidat compose avant de soumettre
+    int dureeTestSecondes = 300;
+
+    // Intervalle des sauvegardes automatiques de réponse
+    int sauvegardeSecondes = 20;
+
+    // Intervalle des interrogations du temps restant
+    int sondageSecondes = 10;
+
+    // Threads exécutant les requêtes (chaque étape d'un candidat est une tâche planifiée)
+    int threads = 200;
+
+    int delaiRequeteSecondes = 30;
+
+    long graine = 42;
+
+    static Configuration analyser(String[] args) {
+        Map<String, String> valeurs = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Argument invalide: " + arg);
+            }
+            int egal = arg.indexOf('=');
+            if (egal < 0) {
+                valeurs.put(arg.substring(2), "true");
+            } else {
+                valeurs.put(arg.substring(2, egal), arg.substring(egal + 1));
+            }
+        }
+
+        Configuration c = new Configuration();
+        for (Map.Entry<String, String> e : valeurs.entrySet()) {
+            String v = e.getValue();
+            switch (e.getKey()) {
+                case "url": c.url = v.endsWith("/") ? v.substring(0, v.length() - 1) : v; break;
+                case "candidats": c.candidats = Integer.parseInt(v); break;
+                case "creneau": c.creneauId = Integer.valueOf(v); break;
+                case "codes": c.codes = v.split(","); break;
+                case "arrivee": c.arrivee = CourbeArrivee.analyser(v); break;
+                case "duree-test": c.dureeTestSecondes = Integer.parseInt(v); break;
+                case "sauvegarde": c.sauvegardeSecondes = Integer.parseInt(v); break;
+                case "sondage": c.sondageSecondes = Integer.parseInt(v); break;
+                case "threads": c.threads = Integer.parseInt(v); break;
+                case "delai-requete": c.delaiRequeteSecondes = Integer.parseInt(v); break;
+                case "graine": c.graine = Long.parseLong(v); break;
+                case "aide": afficherAide(); System.exit(0); break;
+                default: throw new IllegalArgumentException("Option inconnue: --" + e.getKey());
+            }
+        }
+        if (c.codes != null) {
+            c.candidats = c.codes.length;
+        }
+        return c;
+    }
+
+    static void afficherAide() {
+        System.out.println("Options (--cle=valeur) :");
+        System.out.println("  --url            base de l'API (défaut http://localhost:8080/gestion-tests-backend/api)");
+        System.out.println("  --candidats      nombre de candidats amorcés (défaut 100)");
+        System.out.println("  --creneau        créneau existant où inscrire les candidats");
+        System.out.println("  --codes          codes session déjà validés, séparés par des virgules");
+        System.out.println("  --arrivee        simultanee | rampe:SECONDES | poisson:PAR_SECONDE | vagues:NxSECONDES");
+        System.out.println("  --duree-test     secondes de composition avant soumission (défaut 300)");
+        System.out.println("  --sauvegarde     intervalle des sauvegardes de réponse en secondes (défaut 20)");
+        System.out.println("  --sondage        intervalle des appels temps-restant en secondes (défaut 10)");
+        System.out.println("  --threads        threads d'exécution des requêtes (défaut 200)");
+        System.out.println("  --delai-requete  délai maximal d'une requête en secondes (défaut 30)");
+        System.out.println("  --graine         graine aléatoire (défaut 42)");
+    }
+}
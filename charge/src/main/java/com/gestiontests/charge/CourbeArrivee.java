@@ -0,0 +1,61 @@
+package com.gestiontests.charge;
+
+import java.util.Random;
+
+/**
+ * Instants d'arrivée des candidats, en millisecondes depuis le début de la campagne
+ */
+interface CourbeArrivee {
+
+    long[] instants(int candidats, Random aleatoire);
+
+    /**
+     * simultanee : tout le monde à l'ouverture du créneau ;
+     * rampe:S : arrivées réparties uniformément sur S secondes ;
+     * poisson:R : processus de Poisson de R arrivées par seconde en moyenne ;
+     * vagues:NxS : N vagues simultanées espacées de S secondes (retardataires, relances)
+     */
+    static CourbeArrivee analyser(String specification) {
+        String[] parties = specification.split(":", 2);
+        switch (parties[0]) {
+            case "simultanee":
+                return (n, aleatoire) -> new long[n];
+            case "rampe": {
+                long dureeMs = Long.parseLong(parties[1]) * 1000;
+                return (n, aleatoire) -> {
+                    long[] instants = new long[n];
+                    for (int i = 0; i < n; i++) {
+                        instants[i] = n > 1 ? dureeMs * i / (n - 1) : 0;
+                    }
+                    return instants;
+                };
+            }
+            case "poisson": {
+                double parSeconde = Double.parseDouble(parties[1]);
+                return (n, aleatoire) -> {
+                    long[] instants = new long[n];
+                    double t = 0;
+                    for (int i = 0; i < n; i++) {
+                        instants[i] = Math.round(t * 1000);
+                        t += -Math.log(1 - aleatoire.nextDouble()) / parSeconde;
+                    }
+                    return instants;
+                };
+            }
+            case "vagues": {
+                String[] nx = parties[1].split("x");
+                int vagues = Integer.parseInt(nx[0]);
+                long espacementMs = Long.parseLong(nx[1]) * 1000;
+                return (n, aleatoire) -> {
+                    long[] instants = new long[n];
+                    for (int i = 0; i < n; i++) {
+                        instants[i] = (long) (i % vagues) * espacementMs;
+                    }
+                    return instants;
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Courbe d'arrivée inconnue: " + specification);
+        }
+    }
+}
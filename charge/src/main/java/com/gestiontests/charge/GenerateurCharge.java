@@ -0,0 +1,83 @@
+package com.gestiontests.charge;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Générateur de charge d'une journée d'examen, à lancer contre un backend démarré localement
+ * (MySQL local ou base en mémoire) :
+ * mvn -q compile exec:java -Dexec.args="--candidats=500 --arrivee=simultanee --duree-test=120"
+ */
+public class GenerateurCharge {
+
+    private static final long PERIODE_PROGRES_S = 10;
+
+    public static void main(String[] args) throws Exception {
+        Configuration configuration;
+        try {
+            configuration = Configuration.analyser(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            Configuration.afficherAide();
+            System.exit(2);
+            return;
+        }
+
+        StatistiquesEndpoints statistiques = new StatistiquesEndpoints();
+        ClientApi client = new ClientApi(configuration, statistiques);
+
+        List<String> codes = configuration.codes != null
+            ? Arrays.asList(configuration.codes)
+            : Amorcage.amorcer(client, configuration);
+        if (codes.isEmpty()) {
+            System.err.println("Aucun candidat à faire passer");
+            statistiques.afficher(System.out);
+            System.exit(1);
+            return;
+        }
+
+        Random aleatoire = new Random(configuration.graine);
+        long[] arrivees = configuration.arrivee.instants(codes.size(), aleatoire);
+        long derniereArriveeMs = Arrays.stream(arrivees).max().orElse(0);
+
+        ScheduledExecutorService planificateur = Executors.newScheduledThreadPool(configuration.threads);
+        CountDownLatch restants = new CountDownLatch(codes.size());
+        AtomicInteger reussis = new AtomicInteger();
+        AtomicInteger echoues = new AtomicInteger();
+
+        System.out.println("Campagne: " + codes.size() + " candidats, dernière arrivée à " + derniereArriveeMs / 1000
+            + " s, composition de " + configuration.dureeTestSecondes + " s");
+        long debut = System.nanoTime();
+        for (int i = 0; i < codes.size(); i++) {
+            CandidatVirtuel candidat = new CandidatVirtuel(codes.get(i), client, planificateur, configuration,
+                aleatoire.nextLong(), statistiques, succes -> {
+                    (succes ? reussis : echoues).incrementAndGet();
+                    restants.countDown();
+                });
+            candidat.lancer(arrivees[i]);
+        }
+
+        planificateur.scheduleAtFixedRate(() -> System.out.printf("[%4d s] requêtes=%d erreurs=%d parcours terminés=%d/%d%n",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - debut), statistiques.getRequetes(),
+                statistiques.getErreurs(), reussis.get() + echoues.get(), codes.size()),
+            PERIODE_PROGRES_S, PERIODE_PROGRES_S, TimeUnit.SECONDS);
+
+        // Marge pour la salle d'attente, la file de finalisation et les délais de requête
+        long attenteMaxS = derniereArriveeMs / 1000 + configuration.dureeTestSecondes + 600;
+        boolean complet = restants.await(attenteMaxS, TimeUnit.SECONDS);
+        planificateur.shutdownNow();
+
+        System.out.println();
+        System.out.printf("Durée %d s, parcours réussis %d, échoués %d%s%n",
+            TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - debut), reussis.get(), echoues.get(),
+            complet ? "" : ", " + restants.getCount() + " inachevés");
+        statistiques.afficher(System.out);
+        System.exit(echoues.get() == 0 && complet ? 0 : 1);
+    }
+}
@@ -0,0 +1,69 @@
+package com.gestiontests.charge;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latences (HdrHistogram, en microsecondes) et erreurs par endpoint. La latence d'un appel
+ * est comptée depuis son instant prévu et non depuis son envoi effectif : un générateur en
+ * retard sur son planning ne masque donc pas les ralentissements du serveur.
+ */
+final class StatistiquesEndpoints {
+
+    private static final long LATENCE_MAX_US = TimeUnit.MINUTES.toMicros(10);
+
+    private final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    void enregistrer(String endpoint, long latenceNanos, int statut, boolean erreur) {
+        Endpoint e = endpoints.computeIfAbsent(endpoint, nom -> new Endpoint());
+        e.latences.recordValue(Math.max(0, Math.min(LATENCE_MAX_US, TimeUnit.NANOSECONDS.toMicros(latenceNanos))));
+        (erreur ? e.erreurs : e.succes).incrementAndGet();
+        e.statuts.computeIfAbsent(statut, s -> new AtomicLong()).incrementAndGet();
+    }
+
+    long getRequetes() {
+        return endpoints.values().stream().mapToLong(e -> e.succes.get() + e.erreurs.get()).sum();
+    }
+
+    long getErreurs() {
+        return endpoints.values().stream().mapToLong(e -> e.erreurs.get()).sum();
+    }
+
+    void afficher(PrintStream sortie) {
+        sortie.printf("%-22s %9s %8s %8s %9s %9s %9s %9s %9s  %s%n",
+            "endpoint", "requêtes", "erreurs", "taux", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "statuts");
+        for (Map.Entry<String, Endpoint> entree : new TreeMap<>(endpoints).entrySet()) {
+            Endpoint e = entree.getValue();
+            Histogram h = e.latences.copy();
+            long erreurs = e.erreurs.get();
+            long total = e.succes.get() + erreurs;
+            Map<Integer, Long> statuts = new TreeMap<>();
+            e.statuts.forEach((statut, n) -> statuts.put(statut, n.get()));
+            sortie.printf("%-22s %9d %8d %7.2f%% %9.1f %9.1f %9.1f %9.1f %9.1f  %s%n",
+                entree.getKey(), total, erreurs, total > 0 ? erreurs * 100.0 / total : 0.0,
+                ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(90)),
+                ms(h.getValueAtPercentile(99)), ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()),
+                statuts);
+        }
+    }
+
+    private static double ms(long microsecondes) {
+        return microsecondes / 1000.0;
+    }
+
+    private static final class Endpoint {
+        private final ConcurrentHistogram latences = new ConcurrentHistogram(LATENCE_MAX_US, 3);
+        private final AtomicLong succes = new AtomicLong();
+        private final AtomicLong erreurs = new AtomicLong();
+        // Statut HTTP, 0 pour un échec réseau ou un délai dépassé
+        private final ConcurrentSkipListMap<Integer, AtomicLong> statuts = new ConcurrentSkipListMap<>();
+    }
+}
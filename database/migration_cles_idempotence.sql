@@ -0,0 +1,6 @@
+-- Empreinte (SHA-256) du corps de la requête d'origine de chaque clé d'idempotence.
+-- À exécuter une fois sur une base créée avant l'ajout de la colonne : les clés déjà mémorisées
+-- gardent une empreinte nulle et sont rejouées sans comparaison jusqu'à leur expiration (24 h).
+
+ALTER TABLE cles_idempotence
+    ADD COLUMN empreinte CHAR(64) NULL AFTER created_at;
@@ -0,0 +1,11 @@
+-- Une seule réponse par question de session (clé unique_reponse_session_question).
+-- À exécuter une fois sur une base créée avant l'ajout de la clé : les doublons laissés par des
+-- premières sauvegardes simultanées sont supprimés en gardant la réponse insérée la dernière.
+
+DELETE r FROM reponses_candidat r
+JOIN reponses_candidat plus_recente
+  ON plus_recente.id_session_question = r.id_session_question
+ AND plus_recente.id > r.id;
+
+ALTER TABLE reponses_candidat
+    ADD UNIQUE KEY unique_reponse_session_question (id_session_question);
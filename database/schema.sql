@@ -88,6 +88,7 @@ CREATE TABLE sessions_test (
     score_total INT DEFAULT 0,
     score_max INT DEFAULT 0,
     pourcentage DECIMAL(5,2) DEFAULT 0,
+    version INT NOT NULL DEFAULT 0,
     FOREIGN KEY (id_candidat) REFERENCES candidats(id),
     FOREIGN KEY (id_creneau) REFERENCES creneaux_horaires(id)
 );
@@ -112,6 +113,9 @@ CREATE TABLE reponses_candidat (
     temps_reponse INT, 
     date_reponse TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     est_correct BOOLEAN DEFAULT FALSE,
+    date_modification TIMESTAMP(6) NULL,
+    version INT NOT NULL DEFAULT 0,
+    UNIQUE KEY unique_reponse_session_question (id_session_question),
     FOREIGN KEY (id_session_question) REFERENCES session_questions(id),
     FOREIGN KEY (id_reponse_possible) REFERENCES reponses_possibles(id)
 );
@@ -126,6 +130,29 @@ CREATE TABLE parametres (
 );
 
 
+CREATE TABLE esquisses_scores (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    dimension VARCHAR(20) NOT NULL,
+    cle VARCHAR(150) NOT NULL,
+    donnees LONGTEXT NOT NULL,
+    derniere_fin TIMESTAMP NULL,
+    derniere_session INT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY unique_esquisse (dimension, cle)
+);
+
+CREATE TABLE cles_idempotence (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    cle VARCHAR(200) NOT NULL,
+    statut_http INT NOT NULL,
+    reponse LONGTEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    empreinte CHAR(64) NULL,
+    UNIQUE KEY unique_cle_idempotence (cle),
+    INDEX idx_cles_idempotence_date (created_at)
+);
+
+
 CREATE TABLE administrateurs (
     id INT AUTO_INCREMENT PRIMARY KEY,
     username VARCHAR(50) NOT NULL UNIQUE,
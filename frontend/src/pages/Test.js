@@ -51,10 +51,12 @@ const Test = () => {
   const handleSubmitTest = useCallback(async () => {
     setSubmitting(true);
     try {
-      const response = await fetch(`${API_BASE_URL}/tests/soumettre`, {
+      let response = await fetch(`${API_BASE_URL}/tests/soumettre`, {
         method: 'POST',
         headers: {
           'Content-Type': 'application/json',
+          // Même clé pour toutes les tentatives de soumission de cette passation
+          'Idempotency-Key': `soumission-${session.id}-${session.dateDebut}`,
         },
         body: JSON.stringify({
           sessionId: session.id,
@@ -72,6 +74,12 @@ const Test = () => {
         data = { error: text };
       }
 
+      // Finalisation asynchrone : attendre le score sur la ressource de suivi
+      while (response.status === 202) {
+        response = await fetch(`${API_BASE_URL}/tests/${session.id}/finalisation?attendre=30`);
+        data = await response.json();
+      }
+
       if (response.ok) {
         setIsFinished(true);
         toast.success('Test terminé !');
@@ -118,6 +126,7 @@ const Test = () => {
 
   const startTest = async () => {
     setLoading(true);
+    let enAttente = false;
     try {
       const response = await fetch(`${API_BASE_URL}/tests/demarrer`, {
         method: 'POST',
@@ -129,7 +138,16 @@ const Test = () => {
 
       const data = await response.json();
       
+      if (response.status === 202) {
+        // Salle d'attente : nouvelle tentative après le délai indiqué par le serveur
+        toast(`Démarrage en attente (position ${data.position})...`, { id: 'attente-demarrage' });
+        enAttente = true;
+        setTimeout(startTest, (data.retryAfter || 2) * 1000);
+        return;
+      }
+      
       if (response.ok) {
+        toast.dismiss('attente-demarrage');
         setSession(data.session);
         setQuestions(data.questions);
         setCurrentQuestionIndex(0);
@@ -145,7 +163,9 @@ const Test = () => {
       console.error('Error starting test:', error);
       toast.error('Erreur de connexion au serveur');
     } finally {
-      setLoading(false);
+      if (!enAttente) {
+        setLoading(false);
+      }
     }
   };
 